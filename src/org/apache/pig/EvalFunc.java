@@ -369,6 +369,18 @@ public abstract class EvalFunc<T>  {
         return false;
     }
 
+    /**
+     * Whether several instances of the UDF may run at the same time on different
+     * threads of one task, each seeing only part of the task's input. This is used
+     * when {@link org.apache.pig.PigConfiguration#PIG_EXEC_MORSEL_PARALLELISM} is set.
+     * UDFs that share mutable static state or depend on seeing all records of a task
+     * in a single instance should return false.
+     * @return Whether or not parallel execution is allowed, default to true
+     */
+    public boolean allowParallelExecution() {
+        return true;
+    }
+
     public void setEndOfAllInput(boolean endOfAllInput) {
     }
 
@@ -18,8 +18,10 @@
 
 package org.apache.pig;
 
+import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
+import java.util.WeakHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,19 +33,31 @@ public class ExecTypeProvider {
 
     private static final Log log = LogFactory.getLog(ExecTypeProvider.class);
 
+    // ServiceLoader keeps the ExecTypes it has instantiated and only scans
+    // further service entries when asked, so it is kept per context class
+    // loader instead of scanning the service files for every PigContext.
+    private static final Map<ClassLoader, ServiceLoader<ExecType>> loaders =
+            new WeakHashMap<ClassLoader, ServiceLoader<ExecType>>();
+
     public static ExecType selectExecType(Properties properties)
             throws PigException {
 
-        ServiceLoader<ExecType> frameworkLoader = ServiceLoader
-                .load(ExecType.class);
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        synchronized (loaders) {
+            ServiceLoader<ExecType> frameworkLoader = loaders.get(cl);
+            if (frameworkLoader == null) {
+                frameworkLoader = ServiceLoader.load(ExecType.class, cl);
+                loaders.put(cl, frameworkLoader);
+            }
 
-        for (ExecType execType : frameworkLoader) {
-            log.info("Trying ExecType : " + execType);
-            if (execType.accepts(properties)) {
-                log.info("Picked " + execType + " as the ExecType");
-                return getSingleton(execType);
-            } else {
-                log.debug("Cannot pick " + execType + " as the ExecType");
+            for (ExecType execType : frameworkLoader) {
+                log.info("Trying ExecType : " + execType);
+                if (execType.accepts(properties)) {
+                    log.info("Picked " + execType + " as the ExecType");
+                    return getSingleton(execType);
+                } else {
+                    log.debug("Cannot pick " + execType + " as the ExecType");
+                }
             }
         }
         throw new PigException("Unknown exec type: "
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig;
+
+import java.io.IOException;
+
+import org.apache.pig.classification.InterfaceAudience;
+import org.apache.pig.classification.InterfaceStability;
+
+/**
+ * This interface defines how a loader can filter records with a filter that
+ * is only known when the task runs, like the bloom filter built from the
+ * other input of a bloom join. Unlike {@link LoadPredicatePushdown}, the
+ * filter is not an expression known at compile time and can only be used to
+ * drop records, not to prune splits.
+ * <p/>
+ * Loaders do not have to implement this interface for the records to be
+ * filtered, Pig drops the records that do not pass the filter right after
+ * reading them. Loaders implementing it can discard the records earlier, for
+ * example before their fields are converted.
+ *
+ * @since Pig 0.18
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public interface LoadRuntimeFilterPushdown {
+
+    /**
+     * Filter on the value of a field
+     */
+    interface RuntimeFilter {
+        /**
+         * @param value value of the field, can be null
+         * @return false if the record can be dropped. There can be false
+         * positives
+         * @throws IOException
+         */
+        boolean mightContain(Object value) throws IOException;
+    }
+
+    /**
+     * Push down a filter to the loader. It is called before the first call
+     * to {@link LoadFunc#getNext()}, but not necessarily after
+     * {@link LoadFunc#prepareToRead(org.apache.hadoop.mapreduce.RecordReader, org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigSplit)}.
+     *
+     * @param fieldIndex position of the field in the tuples returned by
+     * {@link LoadFunc#getNext()}, after projection pushdown
+     * @param filter filter the value of the field has to pass
+     * @throws IOException
+     */
+    void setRuntimeFilter(int fieldIndex, RuntimeFilter filter) throws IOException;
+
+}
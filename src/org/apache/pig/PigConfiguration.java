@@ -58,11 +58,69 @@ public class PigConfiguration {
     public static final long PIG_INTERSTORAGE_SYNCMARKER_INTERVAL_DEFAULT = 2000;
 
 
+    /**
+     * Boolean value used to enable or disable reading input on a separate thread ahead of the
+     * pipeline, so that I/O, decompression and parsing overlap with operator execution. The
+     * loaders must return a new tuple for every getNext() call. False by default
+     */
+    public static final String PIG_INPUT_PREFETCH = "pig.input.prefetch";
+
+    /**
+     * Number of tuples read ahead when {@link #PIG_INPUT_PREFETCH} is enabled. Default is 1000
+     */
+    public static final String PIG_INPUT_PREFETCH_BUFFER_SIZE = "pig.input.prefetch.buffer.size";
+
+    /**
+     * Number of threads used to run the stateless part (FILTER, FOREACH) of a map task's pipeline.
+     * Each thread runs its own copy of the operators on morsels of the input; stores and
+     * rearranges stay on the task thread. UDFs can opt out through
+     * {@link EvalFunc#allowParallelExecution()}. Default is 1 (disabled)
+     */
+    public static final String PIG_EXEC_MORSEL_PARALLELISM = "pig.exec.morsel.parallelism";
+
+    /**
+     * Number of input tuples handed to a thread at a time when {@link #PIG_EXEC_MORSEL_PARALLELISM}
+     * is greater than 1. Default is 1000
+     */
+    public static final String PIG_EXEC_MORSEL_SIZE = "pig.exec.morsel.size";
+
     /**
      * Boolean value used to enable or disable fetching without a mapreduce job for DUMP. True by default
      */
     public static final String PIG_OPT_FETCH = "opt.fetch";
 
+    /**
+     * Boolean value used to enable or disable incremental execution. When enabled, the STOREs of
+     * a GROUP with Algebraic aggregations over append-only file inputs keep the intermediate state
+     * of the aggregations and the list of processed input files next to the output, and the next
+     * runs only process the new files and merge them with the saved state. False by default
+     */
+    public static final String PIG_INCREMENTAL_ENABLED = "pig.incremental.enabled";
+
+    /**
+     * Directory where the state of incremental execution is kept. By default the state of an
+     * output is kept in a hidden directory next to it
+     */
+    public static final String PIG_INCREMENTAL_STATE_DIR = "pig.incremental.state.dir";
+
+    /**
+     * Boolean value to enable the result cache. When enabled, the relations computed by a GROUP,
+     * JOIN or DISTINCT of file inputs are kept in a cache directory, and the scripts that compute
+     * the same relation from the same input files load it from the cache. False by default
+     */
+    public static final String PIG_RESULT_CACHE_ENABLED = "pig.resultcache.enabled";
+
+    /**
+     * Directory of the result cache. Default is pig-result-cache under pig.temp.dir
+     */
+    public static final String PIG_RESULT_CACHE_DIR = "pig.resultcache.dir";
+
+    /**
+     * Maximum size in bytes of the result cache, the least recently used relations are evicted
+     * when it is larger. Default is 10GB
+     */
+    public static final String PIG_RESULT_CACHE_MAX_SIZE = "pig.resultcache.max.size";
+
     // Pig query planning and execution optimizations
     /**
      * Boolean value used to enable or disable multiquery optimization. True by default
@@ -113,6 +171,20 @@ public class PigConfiguration {
      */
     public static final String PIG_EXEC_MAP_PARTAGG_MINREDUCTION = "pig.exec.mapPartAgg.minReduction";
 
+    /**
+     * Boolean value to enable or disable partial aggregation in map of CUBE and ROLLUP
+     * by all dimensions, deriving the other grouping sets from the partial results.
+     * Enabled by default
+     */
+    public static final String PIG_EXEC_MAP_PARTAGG_CUBE = "pig.exec.mapPartAgg.cube";
+
+    /**
+     * Largest LIMIT for which an ORDER BY followed by that LIMIT is run as a top-N: every
+     * task keeps its best records in a bounded heap and a single task merges the heaps,
+     * instead of sampling the input and range partitioning it. 0 turns it off. Default is 10000
+     */
+    public static final String PIG_EXEC_TOPN_MAX_LIMIT = "pig.exec.topn.max.limit";
+
     /**
      * Boolean value to enable or disable use of combiners in MapReduce jobs. Enabled by default
      */
@@ -207,12 +279,32 @@ public class PigConfiguration {
      * To turn off combiner when most of the keys are unique.
      */
     public static final String PIG_BLOOMJOIN_NOCOMBINER = "pig.bloomjoin.nocombiner";
+
+    /**
+     * Whether the bloom filter is applied to the records of the other input
+     * right after they are loaded instead of before the shuffle. Records that
+     * are not joined are then dropped before being processed by the other
+     * operators of the vertex, and by the loader itself if it implements
+     * {@link LoadRuntimeFilterPushdown}. Only applies when the join key is a
+     * field of the loaded records. Default is true.
+     */
+    public static final String PIG_BLOOMJOIN_LOAD_PUSHDOWN = "pig.bloomjoin.load.pushdown";
+
     /**
      * This key used to control the maximum size loaded into
      * the distributed cache when doing fragment-replicated join
      */
     public static final String PIG_JOIN_REPLICATED_MAX_BYTES = "pig.join.replicated.max.bytes";
 
+    /**
+     * This key is used to control the maximum total size of the smaller
+     * inputs of a CROSS for which the cross is run as a broadcast, replicating
+     * those inputs to every task of the largest one instead of shuffling all
+     * inputs. The size is estimated in memory, from the size on disk of the
+     * inputs. Set to 0 to disable. Default is 10MB.
+     */
+    public static final String PIG_CROSS_BROADCAST_MAX_BYTES = "pig.cross.broadcast.max.bytes";
+
     // Pig cached bag type settings
     /**
      * Configurations for specifying alternate implementations for cached bags. Rarely used
@@ -232,6 +324,36 @@ public class PigConfiguration {
      * This key is used to configure grace parallelism in tez. Default is true.
      */
     public static final String PIG_TEZ_GRACE_PARALLELISM = "pig.tez.grace.parallelism";
+    /**
+     * Factor by which the estimated parallelism of a vertex with auto parallelism
+     * is multiplied to get the number of partitions its inputs are shuffled into,
+     * capped by pig.exec.reducers.max. Tez then merges partitions into fewer tasks
+     * based on the actual shuffle size, so a factor above 1 allows it to end up
+     * with more tasks than estimated. Default is 1.
+     */
+    public static final String PIG_TEZ_AUTO_PARALLELISM_MAX_PARTITION_FACTOR = "pig.tez.auto.parallelism.max.partition.factor";
+
+    /**
+     * Turns on the node local cache in tez. The replicated tables of fragment
+     * replicate joins and the scalars built by a container are written to a
+     * local file which the other containers of the same node map read only,
+     * instead of fetching the broadcast input and building them again.
+     * Default is false.
+     */
+    public static final String PIG_TEZ_NODE_CACHE_ENABLED = "pig.tez.node.cache.enabled";
+
+    /**
+     * Local directory of the node local cache, which must be shared by the
+     * containers of the node. Default is a directory in the local directory
+     * of the YARN application, which is deleted when the application ends.
+     */
+    public static final String PIG_TEZ_NODE_CACHE_DIR = "pig.tez.node.cache.dir";
+
+    /**
+     * Maximum number of bytes kept in the node local cache directory of a
+     * node. Objects are not cached once the limit is reached. Default is 4GB.
+     */
+    public static final String PIG_TEZ_NODE_CACHE_MAX_BYTES = "pig.tez.node.cache.max.bytes";
     /**
      * This key is used to turn off dag recovery if there is auto parallelism.
      * Default is false. Useful when running with Tez versions before Tez 0.8
@@ -262,6 +384,29 @@ public class PigConfiguration {
     public static final String PIG_UDF_PROFILE = "pig.udf.profile";
     public static final String PIG_UDF_PROFILE_FREQUENCY = "pig.udf.profile.frequency";
 
+    // Pig operator profiling settings
+    /**
+     * Controls whether records in/out, exclusive time, allocated bytes and spills
+     * are tracked for every physical operator of the job plans. The numbers are
+     * aggregated through counters and reported by
+     * {@link org.apache.pig.tools.pigstats.PigStats#getOperatorProfile()}.
+     * This feature uses five counters per operator; use judiciously.
+     */
+    public static final String PIG_OPERATOR_PROFILE = "pig.operator.profile";
+    /**
+     * Time and allocation are measured on every n-th call into an operator
+     * pipeline and scaled up; records and spills are always exact.
+     */
+    public static final String PIG_OPERATOR_PROFILE_FREQUENCY = "pig.operator.profile.frequency";
+
+    /**
+     * Interval in milliseconds at which tasks report progress and flush the
+     * counters incremented through {@link org.apache.pig.tools.pigstats.PigStatusReporter}
+     * to the task context. Operators only set a flag or add to a striped
+     * counter per record in between. 0 reports on every call. Default is 1000.
+     */
+    public static final String PIG_TASK_REPORT_INTERVAL = "pig.task.report.interval";
+
     // Pig schema tuple settings
     /**
      * This key must be set to true by the user for code generation to be used.
@@ -295,6 +440,31 @@ public class PigConfiguration {
      */
     public static final String PIG_STREAMING_UDF_PYTHON_COMMAND = "pig.streaming.udf.python.command";
 
+    /**
+     * Number of copies of a STREAM command to run in each task. Input records are
+     * spread across the processes and their output is merged in arrival order, so
+     * this should only be set for commands whose output order does not matter.
+     * "auto" sizes the pool from the vcores of the task container. Only commands
+     * reading stdin and writing stdout are run in parallel. Default is 1
+     */
+    public static final String PIG_STREAMING_PARALLEL_PROCESSES = "pig.streaming.parallel.processes";
+
+    // Pig illustrate settings
+    /**
+     * Number of records of each load which ILLUSTRATE keeps out of the records it
+     * reads. Records reaching a COGROUP or JOIN are stratified on the grouping
+     * keys, preferring keys found in the other inputs. 0 keeps all the records
+     * read. Default is 1000
+     */
+    public static final String PIG_ILLUSTRATE_SAMPLE_SIZE = "pig.illustrate.sample.size";
+
+    /**
+     * Boolean value to enable or disable reusing the records read by ILLUSTRATE in
+     * later ILLUSTRATE commands of the same session, as long as the input files do
+     * not change. Enabled by default
+     */
+    public static final String PIG_ILLUSTRATE_CACHE_BASE_DATA = "pig.illustrate.cache.basedata";
+
     // Pig input format settings
     /**
      * Turns combine split files on or off
@@ -339,10 +509,17 @@ public class PigConfiguration {
     /**
      * This key is used to set the storage type used by intermediate file storage
      * If pig.tmpfilecompression, default storage used is TFileStorage.
-     * This can be overriden to use SequenceFileInterStorage by setting following property to "seqfile".
+     * This can be overriden to use SequenceFileInterStorage by setting following property to "seqfile",
+     * or ColumnarInterStorage by setting it to "columnar".
      */
     public static final String PIG_TEMP_FILE_COMPRESSION_STORAGE = "pig.tmpfilecompression.storage";
 
+    /**
+     * Number of rows per row group written by ColumnarInterStorage. Rows of a row group are
+     * buffered in memory before being written out column by column. Default is 10000.
+     */
+    public static final String PIG_TEMP_FILE_COLUMNAR_ROW_GROUP_SIZE = "pig.tmpfilecompression.columnar.rowgroup.size";
+
     /**
      * Compression codec used by intermediate storage
      * TFileStorage only support gzip and lzo.
@@ -354,6 +531,14 @@ public class PigConfiguration {
      */
     public static final String PIG_DELETE_TEMP_FILE = "pig.delete.temp.files";
 
+    /**
+     * Replication factor of the intermediate files written between jobs. A low
+     * value such as 1 keeps the write on the local datanode and avoids the
+     * replication pipeline, at the cost of failing the downstream job if a node
+     * holding intermediate data is lost. Default is the file system's replication.
+     */
+    public static final String PIG_TEMP_FILE_REPLICATION = "pig.tmpfile.replication";
+
 
     //Pig skewedjoin and order by sampling settings
     /**
@@ -367,6 +552,19 @@ public class PigConfiguration {
      */
     public static final String PIG_RANDOM_SAMPLER_SAMPLE_SIZE = "pig.random.sampler.sample.size";
 
+    /**
+     * Directory in which the quantiles computed by the sampling job of an
+     * order-by are kept, so that later runs of the same script can skip the
+     * sampling job and reuse them. Only used by MapReduce. Not set by default.
+     */
+    public static final String PIG_ORDER_QUANTILES_REUSE_DIR = "pig.order.quantiles.reuse.dir";
+
+    /**
+     * Age in minutes after which reused order-by quantiles are discarded and
+     * the input is sampled again. The default value is 0, quantiles never expire.
+     */
+    public static final String PIG_ORDER_QUANTILES_REUSE_MAX_AGE = "pig.order.quantiles.reuse.max.age";
+
 
     //Pig miscellaneous settings
     /**
@@ -408,6 +606,14 @@ public class PigConfiguration {
      */
     public static final String PIG_USER_CACHE_REPLICATION = "pig.user.cache.replication";
 
+    /**
+     * Local directory where SHA-1 checksums of jars shipped through the user
+     * level cache are kept, so that unchanged jars only need their cheaper
+     * CRC32 computed on later runs. It must be owned by the user and not
+     * writable by others. Default is ${user.home}/.pig/checksums
+     */
+    public static final String PIG_USER_CACHE_CHECKSUM_DIR = "pig.user.cache.checksum.dir";
+
     /**
      * Boolean value used to enable or disable error handling for storers
      */
@@ -508,6 +714,24 @@ public class PigConfiguration {
      */
     public static final String PIG_SPARK_USE_NETTY_FILESERVER = "pig.spark.rpc.useNettyFileServer";
 
+    /**
+     * Use Kryo with the Pig serializers for tuples, bags and byte arrays for Pig on Spark,
+     * true or false, default value is true. It has no effect if spark.serializer is set.
+     */
+    public static final String PIG_SPARK_KRYO_ENABLED = "pig.spark.kryo.enabled";
+
+    /**
+     * Persist the RDDs that are consumed several times in a Spark job, for eg. by the branches
+     * of a split, instead of recomputing them, true or false, default value is true
+     */
+    public static final String PIG_SPARK_CACHE_ENABLED = "pig.spark.cache.enabled";
+
+    /**
+     * Persisted RDDs are kept serialized in memory, spilling to disk, when the input of the
+     * Spark job is at most this many bytes, and only on disk otherwise. Default is 1GB
+     */
+    public static final String PIG_SPARK_CACHE_MEMORY_MAX_INPUT_BYTES = "pig.spark.cache.memory.max.input.bytes";
+
     /**
      * Enable ATS for Pig
      */
@@ -58,5 +58,15 @@ public class PigConstants {
     public static final String TIME_UDFS_INVOCATION_COUNTER = "approx_invocations";
     public static final String TIME_UDFS_ELAPSED_TIME_COUNTER = "approx_microsecs";
 
+    /**
+     * Counter group and metric names used by pig.operator.profile
+     */
+    public static final String OPERATOR_PROFILE_COUNTER_GROUP = "PigOperatorProfile";
+    public static final String OPERATOR_PROFILE_RECORDS_IN = "records_in";
+    public static final String OPERATOR_PROFILE_RECORDS_OUT = "records_out";
+    public static final String OPERATOR_PROFILE_NANOS = "approx_nanos";
+    public static final String OPERATOR_PROFILE_ALLOCATED_BYTES = "approx_allocated_bytes";
+    public static final String OPERATOR_PROFILE_SPILLS = "spills";
+
     public static final String TASK_INDEX = "mapreduce.task.index";
 }
\ No newline at end of file
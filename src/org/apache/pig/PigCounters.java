@@ -28,5 +28,11 @@ public enum PigCounters {
     PROACTIVE_SPILL_COUNT_BAGS, 
     
     //total number of records that have been spilled to disk
-    PROACTIVE_SPILL_COUNT_RECS;
+    PROACTIVE_SPILL_COUNT_RECS,
+
+    // time the input prefetch thread waited for the task to consume tuples
+    INPUT_PREFETCH_READER_WAIT_MILLIS,
+
+    // time the task waited for the input prefetch thread to read tuples
+    INPUT_PREFETCH_CONSUMER_WAIT_MILLIS;
 }
\ No newline at end of file
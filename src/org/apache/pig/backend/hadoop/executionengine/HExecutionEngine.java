@@ -43,10 +43,12 @@ import org.apache.pig.backend.hadoop.datastorage.ConfigurationUtil;
 import org.apache.pig.backend.hadoop.datastorage.HDataStorage;
 import org.apache.pig.backend.hadoop.executionengine.fetch.FetchLauncher;
 import org.apache.pig.backend.hadoop.executionengine.fetch.FetchOptimizer;
+import org.apache.pig.backend.hadoop.executionengine.incremental.IncrementalOptimizer;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.MRConfiguration;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PhyPlanSetter;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.resultcache.ResultCacheOptimizer;
 import org.apache.pig.backend.hadoop.executionengine.util.MapRedUtil;
 import org.apache.pig.backend.hadoop.streaming.HadoopExecutableManager;
 import org.apache.pig.impl.PigContext;
@@ -63,6 +65,7 @@ import org.apache.pig.newplan.logical.relational.LogToPhyTranslationVisitor;
 import org.apache.pig.newplan.logical.relational.LogicalPlan;
 import org.apache.pig.newplan.logical.relational.LogicalRelationalOperator;
 import org.apache.pig.tools.pigstats.PigStats;
+import org.apache.pig.tools.pigstats.ScriptState;
 
 import com.google.common.collect.Maps;
 
@@ -240,11 +243,13 @@ public abstract class HExecutionEngine implements ExecutionEngine {
         }
 
         // translate new logical plan to physical plan
+        long start = System.nanoTime();
         LogToPhyTranslationVisitor translator = new LogToPhyTranslationVisitor(plan);
 
         translator.setPigContext(pigContext);
         translator.visit();
         newLogToPhyMap = translator.getLogToPhyMap();
+        ScriptState.addCompileTime("physical plan", start);
         return translator.getPhysicalPlan();
     }
 
@@ -287,7 +292,26 @@ public abstract class HExecutionEngine implements ExecutionEngine {
                 new PhyPlanSetter(pp).visit();
                 return new FetchLauncher(pc).launchPig(pp);
             }
-            return launcher.launchPig(pp, grpName, pigContext);
+            IncrementalOptimizer incremental = null;
+            if (IncrementalOptimizer.isEnabled(pc)) {
+                incremental = new IncrementalOptimizer(pc, pp);
+                incremental.optimize();
+            }
+            ResultCacheOptimizer resultCache = null;
+            if (ResultCacheOptimizer.isEnabled(pc)) {
+                resultCache = new ResultCacheOptimizer(pc, pp);
+                resultCache.optimize();
+            }
+            PigStats stats = launcher.launchPig(pp, grpName, pigContext);
+            if (incremental != null) {
+                incremental.commit(stats);
+            }
+            if (resultCache != null) {
+                resultCache.commit(stats);
+                stats.setResultCacheStats(resultCache.getHits(), resultCache.getMisses(),
+                        resultCache.getBytesSaved());
+            }
+            return stats;
         } catch (ExecException e) {
             throw (ExecException) e;
         } catch (FrontendException e) {
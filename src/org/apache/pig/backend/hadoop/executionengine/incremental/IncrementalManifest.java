@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.incremental;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.pig.LoadFunc;
+import org.apache.pig.backend.hadoop.executionengine.util.MapRedUtil;
+
+/**
+ * Record of the input files processed by the previous runs of an incremental
+ * store, and of the state saved by the last run. It is kept in a text file in
+ * the state directory of the store: a header, the signature of the part of the
+ * plan computing the store, the id of the saved state and then one line per
+ * input file with its length, modification time and path.
+ */
+class IncrementalManifest {
+
+    private static final Log LOG = LogFactory.getLog(IncrementalManifest.class);
+
+    static final String FILE_NAME = "manifest";
+    static final String STATE_PREFIX = "state-";
+    private static final String HEADER = "pig-incremental-1";
+
+    private final String signature;
+    private final int stateId;
+    private final Map<String, InputFile> files;
+
+    IncrementalManifest(String signature, int stateId, Map<String, InputFile> files) {
+        this.signature = signature;
+        this.stateId = stateId;
+        this.files = files;
+    }
+
+    String getSignature() {
+        return signature;
+    }
+
+    int getStateId() {
+        return stateId;
+    }
+
+    Map<String, InputFile> getFiles() {
+        return files;
+    }
+
+    static Path getStatePath(Path stateDir, int stateId) {
+        return new Path(stateDir, STATE_PREFIX + stateId);
+    }
+
+    /**
+     * Reads the manifest of a state directory
+     *
+     * @return the manifest, null if there is none or it cannot be read
+     */
+    static IncrementalManifest read(FileSystem fs, Path stateDir) throws IOException {
+        Path path = new Path(stateDir, FILE_NAME);
+        if (!fs.exists(path)) {
+            return null;
+        }
+        BufferedReader in = new BufferedReader(new InputStreamReader(fs.open(path), "UTF-8"));
+        try {
+            if (!HEADER.equals(in.readLine())) {
+                LOG.warn("Ignoring invalid incremental manifest " + path);
+                return null;
+            }
+            String signature = in.readLine();
+            int stateId = Integer.parseInt(in.readLine());
+            Map<String, InputFile> files = new LinkedHashMap<String, InputFile>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", 3);
+                files.put(fields[2], new InputFile(fields[2], Long.parseLong(fields[0]),
+                        Long.parseLong(fields[1])));
+            }
+            return new IncrementalManifest(signature, stateId, files);
+        } catch (RuntimeException e) {
+            LOG.warn("Ignoring invalid incremental manifest " + path, e);
+            return null;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Replaces the manifest of a state directory
+     */
+    void write(FileSystem fs, Path stateDir) throws IOException {
+        Path path = new Path(stateDir, FILE_NAME);
+        Path tmpPath = new Path(stateDir, FILE_NAME + ".tmp");
+        Writer out = new OutputStreamWriter(fs.create(tmpPath, true), "UTF-8");
+        try {
+            out.write(HEADER + "\n");
+            out.write(signature + "\n");
+            out.write(stateId + "\n");
+            for (InputFile file : files.values()) {
+                out.write(file.length + "\t" + file.modificationTime + "\t" + file.path + "\n");
+            }
+        } finally {
+            out.close();
+        }
+        fs.delete(path, false);
+        if (!fs.rename(tmpPath, path)) {
+            throw new IOException("Unable to rename " + tmpPath + " to " + path);
+        }
+    }
+
+    /**
+     * Lists the files read by a load, following globs and directories like
+     * the file input formats.
+     *
+     * @param location location of the load, can be a comma separated list
+     * @return the files by path, null if a location does not exist
+     */
+    static Map<String, InputFile> listInputFiles(String location, Configuration conf)
+            throws IOException {
+        List<FileStatus> statuses = new ArrayList<FileStatus>();
+        for (String pathString : LoadFunc.getPathStrings(location)) {
+            Path path = new Path(pathString);
+            FileStatus[] matches = path.getFileSystem(conf).globStatus(path);
+            if (matches == null || matches.length == 0) {
+                return null;
+            }
+            statuses.addAll(Arrays.asList(matches));
+        }
+        Map<String, InputFile> files = new LinkedHashMap<String, InputFile>();
+        for (FileStatus status : MapRedUtil.getAllFileRecursively(statuses, conf)) {
+            String path = status.getPath().toString();
+            files.put(path, new InputFile(path, status.getLen(), status.getModificationTime()));
+        }
+        return files;
+    }
+
+    static class InputFile {
+        final String path;
+        final long length;
+        final long modificationTime;
+
+        InputFile(String path, long length, long modificationTime) {
+            this.path = path;
+            this.length = length;
+            this.modificationTime = modificationTime;
+        }
+
+        boolean isSameAs(InputFile other) {
+            return other != null && length == other.length
+                    && modificationTime == other.modificationTime;
+        }
+    }
+}
@@ -0,0 +1,718 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.incremental;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MD5Hash;
+import org.apache.pig.FileInputLoadFunc;
+import org.apache.pig.FuncSpec;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.backend.hadoop.datastorage.ConfigurationUtil;
+import org.apache.pig.backend.hadoop.executionengine.incremental.IncrementalManifest.InputFile;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.ConstantExpression;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POCast;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POProject;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POUserFunc;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFilter;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POForEach;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POGlobalRearrange;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLimit;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLoad;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLocalRearrange;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POPackage;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSort;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSplit;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStore;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POUnion;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.Packager;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.Packager.PackageType;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
+import org.apache.pig.builtin.Nondeterministic;
+import org.apache.pig.data.DataType;
+import org.apache.pig.impl.PigContext;
+import org.apache.pig.impl.builtin.AlgebraicFinal;
+import org.apache.pig.impl.builtin.AlgebraicMergeState;
+import org.apache.pig.impl.io.FileLocalizer;
+import org.apache.pig.impl.io.FileSpec;
+import org.apache.pig.impl.io.InterStorage;
+import org.apache.pig.impl.plan.NodeIdGenerator;
+import org.apache.pig.impl.plan.OperatorKey;
+import org.apache.pig.impl.plan.PlanException;
+import org.apache.pig.impl.util.MultiMap;
+import org.apache.pig.impl.util.Utils;
+import org.apache.pig.tools.pigstats.OutputStats;
+import org.apache.pig.tools.pigstats.PigStats;
+
+/**
+ * Incremental execution of the stores of scripts that run periodically over
+ * inputs that only get new files. A store qualifies when it is computed by a
+ * GROUP of the records of a file based load, optionally filtered and
+ * transformed record by record, and the bags of the GROUP are only used as
+ * the input of Algebraic functions, for eg.
+ * <pre>
+ * a = load 'logs' as (user, bytes);
+ * b = group a by user;
+ * c = foreach b generate group, COUNT(a), SUM(a.bytes);
+ * store c into 'totals';
+ * </pre>
+ * The intermediate results of the Algebraic functions of each group are saved
+ * in a state directory next to the output, along with the list of input files
+ * processed, see {@link IncrementalManifest}. The next runs only load the new
+ * files, compute the state of their groups with the Initial and Intermed
+ * functions and group it again with the saved state to merge them, see
+ * {@link AlgebraicMergeState}. The output is computed
+ * from the merged state with the Final functions, see {@link AlgebraicFinal},
+ * and the merged state is saved for the next run.
+ * <p/>
+ * A store is recomputed from all its input files when a processed file was
+ * changed or removed, or when the script changed. Stores that do not qualify
+ * are always recomputed.
+ */
+@InterfaceAudience.Private
+public class IncrementalOptimizer {
+
+    private static final Log LOG = LogFactory.getLog(IncrementalOptimizer.class);
+
+    private static final String STATE_DIR_SUFFIX = ".pig_incremental";
+
+    private final PigContext pigContext;
+    private final PhysicalPlan plan;
+    private final Configuration conf;
+    private final List<IncrementalStore> pendingStores = new ArrayList<IncrementalStore>();
+
+    public IncrementalOptimizer(PigContext pigContext, PhysicalPlan plan) {
+        this.pigContext = pigContext;
+        this.plan = plan;
+        this.conf = ConfigurationUtil.toConfiguration(pigContext.getProperties());
+    }
+
+    /**
+     * Checks whether incremental execution is enabled
+     *
+     * @param pc
+     * @return true if incremental execution is enabled
+     */
+    public static boolean isEnabled(PigContext pc) {
+        return Boolean.parseBoolean(pc.getProperties().getProperty(
+                PigConfiguration.PIG_INCREMENTAL_ENABLED, "false"));
+    }
+
+    /**
+     * Rewrites the plan so that the stores that qualify only process the new
+     * input files
+     */
+    public void optimize() throws IOException, PlanException, CloneNotSupportedException {
+        for (POStore store : PlanHelper.getPhysicalOperators(plan, POStore.class)) {
+            if (store.isTmpStore()) {
+                continue;
+            }
+            IncrementalStore incrementalStore = match(store);
+            if (incrementalStore != null) {
+                rewrite(incrementalStore);
+            }
+        }
+    }
+
+    /**
+     * Saves the state of the stores that were successfully computed
+     *
+     * @param stats statistics of the execution of the plan
+     */
+    public void commit(PigStats stats) {
+        for (IncrementalStore s : pendingStores) {
+            String output = s.store.getSFile().getFileName();
+            if (!isStored(stats, output) || !isStored(stats, s.nextState.toString())) {
+                LOG.warn("Not saving the incremental state of " + output + " as it failed");
+                continue;
+            }
+            try {
+                FileSystem fs = s.stateDir.getFileSystem(conf);
+                s.nextManifest.write(fs, s.stateDir);
+                for (FileStatus status : fs.listStatus(s.stateDir)) {
+                    String name = status.getPath().getName();
+                    if (name.startsWith(IncrementalManifest.STATE_PREFIX)
+                            && !name.equals(s.nextState.getName())) {
+                        fs.delete(status.getPath(), true);
+                    }
+                }
+                LOG.info("Saved the incremental state of " + output + " in " + s.stateDir);
+            } catch (IOException e) {
+                LOG.warn("Unable to save the incremental state of " + output, e);
+            }
+        }
+        pendingStores.clear();
+    }
+
+    private static boolean isStored(PigStats stats, String location) {
+        for (OutputStats output : stats.getOutputStats()) {
+            if (location.equals(output.getLocation())) {
+                return output.isSuccessful();
+            }
+        }
+        return false;
+    }
+
+    private IncrementalStore notIncremental(POStore store, String reason) {
+        LOG.info("Recomputing " + store.getSFile().getFileName() + " as " + reason);
+        return null;
+    }
+
+    /**
+     * Returns the predecessor of an operator if it is its only predecessor
+     * and the operator is its only successor
+     */
+    private PhysicalOperator getSinglePredecessor(PhysicalOperator op) {
+        List<PhysicalOperator> preds = plan.getPredecessors(op);
+        if (preds == null || preds.size() != 1) {
+            return null;
+        }
+        List<PhysicalOperator> succs = plan.getSuccessors(preds.get(0));
+        return succs.size() == 1 ? preds.get(0) : null;
+    }
+
+    private IncrementalStore match(POStore store) throws IOException {
+        IncrementalStore s = new IncrementalStore(store);
+        s.branch.add(store);
+        PhysicalOperator op = store;
+        while (true) {
+            PhysicalOperator pred = getSinglePredecessor(op);
+            if (pred instanceof POForEach && getSinglePredecessor(pred) instanceof POPackage) {
+                s.foreach = (POForEach) pred;
+                s.branch.add(pred);
+                break;
+            }
+            if (!(pred instanceof POFilter || pred instanceof POForEach
+                    || pred instanceof POSort || pred instanceof POLimit)) {
+                return notIncremental(store, "it is not computed by a GROUP");
+            }
+            s.branch.add(pred);
+            op = pred;
+        }
+
+        s.pkg = (POPackage) getSinglePredecessor(s.foreach);
+        Packager pkgr = s.pkg.getPkgr();
+        PhysicalOperator gr = getSinglePredecessor(s.pkg);
+        PhysicalOperator lr = gr instanceof POGlobalRearrange ? getSinglePredecessor(gr) : null;
+        if (pkgr.getClass() != Packager.class || pkgr.getPackageType() != PackageType.GROUP
+                || s.pkg.getNumInps() != 1 || !(lr instanceof POLocalRearrange)
+                || ((POLocalRearrange) lr).isDistinct() || ((POLocalRearrange) lr).isCross()) {
+            return notIncremental(store, "it is not computed by a GROUP of a single input");
+        }
+        s.globalRearrange = (POGlobalRearrange) gr;
+        s.rearrange = (POLocalRearrange) lr;
+        s.inputs.add(s.pkg);
+        s.inputs.add(gr);
+        s.inputs.add(lr);
+
+        op = lr;
+        while (true) {
+            PhysicalOperator pred = getSinglePredecessor(op);
+            if (pred instanceof POLoad) {
+                s.load = (POLoad) pred;
+                s.inputs.add(pred);
+                break;
+            }
+            if (!(pred instanceof POFilter || pred instanceof POForEach)) {
+                return notIncremental(store, "the input of the GROUP is not filtered or transformed record by record");
+            }
+            if (!isDeterministic(pred)) {
+                return notIncremental(store, "the input of the GROUP uses nondeterministic functions");
+            }
+            s.inputs.add(pred);
+            op = pred;
+        }
+        if (plan.getPredecessors(s.load) != null || s.load.isTmpLoad()
+                || !(s.load.getLoadFunc() instanceof FileInputLoadFunc)) {
+            return notIncremental(store, "its input is not loaded from files");
+        }
+        s.branch.addAll(s.inputs);
+
+        if (!findMergeFunctions(s)) {
+            return notIncremental(store, "the bags of the GROUP are not only used by Algebraic functions");
+        }
+        s.signature = computeSignature(s.branch);
+        return s;
+    }
+
+    private static boolean isDeterministic(PhysicalOperator op) throws IOException {
+        for (PhysicalPlan innerPlan : getInnerPlans(op)) {
+            for (POUserFunc func : PlanHelper.getPhysicalOperators(innerPlan, POUserFunc.class)) {
+                if (func.getFunc().getClass().isAnnotationPresent(Nondeterministic.class)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static List<PhysicalPlan> getInnerPlans(PhysicalOperator op) {
+        if (op instanceof POFilter) {
+            return Arrays.asList(((POFilter) op).getPlan());
+        } else if (op instanceof POForEach) {
+            return ((POForEach) op).getInputPlans();
+        } else if (op instanceof POLocalRearrange) {
+            return ((POLocalRearrange) op).getPlans();
+        } else if (op instanceof POSort) {
+            return ((POSort) op).getSortPlans();
+        }
+        return new ArrayList<PhysicalPlan>();
+    }
+
+    /**
+     * Finds the Algebraic functions of the foreach after the GROUP that take
+     * the bag as input. The bag has to be projected, filtered or sorted on
+     * the way to the function, and the other arguments of the function must be
+     * constants.
+     *
+     * @return false if the bag is also used by other expressions
+     */
+    private static boolean findMergeFunctions(IncrementalStore s) throws IOException {
+        for (PhysicalPlan innerPlan : s.foreach.getInputPlans()) {
+            for (PhysicalOperator root : innerPlan.getRoots()) {
+                if (root instanceof ConstantExpression) {
+                    continue;
+                }
+                if (!(root instanceof POProject)) {
+                    return false;
+                }
+                POProject project = (POProject) root;
+                if (!project.isStar() && !project.isProjectToEnd()
+                        && project.getColumns().size() == 1 && project.getColumn() == 0) {
+                    // the group
+                    continue;
+                }
+                PhysicalOperator input = null;
+                PhysicalOperator op = root;
+                while (!(op instanceof POUserFunc && ((POUserFunc) op).combinable())) {
+                    if (!(op instanceof POProject || op instanceof POCast || op instanceof POFilter
+                            || op instanceof POSort || op instanceof POForEach)) {
+                        return false;
+                    }
+                    List<PhysicalOperator> succs = innerPlan.getSuccessors(op);
+                    if (succs == null || succs.size() != 1) {
+                        return false;
+                    }
+                    input = op;
+                    op = succs.get(0);
+                }
+                POUserFunc func = (POUserFunc) op;
+                List<PhysicalOperator> args = func.getInputs();
+                int bagIndex = args.indexOf(input);
+                if (input.getResultType() != DataType.BAG
+                        || (s.mergeFuncs.containsKey(func) && s.mergeFuncs.get(func) != bagIndex)) {
+                    return false;
+                }
+                for (int i = 0; i < args.size(); i++) {
+                    if (i != bagIndex && !(args.get(i) instanceof ConstantExpression)) {
+                        return false;
+                    }
+                }
+                s.mergeFuncs.put(func, bagIndex);
+                s.mergePlans.put(func, innerPlan);
+            }
+        }
+        return !s.mergeFuncs.isEmpty();
+    }
+
+    /**
+     * Signature of the operators computing a store, to detect changes of the
+     * script between runs. The names of the operators do not have the
+     * constructor arguments of the functions, so their FuncSpecs are added.
+     */
+    private static String computeSignature(List<PhysicalOperator> ops) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (PhysicalOperator op : ops) {
+            sb.append(op.name()).append('\n');
+            if (op instanceof POLoad) {
+                sb.append(((POLoad) op).getLFile().getFuncSpec()).append('\n');
+            } else if (op instanceof POStore) {
+                sb.append(((POStore) op).getSFile().getFuncSpec()).append('\n');
+            }
+            for (PhysicalPlan innerPlan : getInnerPlans(op)) {
+                sb.append(innerPlan.toString());
+                for (POUserFunc func : PlanHelper.getPhysicalOperators(innerPlan, POUserFunc.class)) {
+                    sb.append(func.getFuncSpec()).append('\n');
+                }
+                for (POCast cast : PlanHelper.getPhysicalOperators(innerPlan, POCast.class)) {
+                    if (cast.getFuncSpec() != null) {
+                        sb.append(cast.getFuncSpec()).append('\n');
+                    }
+                }
+            }
+        }
+        // operator keys change from one run to the other
+        return MD5Hash.digest(sb.toString().replaceAll("scope-\\d+", "scope")).toString();
+    }
+
+    private Path getStateDir(POStore store) {
+        Path output = new Path(store.getSFile().getFileName());
+        String dir = pigContext.getProperties().getProperty(PigConfiguration.PIG_INCREMENTAL_STATE_DIR);
+        if (dir == null || dir.isEmpty()) {
+            // hidden files are not read by the file input formats
+            return new Path(output.getParent(), "." + output.getName() + STATE_DIR_SUFFIX);
+        }
+        String hash = MD5Hash.digest(output.toString()).toString().substring(0, 8);
+        return new Path(dir, output.getName() + "-" + hash);
+    }
+
+    private static boolean isPlainPath(String path) {
+        for (char c : path.toCharArray()) {
+            if (",{}[]*?\\".indexOf(c) != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rewrite(IncrementalStore s) throws IOException, PlanException,
+            CloneNotSupportedException {
+        String output = s.store.getSFile().getFileName();
+        Map<String, InputFile> files = IncrementalManifest.listInputFiles(
+                s.load.getLFile().getFileName(), conf);
+        if (files == null) {
+            notIncremental(s.store, "its input does not exist");
+            return;
+        }
+        Path stateDir = getStateDir(s.store);
+        FileSystem fs = stateDir.getFileSystem(conf);
+        IncrementalManifest previous = IncrementalManifest.read(fs, stateDir);
+        if (previous != null && !isValid(previous, s, files, fs, stateDir)) {
+            previous = null;
+        }
+
+        List<String> newFiles = new ArrayList<String>();
+        for (InputFile file : files.values()) {
+            if (previous == null || !previous.getFiles().containsKey(file.path)) {
+                if (!isPlainPath(file.path)) {
+                    notIncremental(s.store, "the path of input file " + file.path
+                            + " has special characters");
+                    return;
+                }
+                newFiles.add(file.path);
+            }
+        }
+        if (newFiles.isEmpty()) {
+            if (previous != null) {
+                LOG.info("No new input file for " + output + ", computing it from the saved state");
+                computeFromState(s, IncrementalManifest.getStatePath(stateDir, previous.getStateId()));
+            }
+            return;
+        }
+
+        int stateId = previous == null ? 1 : previous.getStateId() + 1;
+        s.stateDir = stateDir;
+        s.nextState = IncrementalManifest.getStatePath(stateDir, stateId);
+        s.nextManifest = new IncrementalManifest(s.signature, stateId, files);
+        // left over by a failed run
+        fs.delete(s.nextState, true);
+        LOG.info("Processing " + newFiles.size() + " new input files out of " + files.size()
+                + " for " + output);
+        mergeWithState(s, newFiles, previous == null ? null
+                : IncrementalManifest.getStatePath(stateDir, previous.getStateId()));
+        pendingStores.add(s);
+    }
+
+    private boolean isValid(IncrementalManifest previous, IncrementalStore s,
+            Map<String, InputFile> files, FileSystem fs, Path stateDir) throws IOException {
+        String output = s.store.getSFile().getFileName();
+        if (!previous.getSignature().equals(s.signature)) {
+            LOG.info("Recomputing " + output + " from all its input files as the script changed");
+            return false;
+        }
+        for (InputFile file : previous.getFiles().values()) {
+            if (!file.isSameAs(files.get(file.path))) {
+                LOG.info("Recomputing " + output + " from all its input files as " + file.path
+                        + " was changed or removed");
+                return false;
+            }
+        }
+        if (!fs.exists(IncrementalManifest.getStatePath(stateDir, previous.getStateId()))) {
+            LOG.info("Recomputing " + output + " from all its input files as its state is missing");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Loads the new files and computes the state of each of their groups. If
+     * there is a saved state, the states are unioned with it and grouped
+     * again to merge them. The merged state is split to the output and the
+     * state store.
+     */
+    private void mergeWithState(IncrementalStore s, List<String> newFiles, Path state)
+            throws IOException, PlanException, CloneNotSupportedException {
+        String scope = s.store.getOperatorKey().scope;
+        StringBuilder location = new StringBuilder();
+        for (String file : newFiles) {
+            location.append(location.length() == 0 ? "" : ",").append(file);
+        }
+        s.load.setLFile(new FileSpec(location.toString(), s.load.getLFile().getFuncSpec()));
+
+        // (group, state of each function) for the new records
+        byte keyType = s.pkg.getPkgr().getKeyType();
+        List<PhysicalPlan> statePlans = new ArrayList<PhysicalPlan>();
+        statePlans.add(newProjectPlan(scope, 0, keyType));
+        for (Map.Entry<POUserFunc, Integer> entry : s.mergeFuncs.entrySet()) {
+            POUserFunc func = entry.getKey();
+            MultiMap<PhysicalOperator, PhysicalOperator> opMap =
+                    new MultiMap<PhysicalOperator, PhysicalOperator>();
+            PhysicalPlan innerPlan = s.mergePlans.get(func);
+            innerPlan.setOpMap(opMap);
+            PhysicalPlan mergePlan = innerPlan.clone();
+            innerPlan.resetOpMap();
+            POUserFunc mergeFunc = (POUserFunc) opMap.get(func).get(0);
+            // only keep the function and its arguments
+            Set<PhysicalOperator> funcOps = new HashSet<PhysicalOperator>();
+            addPredecessors(mergePlan, mergeFunc, funcOps);
+            for (PhysicalOperator op : new ArrayList<PhysicalOperator>(mergePlan.getKeys().values())) {
+                if (!funcOps.contains(op)) {
+                    mergePlan.remove(op);
+                }
+            }
+            // a new function as the combiner takes the Initial, Intermed and
+            // Final functions from the FuncSpec it was created with
+            POUserFunc stateFunc = new POUserFunc(newKey(scope), -1, mergeFunc.getInputs(),
+                    newMergeSpec(func, entry.getValue(), -1));
+            stateFunc.setResultType(DataType.TUPLE);
+            stateFunc.setSignature(mergeFunc.getSignature());
+            mergePlan.replace(mergeFunc, stateFunc);
+            statePlans.add(mergePlan);
+        }
+        PhysicalOperator stateOp = newForEach(scope, s.foreach.getRequestedParallelism(), statePlans);
+        plan.disconnect(s.pkg, s.foreach);
+        plan.add(stateOp);
+        plan.connect(s.pkg, stateOp);
+
+        if (state != null) {
+            // The states of the new records and the saved state are grouped
+            // as a single input so that null keys are grouped together
+            POLoad stateLoad = newStateLoad(scope, state);
+            POUnion union = new POUnion(newKey(scope));
+            POLocalRearrange stateRearrange = new POLocalRearrange(newKey(scope),
+                    s.rearrange.getRequestedParallelism());
+            stateRearrange.setPlans(new ArrayList<PhysicalPlan>(Arrays.asList(
+                    newProjectPlan(scope, 0, keyType))));
+            stateRearrange.setIndex(0);
+            stateRearrange.setKeyType(keyType);
+            stateRearrange.setResultType(DataType.TUPLE);
+            POGlobalRearrange stateGlobalRearrange = new POGlobalRearrange(newKey(scope),
+                    s.globalRearrange.getRequestedParallelism());
+            POPackage statePackage = new POPackage(newKey(scope),
+                    s.pkg.getRequestedParallelism());
+            statePackage.getPkgr().setKeyType(keyType);
+            statePackage.getPkgr().setPackageType(PackageType.GROUP);
+            statePackage.getPkgr().setInner(new boolean[] { false });
+            statePackage.setNumInps(1);
+            statePackage.setResultType(DataType.TUPLE);
+
+            List<PhysicalPlan> mergePlans = new ArrayList<PhysicalPlan>();
+            mergePlans.add(newProjectPlan(scope, 0, keyType));
+            int stateIndex = 1;
+            for (Map.Entry<POUserFunc, Integer> entry : s.mergeFuncs.entrySet()) {
+                POUserFunc mergeFunc = new POUserFunc(newKey(scope), -1, null,
+                        newMergeSpec(entry.getKey(), -1, stateIndex++));
+                mergeFunc.setResultType(DataType.TUPLE);
+                PhysicalPlan mergePlan = newProjectPlan(scope, 1, DataType.BAG);
+                PhysicalOperator states = mergePlan.getRoots().get(0);
+                mergePlan.add(mergeFunc);
+                mergePlan.connect(states, mergeFunc);
+                mergePlans.add(mergePlan);
+            }
+            POForEach mergeForEach = newForEach(scope, s.foreach.getRequestedParallelism(),
+                    mergePlans);
+
+            plan.add(stateLoad);
+            plan.add(union);
+            plan.add(stateRearrange);
+            plan.add(stateGlobalRearrange);
+            plan.add(statePackage);
+            plan.add(mergeForEach);
+            plan.connect(stateOp, union);
+            plan.connect(stateLoad, union);
+            plan.connect(union, stateRearrange);
+            plan.connect(stateRearrange, stateGlobalRearrange);
+            plan.connect(stateGlobalRearrange, statePackage);
+            plan.connect(statePackage, mergeForEach);
+            stateOp = mergeForEach;
+        }
+
+        POSplit split = new POSplit(newKey(scope));
+        split.setSplitStore(new FileSpec(FileLocalizer.getTemporaryPath(pigContext).toString(),
+                new FuncSpec(Utils.getTmpFileCompressorName(pigContext))));
+        POStore stateStore = new POStore(newKey(scope));
+        stateStore.setSFile(new FileSpec(s.nextState.toString(),
+                new FuncSpec(InterStorage.class.getName())));
+        stateStore.setSignature(stateStore.getOperatorKey().toString());
+        stateStore.setIsTmpStore(false);
+
+        computeOutputFromState(s);
+        plan.add(split);
+        plan.add(stateStore);
+        plan.connect(stateOp, split);
+        plan.connect(split, stateStore);
+        plan.connect(split, s.foreach);
+    }
+
+    /**
+     * Computes the store from the saved state only, when there is no new
+     * input file
+     */
+    private void computeFromState(IncrementalStore s, Path state) throws IOException,
+            PlanException {
+        for (PhysicalOperator op : s.inputs) {
+            plan.remove(op);
+        }
+        computeOutputFromState(s);
+        POLoad stateLoad = newStateLoad(s.store.getOperatorKey().scope, state);
+        plan.add(stateLoad);
+        plan.connect(stateLoad, s.foreach);
+    }
+
+    /**
+     * Changes the foreach after the GROUP to compute the Algebraic functions
+     * from the state tuples with their Final function
+     */
+    private void computeOutputFromState(IncrementalStore s) throws IOException, PlanException {
+        String scope = s.store.getOperatorKey().scope;
+        int stateIndex = 1;
+        for (POUserFunc func : s.mergeFuncs.keySet()) {
+            List<String> args = new ArrayList<String>();
+            args.add(func.getFinal());
+            addCtorArgs(args, func);
+            PhysicalPlan innerPlan = s.mergePlans.get(func);
+            innerPlan.trimAbove(func);
+            POProject state = newProject(scope, stateIndex++, DataType.TUPLE);
+            innerPlan.add(state);
+            innerPlan.connect(state, func);
+            func.setFuncSpec(new FuncSpec(AlgebraicFinal.class.getName(),
+                    args.toArray(new String[args.size()])));
+        }
+        s.foreach.setInputPlans(s.foreach.getInputPlans());
+    }
+
+    private static void addPredecessors(PhysicalPlan innerPlan, PhysicalOperator op,
+            Set<PhysicalOperator> ops) {
+        ops.add(op);
+        List<PhysicalOperator> preds = innerPlan.getPredecessors(op);
+        if (preds != null) {
+            for (PhysicalOperator pred : preds) {
+                addPredecessors(innerPlan, pred, ops);
+            }
+        }
+    }
+
+    private static FuncSpec newMergeSpec(POUserFunc func, int bagIndex, int stateIndex)
+            throws IOException {
+        List<String> args = new ArrayList<String>();
+        args.add(func.getInitial());
+        args.add(func.getIntermed());
+        args.add(Integer.toString(bagIndex));
+        args.add(Integer.toString(stateIndex));
+        addCtorArgs(args, func);
+        return new FuncSpec(AlgebraicMergeState.class.getName(),
+                args.toArray(new String[args.size()]));
+    }
+
+    private static void addCtorArgs(List<String> args, POUserFunc func) {
+        String[] ctorArgs = func.getFuncSpec().getCtorArgs();
+        if (ctorArgs != null) {
+            args.addAll(Arrays.asList(ctorArgs));
+        }
+    }
+
+    private POLoad newStateLoad(String scope, Path state) {
+        POLoad load = new POLoad(newKey(scope), new FileSpec(state.toString(),
+                new FuncSpec(InterStorage.class.getName())));
+        load.setPc(pigContext);
+        load.setResultType(DataType.BAG);
+        load.setSignature(load.getOperatorKey().toString());
+        return load;
+    }
+
+    private static POProject newProject(String scope, int column, byte resultType) {
+        POProject project = new POProject(newKey(scope), -1, column);
+        project.setResultType(resultType);
+        return project;
+    }
+
+    private static PhysicalPlan newProjectPlan(String scope, int column, byte resultType) {
+        PhysicalPlan projectPlan = new PhysicalPlan();
+        projectPlan.add(newProject(scope, column, resultType));
+        return projectPlan;
+    }
+
+    private static POForEach newForEach(String scope, int rp, List<PhysicalPlan> plans) {
+        List<Boolean> flattens = new ArrayList<Boolean>();
+        for (int i = 0; i < plans.size(); i++) {
+            flattens.add(false);
+        }
+        POForEach foreach = new POForEach(newKey(scope), rp, plans, flattens);
+        foreach.setResultType(DataType.BAG);
+        return foreach;
+    }
+
+    private static OperatorKey newKey(String scope) {
+        return new OperatorKey(scope, NodeIdGenerator.getGenerator().getNextNodeId(scope));
+    }
+
+    /**
+     * The operators computing a store that qualifies for incremental execution
+     */
+    private static class IncrementalStore {
+        final POStore store;
+        // operators from the store to the load
+        final List<PhysicalOperator> branch = new ArrayList<PhysicalOperator>();
+        // operators from the package to the load
+        final List<PhysicalOperator> inputs = new ArrayList<PhysicalOperator>();
+        POForEach foreach;
+        POPackage pkg;
+        POGlobalRearrange globalRearrange;
+        POLocalRearrange rearrange;
+        POLoad load;
+        // Algebraic functions of the foreach with the index of their bag argument
+        final Map<POUserFunc, Integer> mergeFuncs = new LinkedHashMap<POUserFunc, Integer>();
+        final Map<POUserFunc, PhysicalPlan> mergePlans = new HashMap<POUserFunc, PhysicalPlan>();
+        String signature;
+
+        Path stateDir;
+        Path nextState;
+        IncrementalManifest nextManifest;
+
+        IncrementalStore(POStore store) {
+            this.store = store;
+        }
+    }
+}
@@ -31,11 +31,17 @@ import org.apache.pig.impl.plan.VisitorException;
 public class CombinerOptimizer extends MROpPlanVisitor {
     private CompilationMessageCollector messageCollector = null;
     private boolean doMapAgg;
+    private boolean doCubeAgg;
 
     public CombinerOptimizer(MROperPlan plan, boolean doMapAgg) {
         this(plan, doMapAgg, new CompilationMessageCollector());
     }
 
+    public CombinerOptimizer(MROperPlan plan, boolean doMapAgg, boolean doCubeAgg) {
+        this(plan, doMapAgg, new CompilationMessageCollector());
+        this.doCubeAgg = doCubeAgg;
+    }
+
     public CombinerOptimizer(MROperPlan plan, boolean doMapAgg,
             CompilationMessageCollector messageCollector) {
         super(plan, new DepthFirstWalker<MapReduceOper, MROperPlan>(plan));
@@ -49,6 +55,6 @@ public class CombinerOptimizer extends MROpPlanVisitor {
 
     @Override
     public void visitMROp(MapReduceOper mr) throws VisitorException {
-        CombinerOptimizerUtil.addCombiner(mr.mapPlan, mr.reducePlan, mr.combinePlan, messageCollector, doMapAgg);
+        CombinerOptimizerUtil.addCombiner(mr.mapPlan, mr.reducePlan, mr.combinePlan, messageCollector, doMapAgg, doCubeAgg);
     }
 }
@@ -158,19 +158,24 @@ public class InputSizeReducerEstimator implements PigReducerEstimator {
      * @throws IOException on error
      */
     static long getInputSizeFromLoader(POLoad ld, Job job) throws IOException {
-        if (ld.getLoadFunc() == null
-                || !(ld.getLoadFunc() instanceof LoadMetadata)
-                || ld.getLFile() == null
-                || ld.getLFile().getFileName() == null) {
+        if (ld.getLFile() == null) {
+            return -1;
+        }
+        return getInputSizeFromLoader(ld.getLoadFunc(), ld.getLFile().getFileName(), job);
+    }
+
+    private static long getInputSizeFromLoader(LoadFunc loadFunc, String location, Job job) {
+        if (loadFunc == null
+                || !(loadFunc instanceof LoadMetadata)
+                || location == null) {
             return -1;
         }
 
         ResourceStatistics statistics;
         try {
-            statistics = ((LoadMetadata) ld.getLoadFunc())
-                        .getStatistics(ld.getLFile().getFileName(), job);
+            statistics = ((LoadMetadata) loadFunc).getStatistics(location, job);
         } catch (Exception e) {
-            log.warn("Couldn't get statistics from LoadFunc: " + ld.getLoadFunc(), e);
+            log.warn("Couldn't get statistics from LoadFunc: " + loadFunc, e);
             return -1;
         }
 
@@ -180,4 +185,38 @@ public class InputSizeReducerEstimator implements PigReducerEstimator {
 
         return statistics.getSizeInBytes();
     }
+
+    /**
+     * Get the size in bytes of a single load location. Unlike
+     * {@link #getTotalInputFileSize(Configuration, List, Job)}, parts of the
+     * location that cannot be sized are not skipped.
+     * @param loadFunc loader of the location
+     * @param location location as given to the loader
+     * @param job Job
+     * @return size in bytes, or -1 if unknown or incomplete
+     * @throws IOException on error
+     */
+    public static long getInputSize(LoadFunc loadFunc, String location, Job job) throws IOException {
+        long size = getInputSizeFromLoader(loadFunc, location, job);
+        if (size > -1 || location == null) {
+            return size;
+        }
+        Configuration conf = job.getConfiguration();
+        size = 0;
+        for (String path : LoadFunc.getPathStrings(location)) {
+            if (!UriUtil.isHDFSFileOrLocalOrS3N(path, conf)) {
+                return -1;
+            }
+            Path p = new Path(path);
+            FileSystem fs = p.getFileSystem(conf);
+            FileStatus[] status = fs.globStatus(p);
+            if (status == null) {
+                return -1;
+            }
+            for (FileStatus s : status) {
+                size += MapRedUtil.getPathLength(fs, s);
+            }
+        }
+        return size;
+    }
 }
@@ -42,7 +42,6 @@ import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -88,6 +87,7 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.Physica
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.UdfCacheShipFilesVisitor;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFRJoin;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLoad;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLocalRearrange;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POMergeCogroup;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POMergeJoin;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POPackage;
@@ -191,6 +191,8 @@ public class JobControlCompiler{
     public static final String PIG_MAP_STORES = "pig.map.stores";
     public static final String PIG_REDUCE_STORES = "pig.reduce.stores";
 
+    private static final String DFS_REPLICATION = "dfs.replication";
+
     // A mapping of job to pair of store locations and tmp locations for that job
     private Map<Job, Pair<List<POStore>, Path>> jobStoreMap;
 
@@ -798,6 +800,8 @@ public class JobControlCompiler{
                 sFunc.addCredentials(nwJob.getCredentials(), conf);
             }
 
+            setTmpFileReplication(conf, storeLocations);
+
             setOutputFormat(nwJob);
 
             if (mapStores.size() + reduceStores.size() == 1) { // single store case
@@ -930,7 +934,8 @@ public class JobControlCompiler{
             }
 
             if(mro.isGlobalSort() || mro.isLimitAfterSort()){
-                if (mro.isGlobalSort()) {
+                // A global sort with a single reducer has no quantiles
+                if (mro.isGlobalSort() && mro.getQuantFile() != null) {
                     String symlink = addSingleFileToDistributedCache(
                             pigContext, conf, mro.getQuantFile(), "pigsample");
                     conf.set("pig.quantilesFile", symlink);
@@ -1391,6 +1396,20 @@ public class JobControlCompiler{
         // An operator has an order by if global sort is set or if it's successor has
         // global sort set (because in that case it's the sampling job) or if
         // it's a limit after a sort.
+        byte[] keyFieldTypes = null;
+        if (keyType == DataType.TUPLE) {
+            keyFieldTypes = getKeyFieldTypes(mro);
+            if (keyFieldTypes != null) {
+                try {
+                    PigTypedTupleRawComparator.setKeyFieldTypes(job.getConfiguration(), keyFieldTypes);
+                } catch (IOException e) {
+                    int errCode = 2017;
+                    String msg = "Internal error creating job configuration.";
+                    throw new JobCreationException(msg, errCode, PigException.BUG, e);
+                }
+            }
+        }
+
         boolean hasOrderBy = false;
         if (mro.isGlobalSort() || mro.isLimitAfterSort() || mro.usingTypedComparator()) {
             hasOrderBy = true;
@@ -1521,7 +1540,11 @@ public class JobControlCompiler{
 
         case DataType.TUPLE:
             job.setSortComparatorClass(PigTupleWritableComparator.class);
-            job.setGroupingComparatorClass(PigGroupingTupleWritableComparator.class);
+            if (keyFieldTypes != null) {
+                job.setGroupingComparatorClass(PigWritableComparators.PigTupleTypedGroupingComparator.class);
+            } else {
+                job.setGroupingComparatorClass(PigGroupingTupleWritableComparator.class);
+            }
             break;
 
         case DataType.BAG:
@@ -1536,6 +1559,21 @@ public class JobControlCompiler{
         }
     }
 
+    /**
+     * @return the types of the fields of the tuple keys sent by the map plan,
+     *         or null if they are not known
+     */
+    private byte[] getKeyFieldTypes(MapReduceOper mro) {
+        List<POLocalRearrange> lrs = new ArrayList<POLocalRearrange>();
+        for (PhysicalOperator leaf : mro.mapPlan.getLeaves()) {
+            if (!(leaf instanceof POLocalRearrange)) {
+                return null;
+            }
+            lrs.add((POLocalRearrange) leaf);
+        }
+        return PigTypedTupleRawComparator.getKeyFieldTypes(lrs);
+    }
+
     private void setupDistributedCacheForJoin(MapReduceOper mro,
             PigContext pigContext, Configuration conf) throws IOException {
 
@@ -1546,6 +1584,26 @@ public class JobControlCompiler{
         .visit();
     }
 
+    /**
+     * Lowers the replication of the output of a job that only writes
+     * intermediate files for later jobs of the script. The replication
+     * is set job wide as the task file systems are created from the
+     * job conf, so jobs that also write final output are left alone.
+     */
+    private static void setTmpFileReplication(Configuration conf, List<POStore> stores) {
+        String replication = conf.get(PigConfiguration.PIG_TEMP_FILE_REPLICATION);
+        if (replication == null || stores.isEmpty()) {
+            return;
+        }
+        for (POStore st : stores) {
+            if (!st.isTmpStore()) {
+                return;
+            }
+        }
+        log.info("Writing intermediate output with replication " + replication);
+        conf.set(DFS_REPLICATION, replication);
+    }
+
     private static void setupDistributedCache(PigContext pigContext,
             Configuration conf,
             Properties properties, String key,
@@ -1743,18 +1801,25 @@ public class JobControlCompiler{
         return stagingDir;
     }
 
+    private static File getChecksumDir(Configuration conf) {
+        String dir = conf.get(PigConfiguration.PIG_USER_CACHE_CHECKSUM_DIR);
+        if (dir == null) {
+            dir = System.getProperty("user.home") + File.separator + ".pig"
+                    + File.separator + "checksums";
+        }
+        return new File(dir);
+    }
+
     public static Path getFromCache(PigContext pigContext,
             Configuration conf,
             URL url) throws IOException {
-        InputStream is1 = null;
         InputStream is2 = null;
 
         try {
             Path stagingDir = getCacheStagingDir(conf);
             String filename = FilenameUtils.getName(url.getPath());
 
-            is1 = url.openStream();
-            String checksum = DigestUtils.shaHex(is1);
+            String checksum = JarManager.getChecksum(url, getChecksumDir(conf));
             FileSystem fs = FileSystem.get(conf);
             Path cacheDir = new Path(stagingDir, checksum);
             Path cacheFile = new Path(cacheDir, filename);
@@ -1792,7 +1857,6 @@ public class JobControlCompiler{
             log.info("Unable to retrieve jar from jar cache ", ioe);
             return null;
         } finally {
-            org.apache.commons.io.IOUtils.closeQuietly(is1);
             org.apache.commons.io.IOUtils.closeQuietly(is2);
         }
     }
@@ -76,6 +76,8 @@ public class LimitAdjuster extends MROpPlanVisitor {
         for (MapReduceOper mr:opsToAdjust)
         {
             if (mr.reducePlan.isEmpty()) continue;
+            // A top-N job merges in a single reducer, which already applies the limit
+            if (mr.isTopN() && mr.requestedParallelism == 1) continue;
             List<PhysicalOperator> mpLeaves = mr.reducePlan.getLeaves();
             if (mpLeaves.size() != 1) {
                 int errCode = 2024;
@@ -81,6 +81,7 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOpe
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSplit;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStore;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStream;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POTopN;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POUnion;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.Packager;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.Packager.PackageType;
@@ -452,8 +453,9 @@ public class MRCompiler extends PhyPlanVisitor {
         op.visit(this);
         if(op.getRequestedParallelism() > curMROp.requestedParallelism ) {
             // we don't want to change prallelism for skewed join due to sampling
-            // and pre-allocated reducers for skewed keys
-            if (!curMROp.isSkewedJoin()) {
+            // and pre-allocated reducers for skewed keys, nor for a top-N which
+            // merges in a single reducer
+            if (!curMROp.isSkewedJoin() && !curMROp.isTopN()) {
                 curMROp.requestedParallelism = op.getRequestedParallelism();
             }
         }
@@ -1980,15 +1982,49 @@ public class MRCompiler extends PhyPlanVisitor {
     @Override
     public void visitSort(POSort op) throws VisitorException {
         try{
+            long topNMaxLimit = Long.parseLong(pigContext.getProperties().getProperty(
+                    PigConfiguration.PIG_EXEC_TOPN_MAX_LIMIT, String.valueOf(POTopN.DEFAULT_MAX_LIMIT)));
+            if (!pigContext.inIllustrator && POTopN.canReplace(op, topNMaxLimit)) {
+                curMROp = getTopNJob(op, getSortCols(op.getSortPlans()));
+                if(op.isUDFComparatorUsed){
+                    curMROp.UDFs.add(op.getMSortFunc().getFuncSpec().toString());
+                    curMROp.isUDFComparatorUsed = true;
+                }
+                phyToMROpMap.put(op, curMROp);
+                return;
+            }
             FileSpec fSpec = getTempFileSpec();
             MapReduceOper mro = endSingleInputPlanWithStr(fSpec);
-            FileSpec quantFile = getTempFileSpec();
             int rp = op.getRequestedParallelism();
             Pair<POProject, Byte>[] fields = getSortCols(op.getSortPlans());
-            Pair<MapReduceOper, Integer> quantJobParallelismPair =
-                getQuantileJob(op, mro, fSpec, quantFile, rp);
-            curMROp = getSortJob(op, quantJobParallelismPair.first, fSpec, quantFile,
-                    quantJobParallelismPair.second, fields);
+            QuantileFileCache quantCache = new QuantileFileCache(pigContext);
+            String quantDir = null;
+            Pair<String, Integer> reusedQuantiles = null;
+            if (rp != 1 && quantCache.isEnabled()) {
+                quantDir = quantCache.getDirectory(op, rp);
+                if (quantDir != null) {
+                    reusedQuantiles = quantCache.find(quantDir);
+                }
+            }
+            if (rp == 1) {
+                // A single reducer gets all the keys, there is nothing to
+                // sample for range partitioning
+                curMROp = getSortJob(op, mro, fSpec, null, rp, fields);
+            } else if (reusedQuantiles != null) {
+                LOG.info("Reusing quantiles of " + op.getAlias() + " from " + reusedQuantiles.first);
+                FileSpec quantFile = new FileSpec(reusedQuantiles.first,
+                        new FuncSpec(Utils.getTmpFileCompressorName(pigContext)));
+                curMROp = getSortJob(op, mro, fSpec, quantFile, reusedQuantiles.second, fields);
+            } else {
+                FileSpec quantFile = quantDir != null
+                        ? new FileSpec(quantCache.newLocation(quantDir),
+                                new FuncSpec(Utils.getTmpFileCompressorName(pigContext)))
+                        : getTempFileSpec();
+                Pair<MapReduceOper, Integer> quantJobParallelismPair =
+                    getQuantileJob(op, mro, fSpec, quantFile, rp);
+                curMROp = getSortJob(op, quantJobParallelismPair.first, fSpec, quantFile,
+                        quantJobParallelismPair.second, fields);
+            }
 
             if(op.isUDFComparatorUsed){
                 curMROp.UDFs.add(op.getMSortFunc().getFuncSpec().toString());
@@ -2082,6 +2118,32 @@ public class MRCompiler extends PhyPlanVisitor {
         throw new PlanException(msg, errCode, PigException.BUG);
     }
 
+    /**
+     * Compiles an order by followed by a small limit without sampling. Each map
+     * keeps its first N records in a POTopN, or, if the input has already been
+     * through a reduce, each reducer does, and a single reducer merges them.
+     */
+    private MapReduceOper getTopNJob(POSort sort, Pair<POProject, Byte>[] fields)
+            throws PlanException, IOException, CloneNotSupportedException {
+        if(compiledInputs.length>1) {
+            int errCode = 2023;
+            String msg = "Received a multi input plan when expecting only a single input one.";
+            throw new PlanException(msg, errCode, PigException.BUG);
+        }
+        MapReduceOper mro = compiledInputs[0];
+        POTopN topN = new POTopN(new OperatorKey(scope,nig.getNextNodeId(scope)), sort);
+        if (!mro.isMapDone()) {
+            mro.mapPlan.addAsLeaf(topN);
+        } else {
+            mro.reducePlan.addAsLeaf(topN);
+            FileSpec fSpec = getTempFileSpec();
+            mro = startNew(fSpec, endSingleInputPlanWithStr(fSpec));
+        }
+        mro = getSortJob(sort, mro, null, 1, fields);
+        mro.setTopN(true);
+        return mro;
+    }
+
     private MapReduceOper getSortJob(
             POSort sort,
             MapReduceOper quantJob,
@@ -2089,8 +2151,18 @@ public class MRCompiler extends PhyPlanVisitor {
             FileSpec quantFile,
             int rp,
             Pair<POProject, Byte>[] fields) throws PlanException{
-        MapReduceOper mro = startNew(lFile, quantJob);
-        mro.setQuantFile(quantFile.getFileName());
+        return getSortJob(sort, startNew(lFile, quantJob), quantFile, rp, fields);
+    }
+
+    private MapReduceOper getSortJob(
+            POSort sort,
+            MapReduceOper mro,
+            FileSpec quantFile,
+            int rp,
+            Pair<POProject, Byte>[] fields) throws PlanException{
+        if (quantFile != null) {
+            mro.setQuantFile(quantFile.getFileName());
+        }
         mro.setGlobalSort(true);
         mro.requestedParallelism = rp;
 
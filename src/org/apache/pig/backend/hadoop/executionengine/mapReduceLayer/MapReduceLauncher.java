@@ -83,6 +83,7 @@ import org.apache.pig.impl.util.Utils;
 import org.apache.pig.tools.pigstats.OutputStats;
 import org.apache.pig.tools.pigstats.PigStats;
 import org.apache.pig.tools.pigstats.PigStatsUtil;
+import org.apache.pig.tools.pigstats.ScriptState;
 import org.apache.pig.tools.pigstats.mapreduce.MRJobStats;
 import org.apache.pig.tools.pigstats.mapreduce.MRPigStatsUtil;
 import org.apache.pig.tools.pigstats.mapreduce.MRScriptState;
@@ -171,6 +172,9 @@ public class MapReduceLauncher extends Launcher {
         long sleepTime = 500;
         aggregateWarning = Boolean.valueOf(pc.getProperties().getProperty("aggregate.warning"));
         MROperPlan mrp = compile(php, pc);
+        if (MRScriptState.get() != null) {
+            MRScriptState.get().logCompileTimes();
+        }
 
         ConfigurationValidator.validatePigProperties(pc.getProperties());
         Configuration conf = ConfigurationUtil.toConfiguration(pc.getProperties());
@@ -453,9 +457,11 @@ public class MapReduceLauncher extends Launcher {
 
         if (Boolean.valueOf(pc.getProperties().getProperty(PigConfiguration.PIG_DELETE_TEMP_FILE, "true"))) {
             // Clean up all the intermediate data
+            QuantileFileCache quantCache = new QuantileFileCache(pc);
             for (String path : intermediateVisitor.getIntermediate()) {
-                // Skip non-file system paths such as hbase, see PIG-3617
-                if (HadoopShims.hasFileSystemImpl(new Path(path), conf)) {
+                // Skip non-file system paths such as hbase, see PIG-3617,
+                // and quantiles kept for later runs
+                if (HadoopShims.hasFileSystemImpl(new Path(path), conf) && !quantCache.contains(path)) {
                     FileLocalizer.delete(path, pc);
                 }
             }
@@ -644,6 +650,7 @@ public class MapReduceLauncher extends Launcher {
     public MROperPlan compile(
             PhysicalPlan php,
             PigContext pc) throws PlanException, IOException, VisitorException {
+        long start = System.nanoTime();
         MRCompiler comp = new MRCompiler(php, pc);
         comp.compile();
         comp.aggregateScalarsFiles();
@@ -661,7 +668,9 @@ public class MapReduceLauncher extends Launcher {
         if (!pc.inIllustrator && !("true".equals(prop)))  {
             boolean doMapAgg =
                     Boolean.valueOf(pc.getProperties().getProperty(PigConfiguration.PIG_EXEC_MAP_PARTAGG,"false"));
-            CombinerOptimizer co = new CombinerOptimizer(plan, doMapAgg);
+            boolean doCubeAgg =
+                    Boolean.valueOf(pc.getProperties().getProperty(PigConfiguration.PIG_EXEC_MAP_PARTAGG_CUBE,"true"));
+            CombinerOptimizer co = new CombinerOptimizer(plan, doMapAgg, doCubeAgg);
             co.visit();
             //display the warning message(s) from the CombinerOptimizer
             co.getMessageCollector().logMessages(MessageType.Warning, aggregateWarning, log);
@@ -733,6 +742,13 @@ public class MapReduceLauncher extends Launcher {
             AccumulatorOptimizer accum = new AccumulatorOptimizer(plan);
             accum.visit();
         }
+
+        // reads only the required columns of columnar temporary files. This
+        // has to run after the MultiQueryOptimizer which can merge the plans
+        // following a temporary load.
+        TmpLoadColumnPruner pruner = new TmpLoadColumnPruner(plan);
+        pruner.visit();
+        ScriptState.addCompileTime("MapReduce plan", start);
         return plan;
     }
 
@@ -94,6 +94,10 @@ public class MapReduceOper extends Operator<MROpPlanVisitor> {
     // Indicate if the entire purpose for this map reduce job is doing limit, does not change
     // anything else. This is to help POPackageAnnotator to find the right POPackage to annotate
     boolean limitOnly = false;
+
+    // Indicates that this order by job only sorts the few records kept by POTopN
+    // and, with a single reducer, needs no further limit job
+    boolean topN = false;
     
     OPER_FEATURE feature = OPER_FEATURE.NONE;
 
@@ -348,6 +352,14 @@ public class MapReduceOper extends Operator<MROpPlanVisitor> {
         this.limitOnly = limitOnly;
     }
 
+    public boolean isTopN() {
+        return topN;
+    }
+
+    public void setTopN(boolean topN) {
+        this.topN = topN;
+    }
+
     public boolean isIndexer() {
         return (feature == OPER_FEATURE.INDEXER);
     }
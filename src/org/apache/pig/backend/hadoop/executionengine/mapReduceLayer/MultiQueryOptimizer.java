@@ -127,6 +127,11 @@ class MultiQueryOptimizer extends MROpPlanVisitor {
                         + " has POCounter, do not merge it");
                 continue;
             }
+            if (successor.isGlobalSort()) {
+                log.debug("Splittee " + successor.getOperatorKey().getId()
+                        + " is a global sort, do not merge it");
+                continue;
+            }
             if (isMapOnly(successor)) {
                 if (isSingleLoadMapperPlan(successor.mapPlan)
                         && isSinglePredecessor(successor)) {
@@ -267,6 +267,9 @@ public class PigCombiner {
         @Override
         protected void cleanup(Context context) throws IOException, InterruptedException {
             super.cleanup(context);
+            if (pigReporter != null) {
+                pigReporter.close();
+            }
             leaf = null;
             pack = null;
             pigReporter = null;
@@ -39,6 +39,8 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOpera
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStore;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.MorselExecutor;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.OperatorProfile;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
 import org.apache.pig.backend.hadoop.executionengine.util.MapRedUtil;
 import org.apache.pig.data.DataBag;
@@ -92,6 +94,17 @@ public abstract class PigGenericMapBase extends Mapper<Text, Tuple, PigNullableW
 
     private volatile boolean initialized = false;
 
+    // Runs the stateless head of the map plan on several threads
+    private MorselExecutor morselExecutor = null;
+
+    private final MorselExecutor.ResultHandler morselResultHandler = new MorselExecutor.ResultHandler() {
+        @Override
+        public void handle(Tuple t) throws IOException, InterruptedException {
+            morselExecutor.getTailRoot().attachInput(t);
+            runPipeline(leaf);
+        }
+    };
+
     /**
      * for local map/reduce simulation
      * @param plan the map plan
@@ -109,9 +122,27 @@ public abstract class PigGenericMapBase extends Mapper<Text, Tuple, PigNullableW
         super.cleanup(context);
         if(errorInMap) {
             //error in map - returning
+            if (morselExecutor != null) {
+                morselExecutor.abort();
+            }
+            stopReporting();
             return;
         }
 
+        if (morselExecutor != null) {
+            try {
+                morselExecutor.flush(morselResultHandler);
+            } catch (IOException e) {
+                morselExecutor.abort();
+                throw e;
+            } catch (InterruptedException e) {
+                morselExecutor.abort();
+                throw e;
+            }
+            morselExecutor.close();
+            morselExecutor = null;
+        }
+
         if(PigMapReduce.sJobConfInternal.get().get(JobControlCompiler.END_OF_INP_IN_MAP, "false").equals("true") && !mp.isEmpty()) {
             // If there is a stream in the pipeline or if this map job belongs to merge-join we could
             // potentially have more to process - so lets
@@ -145,12 +176,19 @@ public abstract class PigGenericMapBase extends Mapper<Text, Tuple, PigNullableW
             throw new VisitorException(msg, errCode, PigException.BUG, e);
         }
 
+        OperatorProfile.report(mp);
         mp = null;
 
+        stopReporting();
         PhysicalOperator.setReporter(null);
         initialized = false;
     }
 
+    private void stopReporting() {
+        pigReporter.close();
+        PigStatusReporter.getInstance().stopBuffering();
+    }
+
     /**
      * Configures the mapper with the map plan and the
      * reproter thread
@@ -209,11 +247,17 @@ public abstract class PigGenericMapBase extends Mapper<Text, Tuple, PigNullableW
                 targetOpsAsList.add(mp.getOperator(targetKey));
             }
             roots = targetOpsAsList.toArray(new PhysicalOperator[1]);
+            if (!inIllustrator && roots.length == 1) {
+                morselExecutor = MorselExecutor.create(mp, roots[0], job);
+            }
             leaf = mp.getLeaves().get(0);
+            // The head operators moved to the morsel threads are not profiled
+            OperatorProfile.enable(job, mp);
         }
 
         PigStatusReporter pigStatusReporter = PigStatusReporter.getInstance();
         pigStatusReporter.setContext(new MRTaskContext(context));
+        pigStatusReporter.startBuffering(job);
 
         log.info("Aliases being processed per job phase (AliasName[line,offset]): " + job.get("pig.alias.location"));
 
@@ -262,6 +306,11 @@ public abstract class PigGenericMapBase extends Mapper<Text, Tuple, PigNullableW
             return;
         }
 
+        if (morselExecutor != null) {
+            morselExecutor.add(tf.newTupleNoCopy(inpTuple.getAll()), morselResultHandler);
+            return;
+        }
+
         for (PhysicalOperator root : roots) {
             if (inIllustrator) {
                 if (root != null) {
@@ -277,7 +326,7 @@ public abstract class PigGenericMapBase extends Mapper<Text, Tuple, PigNullableW
 
     protected void runPipeline(PhysicalOperator leaf) throws IOException, InterruptedException {
         while(true){
-            Result res = leaf.getNextTuple();
+            Result res = OperatorProfile.getNextTuple(leaf);
             if(res.returnStatus==POStatus.STATUS_OK){
                 collect(outputCollector,(Tuple)res.result);
                 continue;
@@ -41,6 +41,7 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.Physica
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.JoinPackager;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POPackage;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStore;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.OperatorProfile;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
 import org.apache.pig.backend.hadoop.executionengine.util.MapRedUtil;
 import org.apache.pig.data.DataBag;
@@ -214,7 +215,7 @@ public class PigGenericMapReduce {
                 throws IOException, InterruptedException {
 
             while(true){
-                Result res = leaf.getNextTuple();
+                Result res = OperatorProfile.getNextTuple(leaf);
 
                 if(res.returnStatus==POStatus.STATUS_OK){
                     // For POPartitionRearrange, the result is a bag.
@@ -342,6 +343,8 @@ public class PigGenericMapReduce {
                     roots = rp.getRoots().toArray(new PhysicalOperator[1]);
                     leaf = rp.getLeaves().get(0);
                 }
+                OperatorProfile.enable(jConf, pack);
+                OperatorProfile.enable(jConf, rp);
 
                 // Get the UDF specific context
                 MapRedUtil.setupUDFContext(jConf);
@@ -378,6 +381,7 @@ public class PigGenericMapReduce {
                 boolean aggregateWarning = "true".equalsIgnoreCase(context.getConfiguration().get("aggregate.warning"));
                 PigStatusReporter pigStatusReporter = PigStatusReporter.getInstance();
                 pigStatusReporter.setContext(new MRTaskContext(context));
+                pigStatusReporter.startBuffering(context.getConfiguration());
                 PigHadoopLogger pigHadoopLogger = PigHadoopLogger.getInstance();
                 pigHadoopLogger.setReporter(pigStatusReporter);
                 pigHadoopLogger.setAggregate(aggregateWarning);
@@ -419,7 +423,7 @@ public class PigGenericMapReduce {
         public boolean processOnePackageOutput(Context oc)
                 throws IOException, InterruptedException {
 
-            Result res = pack.getNextTuple();
+            Result res = OperatorProfile.getNextTuple(pack);
             if(res.returnStatus==POStatus.STATUS_OK){
                 Tuple packRes = (Tuple)res.result;
 
@@ -462,7 +466,7 @@ public class PigGenericMapReduce {
 
             while(true)
             {
-                Result redRes = leaf.getNextTuple();
+                Result redRes = OperatorProfile.getNextTuple(leaf);
                 if(redRes.returnStatus==POStatus.STATUS_OK){
                     try{
                         outputCollector.write(null, (Tuple)redRes.result);
@@ -509,6 +513,7 @@ public class PigGenericMapReduce {
 
             if(errorInReduce) {
                 // there was an error in reduce - just return
+                stopReporting();
                 return;
             }
 
@@ -543,10 +548,19 @@ public class PigGenericMapReduce {
                 throw new IOException("Error trying to finish UDFs",e);
             }
 
+            OperatorProfile.report(pack);
+            OperatorProfile.report(rp);
+
+            stopReporting();
             PhysicalOperator.setReporter(null);
             initialized = false;
         }
 
+        private void stopReporting() {
+            pigReporter.close();
+            PigStatusReporter.getInstance().stopBuffering();
+        }
+
         /**
          * Get reducer's illustrator context
          *
@@ -609,6 +623,7 @@ public class PigGenericMapReduce {
                 boolean aggregateWarning = "true".equalsIgnoreCase(context.getConfiguration().get("aggregate.warning"));
                 PigStatusReporter pigStatusReporter = PigStatusReporter.getInstance();
                 pigStatusReporter.setContext(new MRTaskContext(context));
+                pigStatusReporter.startBuffering(context.getConfiguration());
                 PigHadoopLogger pigHadoopLogger = PigHadoopLogger.getInstance();
                 pigHadoopLogger.setReporter(pigStatusReporter);
                 pigHadoopLogger.setAggregate(aggregateWarning);
@@ -638,7 +653,7 @@ public class PigGenericMapReduce {
 
             pack.attachInput(key, tupIter.iterator());
 
-            Result res = pack.getNextTuple();
+            Result res = OperatorProfile.getNextTuple(pack);
             if(res.returnStatus==POStatus.STATUS_OK){
                 Tuple packRes = (Tuple)res.result;
 
@@ -56,6 +56,10 @@ public final class PigHadoopLogger implements PigLogger {
         this.reporter = reporter;
     }
 
+    public PigWarnCounter getReporter() {
+        return reporter;
+    }
+
     @Override
     @SuppressWarnings("rawtypes")
     public void warn(Object o, String msg, Enum warningEnum) {
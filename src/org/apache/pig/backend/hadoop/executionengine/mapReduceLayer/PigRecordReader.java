@@ -36,6 +36,7 @@ import org.apache.pig.LoadFunc;
 import org.apache.pig.backend.hadoop.datastorage.ConfigurationUtil;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.LoadFuncDecorator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLoad;
+import org.apache.pig.backend.hadoop.executionengine.util.TuplePrefetcher;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.impl.util.ObjectSerializer;
 import org.apache.pig.tools.pigstats.PigStatsUtil;
@@ -68,7 +69,7 @@ public class PigRecordReader extends RecordReader<Text, Tuple> {
     Tuple curValue = null;
 
     // the current wrapped RecordReader used by the loader
-    private RecordReader<?, ?> curReader;
+    private volatile RecordReader<?, ?> curReader;
 
     // the loader object
     private LoadFunc loadfunc;
@@ -98,6 +99,9 @@ public class PigRecordReader extends RecordReader<Text, Tuple> {
 
     private long recordCount = 0;
 
+    // reads tuples ahead on a separate thread if input prefetch is enabled
+    private TuplePrefetcher prefetcher = null;
+
     /**
      * the Configuration object with data specific to the input the underlying
      * RecordReader will process (this is obtained after a
@@ -129,10 +133,33 @@ public class PigRecordReader extends RecordReader<Text, Tuple> {
             counterGroup = loadfunc.toString();
             timingFrequency = inputSpecificConf.getLong(PIG_UDF_PROFILE_FREQUENCY, 100L);
         }
+        if (TuplePrefetcher.isEnabled(inputSpecificConf)) {
+            prefetcher = new TuplePrefetcher("PigRecordReader prefetch",
+                    new TuplePrefetcher.TupleSource() {
+                        @Override
+                        public Tuple next() throws IOException {
+                            try {
+                                return readNext();
+                            } catch (InterruptedException e) {
+                                throw new IOException(e);
+                            }
+                        }
+                    }, TuplePrefetcher.getBufferSize(inputSpecificConf));
+        }
+    }
+
+    /**
+     * @return the loader reading the chunks of the split
+     */
+    public LoadFunc getLoadFunc() {
+        return loadfunc;
     }
 
     @Override
     public void close() throws IOException {
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
         if (curReader != null) {
             curReader.close();
             curReader = null;
@@ -158,9 +185,11 @@ public class PigRecordReader extends RecordReader<Text, Tuple> {
     @Override
     public float getProgress() throws IOException, InterruptedException {
         long subprogress = 0;    // bytes processed in current split
-        if (null != curReader) {
+        // curReader may be switched by the prefetch thread
+        RecordReader<?, ?> reader = curReader;
+        if (null != reader) {
             // idx is always one past the current subsplit's true index.
-            subprogress = (long)(curReader.getProgress() * pigSplit.getLength(idx - 1));
+            subprogress = (long)(reader.getProgress() * pigSplit.getLength(idx - 1));
         }
         return Math.max(0.0f, Math.min(1.0f,  (progress + subprogress)/(float)(pigSplit.getLength())));
     }
@@ -206,10 +235,9 @@ public class PigRecordReader extends RecordReader<Text, Tuple> {
         if (timeThis) {
             startNanos = System.nanoTime();
         }
-        while ((curReader == null) || (curValue = decorator.getNext()) == null) {
-            if (!initNextRecordReader()) {
-              return false;
-            }
+        curValue = (prefetcher != null) ? prefetcher.next() : readNext();
+        if (curValue == null) {
+            return false;
         }
         if (timeThis) {
             reporter.incrCounter(counterGroup, TIME_UDFS_ELAPSED_TIME_COUNTER,
@@ -219,6 +247,22 @@ public class PigRecordReader extends RecordReader<Text, Tuple> {
         return true;
     }
 
+    /**
+     * Read the next tuple from the loader, moving on to the next chunk of the
+     * split when the current one is exhausted.
+     *
+     * @return the next tuple or null if all chunks have been processed
+     */
+    private Tuple readNext() throws IOException, InterruptedException {
+        Tuple t;
+        while ((curReader == null) || (t = decorator.getNext()) == null) {
+            if (!initNextRecordReader()) {
+                return null;
+            }
+        }
+        return t;
+    }
+
     @SuppressWarnings("unchecked")
     private static String getMultiInputsCounerName(PigSplit pigSplit,
             Configuration conf) throws IOException {
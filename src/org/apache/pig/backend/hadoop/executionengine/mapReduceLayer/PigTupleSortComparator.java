@@ -25,10 +25,12 @@ import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.WritableComparator;
 import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.data.BinInterSedes;
 import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
 import org.apache.pig.data.TupleRawComparator;
+import org.apache.pig.impl.PigImplConstants;
 import org.apache.pig.impl.io.NullableTuple;
 import org.apache.pig.impl.util.ObjectSerializer;
 
@@ -60,6 +62,10 @@ public class PigTupleSortComparator extends WritableComparator implements Config
         mWholeTuple = (mAsc.length == 1);
         try {
             Class<? extends TupleRawComparator> mComparatorClass = TupleFactory.getInstance().tupleRawComparatorClass();
+            // Use the comparator specialized for the key field types when they are known
+            if (mComparatorClass == BinInterSedes.BinInterSedesTupleRawComparator.class
+                    && conf.get(PigImplConstants.PIG_KEY_FIELD_TYPES) != null)
+                mComparatorClass = PigTypedTupleRawComparator.class;
             if (mComparatorClass!=null)
                 mComparator = mComparatorClass.newInstance();
         } catch (InstantiationException e) {
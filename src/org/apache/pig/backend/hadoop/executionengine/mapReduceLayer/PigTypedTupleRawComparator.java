@@ -0,0 +1,575 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.mapReduceLayer;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLocalRearrange;
+import org.apache.pig.data.BinInterSedes;
+import org.apache.pig.data.BinSedesTuple;
+import org.apache.pig.data.DataType;
+import org.apache.pig.data.TupleRawComparator;
+import org.apache.pig.impl.PigImplConstants;
+import org.apache.pig.impl.util.ObjectSerializer;
+
+/**
+ * Raw comparator for tuple keys made of a fixed sequence of typed fields, such
+ * as the keys of a group, join or order by on several columns.
+ *
+ * The field types are found at compile time from the key plans of the local
+ * rearranges and passed in {@link PigImplConstants#PIG_KEY_FIELD_TYPES}. In
+ * {@link #setConf(Configuration)}, one comparator specialized for its type is
+ * set up per field, so comparisons read each field directly from the
+ * serialized bytes instead of going through the generic type dispatch of
+ * {@link BinInterSedes.BinInterSedesTupleRawComparator}. Chararrays are
+ * compared without being decoded when possible.
+ *
+ * The result is the same as the one of the generic comparator, which is still
+ * used if a field does not have the expected type (for instance a bytearray
+ * field holding another type), or for comparisons of deserialized tuples.
+ */
+public class PigTypedTupleRawComparator extends WritableComparator implements TupleRawComparator {
+
+    private static final Log mLog = LogFactory.getLog(PigTypedTupleRawComparator.class);
+
+    private boolean[] mAsc;
+    private boolean mWholeTuple;
+    private boolean mHasNullField;
+    private FieldComparator[] mFields;
+    private BinInterSedes.BinInterSedesTupleRawComparator mGenericComparator;
+    private boolean mUseGeneric;
+    // Set when the keys of the last typed comparison did not have the
+    // expected layout, so that the generic comparator has to be used
+    private boolean mTypeMismatch;
+
+    // Positions of the fields being compared
+    private int mPos1;
+    private int mPos2;
+
+    public PigTypedTupleRawComparator() {
+        super(BinSedesTuple.class);
+    }
+
+    /**
+     * @param type a pig data type
+     * @return true if keys fields of this type can be compared by this
+     *         comparator
+     */
+    public static boolean isSupportedType(byte type) {
+        switch (type) {
+        case DataType.BOOLEAN:
+        case DataType.INTEGER:
+        case DataType.LONG:
+        case DataType.FLOAT:
+        case DataType.DOUBLE:
+        case DataType.DATETIME:
+        case DataType.CHARARRAY:
+        case DataType.BYTEARRAY:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Get the types of the fields of the tuple keys of some local rearranges.
+     *
+     * @param lrs the local rearranges sending keys to the same shuffle
+     * @return the types of the key fields, or null if the keys are not tuples
+     *         with the same supported field types for all the local rearranges
+     */
+    public static byte[] getKeyFieldTypes(List<? extends POLocalRearrange> lrs) {
+        byte[] types = null;
+        for (POLocalRearrange lr : lrs) {
+            List<PhysicalPlan> plans = lr.getPlans();
+            if (lr.getKeyType() != DataType.TUPLE || lr.isCross() || lr.isProjectStar()
+                    || plans == null || plans.size() < 2) {
+                return null;
+            }
+            byte[] lrTypes = new byte[plans.size()];
+            for (int i = 0; i < lrTypes.length; i++) {
+                if (plans.get(i).getLeaves().size() != 1) {
+                    return null;
+                }
+                lrTypes[i] = plans.get(i).getLeaves().get(0).getResultType();
+                if (!isSupportedType(lrTypes[i])) {
+                    return null;
+                }
+            }
+            if (types == null) {
+                types = lrTypes;
+            } else if (!Arrays.equals(types, lrTypes)) {
+                return null;
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Set the key field types for the comparators created with conf.
+     *
+     * @param conf configuration of the shuffle
+     * @param types types of the key fields, see {@link #getKeyFieldTypes(List)}
+     * @throws IOException
+     */
+    public static void setKeyFieldTypes(Configuration conf, byte[] types) throws IOException {
+        conf.set(PigImplConstants.PIG_KEY_FIELD_TYPES, ObjectSerializer.serialize(types));
+    }
+
+    @Override
+    public Configuration getConf() {
+        return null;
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+        mGenericComparator = new BinInterSedes.BinInterSedesTupleRawComparator();
+        mGenericComparator.setConf(conf);
+        byte[] types;
+        try {
+            mAsc = (boolean[]) ObjectSerializer.deserialize(conf.get("pig.sortOrder"));
+            types = (byte[]) ObjectSerializer.deserialize(conf.get(PigImplConstants.PIG_KEY_FIELD_TYPES));
+        } catch (IOException ioe) {
+            mLog.error("Unable to deserialize key field types " + ioe.getMessage());
+            throw new RuntimeException(ioe);
+        }
+        if (mAsc == null) {
+            mAsc = new boolean[1];
+            mAsc[0] = true;
+        }
+        // If there's only one entry in mAsc, it means it's for the whole
+        // tuple. So we can't be looking for each column.
+        mWholeTuple = (mAsc.length == 1);
+        // Secondary sort keys are (main_key, secondary_key) tuples with their
+        // own sort orders, leave them to the generic comparator
+        mUseGeneric = types == null || conf.get("pig.secondarySortOrder") != null
+                || (!mWholeTuple && mAsc.length != types.length);
+        if (mUseGeneric) {
+            return;
+        }
+        mFields = new FieldComparator[types.length];
+        for (int i = 0; i < types.length; i++) {
+            mFields[i] = newFieldComparator(types[i]);
+        }
+    }
+
+    private FieldComparator newFieldComparator(byte type) {
+        switch (type) {
+        case DataType.BOOLEAN:
+            return new BooleanComparator();
+        case DataType.INTEGER:
+            return new IntComparator();
+        case DataType.LONG:
+            return new LongComparator();
+        case DataType.FLOAT:
+            return new FloatComparator();
+        case DataType.DOUBLE:
+            return new DoubleComparator();
+        case DataType.DATETIME:
+            return new DateTimeComparator();
+        case DataType.CHARARRAY:
+            return new CharArrayComparator();
+        case DataType.BYTEARRAY:
+            return new ByteArrayComparator();
+        default:
+            throw new IllegalArgumentException("Unsupported key field type "
+                    + DataType.findTypeName(type));
+        }
+    }
+
+    @Override
+    public boolean hasComparedTupleNull() {
+        return mHasNullField;
+    }
+
+    /**
+     * Compare two BinSedesTuples as raw bytes. We assume the Tuples are NOT
+     * PigNullableWritable, so client classes need to deal with Null and Index.
+     */
+    @Override
+    public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+        if (!mUseGeneric) {
+            int rc = compareTyped(b1, s1, b2, s2);
+            if (!mTypeMismatch) {
+                return rc;
+            }
+        }
+        int rc = mGenericComparator.compare(b1, s1, l1, b2, s2, l2);
+        mHasNullField = mGenericComparator.hasComparedTupleNull();
+        return rc;
+    }
+
+    /**
+     * Compare the keys field by field with the typed comparators. Sets
+     * mTypeMismatch if they are not tuples of the expected size and types,
+     * in which case the result must be ignored.
+     */
+    private int compareTyped(byte[] b1, int s1, byte[] b2, int s2) {
+        mHasNullField = false;
+        mTypeMismatch = false;
+        mPos1 = s1;
+        mPos2 = s2;
+        int tsz1 = readTupleSize(b1, true);
+        int tsz2 = readTupleSize(b2, false);
+        if (tsz1 != mFields.length || tsz2 != mFields.length) {
+            mTypeMismatch = true;
+            return 0;
+        }
+        int rc = 0;
+        for (int i = 0; i < mFields.length && rc == 0; i++) {
+            byte dt1 = b1[mPos1++];
+            byte dt2 = b2[mPos2++];
+            if (dt1 == BinInterSedes.NULL || dt2 == BinInterSedes.NULL) {
+                // null is smaller than any other value
+                if (dt1 == BinInterSedes.NULL) {
+                    mHasNullField = true;
+                    rc = (dt2 == BinInterSedes.NULL) ? 0 : -1;
+                } else {
+                    rc = 1;
+                }
+            } else {
+                FieldComparator field = mFields[i];
+                if (!field.accepts(dt1) || !field.accepts(dt2)) {
+                    mTypeMismatch = true;
+                    return 0;
+                }
+                rc = field.compare(b1, dt1, b2, dt2);
+            }
+            // flip if the order is descending
+            if (rc != 0) {
+                if (!mWholeTuple && !mAsc[i])
+                    rc *= -1;
+                else if (mWholeTuple && !mAsc[0])
+                    rc *= -1;
+            }
+        }
+        return rc;
+    }
+
+    /**
+     * @return the size of the tuple, or -1 if it is not a plain tuple
+     */
+    private int readTupleSize(byte[] b, boolean first) {
+        int pos = first ? mPos1 : mPos2;
+        byte type = b[pos++];
+        int size;
+        if (type >= BinInterSedes.TUPLE_0 && type <= BinInterSedes.TUPLE_9) {
+            size = type - BinInterSedes.TUPLE_0;
+        } else if (type == BinInterSedes.TINYTUPLE) {
+            size = b[pos] & 0xff;
+            pos += 1;
+        } else if (type == BinInterSedes.SMALLTUPLE) {
+            size = readUnsignedShort(b, pos);
+            pos += 2;
+        } else if (type == BinInterSedes.TUPLE) {
+            size = readInt(b, pos);
+            pos += 4;
+        } else {
+            // for instance a SchemaTuple
+            return -1;
+        }
+        if (first) {
+            mPos1 = pos;
+        } else {
+            mPos2 = pos;
+        }
+        return size;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public int compare(WritableComparable o1, WritableComparable o2) {
+        int rc = mGenericComparator.compare(o1, o2);
+        mHasNullField = mGenericComparator.hasComparedTupleNull();
+        return rc;
+    }
+
+    /**
+     * Compares the serialized values of one key field, with the type of the
+     * field. The comparators read the values at mPos1 and mPos2, just after
+     * the type bytes, and move the positions past the values.
+     */
+    private abstract class FieldComparator {
+        abstract boolean accepts(byte dt);
+
+        abstract int compare(byte[] b1, byte dt1, byte[] b2, byte dt2);
+    }
+
+    private class BooleanComparator extends FieldComparator {
+        @Override
+        boolean accepts(byte dt) {
+            return dt == BinInterSedes.BOOLEAN_TRUE || dt == BinInterSedes.BOOLEAN_FALSE;
+        }
+
+        @Override
+        int compare(byte[] b1, byte dt1, byte[] b2, byte dt2) {
+            // false < true
+            int bv1 = (dt1 == BinInterSedes.BOOLEAN_TRUE) ? 1 : 0;
+            int bv2 = (dt2 == BinInterSedes.BOOLEAN_TRUE) ? 1 : 0;
+            return bv1 - bv2;
+        }
+    }
+
+    private class IntComparator extends FieldComparator {
+        @Override
+        boolean accepts(byte dt) {
+            return dt == BinInterSedes.INTEGER || (dt >= BinInterSedes.INTEGER_0
+                    && dt <= BinInterSedes.INTEGER_INBYTE);
+        }
+
+        @Override
+        int compare(byte[] b1, byte dt1, byte[] b2, byte dt2) {
+            int iv1 = readIntField(b1, dt1, true);
+            int iv2 = readIntField(b2, dt2, false);
+            return (iv1 < iv2 ? -1 : (iv1 == iv2 ? 0 : 1));
+        }
+
+        private int readIntField(byte[] b, byte dt, boolean first) {
+            int pos = first ? mPos1 : mPos2;
+            int v;
+            switch (dt) {
+            case BinInterSedes.INTEGER_0:
+                v = 0;
+                break;
+            case BinInterSedes.INTEGER_1:
+                v = 1;
+                break;
+            case BinInterSedes.INTEGER_INBYTE:
+                v = b[pos];
+                pos += 1;
+                break;
+            case BinInterSedes.INTEGER_INSHORT:
+                v = (short) readUnsignedShort(b, pos);
+                pos += 2;
+                break;
+            default:
+                v = readInt(b, pos);
+                pos += 4;
+            }
+            if (first) {
+                mPos1 = pos;
+            } else {
+                mPos2 = pos;
+            }
+            return v;
+        }
+    }
+
+    private class LongComparator extends FieldComparator {
+        @Override
+        boolean accepts(byte dt) {
+            return dt == BinInterSedes.LONG || (dt >= BinInterSedes.LONG_INBYTE
+                    && dt <= BinInterSedes.LONG_1);
+        }
+
+        @Override
+        int compare(byte[] b1, byte dt1, byte[] b2, byte dt2) {
+            long lv1 = readLongField(b1, dt1, true);
+            long lv2 = readLongField(b2, dt2, false);
+            return (lv1 < lv2 ? -1 : (lv1 == lv2 ? 0 : 1));
+        }
+
+        private long readLongField(byte[] b, byte dt, boolean first) {
+            int pos = first ? mPos1 : mPos2;
+            long v;
+            switch (dt) {
+            case BinInterSedes.LONG_0:
+                v = 0L;
+                break;
+            case BinInterSedes.LONG_1:
+                v = 1L;
+                break;
+            case BinInterSedes.LONG_INBYTE:
+                v = b[pos];
+                pos += 1;
+                break;
+            case BinInterSedes.LONG_INSHORT:
+                v = (short) readUnsignedShort(b, pos);
+                pos += 2;
+                break;
+            case BinInterSedes.LONG_ININT:
+                v = readInt(b, pos);
+                pos += 4;
+                break;
+            default:
+                v = readLong(b, pos);
+                pos += 8;
+            }
+            if (first) {
+                mPos1 = pos;
+            } else {
+                mPos2 = pos;
+            }
+            return v;
+        }
+    }
+
+    private class FloatComparator extends FieldComparator {
+        @Override
+        boolean accepts(byte dt) {
+            return dt == BinInterSedes.FLOAT;
+        }
+
+        @Override
+        int compare(byte[] b1, byte dt1, byte[] b2, byte dt2) {
+            float fv1 = readFloat(b1, mPos1);
+            float fv2 = readFloat(b2, mPos2);
+            mPos1 += 4;
+            mPos2 += 4;
+            return Float.compare(fv1, fv2);
+        }
+    }
+
+    private class DoubleComparator extends FieldComparator {
+        @Override
+        boolean accepts(byte dt) {
+            return dt == BinInterSedes.DOUBLE;
+        }
+
+        @Override
+        int compare(byte[] b1, byte dt1, byte[] b2, byte dt2) {
+            double dv1 = readDouble(b1, mPos1);
+            double dv2 = readDouble(b2, mPos2);
+            mPos1 += 8;
+            mPos2 += 8;
+            return Double.compare(dv1, dv2);
+        }
+    }
+
+    private class DateTimeComparator extends FieldComparator {
+        @Override
+        boolean accepts(byte dt) {
+            return dt == BinInterSedes.DATETIME;
+        }
+
+        @Override
+        int compare(byte[] b1, byte dt1, byte[] b2, byte dt2) {
+            long lv1 = readLong(b1, mPos1);
+            long lv2 = readLong(b2, mPos2);
+            // skip the timezone
+            mPos1 += 10;
+            mPos2 += 10;
+            return (lv1 < lv2 ? -1 : (lv1 == lv2 ? 0 : 1));
+        }
+    }
+
+    private class CharArrayComparator extends FieldComparator {
+        @Override
+        boolean accepts(byte dt) {
+            return dt == BinInterSedes.SMALLCHARARRAY || dt == BinInterSedes.CHARARRAY;
+        }
+
+        @Override
+        int compare(byte[] b1, byte dt1, byte[] b2, byte dt2) {
+            int sz1, sz2;
+            if (dt1 == BinInterSedes.SMALLCHARARRAY) {
+                sz1 = readUnsignedShort(b1, mPos1);
+                mPos1 += 2;
+            } else {
+                sz1 = readInt(b1, mPos1);
+                mPos1 += 4;
+            }
+            if (dt2 == BinInterSedes.SMALLCHARARRAY) {
+                sz2 = readUnsignedShort(b2, mPos2);
+                mPos2 += 2;
+            } else {
+                sz2 = readInt(b2, mPos2);
+                mPos2 += 4;
+            }
+            int rc = compareUTF8(b1, mPos1, sz1, b2, mPos2, sz2);
+            mPos1 += sz1;
+            mPos2 += sz2;
+            return rc;
+        }
+
+        /**
+         * Compare UTF-8 bytes with the result of String.compareTo. Byte order
+         * is the same as String order up to the first difference if it is on
+         * an ASCII character, otherwise the strings are decoded.
+         */
+        private int compareUTF8(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+            int n = Math.min(l1, l2);
+            for (int i = 0; i < n; i++) {
+                int c1 = b1[s1 + i] & 0xff;
+                int c2 = b2[s2 + i] & 0xff;
+                if (c1 != c2) {
+                    if (c1 < 0x80 || c2 < 0x80) {
+                        // an ASCII character is smaller than any other
+                        return c1 - c2;
+                    }
+                    try {
+                        String str1 = new String(b1, s1, l1, BinInterSedes.UTF8);
+                        String str2 = new String(b2, s2, l2, BinInterSedes.UTF8);
+                        return str1.compareTo(str2);
+                    } catch (UnsupportedEncodingException uee) {
+                        throw new RuntimeException(uee);
+                    }
+                }
+            }
+            return l1 - l2;
+        }
+    }
+
+    private class ByteArrayComparator extends FieldComparator {
+        @Override
+        boolean accepts(byte dt) {
+            return dt == BinInterSedes.TINYBYTEARRAY || dt == BinInterSedes.SMALLBYTEARRAY
+                    || dt == BinInterSedes.BYTEARRAY;
+        }
+
+        @Override
+        int compare(byte[] b1, byte dt1, byte[] b2, byte dt2) {
+            int sz1 = readByteArraySize(b1, dt1, true);
+            int sz2 = readByteArraySize(b2, dt2, false);
+            int rc = WritableComparator.compareBytes(b1, mPos1, sz1, b2, mPos2, sz2);
+            mPos1 += sz1;
+            mPos2 += sz2;
+            return rc;
+        }
+
+        private int readByteArraySize(byte[] b, byte dt, boolean first) {
+            int pos = first ? mPos1 : mPos2;
+            int size;
+            if (dt == BinInterSedes.TINYBYTEARRAY) {
+                size = b[pos] & 0xff;
+                pos += 1;
+            } else if (dt == BinInterSedes.SMALLBYTEARRAY) {
+                size = readUnsignedShort(b, pos);
+                pos += 2;
+            } else {
+                size = readInt(b, pos);
+                pos += 4;
+            }
+            if (first) {
+                mPos1 = pos;
+            } else {
+                mPos2 = pos;
+            }
+            return size;
+        }
+    }
+}
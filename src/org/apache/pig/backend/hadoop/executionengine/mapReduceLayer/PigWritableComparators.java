@@ -17,9 +17,13 @@
  */
 package org.apache.pig.backend.hadoop.executionengine.mapReduceLayer;
 
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.WritableComparator;
 import org.apache.pig.impl.io.NullablePartitionWritable;
 import org.apache.pig.impl.io.NullableText;
+import org.apache.pig.impl.io.NullableTuple;
+import org.apache.pig.impl.io.PigNullableWritable;
 
 public class PigWritableComparators {
 
@@ -563,4 +567,64 @@ public class PigWritableComparators {
         }
     }
 
+    //
+    // Raw grouping comparator for tuple keys with known field types (see PigTypedTupleRawComparator).
+    // Same as PigNullableWritable.compareTo, without deserializing the keys.
+    //
+    public static class PigTupleTypedGroupingComparator extends WritableComparator implements Configurable {
+
+        private PigTypedTupleRawComparator mComparator;
+
+        public PigTupleTypedGroupingComparator() {
+            super(NullableTuple.class);
+        }
+
+        @Override
+        public void setConf(Configuration conf) {
+            mComparator = new PigTypedTupleRawComparator();
+            mComparator.setConf(conf);
+        }
+
+        @Override
+        public Configuration getConf() {
+            return null;
+        }
+
+        @Override
+        public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+            // mNull, the tuple if not null, then mIndex
+            byte idx1 = b1[s1 + l1 - 1];
+            byte idx2 = b2[s2 + l2 - 1];
+            if ((idx1 & PigNullableWritable.mqFlag) != 0) {
+                // multi-query index
+                int rc = (idx1 & PigNullableWritable.idxSpace) - (idx2 & PigNullableWritable.idxSpace);
+                if (rc != 0) {
+                    return rc;
+                }
+            }
+            if (b1[s1] == 0 && b2[s2] == 0) {
+                int rc = mComparator.compare(b1, s1 + 1, l1 - 2, b2, s2 + 1, l2 - 2);
+                // handle PIG-927. If tuples are equal but any field inside tuple is null,
+                // then we do not merge keys if indices are not same
+                if (rc == 0 && mComparator.hasComparedTupleNull()) {
+                    rc = idx1 - idx2;
+                }
+                return rc;
+            } else if (b1[s1] != 0 && b2[s2] != 0) {
+                // Two nulls are equal if indices are same
+                return (idx1 & PigNullableWritable.idxSpace) - (idx2 & PigNullableWritable.idxSpace);
+            } else if (b1[s1] != 0) {
+                return -1;
+            } else {
+                return 1;
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(Object o1, Object o2) {
+            return ((NullableTuple) o1).compareTo(o2);
+        }
+    }
+
 }
@@ -17,11 +17,19 @@
  */
 package org.apache.pig.backend.hadoop.executionengine.mapReduceLayer;
 
+import java.util.concurrent.ScheduledFuture;
+
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PigProgressable;
+import org.apache.pig.tools.pigstats.TaskReportTimer;
 
 public class ProgressableReporter implements PigProgressable {
-    TaskAttemptContext rep;
+    volatile TaskAttemptContext rep;
+
+    // When reporting on a timer, progress() only sets this flag and the
+    // timer reports progress to the task context if it was set
+    private volatile boolean progressed = false;
+    private ScheduledFuture<?> progressTask = null;
 
     public ProgressableReporter(){
 
@@ -34,7 +42,11 @@ public class ProgressableReporter implements PigProgressable {
 
     @Override
     public void progress() {
-        if (rep != null) {
+        if (progressTask != null) {
+            if (!progressed) {
+                progressed = true;
+            }
+        } else if (rep != null) {
             rep.progress();
         }
     }
@@ -52,6 +64,37 @@ public class ProgressableReporter implements PigProgressable {
 
     public void setRep(TaskAttemptContext rep) {
         this.rep = rep;
+        if (rep != null && progressTask == null) {
+            long interval = TaskReportTimer.getInterval(rep.getConfiguration());
+            if (interval > 0) {
+                progressTask = TaskReportTimer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        reportProgress();
+                    }
+                }, interval);
+            }
+        }
+    }
+
+    /**
+     * Stops the progress timer, reporting pending progress. Must be called
+     * at the end of the task.
+     */
+    public void close() {
+        if (progressTask != null) {
+            progressTask.cancel(false);
+            progressTask = null;
+            reportProgress();
+        }
+    }
+
+    private void reportProgress() {
+        TaskAttemptContext context = rep;
+        if (progressed && context != null) {
+            progressed = false;
+            context.progress();
+        }
     }
 
 }
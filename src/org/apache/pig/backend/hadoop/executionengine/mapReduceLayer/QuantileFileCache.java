@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.mapReduceLayer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.backend.hadoop.datastorage.ConfigurationUtil;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSort;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.impl.PigContext;
+import org.apache.pig.impl.builtin.FindQuantiles;
+import org.apache.pig.impl.io.ReadToEndLoader;
+import org.apache.pig.impl.util.Pair;
+import org.apache.pig.impl.util.Utils;
+import org.apache.pig.tools.pigstats.ScriptState;
+
+/**
+ * Keeps the quantiles computed by the sampling job of an order by across runs
+ * of the same script, so that later runs can skip the sampling job and range
+ * partition with the quantiles of an earlier run. This pays off for scripts
+ * run periodically over data with a stable key distribution.
+ *
+ * Every order by gets its own directory under
+ * {@link PigConfiguration#PIG_ORDER_QUANTILES_REUSE_DIR}, named after a
+ * fingerprint of the script, the sort operator and its requested parallelism.
+ * Each run that samples writes its quantiles to a new sub directory, and the
+ * most recent readable one is reused. Entries older than
+ * {@link PigConfiguration#PIG_ORDER_QUANTILES_REUSE_MAX_AGE} minutes are
+ * deleted so that the distribution is sampled again.
+ */
+public class QuantileFileCache {
+
+    private static final Log LOG = LogFactory.getLog(QuantileFileCache.class);
+
+    private final Configuration conf;
+
+    private final String baseDir;
+
+    private final long maxAgeMillis;
+
+    public QuantileFileCache(PigContext pigContext) {
+        this.conf = ConfigurationUtil.toConfiguration(pigContext.getProperties());
+        this.baseDir = conf.get(PigConfiguration.PIG_ORDER_QUANTILES_REUSE_DIR);
+        this.maxAgeMillis = conf.getLong(PigConfiguration.PIG_ORDER_QUANTILES_REUSE_MAX_AGE, 0) * 60 * 1000;
+    }
+
+    /**
+     * @return true if quantiles reuse is turned on
+     */
+    public boolean isEnabled() {
+        return baseDir != null && !baseDir.isEmpty();
+    }
+
+    /**
+     * Get the directory holding the quantiles of a sort operator.
+     *
+     * @param sort the sort operator
+     * @param rp the requested parallelism of the sort
+     * @return the directory, or null if the script is not known and the sort
+     *         cannot be identified across runs
+     */
+    public String getDirectory(POSort sort, int rp) {
+        String script = ScriptState.get() == null ? "" : ScriptState.get().getSerializedScript();
+        if (script.isEmpty()) {
+            LOG.info("Script is not available, quantiles of " + sort.getAlias() + " will not be reused");
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(script);
+        sb.append('\n').append(sort.getAlias());
+        sb.append('\n').append(sort.getOriginalLocations());
+        sb.append('\n').append(sort.getMAscCols());
+        if (sort.isUDFComparatorUsed) {
+            sb.append('\n').append(sort.getMSortFunc().getFuncSpec());
+        }
+        sb.append('\n').append(rp);
+        return new Path(baseDir, DigestUtils.md5Hex(sb.toString())).toString();
+    }
+
+    /**
+     * @param location a file name
+     * @return true if the location holds quantiles kept for later runs, which
+     *         must not be cleaned up with the other intermediate data
+     */
+    public boolean contains(String location) {
+        return isEnabled() && location.startsWith(new Path(baseDir).toString() + Path.SEPARATOR);
+    }
+
+    /**
+     * @param dir the directory of a sort operator
+     * @return a new location in the directory to store the quantiles to
+     */
+    public String newLocation(String dir) {
+        return new Path(dir, Long.toString(System.currentTimeMillis())).toString();
+    }
+
+    /**
+     * Find the most recent quantiles of a sort operator. Expired entries are
+     * deleted.
+     *
+     * @param dir the directory of a sort operator
+     * @return the location of the quantiles and the number of partitions they
+     *         were computed for, or null if there are none to reuse
+     */
+    public Pair<String, Integer> find(String dir) {
+        try {
+            Path path = new Path(dir);
+            FileSystem fs = path.getFileSystem(conf);
+            if (!fs.exists(path)) {
+                return null;
+            }
+            FileStatus[] entries = fs.listStatus(path);
+            // newest first
+            Arrays.sort(entries, new Comparator<FileStatus>() {
+                @Override
+                public int compare(FileStatus o1, FileStatus o2) {
+                    return Long.compare(o2.getModificationTime(), o1.getModificationTime());
+                }
+            });
+            long now = System.currentTimeMillis();
+            Pair<String, Integer> found = null;
+            for (FileStatus entry : entries) {
+                boolean expired = maxAgeMillis > 0
+                        && now - entry.getModificationTime() > maxAgeMillis;
+                if (expired) {
+                    fs.delete(entry.getPath(), true);
+                } else if (found == null) {
+                    // An unreadable entry could still be written by a
+                    // concurrent run, leave it until it expires
+                    int partitions = getNumPartitions(entry.getPath().toString());
+                    if (partitions > 0) {
+                        found = new Pair<String, Integer>(entry.getPath().toString(), partitions);
+                    }
+                }
+            }
+            return found;
+        } catch (IOException e) {
+            LOG.warn("Unable to look up quantiles in " + dir, e);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int getNumPartitions(String location) {
+        try {
+            ReadToEndLoader loader = new ReadToEndLoader(Utils.getTmpFileStorageObject(conf),
+                    conf, location, 0);
+            Tuple t = loader.getNext();
+            if (t == null) {
+                return -1;
+            }
+            Map<String, Object> quantileMap = (Map<String, Object>) t.get(0);
+            DataBag quantilesList = (DataBag) quantileMap.get(FindQuantiles.QUANTILES_LIST);
+            return quantilesList == null ? -1 : (int) Math.max(1, quantilesList.size());
+        } catch (Exception e) {
+            LOG.debug("Unable to read quantiles from " + location, e);
+            return -1;
+        }
+    }
+}
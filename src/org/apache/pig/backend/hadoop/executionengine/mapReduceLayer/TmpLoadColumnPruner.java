@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.mapReduceLayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pig.FuncSpec;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.plans.MROpPlanVisitor;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.plans.MROperPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.ConstantExpression;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POProject;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFilter;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POForEach;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLoad;
+import org.apache.pig.impl.io.ColumnarInterStorage;
+import org.apache.pig.impl.io.FileSpec;
+import org.apache.pig.impl.plan.DepthFirstWalker;
+import org.apache.pig.impl.plan.VisitorException;
+
+/**
+ * Temporary loads are created by the MRCompiler after the logical plan has
+ * been pruned, so they always read every column. When the temporary files are
+ * written by {@link ColumnarInterStorage}, this optimizer looks at the map
+ * plan following a temporary load and, if it only ever projects some columns
+ * (filters followed by a foreach), makes the load read only those columns.
+ * Tuples keep their width, so the plan does not need to be changed.
+ */
+class TmpLoadColumnPruner extends MROpPlanVisitor {
+
+    private static final Log log = LogFactory.getLog(TmpLoadColumnPruner.class);
+
+    TmpLoadColumnPruner(MROperPlan plan) {
+        super(plan, new DepthFirstWalker<MapReduceOper, MROperPlan>(plan));
+    }
+
+    @Override
+    public void visitMROp(MapReduceOper mr) throws VisitorException {
+        for (PhysicalOperator root : mr.mapPlan.getRoots()) {
+            if (!(root instanceof POLoad)) {
+                continue;
+            }
+            POLoad load = (POLoad) root;
+            FileSpec lFile = load.getLFile();
+            if (!load.isTmpLoad()
+                    || !ColumnarInterStorage.class.getName().equals(lFile.getFuncName())
+                    || lFile.getFuncSpec().getCtorArgs() != null) {
+                continue;
+            }
+            Set<Integer> columns = getRequiredColumns(mr.mapPlan, load);
+            if (columns == null) {
+                continue;
+            }
+            String arg = ColumnarInterStorage.toColumnsArgument(new ArrayList<Integer>(columns));
+            load.setLFile(new FileSpec(lFile.getFileName(),
+                    new FuncSpec(ColumnarInterStorage.class.getName(), arg)));
+            log.info("Reading columns [" + arg + "] of " + lFile.getFileName());
+        }
+    }
+
+    /**
+     * @return the columns read from the load by its successors, or null if
+     *         they cannot be determined
+     */
+    private Set<Integer> getRequiredColumns(PhysicalPlan plan, POLoad load) {
+        Set<Integer> columns = new TreeSet<Integer>();
+        PhysicalOperator op = load;
+        while (true) {
+            List<PhysicalOperator> succs = plan.getSuccessors(op);
+            if (succs == null || succs.size() != 1) {
+                return null;
+            }
+            op = succs.get(0);
+            if (op instanceof POFilter) {
+                if (!addProjectedColumns(((POFilter) op).getPlan(), columns)) {
+                    return null;
+                }
+            } else if (op instanceof POForEach) {
+                for (PhysicalPlan inputPlan : ((POForEach) op).getInputPlans()) {
+                    if (!addProjectedColumns(inputPlan, columns)) {
+                        return null;
+                    }
+                }
+                // The foreach output replaces its input
+                return columns;
+            } else {
+                return null;
+            }
+        }
+    }
+
+    private boolean addProjectedColumns(PhysicalPlan plan, Set<Integer> columns) {
+        // Only the roots of the plan are attached to the input tuple
+        for (PhysicalOperator root : plan.getRoots()) {
+            if (root instanceof ConstantExpression) {
+                continue;
+            }
+            if (!(root instanceof POProject)) {
+                return false;
+            }
+            POProject project = (POProject) root;
+            if (project.isProjectToEnd()) {
+                return false;
+            }
+            columns.addAll(project.getColumns());
+        }
+        return true;
+    }
+}
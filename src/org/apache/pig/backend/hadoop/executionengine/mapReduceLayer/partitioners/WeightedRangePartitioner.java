@@ -84,7 +84,9 @@ public class WeightedRangePartitioner extends Partitioner<PigNullableWritable, W
             return Math.min(index, numPartitions - 1);
         }
         DiscreteProbabilitySampleGenerator gen = weightedParts.get(key);
-        return gen.getNext();
+        // Quantiles reused from an earlier run may have been computed
+        // for more partitions
+        return Math.min(gen.getNext(), numPartitions - 1);
     }
 
     @SuppressWarnings("unchecked")
@@ -27,6 +27,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhyPlanVisitor;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.OperatorProfile;
 import org.apache.pig.data.BagFactory;
 import org.apache.pig.data.DataBag;
 import org.apache.pig.data.DataType;
@@ -121,6 +122,9 @@ public abstract class PhysicalOperator extends Operator<PhyPlanVisitor> implemen
     private boolean accum;
     private transient boolean accumStart;
 
+    // Set on the task side only, when pig.operator.profile is on
+    private transient OperatorProfile profile;
+
     private List<OriginalLocation> originalLocations =  new ArrayList<OriginalLocation>();
 
     public PhysicalOperator(OperatorKey k) {
@@ -224,6 +228,14 @@ public abstract class PhysicalOperator extends Operator<PhyPlanVisitor> implemen
     	return accumStart;
     }
 
+    public OperatorProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(OperatorProfile profile) {
+        this.profile = profile;
+    }
+
     public void setAccumEnd() {
        if (!accum){
     	   throw new IllegalStateException("Accumulative is not turned on.");
@@ -296,14 +308,14 @@ public abstract class PhysicalOperator extends Operator<PhyPlanVisitor> implemen
             }
 
             // Should be removed once the model is clear
-            PigProgressable progRep = getReporter();
-            if (progRep != null) {
-                progRep.progress();
-            }
+            reportProgress();
 
             if (!isInputAttached()) {
-                return inputs.get(0).getNextTuple();
+                return OperatorProfile.getNextTuple(inputs.get(0));
             } else {
+                if (profile != null) {
+                    profile.recordIn();
+                }
                 Result res = new Result();
                 res.result = input;
                 res.returnStatus = POStatus.STATUS_OK;
@@ -478,6 +490,18 @@ public abstract class PhysicalOperator extends Operator<PhyPlanVisitor> implemen
         PhysicalOperator.reporter.set(reporter);
     }
 
+    /**
+     * Reports progress to the PigProgressable of the thread, if any. The
+     * task reporters only set a flag that a timer reports to the framework,
+     * so this is cheap enough to call for every record.
+     */
+    public static void reportProgress() {
+        PigProgressable progRep = reporter.get();
+        if (progRep != null) {
+            progRep.progress();
+        }
+    }
+
     //@StaticDataCleanup
     public static void staticDataCleanup() {
         reporter = new ThreadLocal<PigProgressable>();
@@ -493,7 +517,9 @@ public abstract class PhysicalOperator extends Operator<PhyPlanVisitor> implemen
      */
     @Override
     public PhysicalOperator clone() throws CloneNotSupportedException {
-        return (PhysicalOperator)super.clone();
+        PhysicalOperator op = (PhysicalOperator)super.clone();
+        op.profile = null;
+        return op;
     }
 
     protected void cloneHelper(PhysicalOperator op) {
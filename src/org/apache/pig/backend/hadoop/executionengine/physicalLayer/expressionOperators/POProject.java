@@ -557,9 +557,7 @@ public class POProject extends ExpressionOperator {
         }
 
         //Should be removed once the model is clear
-        if(getReporter()!=null) {
-            getReporter().progress();
-        }
+        reportProgress();
 
         if(!isInputAttached()) {
             if (inputs.get(0).getResultType()==DataType.BAG)
@@ -199,9 +199,7 @@ public class POUserFunc extends ExpressionOperator {
         }
 
         //Should be removed once the model is clear
-        if(getReporter()!=null) {
-            getReporter().progress();
-        }
+        reportProgress();
 
 
         if(isInputAttached()) {
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex;
+
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.RunAutomaton;
+
+/**
+ * A compiled regular expression shared through {@link RegexCache}.
+ *
+ * Besides the java.util.regex {@link Pattern}, patterns which dk.brics.automaton
+ * understands the same way get DFAs for whole-string and substring matching.
+ * The DFAs run in a single pass without backtracking and are used to reject
+ * inputs before the Pattern is run to decide the match or to extract groups.
+ * The DFAs accept a superset of what the Pattern accepts, so they never change
+ * the result of a match. They are not used on inputs with surrogate pairs, as
+ * the DFAs read UTF-16 chars while the Pattern reads code points, so that
+ * . or a negated class matches the two chars of a pair in one step.
+ */
+public class CachedRegex {
+    private static final Log LOG = LogFactory.getLog(CachedRegex.class);
+
+    // Above this size the automaton costs more memory than it saves time
+    private static final int MAX_DFA_STATES = 10000;
+
+    private final String regex;
+    private final Pattern pattern;
+    private final boolean dfaCompatible;
+    // Whether the DFA accepts exactly what the Pattern accepts
+    private final boolean dfaExact;
+
+    private volatile RunAutomaton matchesDfa;
+    private volatile RunAutomaton findDfa;
+    private volatile boolean dfaFailed = false;
+
+    CachedRegex(String regex) {
+        this.regex = regex;
+        this.pattern = Pattern.compile(regex);
+        this.dfaCompatible = isDfaCompatible(regex);
+        this.dfaExact = dfaCompatible && regex.indexOf('.') == -1;
+    }
+
+    /**
+     * dk.brics.automaton reads escaped letters and digits as the literal
+     * character and double quotes as string delimiters, on top of the
+     * constructs RegexInit already leaves to java.util.regex.
+     */
+    private static boolean isDfaCompatible(String regex) {
+        if (RegexInit.determineBestRegexMethod(regex) != 1 || regex.indexOf('"') != -1) {
+            return false;
+        }
+        for (int i = 0; i < regex.length() - 1; i++) {
+            if (regex.charAt(i) == '\\') {
+                if (Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    return false;
+                }
+                i++;
+            }
+        }
+        return true;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return true if the whole of the input matches the pattern
+     */
+    public boolean matches(String input) {
+        RunAutomaton dfa = getMatchesDfa(input);
+        if (dfa != null) {
+            if (!dfa.run(input)) {
+                return false;
+            }
+            if (dfaExact) {
+                return true;
+            }
+        }
+        return pattern.matcher(input).matches();
+    }
+
+    /**
+     * Cheap check run before {@link java.util.regex.Matcher#find()}.
+     *
+     * @return false if no part of the input can match the pattern, true if
+     *         some part may
+     */
+    public boolean mayFind(String input) {
+        RunAutomaton dfa = getFindDfa(input);
+        return dfa == null || dfa.run(input);
+    }
+
+    /**
+     * Cheap check run before {@link java.util.regex.Matcher#matches()}.
+     *
+     * @return false if the input cannot match the pattern, true if it may
+     */
+    public boolean mayMatch(String input) {
+        RunAutomaton dfa = getMatchesDfa(input);
+        return dfa == null || dfa.run(input);
+    }
+
+    private static boolean hasSurrogates(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (Character.isSurrogate(input.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private RunAutomaton getMatchesDfa(String input) {
+        if (!dfaCompatible || dfaFailed || hasSurrogates(input)) {
+            return null;
+        }
+        if (matchesDfa == null) {
+            matchesDfa = toDfa(false);
+        }
+        return matchesDfa;
+    }
+
+    private RunAutomaton getFindDfa(String input) {
+        if (!dfaCompatible || dfaFailed || hasSurrogates(input)) {
+            return null;
+        }
+        if (findDfa == null) {
+            findDfa = toDfa(true);
+        }
+        return findDfa;
+    }
+
+    private RunAutomaton toDfa(boolean find) {
+        try {
+            Automaton automaton = new RegExp(regex, RegExp.NONE).toAutomaton();
+            if (find) {
+                automaton = Automaton.makeAnyString().concatenate(automaton)
+                        .concatenate(Automaton.makeAnyString());
+                automaton.minimize();
+            }
+            if (automaton.getNumberOfStates() > MAX_DFA_STATES) {
+                LOG.debug("Automaton for pattern " + regex + " is too large, using java.util.regex");
+                dfaFailed = true;
+                return null;
+            }
+            return new RunAutomaton(automaton, true);
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Got an IllegalArgumentException for Pattern: " + regex + ", using java.util.regex", e);
+            dfaFailed = true;
+            return null;
+        }
+    }
+}
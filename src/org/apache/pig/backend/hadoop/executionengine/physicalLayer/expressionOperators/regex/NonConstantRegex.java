@@ -17,33 +17,18 @@
  */
 package org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class NonConstantRegex implements RegexImpl {
 
-    private Pattern pattern = null;
-    
-    private String oldString = null;
-    
-    private Matcher matcher = null;
+    private CachedRegex regex = null;
 
     @Override
     public boolean match(String lhs, String rhs) {
-        // We first check for length so the comparison is faster
-        // and then we directly check for difference.
-        // I havent used equals as first two comparisons,
-        // same Object and isInstanceOf does not apply in this case.
-        if( oldString == null
-                || rhs.length() != oldString.length() 
-                || rhs.compareTo(oldString) != 0 ) {
-            oldString = rhs;
-            pattern = Pattern.compile(oldString);
-            matcher = pattern.matcher(lhs);
-        } else {
-            matcher.reset( lhs );
+        // Patterns are shared through RegexCache, so scripts alternating
+        // between a few patterns do not compile them again for every record
+        if (regex == null || !rhs.equals(regex.getRegex())) {
+            regex = RegexCache.get(rhs);
         }
-        return matcher.matches();
+        return regex.matches(lhs);
     }
 
 }
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Bounded cache of compiled regular expressions shared by the regex builtins
+ * and by MATCHES with non-constant patterns, so that scripts switching between
+ * patterns do not compile them again for every record. The least recently
+ * used pattern is evicted once the cache is full.
+ */
+public class RegexCache {
+
+    private static final int MAX_SIZE = 512;
+
+    private static final Map<String, CachedRegex> cache =
+            new LinkedHashMap<String, CachedRegex>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedRegex> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private RegexCache() {
+    }
+
+    /**
+     * Get the compiled form of a regular expression.
+     *
+     * @param regex regular expression
+     * @return compiled regular expression
+     * @throws PatternSyntaxException if the regular expression is malformed
+     */
+    public static CachedRegex get(String regex) {
+        synchronized (cache) {
+            CachedRegex compiled = cache.get(regex);
+            if (compiled == null) {
+                compiled = new CachedRegex(regex);
+                cache.put(regex, compiled);
+            }
+            return compiled;
+        }
+    }
+}
@@ -52,7 +52,7 @@ public class RegexInit implements RegexImpl, Serializable {
      * @return int, 0 means this is java.util.regex,
      * 1 means this is dk.brics.automaton
      */
-    private int determineBestRegexMethod( String pattern ) {
+    static int determineBestRegexMethod( String pattern ) {
 
         for( int i = 0; i < javaRegexOnly.length; i++ ) {
             for( int j = pattern.length(); j > 0; ) {
@@ -158,7 +158,7 @@ public class RegexInit implements RegexImpl, Serializable {
         return 1;
     }    
 
-    private int precedingEscapes( String pattern, int startIndex ) {
+    private static int precedingEscapes( String pattern, int startIndex ) {
         if( startIndex > 0 ) {
             // This is the case when there are an odd number of escapes '//'
             int precedingEscapes = 0;
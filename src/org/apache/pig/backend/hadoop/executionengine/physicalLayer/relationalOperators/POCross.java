@@ -25,6 +25,7 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhyPlanVisitor;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.OperatorProfile;
 import org.apache.pig.data.DataBag;
 import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
@@ -112,36 +113,35 @@ public class POCross extends PhysicalOperator {
         Result res = new Result();
         int noItems = inputs.size();
         if (inputBags == null) {
+            // only the first n - 1 inputs are materialized, the last input
+            // is streamed one tuple at a time
             accumulateData();
+            for (int i = 0; i < inputBags.length; i++) {
+                if (inputBags[i].size() == 0) {
+                    // if one bag is empty, there doesn't exist non-null cross
+                    // product. simply skip the tuples of the last input and
+                    // finish.
+                    int index = inputs.size() - 1;
+                    for (Result resOfLastBag = OperatorProfile.getNextTuple(inputs.get(index)); resOfLastBag.returnStatus !=
+                        POStatus.STATUS_EOP; resOfLastBag = OperatorProfile.getNextTuple(inputs.get(index)));
+                    res.returnStatus = POStatus.STATUS_EOP;
+                    clearMemory();
+                    return res;
+                }
+            }
             if (!loadLastBag()) {
                 res.returnStatus = POStatus.STATUS_EOP;
                 clearMemory();
                 return res;
             }
-        }
-
-        if (its != null) {
+        } else {
             // we check if we are done with processing
             // we do that by checking if all the iterators are used up
             boolean finished = true;
-            boolean empty = false;
             for (int i = 0; i < its.length; i++) {
-                if (inputBags[i].size() == 0) {
-                    empty = true;
-                    break;
-                }
                 finished &= !its[i].hasNext();
             }
-            if (empty) {
-                // if one bag is empty, there doesn't exist non-null cross product.
-                // simply clear all the input tuples of the first bag and finish.
-                int index = inputs.size() - 1;
-                for (Result resOfLastBag = inputs.get(index).getNextTuple(); resOfLastBag.returnStatus !=
-                    POStatus.STATUS_EOP; resOfLastBag = inputs.get(index).getNextTuple());
-                res.returnStatus = POStatus.STATUS_EOP;
-                clearMemory();
-                return res;
-            } else if (finished && !loadLastBag()) {
+            if (finished && !loadLastBag()) {
                 res.returnStatus = POStatus.STATUS_EOP;
                 clearMemory();
                 return res;
@@ -198,8 +198,8 @@ public class POCross extends PhysicalOperator {
             PhysicalOperator op = inputs.get(i);
             DataBag bag = mBagFactory.newDefaultBag();
             inputBags[count] = bag;
-            for (Result res = op.getNextTuple(); res.returnStatus != POStatus.STATUS_EOP; res = op
-                    .getNextTuple()) {
+            for (Result res = OperatorProfile.getNextTuple(op); res.returnStatus != POStatus.STATUS_EOP; res =
+                    OperatorProfile.getNextTuple(op)) {
                 if (res.returnStatus == POStatus.STATUS_NULL)
                     continue;
                 if (res.returnStatus == POStatus.STATUS_ERR)
@@ -229,8 +229,8 @@ public class POCross extends PhysicalOperator {
     private boolean loadLastBag() throws ExecException {
         Result resOfLastBag = null;
         int index = inputs.size() - 1;
-        for (resOfLastBag = inputs.get(index).getNextTuple(); resOfLastBag.returnStatus ==
-                POStatus.STATUS_NULL; inputs.get(index).getNextTuple());
+        for (resOfLastBag = OperatorProfile.getNextTuple(inputs.get(index)); resOfLastBag.returnStatus ==
+                POStatus.STATUS_NULL; resOfLastBag = OperatorProfile.getNextTuple(inputs.get(index)));
         switch (resOfLastBag.returnStatus) {
         case POStatus.STATUS_EOP:
             return false;
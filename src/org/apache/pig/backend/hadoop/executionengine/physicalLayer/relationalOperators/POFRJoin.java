@@ -299,14 +299,15 @@ public class POFRJoin extends PhysicalOperator {
                     continue;
                 }
                 Map<? extends Object, ? extends List<Tuple>> replicate = replicates.get(i);
-                if (replicate.get(key) == null) {
+                List<Tuple> matches = replicate.get(key);
+                if (matches == null) {
                     if (isLeftOuterJoin) {
                         ce.setValue(nullBag);
                     }
                     noMatch = true;
                     break;
                 }
-                ce.setValue(new NonSpillableDataBag(replicate.get(key)));
+                ce.setValue(new NonSpillableDataBag(matches));
             }
 
             // If this is not LeftOuter Join and there was no match we
@@ -413,8 +414,7 @@ public class POFRJoin extends PhysicalOperator {
 
             log.debug("Completed setup. Trying to build replication hash table");
             for (Result res = lr.getNextTuple(); res.returnStatus != POStatus.STATUS_EOP; res = lr.getNextTuple()) {
-                if (getReporter() != null)
-                    getReporter().progress();
+                reportProgress();
                 Tuple tuple = (Tuple) res.result;
                 Object key = tuple.get(1);
                 if (isKeyNull(key)) continue;
@@ -75,9 +75,7 @@ public class POFRJoinSpark extends POFRJoin {
             for (Tuple t : tuples) {
                 localRearrange.attachInput(t);
                 Result res = localRearrange.getNextTuple();
-                if (getReporter() != null) {
-                    getReporter().progress();
-                }
+                reportProgress();
                 Tuple tuple = (Tuple) res.result;
                 if (isKeyNull(tuple.get(1))) continue;
                 Object key = tuple.get(1);
@@ -491,9 +491,7 @@ public class POForEach extends PhysicalOperator {
                     }
 
                 }
-                if(getReporter()!=null) {
-                    getReporter().progress();
-                }
+                reportProgress();
                 res.result = createTuple(data);
                 res.returnStatus = POStatus.STATUS_OK;
                 return res;
@@ -22,6 +22,7 @@ import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.pig.LoadFunc;
 import org.apache.pig.PigException;
 import org.apache.pig.backend.executionengine.ExecException;
@@ -35,6 +36,7 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOpera
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhyPlanVisitor;
+import org.apache.pig.backend.hadoop.executionengine.util.TuplePrefetcher;
 import org.apache.pig.impl.plan.VisitorException;
 import org.apache.pig.pen.util.ExampleTuple;
 
@@ -70,6 +72,9 @@ public class POLoad extends PhysicalOperator {
 
     private transient List<String> cacheFiles = null;
     private transient List<String> shipFiles = null;
+
+    // reads tuples ahead on a separate thread if input prefetch is enabled
+    private transient TuplePrefetcher prefetcher = null;
     
     public POLoad(OperatorKey k) {
         this(k,-1, null);
@@ -102,6 +107,17 @@ public class POLoad extends PhysicalOperator {
                 ConfigurationUtil.toConfiguration(pc.getProperties()), 
                 lFile.getFileName(),0, signature);
         setLoadFuncDecorator(new LoadFuncDecorator(loader, signature));
+        Configuration conf = ConfigurationUtil.toConfiguration(pc.getProperties());
+        // With error handling a null tuple does not mean end of input
+        if (TuplePrefetcher.isEnabled(conf) && !lDecorator.getErrorHandling()) {
+            prefetcher = new TuplePrefetcher("POLoad prefetch",
+                    new TuplePrefetcher.TupleSource() {
+                        @Override
+                        public Tuple next() throws IOException {
+                            return lDecorator.getNext();
+                        }
+                    }, TuplePrefetcher.getBufferSize(conf));
+        }
     }
     
     /**
@@ -110,6 +126,10 @@ public class POLoad extends PhysicalOperator {
      * @throws IOException
      */
     public void tearDown() throws IOException{
+        if (prefetcher != null) {
+            prefetcher.close();
+            prefetcher = null;
+        }
         setUpDone = false;
     }
     
@@ -136,7 +156,7 @@ public class POLoad extends PhysicalOperator {
         }
         Result res = new Result();
         try {
-            res.result = lDecorator.getNext();
+            res.result = (prefetcher != null) ? prefetcher.next() : lDecorator.getNext();
             if(res.result==null && !lDecorator.getErrorHandling()){
                 res.returnStatus = POStatus.STATUS_EOP;
                 tearDown();
@@ -153,6 +153,9 @@ public class POPackage extends PhysicalOperator {
             key = pkgr.getKey(k);
             keyWritable = k;
             inputAttached = true;
+            if (getProfile() != null) {
+                getProfile().recordIn();
+            }
         } catch (Exception e) {
             throw new RuntimeException(
                     "Error attaching input for key " + k +
@@ -273,9 +276,7 @@ public class POPackage extends PhysicalOperator {
                     } else {
                         dbs[index].add(copy);
                     }
-                    if (getReporter() != null) {
-                        getReporter().progress();
-                    }
+                    reportProgress();
                 }
             }
             // Construct the output tuple by appending
@@ -439,9 +440,7 @@ public class POPackage extends PhysicalOperator {
                                 "PeekedBag failed to get value tuple : "
                                         + e.toString());
                     }
-                    if (getReporter() != null) {
-                        getReporter().progress();
-                    }
+                    reportProgress();
                     return ret;
                 }
 
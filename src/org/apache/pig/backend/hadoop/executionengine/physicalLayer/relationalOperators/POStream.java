@@ -24,10 +24,16 @@ import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.pig.PigConfiguration;
 import org.apache.pig.PigException;
 import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.backend.hadoop.executionengine.fetch.FetchLauncher;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.MRConfiguration;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
@@ -38,10 +44,23 @@ import org.apache.pig.impl.plan.OperatorKey;
 import org.apache.pig.impl.plan.VisitorException;
 import org.apache.pig.impl.streaming.ExecutableManager;
 import org.apache.pig.impl.streaming.StreamingCommand;
+import org.apache.pig.impl.streaming.StreamingCommand.Handle;
+import org.apache.pig.impl.streaming.StreamingCommand.HandleSpec;
+import org.apache.pig.impl.util.UDFContext;
 import org.apache.pig.pen.util.ExampleTuple;
+import org.apache.pig.tools.counters.PigCounterHelper;
 
 public class POStream extends PhysicalOperator {
     private static final long serialVersionUID = 2L;
+    private static final Log LOG = LogFactory.getLog(POStream.class);
+
+    public static final String STREAMING_COUNTER_GROUP = "Streaming processes";
+
+    // Number of records sent to one process of the pool before moving to the next
+    private static final int POOL_BATCH_SIZE = 100;
+
+    // How long to wait for output when every process of the pool is busy
+    private static final long POOL_POLL_INTERVAL_MS = 10;
 
     private String executableManagerStr;            // String representing ExecutableManager to use
     private StreamingCommand command;               // Actual command to be run
@@ -67,6 +86,23 @@ public class POStream extends PhysicalOperator {
      */
     private boolean isFetchable;
 
+    // Number of processes running the command, 0 until computed
+    private transient int numProcesses = 0;
+
+    // Copies of this operator, each driving one process, when running a pool
+    private transient POStream[] pool;
+
+    // Position of this operator in the pool of its parent
+    private transient int processIndex = 0;
+
+    private transient boolean[] eopSent;
+
+    private transient int nextProcess = 0;
+
+    private transient int recordsInBatch = 0;
+
+    private transient int processesDone = 0;
+
     public POStream(OperatorKey k, ExecutableManager executableManager,
                       StreamingCommand command, Properties properties) {
         super(k);
@@ -136,6 +172,9 @@ public class POStream extends PhysicalOperator {
         // 3) if neither of these two are true and if it is possible to
         // send input to the binary, then the next tuple from the
         // predecessor is got and passed to the binary
+        if (getNumProcesses() > 1) {
+            return getNextFromPool();
+        }
         try {
             // if we are being called AFTER all output from the streaming
             // binary has already been sent to us then just return EOP
@@ -234,6 +273,205 @@ public class POStream extends PhysicalOperator {
 
     }
 
+    /**
+     * Get the number of processes to run the command with. A pool is only used
+     * when the command talks to its processes through stdin and stdout, as
+     * files and secondary outputs would be shared between the processes.
+     */
+    private int getNumProcesses() {
+        if (numProcesses == 0) {
+            numProcesses = 1;
+            String value = properties.getProperty(
+                    PigConfiguration.PIG_STREAMING_PARALLEL_PROCESSES);
+            if (value != null && illustrator == null && usesStandardStreams()) {
+                value = value.trim();
+                if (value.equalsIgnoreCase("auto")) {
+                    numProcesses = getContainerVcores();
+                } else {
+                    numProcesses = Math.max(1, Integer.parseInt(value));
+                }
+            }
+            if (numProcesses > 1) {
+                LOG.info("Running " + numProcesses + " processes of " + command);
+            }
+        }
+        return numProcesses;
+    }
+
+    private boolean usesStandardStreams() {
+        List<HandleSpec> inputSpecs = command.getHandleSpecs(Handle.INPUT);
+        List<HandleSpec> outputSpecs = command.getHandleSpecs(Handle.OUTPUT);
+        return (inputSpecs == null || inputSpecs.isEmpty()
+                || inputSpecs.get(0).getName().equals("stdin"))
+                && (outputSpecs == null || outputSpecs.isEmpty()
+                || (outputSpecs.size() == 1 && outputSpecs.get(0).getName().equals("stdout")));
+    }
+
+    private static int getContainerVcores() {
+        int vcores = 1;
+        Configuration conf = UDFContext.getUDFContext().getJobConf();
+        if (conf != null) {
+            if (conf.get("tez.task.resource.cpu.vcores") != null) {
+                vcores = conf.getInt("tez.task.resource.cpu.vcores", 1);
+            } else if (conf.getBoolean(MRConfiguration.TASK_IS_MAP, true)) {
+                vcores = conf.getInt("mapreduce.map.cpu.vcores", 1);
+            } else {
+                vcores = conf.getInt("mapreduce.reduce.cpu.vcores", 1);
+            }
+        }
+        return Math.max(1, Math.min(vcores, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Equivalent of {@link #getNextTuple()} when the command runs as a pool of
+     * processes. Input records are sent in batches to the processes in round
+     * robin order, skipping the busy ones, and the processes share the binary
+     * output queue of this operator, so output comes back in the order the
+     * processes produce it. Each process is driven by a copy of this operator
+     * with its own ExecutableManager and input queue.
+     */
+    private Result getNextFromPool() throws ExecException {
+        try {
+            while (true) {
+                if (allOutputFromBinaryProcessed) {
+                    return RESULT_EOP;
+                }
+                Result r = binaryOutputQueue.poll();
+                if (r == null) {
+                    if (allInputFromPredecessorConsumed) {
+                        sendEndOfInputToPool();
+                    } else {
+                        int process = getNextProcessWithCapacity();
+                        if (process >= 0) {
+                            Result input = processInput();
+                            if (input.returnStatus == POStatus.STATUS_OK) {
+                                if (pool == null) {
+                                    startPool();
+                                }
+                                pool[process].binaryInputQueue.put(input);
+                                recordsInBatch++;
+                                continue;
+                            }
+                            if (input.returnStatus == POStatus.STATUS_EOP
+                                    && (isFetchable || this.parentPlan.endOfAllInput)) {
+                                // we have now seen *ALL* possible input
+                                allInputFromPredecessorConsumed = true;
+                                if (pool == null) {
+                                    allOutputFromBinaryProcessed = true;
+                                    return RESULT_EOP;
+                                }
+                                continue;
+                            }
+                            return input;
+                        }
+                    }
+                    // every process is busy, wait for one of them to
+                    // produce output
+                    r = binaryOutputQueue.poll(POOL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (r == null) {
+                        continue;
+                    }
+                }
+                if (r.returnStatus == POStatus.STATUS_EOS) {
+                    // a process has exited, the output is complete
+                    // once all of them have
+                    if (++processesDone == pool.length) {
+                        allOutputFromBinaryProcessed = true;
+                        reportPoolStatistics();
+                        return RESULT_EOP;
+                    }
+                    continue;
+                }
+                return r;
+            }
+        } catch (Exception e) {
+            int errCode = 2083;
+            String msg = "Error while trying to get next result in POStream.";
+            throw new ExecException(msg, errCode, PigException.BUG, e);
+        }
+    }
+
+    private int getNextProcessWithCapacity() {
+        if (pool == null) {
+            return 0;
+        }
+        if (recordsInBatch < POOL_BATCH_SIZE
+                && pool[nextProcess].binaryInputQueue.remainingCapacity() > 0) {
+            return nextProcess;
+        }
+        for (int i = 1; i <= pool.length; i++) {
+            int process = (nextProcess + i) % pool.length;
+            if (pool[process].binaryInputQueue.remainingCapacity() > 0) {
+                nextProcess = process;
+                recordsInBatch = 0;
+                return process;
+            }
+        }
+        return -1;
+    }
+
+    private void startPool() throws ExecException, CloneNotSupportedException {
+        POStream[] processes = new POStream[numProcesses];
+        for (int i = 0; i < processes.length; i++) {
+            POStream process = (POStream)clone();
+            process.processIndex = i;
+            // share the output queue so that the parent sees
+            // the output of all the processes
+            process.binaryOutputQueue = binaryOutputQueue;
+            process.executableManager =
+                (ExecutableManager)PigContext.instantiateFuncFromSpec(executableManagerStr);
+            try {
+                process.executableManager.configure(process);
+                process.executableManager.run();
+            } catch (IOException ioe) {
+                int errCode = 2084;
+                String msg = "Error while running streaming binary.";
+                throw new ExecException(msg, errCode, PigException.BUG, ioe);
+            }
+            process.setInitialized(true);
+            processes[i] = process;
+        }
+        pool = processes;
+        eopSent = new boolean[pool.length];
+        setInitialized(true);
+    }
+
+    private void sendEndOfInputToPool() {
+        // processes which exited early never take the EOP, they
+        // are accounted for by the EOS of their output thread
+        for (int i = 0; i < pool.length; i++) {
+            if (!eopSent[i]) {
+                eopSent[i] = pool[i].binaryInputQueue.offer(RESULT_EOP);
+            }
+        }
+    }
+
+    private void reportPoolStatistics() {
+        PigCounterHelper counters = new PigCounterHelper();
+        for (POStream process : pool) {
+            ExecutableManager manager = process.executableManager;
+            String prefix = "process_" + process.processIndex;
+            counters.incrCounter(STREAMING_COUNTER_GROUP, prefix + "_input_records",
+                    manager.getInputRecords());
+            counters.incrCounter(STREAMING_COUNTER_GROUP, prefix + "_output_records",
+                    manager.getOutputRecords());
+            counters.incrCounter(STREAMING_COUNTER_GROUP, prefix + "_millis",
+                    manager.getElapsedMillis());
+            LOG.info("Process " + process.processIndex + " of " + command + " read "
+                    + manager.getInputRecords() + " records and wrote "
+                    + manager.getOutputRecords() + " records in "
+                    + manager.getElapsedMillis() + " ms");
+        }
+    }
+
+    /**
+     * @return position of the process driven by this operator in the pool of
+     *         processes running the command, 0 when there is no pool
+     */
+    public int getProcessIndex() {
+        return processIndex;
+    }
+
     public synchronized boolean getInitialized() {
         return initialized;
     }
@@ -341,7 +579,13 @@ public class POStream extends PhysicalOperator {
      *
      */
     public void finish() throws IOException {
-        executableManager.close();
+        if (pool != null) {
+            for (POStream process : pool) {
+                process.finish();
+            }
+        } else {
+            executableManager.close();
+        }
     }
 
     /**
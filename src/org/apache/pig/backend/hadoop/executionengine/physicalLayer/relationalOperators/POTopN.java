@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhyPlanVisitor;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.DataType;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.impl.plan.OperatorKey;
+import org.apache.pig.impl.plan.VisitorException;
+
+/**
+ * Keeps the first N tuples of its input, in the order of a limited
+ * {@link POSort}, in a bounded heap. Unlike POSort it is meant to sit in a
+ * map or reduce plan which sees its input one tuple at a time: nothing is
+ * emitted until the end of all input, and then the N tuples are emitted in
+ * sorted order. The compilers use it to run an ORDER BY followed by a small
+ * LIMIT as a top-N, where every task keeps its own N best tuples and a single
+ * task merges them.
+ */
+public class POTopN extends POSort {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default for {@link org.apache.pig.PigConfiguration#PIG_EXEC_TOPN_MAX_LIMIT}
+     */
+    public static final long DEFAULT_MAX_LIMIT = 10000;
+
+    private transient DataBag heap;
+    private transient Iterator<Tuple> it;
+    private transient boolean inputsExhausted;
+
+    /**
+     * @param k operator key
+     * @param sort the limited sort whose first tuples are to be kept. Its
+     *            sort plans are cloned, so the top-N can be placed in a
+     *            different plan than the sort.
+     * @throws CloneNotSupportedException
+     */
+    public POTopN(OperatorKey k, POSort sort) throws CloneNotSupportedException {
+        super(k, 1, null, clonePlans(sort.getSortPlans()),
+                new ArrayList<Boolean>(sort.getMAscCols()),
+                sort.getMSortFunc() == null ? null : sort.getMSortFunc().clone());
+        setLimit(sort.getLimit());
+        setResultType(sort.getResultType());
+        addOriginalLocation(sort.getAlias(), sort.getOriginalLocations());
+    }
+
+    /**
+     * @param sort a sort operator
+     * @param maxLimit the largest limit a top-N is used for
+     * @return whether sort can be run as a top-N
+     */
+    public static boolean canReplace(POSort sort, long maxLimit) {
+        return sort.isLimited() && sort.getLimit() > 0 && sort.getLimit() <= maxLimit;
+    }
+
+    @Override
+    public String name() {
+        return getAliasString() + "POTopN" + "["
+                + DataType.findTypeName(resultType) + "]" + "(" + getLimit() + ")"
+                + " - " + mKey.toString();
+    }
+
+    @Override
+    public Result getNextTuple() throws ExecException {
+        if (!inputsExhausted) {
+            if (heap == null) {
+                heap = mBagFactory.newLimitedSortedBag(getMComparator(), getLimit());
+            }
+            while (true) {
+                Result inp = processInput();
+                if (inp.returnStatus == POStatus.STATUS_ERR) {
+                    return inp;
+                } else if (inp.returnStatus == POStatus.STATUS_NULL) {
+                    continue;
+                } else if (inp.returnStatus == POStatus.STATUS_EOP) {
+                    if (parentPlan.endOfAllInput) {
+                        inputsExhausted = true;
+                        break;
+                    }
+                    // More input is coming, hold on to the heap
+                    return inp;
+                }
+                heap.add((Tuple) inp.result);
+            }
+        }
+
+        if (it == null) {
+            it = heap.iterator();
+        }
+        if (it.hasNext()) {
+            Result res = new Result(POStatus.STATUS_OK, it.next());
+            illustratorMarkup(res.result, res.result, 0);
+            return res;
+        }
+        heap = null;
+        return RESULT_EOP;
+    }
+
+    @Override
+    public void visit(PhyPlanVisitor v) throws VisitorException {
+        v.visitTopN(this);
+    }
+
+    @Override
+    public void reset() {
+        heap = null;
+        it = null;
+        inputsExhausted = false;
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOpera
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhyPlanVisitor;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.OperatorProfile;
 import org.apache.pig.impl.plan.VisitorException;
 import org.apache.pig.impl.util.IdentityHashSet;
 import org.apache.pig.pen.util.ExampleTuple;
@@ -161,10 +162,8 @@ public class POUnion extends PhysicalOperator {
                 Result res;
 
                 while(true){
-                    if(getReporter()!=null) {
-                        getReporter().progress();
-                    }
-                    res = inputs.get(ind).getNextTuple();
+                    reportProgress();
+                    res = OperatorProfile.getNextTuple(inputs.get(ind));
                     lastInd = ind + 1;
 
                     if(res.returnStatus == POStatus.STATUS_OK || 
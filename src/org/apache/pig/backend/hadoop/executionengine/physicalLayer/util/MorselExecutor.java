@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.physicalLayer.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigException;
+import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigMapReduce;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.UDFFinishVisitor;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PigProgressable;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POUserFunc;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFilter;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POForEach;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.impl.plan.DependencyOrderWalker;
+import org.apache.pig.impl.plan.PlanException;
+import org.apache.pig.impl.plan.VisitorException;
+import org.apache.pig.impl.util.ObjectSerializer;
+import org.apache.pig.impl.util.UDFContext;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the stateless head of a task pipeline on several threads.
+ *
+ * The longest chain of {@link POFilter} and {@link POForEach} operators that
+ * starts at the given operator is moved out of the task plan into a head plan.
+ * Every worker thread runs its own deserialized copy of the head plan on
+ * morsels of consecutive input tuples. The results are handed back in input
+ * order to the caller, which attaches them to the first operator of the
+ * remaining tail (stores, rearranges, ...) and runs it on the task thread.
+ *
+ * Operators are only moved into the head if none of their UDFs opts out
+ * through {@link org.apache.pig.EvalFunc#allowParallelExecution()} or needs
+ * end of all input processing.
+ */
+public class MorselExecutor {
+
+    private static final Log LOG = LogFactory.getLog(MorselExecutor.class);
+
+    public static final int DEFAULT_MORSEL_SIZE = 1000;
+
+    /**
+     * Receives the output of the head plan on the task thread, in input order.
+     */
+    public interface ResultHandler {
+        void handle(Tuple t) throws IOException, InterruptedException;
+    }
+
+    private final PhysicalOperator tailRoot;
+
+    private final int morselSize;
+
+    private final int maxInFlight;
+
+    private final List<PhysicalPlan> headPlans;
+
+    private final BlockingQueue<PhysicalPlan> idlePlans;
+
+    private final ExecutorService executor;
+
+    private final LinkedList<Future<List<Tuple>>> inFlight = new LinkedList<Future<List<Tuple>>>();
+
+    private List<Tuple> morsel;
+
+    private MorselExecutor(PhysicalPlan headPlan, PhysicalOperator tailRoot,
+            int parallelism, int morselSize) throws IOException {
+        this.tailRoot = tailRoot;
+        this.morselSize = morselSize;
+        this.maxInFlight = 2 * parallelism;
+        this.morsel = new ArrayList<Tuple>(morselSize);
+
+        // Serialize and deserialize, the same way the plan was shipped to
+        // the task, so that every copy gets its own UDF instances
+        String serializedHead = ObjectSerializer.serialize(headPlan);
+        headPlans = new ArrayList<PhysicalPlan>(parallelism);
+        idlePlans = new ArrayBlockingQueue<PhysicalPlan>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            PhysicalPlan copy = (i == 0) ? headPlan
+                    : (PhysicalPlan) ObjectSerializer.deserialize(serializedHead);
+            headPlans.add(copy);
+            idlePlans.add(copy);
+        }
+
+        // UDFContext and the job conf are thread local
+        final UDFContext udfContext = UDFContext.getUDFContext();
+        final Configuration jobConf = PigMapReduce.sJobConfInternal.get();
+        final ThreadFactory baseFactory = new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("Pig morsel worker %d").build();
+        executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                return baseFactory.newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        UDFContext.setUdfContext(udfContext);
+                        if (jobConf != null) {
+                            PigMapReduce.sJobConfInternal.set(jobConf);
+                        }
+                        r.run();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @param conf
+     * @return the number of threads to run the stateless head of a task
+     *         pipeline with, 1 if morsel execution is turned off
+     */
+    public static int getParallelism(Configuration conf) {
+        return conf.getInt(PigConfiguration.PIG_EXEC_MORSEL_PARALLELISM, 1);
+    }
+
+    /**
+     * Split the plan and create an executor for its parallel head.
+     *
+     * @param plan the task plan, modified to contain only the tail
+     * @param first the first operator of the head, either a root of the plan
+     *        or the successor of a source operator that stays in the plan
+     * @param conf the job configuration
+     * @return the executor or null if morsel execution is turned off or no
+     *         operator starting at first can run in parallel
+     * @throws IOException
+     */
+    public static MorselExecutor create(PhysicalPlan plan, PhysicalOperator first,
+            Configuration conf) throws IOException {
+        int parallelism = getParallelism(conf);
+        if (parallelism <= 1 || first == null) {
+            return null;
+        }
+        List<PhysicalOperator> head = new ArrayList<PhysicalOperator>();
+        PhysicalOperator op = first;
+        while (isParallelizable(op)) {
+            List<PhysicalOperator> preds = plan.getPredecessors(op);
+            if (preds != null && preds.size() > 1) {
+                break;
+            }
+            List<PhysicalOperator> succs = plan.getSuccessors(op);
+            if (succs == null || succs.size() != 1) {
+                break;
+            }
+            head.add(op);
+            op = succs.get(0);
+        }
+        // The tail root gets the results attached as its only input
+        if (head.isEmpty() || plan.getPredecessors(op).size() != 1) {
+            return null;
+        }
+        PhysicalOperator tailRoot = op;
+
+        PhysicalPlan headPlan = new PhysicalPlan();
+        try {
+            for (PhysicalOperator h : head) {
+                plan.remove(h);
+                headPlan.add(h);
+                h.setParentPlan(headPlan);
+            }
+            for (int i = 1; i < head.size(); i++) {
+                headPlan.connect(head.get(i - 1), head.get(i));
+            }
+        } catch (PlanException e) {
+            int errCode = 2272;
+            String msg = "Error while splitting plan for morsel execution.";
+            throw new ExecException(msg, errCode, PigException.BUG, e);
+        }
+        int morselSize = conf.getInt(PigConfiguration.PIG_EXEC_MORSEL_SIZE, DEFAULT_MORSEL_SIZE);
+        LOG.info("Running " + head + " on " + parallelism + " threads with morsels of "
+                + morselSize + " tuples");
+        return new MorselExecutor(headPlan, tailRoot, parallelism, Math.max(1, morselSize));
+    }
+
+    private static boolean isParallelizable(PhysicalOperator op)
+            throws IOException {
+        List<PhysicalPlan> nestedPlans;
+        if (op instanceof POForEach) {
+            if (((POForEach) op).needEndOfAllInputProcessing()) {
+                return false;
+            }
+            nestedPlans = ((POForEach) op).getInputPlans();
+        } else if (op instanceof POFilter) {
+            nestedPlans = new ArrayList<PhysicalPlan>();
+            nestedPlans.add(((POFilter) op).getPlan());
+        } else {
+            return false;
+        }
+        for (PhysicalPlan nested : nestedPlans) {
+            for (POUserFunc func : PlanHelper.getPhysicalOperators(nested, POUserFunc.class)) {
+                if (!func.getFunc().allowParallelExecution()
+                        || func.needEndOfAllInputProcessing()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the first operator of the tail, to which results of the head
+     *         are attached
+     */
+    public PhysicalOperator getTailRoot() {
+        return tailRoot;
+    }
+
+    /**
+     * Add an input tuple. Results of morsels completed so far are passed to
+     * the handler.
+     *
+     * @param t the input tuple, must not be reused by the caller
+     * @param handler
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void add(Tuple t, ResultHandler handler) throws IOException, InterruptedException {
+        morsel.add(t);
+        if (morsel.size() >= morselSize) {
+            submit();
+        }
+        // Hand over finished morsels in order without blocking, and block
+        // on the oldest one only if too many are queued up
+        while (!inFlight.isEmpty()
+                && (inFlight.size() > maxInFlight || inFlight.getFirst().isDone())) {
+            drainFirst(handler);
+        }
+    }
+
+    /**
+     * Run the remaining partial morsel and pass all outstanding results to
+     * the handler.
+     *
+     * @param handler
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void flush(ResultHandler handler) throws IOException, InterruptedException {
+        if (!morsel.isEmpty()) {
+            submit();
+        }
+        while (!inFlight.isEmpty()) {
+            drainFirst(handler);
+        }
+    }
+
+    /**
+     * Stop the worker threads and call finish() on the UDFs of all copies of
+     * the head plan.
+     *
+     * @throws VisitorException
+     */
+    public void close() throws VisitorException {
+        abort();
+        for (PhysicalPlan headPlan : headPlans) {
+            UDFFinishVisitor finisher = new UDFFinishVisitor(headPlan,
+                    new DependencyOrderWalker<PhysicalOperator, PhysicalPlan>(headPlan));
+            finisher.visit();
+        }
+    }
+
+    /**
+     * Stop the worker threads without finishing the UDFs, when the task
+     * fails. Calling abort more than once has no effect.
+     */
+    public void abort() {
+        executor.shutdownNow();
+    }
+
+    private void submit() {
+        final List<Tuple> input = morsel;
+        morsel = new ArrayList<Tuple>(morselSize);
+        // The task reporters only set a flag, so workers can share the one of
+        // the task thread to report progress
+        final PigProgressable progressable = PhysicalOperator.getReporter();
+        inFlight.add(executor.submit(new Callable<List<Tuple>>() {
+            @Override
+            public List<Tuple> call() throws Exception {
+                PhysicalOperator.setReporter(progressable);
+                // There are as many plans as threads, so one is always idle
+                PhysicalPlan headPlan = idlePlans.take();
+                try {
+                    return runMorsel(headPlan, input);
+                } finally {
+                    idlePlans.put(headPlan);
+                }
+            }
+        }));
+    }
+
+    private void drainFirst(ResultHandler handler) throws IOException, InterruptedException {
+        List<Tuple> results;
+        try {
+            results = inFlight.removeFirst().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            int errCode = 2273;
+            String msg = "Received Error while processing the map plan on a morsel thread.";
+            throw new ExecException(msg, errCode, PigException.BUG, cause);
+        }
+        for (Tuple t : results) {
+            handler.handle(t);
+        }
+    }
+
+    private static List<Tuple> runMorsel(PhysicalPlan headPlan, List<Tuple> input)
+            throws ExecException {
+        PhysicalOperator root = headPlan.getRoots().get(0);
+        PhysicalOperator leaf = headPlan.getLeaves().get(0);
+        List<Tuple> output = new ArrayList<Tuple>(input.size());
+        for (Tuple t : input) {
+            root.attachInput(t);
+            while (true) {
+                Result res = leaf.getNextTuple();
+                if (res.returnStatus == POStatus.STATUS_OK) {
+                    output.add((Tuple) res.result);
+                } else if (res.returnStatus == POStatus.STATUS_EOP) {
+                    break;
+                } else if (res.returnStatus == POStatus.STATUS_ERR) {
+                    String errMsg = "Received Error while processing the map plan";
+                    if (res.result != null) {
+                        errMsg += ": " + res.result;
+                    }
+                    int errCode = 2273;
+                    throw new ExecException(errMsg, errCode, PigException.BUG);
+                }
+            }
+        }
+        return output;
+    }
+}
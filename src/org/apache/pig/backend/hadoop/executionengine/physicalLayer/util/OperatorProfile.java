@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.physicalLayer.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigConstants;
+import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.tools.pigstats.PigStatusReporter;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Runtime profile of a physical operator, collected on the task side when
+ * {@link PigConfiguration#PIG_OPERATOR_PROFILE} is set.
+ *
+ * Calls into a profiled operator go through {@link #getNextTuple(PhysicalOperator)}
+ * (or {@link #enter()} and {@link #exit(Result)}), which keep track of the
+ * profiled operator running on the current thread. The time and the bytes
+ * allocated by a call are charged to the operator and subtracted from its
+ * caller, so that every operator only reports the cost of its own work.
+ * Records out are counted on the operator, records in on the operator that
+ * pulled them or had them attached.
+ *
+ * Time and allocation are sampled on every n-th call that is not nested in
+ * another profiled call; the nested calls follow that decision so that the
+ * numbers of an operator and its inputs always line up.
+ *
+ * Profiles are reported as counters named
+ * <code>&lt;operator class&gt;.&lt;operator key&gt;.&lt;metric&gt;</code> in
+ * the {@link PigConstants#OPERATOR_PROFILE_COUNTER_GROUP} group, which
+ * {@link org.apache.pig.tools.pigstats.PigStats#getOperatorProfile()} reads
+ * back.
+ */
+public class OperatorProfile {
+
+    private static final Log LOG = LogFactory.getLog(OperatorProfile.class);
+
+    public static final int DEFAULT_FREQUENCY = 10;
+
+    private static final ThreadMXBean THREAD_BEAN = getThreadBean();
+
+    private static final ThreadLocal<Frame> FRAME = new ThreadLocal<Frame>() {
+        @Override
+        protected Frame initialValue() {
+            return new Frame();
+        }
+    };
+
+    /**
+     * The profiled call that is running on a thread.
+     */
+    private static class Frame {
+        OperatorProfile current;
+        boolean sampling;
+    }
+
+    private final String name;
+    private final int frequency;
+
+    // State of the call in progress
+    private Frame frame;
+    private OperatorProfile caller;
+    private boolean sampled;
+    private long startNanos;
+    private long startBytes;
+
+    private long calls;
+    private long sampledCalls;
+    private long recordsIn;
+    private long recordsOut;
+    private long nanos;
+    private long childNanos;
+    private long bytes;
+    private long childBytes;
+    private long spills;
+
+    public OperatorProfile(PhysicalOperator op, int frequency) {
+        this.name = op.getClass().getSimpleName() + "." + op.getOperatorKey();
+        this.frequency = Math.max(1, frequency);
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf != null && conf.getBoolean(PigConfiguration.PIG_OPERATOR_PROFILE, false);
+    }
+
+    /**
+     * Attaches a profile to every operator of the plan if profiling is on.
+     * Operators of nested plans are accounted to their enclosing operator.
+     */
+    public static void enable(Configuration conf, PhysicalPlan plan) {
+        if (!isEnabled(conf) || plan == null) {
+            return;
+        }
+        for (PhysicalOperator op : plan) {
+            enable(conf, op);
+        }
+    }
+
+    public static void enable(Configuration conf, PhysicalOperator op) {
+        if (isEnabled(conf) && op != null) {
+            op.setProfile(new OperatorProfile(op, conf.getInt(
+                    PigConfiguration.PIG_OPERATOR_PROFILE_FREQUENCY, DEFAULT_FREQUENCY)));
+        }
+    }
+
+    /**
+     * Calls {@link PhysicalOperator#getNextTuple()}, profiling the call if the
+     * operator has a profile.
+     */
+    public static Result getNextTuple(PhysicalOperator op) throws ExecException {
+        OperatorProfile profile = op.getProfile();
+        if (profile == null) {
+            return op.getNextTuple();
+        }
+        Result res = null;
+        profile.enter();
+        try {
+            res = op.getNextTuple();
+        } finally {
+            profile.exit(res);
+        }
+        return res;
+    }
+
+    /**
+     * Marks the start of a call into the operator on the current thread.
+     */
+    public void enter() {
+        frame = FRAME.get();
+        caller = frame.current;
+        calls++;
+        if (caller == null) {
+            frame.sampling = (calls - 1) % frequency == 0;
+        }
+        sampled = frame.sampling;
+        frame.current = this;
+        if (sampled) {
+            sampledCalls++;
+            startBytes = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the end of the call started by {@link #enter()}.
+     * @param res result of the call, null if it failed
+     */
+    public void exit(Result res) {
+        if (sampled) {
+            long elapsed = System.nanoTime() - startNanos;
+            long allocated = allocatedBytes() - startBytes;
+            nanos += elapsed;
+            bytes += allocated;
+            if (caller != null) {
+                caller.childNanos += elapsed;
+                caller.childBytes += allocated;
+            }
+        }
+        if (res != null && res.returnStatus == POStatus.STATUS_OK) {
+            recordsOut++;
+            if (caller != null) {
+                caller.recordsIn++;
+            }
+        }
+        frame.current = caller;
+        caller = null;
+    }
+
+    /**
+     * Counts an input record that was attached to the operator.
+     */
+    public void recordIn() {
+        recordsIn++;
+    }
+
+    /**
+     * Counts a spill on the operator running on the current thread, if any.
+     */
+    public static void spilled() {
+        OperatorProfile current = FRAME.get().current;
+        if (current != null) {
+            current.spills++;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the profile as counter name to value. Sampled metrics are
+     * scaled up to all calls and zero metrics other than records out are
+     * left out to save counters.
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new LinkedHashMap<String, Long>();
+        counters.put(name + "." + PigConstants.OPERATOR_PROFILE_RECORDS_OUT, recordsOut);
+        putIfNotZero(counters, PigConstants.OPERATOR_PROFILE_RECORDS_IN, recordsIn);
+        putIfNotZero(counters, PigConstants.OPERATOR_PROFILE_NANOS, scale(nanos - childNanos));
+        putIfNotZero(counters, PigConstants.OPERATOR_PROFILE_ALLOCATED_BYTES, scale(bytes - childBytes));
+        putIfNotZero(counters, PigConstants.OPERATOR_PROFILE_SPILLS, spills);
+        return counters;
+    }
+
+    /**
+     * Reports the profiles of the plan operators through task counters.
+     */
+    public static void report(PhysicalPlan plan) {
+        if (plan == null) {
+            return;
+        }
+        for (PhysicalOperator op : plan) {
+            report(op);
+        }
+    }
+
+    public static void report(PhysicalOperator op) {
+        if (op == null || op.getProfile() == null) {
+            return;
+        }
+        PigStatusReporter reporter = PigStatusReporter.getInstance();
+        try {
+            for (Map.Entry<String, Long> counter : op.getProfile().getCounters().entrySet()) {
+                reporter.incrCounter(PigConstants.OPERATOR_PROFILE_COUNTER_GROUP,
+                        counter.getKey(), counter.getValue());
+            }
+        } catch (RuntimeException e) {
+            // Most likely the counter limit of the job
+            LOG.warn("Could not report profile of " + op.getProfile().getName(), e);
+        }
+        op.setProfile(null);
+    }
+
+    private void putIfNotZero(Map<String, Long> counters, String metric, long value) {
+        if (value != 0) {
+            counters.put(name + "." + metric, value);
+        }
+    }
+
+    private long scale(long value) {
+        if (sampledCalls == 0 || value < 0) {
+            return 0;
+        }
+        return (long) ((double) value * calls / sampledCalls);
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN == null ? 0 : THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static ThreadMXBean getThreadBean() {
+        try {
+            Object bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof ThreadMXBean) {
+                ThreadMXBean threadBean = (ThreadMXBean) bean;
+                if (threadBean.isThreadAllocatedMemorySupported()
+                        && threadBean.isThreadAllocatedMemoryEnabled()) {
+                    return threadBean;
+                }
+            }
+        } catch (Throwable t) {
+            LOG.debug("Allocated bytes per thread are not available", t);
+        }
+        return null;
+    }
+}
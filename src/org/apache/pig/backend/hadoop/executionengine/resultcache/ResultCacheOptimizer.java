@@ -0,0 +1,540 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.resultcache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MD5Hash;
+import org.apache.pig.FileInputLoadFunc;
+import org.apache.pig.FuncSpec;
+import org.apache.pig.LoadFunc;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.backend.hadoop.datastorage.ConfigurationUtil;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POCast;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POUserFunc;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.PODistinct;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFRJoin;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFilter;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POForEach;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POGlobalRearrange;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLoad;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLocalRearrange;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POPackage;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSplit;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStore;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POUnion;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
+import org.apache.pig.backend.hadoop.executionengine.util.MapRedUtil;
+import org.apache.pig.builtin.Nondeterministic;
+import org.apache.pig.data.DataType;
+import org.apache.pig.impl.PigContext;
+import org.apache.pig.impl.io.FileLocalizer;
+import org.apache.pig.impl.io.FileSpec;
+import org.apache.pig.impl.io.InterStorage;
+import org.apache.pig.impl.plan.NodeIdGenerator;
+import org.apache.pig.impl.plan.OperatorKey;
+import org.apache.pig.impl.plan.PlanException;
+import org.apache.pig.impl.util.JarManager;
+import org.apache.pig.impl.util.Utils;
+import org.apache.pig.tools.pigstats.OutputStats;
+import org.apache.pig.tools.pigstats.PigStats;
+
+/**
+ * Cache of the relations computed by a script, shared by the scripts that
+ * compute the same relations from the same inputs. A relation is cached when
+ * it is the result of a GROUP, JOIN or DISTINCT computed from file based
+ * loads by deterministic operators that are not shared with other parts of
+ * the plan. It is identified by a fingerprint of
+ * the operators and expressions computing it, of the jars of the functions
+ * it uses and of the paths, lengths and modification times of its input
+ * files.
+ * <p/>
+ * When a relation is in the cache, the operators computing it are replaced
+ * by a load of the cached copy. Otherwise it is also written to the cache
+ * with a split, and the copy is added to the cache once the plan has run.
+ * The least recently used relations are evicted when the size of the cache
+ * goes over {@link PigConfiguration#PIG_RESULT_CACHE_MAX_SIZE}.
+ */
+@InterfaceAudience.Private
+public class ResultCacheOptimizer {
+
+    private static final Log LOG = LogFactory.getLog(ResultCacheOptimizer.class);
+
+    private static final String TMP_PREFIX = "_tmp-";
+    private static final long DEFAULT_MAX_SIZE = 10L * 1024 * 1024 * 1024;
+    private static final long MAX_TMP_AGE = 24 * 60 * 60 * 1000L;
+    private static final Random random = new Random();
+
+    private final PigContext pigContext;
+    private final PhysicalPlan plan;
+    private final Configuration conf;
+    private final Path cacheDir;
+    private final Map<PhysicalOperator, Boolean> cacheable = new HashMap<PhysicalOperator, Boolean>();
+    private final Map<Class<?>, String> jarSignatures = new HashMap<Class<?>, String>();
+    private final List<CacheEntry> pendingEntries = new ArrayList<CacheEntry>();
+
+    private int hits = 0;
+    private int misses = 0;
+    private long bytesSaved = 0;
+
+    public ResultCacheOptimizer(PigContext pigContext, PhysicalPlan plan) {
+        this.pigContext = pigContext;
+        this.plan = plan;
+        this.conf = ConfigurationUtil.toConfiguration(pigContext.getProperties());
+        String dir = pigContext.getProperties().getProperty(PigConfiguration.PIG_RESULT_CACHE_DIR);
+        if (dir == null || dir.isEmpty()) {
+            dir = pigContext.getProperties().getProperty(PigConfiguration.PIG_TEMP_DIR, "/tmp")
+                    + "/pig-result-cache";
+        }
+        this.cacheDir = new Path(dir);
+    }
+
+    /**
+     * Checks whether the result cache is enabled
+     *
+     * @param pc
+     * @return true if the result cache is enabled
+     */
+    public static boolean isEnabled(PigContext pc) {
+        return Boolean.parseBoolean(pc.getProperties().getProperty(
+                PigConfiguration.PIG_RESULT_CACHE_ENABLED, "false"));
+    }
+
+    /**
+     * @return number of relations loaded from the cache
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of relations that were not in the cache
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return size of the input files that were not read thanks to the cache
+     */
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * Replaces the relations found in the cache by a load of their cached
+     * copy, and writes the others to the cache
+     */
+    public void optimize() throws IOException, PlanException {
+        // Fingerprints are computed before the plan is changed. The relations
+        // that depend on the most operators come first, so that the
+        // relations they are computed from are not looked up when they are
+        // in the cache.
+        List<CacheEntry> entries = new ArrayList<CacheEntry>();
+        for (PhysicalOperator op : new ArrayList<PhysicalOperator>(plan.getKeys().values())) {
+            if (isCandidate(op)) {
+                CacheEntry entry = new CacheEntry(op);
+                addRegion(op, entry.region);
+                entry.fingerprint = computeFingerprint(entry);
+                if (entry.fingerprint != null) {
+                    entries.add(entry);
+                }
+            }
+        }
+        Collections.sort(entries, new Comparator<CacheEntry>() {
+            @Override
+            public int compare(CacheEntry e1, CacheEntry e2) {
+                return e2.region.size() - e1.region.size();
+            }
+        });
+
+        FileSystem fs = cacheDir.getFileSystem(conf);
+        for (CacheEntry entry : entries) {
+            if (!plan.getKeys().containsKey(entry.op.getOperatorKey())) {
+                // computed from a cached relation
+                continue;
+            }
+            entry.path = new Path(cacheDir, entry.fingerprint);
+            FileStatus status = fs.exists(entry.path) ? fs.getFileStatus(entry.path) : null;
+            if (status != null && status.isDirectory()) {
+                hits++;
+                bytesSaved += entry.inputBytes;
+                LOG.info("Loading " + describe(entry.op) + " from result cache " + entry.path);
+                // the modification time is the last access time for the eviction
+                fs.setTimes(entry.path, System.currentTimeMillis(), -1);
+                load(entry);
+            } else {
+                misses++;
+                entry.tmpPath = new Path(cacheDir, TMP_PREFIX + entry.fingerprint + "-"
+                        + Math.abs(random.nextLong()));
+                LOG.info("Writing " + describe(entry.op) + " to result cache " + entry.path);
+                split(entry);
+                pendingEntries.add(entry);
+            }
+        }
+        LOG.info("Result cache: " + hits + " hits, " + misses + " misses, "
+                + bytesSaved + " input bytes saved");
+    }
+
+    /**
+     * Adds the relations that were successfully written to the cache, and
+     * evicts the least recently used ones if the cache is too large
+     *
+     * @param stats statistics of the execution of the plan
+     */
+    public void commit(PigStats stats) {
+        if (pendingEntries.isEmpty()) {
+            return;
+        }
+        try {
+            FileSystem fs = cacheDir.getFileSystem(conf);
+            for (CacheEntry entry : pendingEntries) {
+                if (!isStored(stats, entry.tmpPath.toString())) {
+                    fs.delete(entry.tmpPath, true);
+                } else if (fs.exists(entry.path) || !fs.rename(entry.tmpPath, entry.path)) {
+                    // cached at the same time by another script
+                    fs.delete(entry.tmpPath, true);
+                }
+            }
+            evict(fs);
+        } catch (IOException e) {
+            LOG.warn("Unable to update result cache " + cacheDir, e);
+        }
+        pendingEntries.clear();
+    }
+
+    private void evict(FileSystem fs) throws IOException {
+        long maxSize = pigContext.getProperties().containsKey(PigConfiguration.PIG_RESULT_CACHE_MAX_SIZE)
+                ? Long.parseLong(pigContext.getProperties().getProperty(PigConfiguration.PIG_RESULT_CACHE_MAX_SIZE))
+                : DEFAULT_MAX_SIZE;
+        List<FileStatus> cached = new ArrayList<FileStatus>();
+        final Map<Path, Long> sizes = new HashMap<Path, Long>();
+        long size = 0;
+        long minTmpTime = System.currentTimeMillis() - MAX_TMP_AGE;
+        for (FileStatus status : fs.listStatus(cacheDir)) {
+            if (status.getPath().getName().startsWith(TMP_PREFIX)) {
+                // left over by a script that did not complete
+                if (status.getModificationTime() < minTmpTime) {
+                    fs.delete(status.getPath(), true);
+                }
+            } else if (status.isDirectory()) {
+                long length = fs.getContentSummary(status.getPath()).getLength();
+                sizes.put(status.getPath(), length);
+                cached.add(status);
+                size += length;
+            }
+        }
+        Collections.sort(cached, new Comparator<FileStatus>() {
+            @Override
+            public int compare(FileStatus s1, FileStatus s2) {
+                return Long.compare(s1.getModificationTime(), s2.getModificationTime());
+            }
+        });
+        for (FileStatus status : cached) {
+            if (size <= maxSize) {
+                break;
+            }
+            if (fs.delete(status.getPath(), true)) {
+                LOG.info("Evicted " + status.getPath() + " from result cache");
+                size -= sizes.get(status.getPath());
+            }
+        }
+    }
+
+    private static boolean isStored(PigStats stats, String location) {
+        for (OutputStats output : stats.getOutputStats()) {
+            if (location.equals(output.getLocation())) {
+                return output.isSuccessful();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A relation is a candidate when it is the result of a GROUP, JOIN or
+     * DISTINCT, before it is filtered or transformed by the script
+     */
+    private boolean isCandidate(PhysicalOperator op) throws IOException {
+        if (op instanceof POForEach) {
+            List<PhysicalOperator> preds = plan.getPredecessors(op);
+            if (preds == null || preds.size() != 1 || !(preds.get(0) instanceof POPackage)) {
+                return false;
+            }
+        } else if (!(op instanceof POFRJoin || op instanceof PODistinct)) {
+            return false;
+        }
+        return isCacheable(op);
+    }
+
+    /**
+     * An operator is cacheable when it is deterministic and computed from
+     * file based loads by cacheable operators that have no other successor
+     */
+    private boolean isCacheable(PhysicalOperator op) throws IOException {
+        Boolean result = cacheable.get(op);
+        if (result == null) {
+            result = computeCacheable(op);
+            cacheable.put(op, result);
+        }
+        return result;
+    }
+
+    private boolean computeCacheable(PhysicalOperator op) throws IOException {
+        List<PhysicalOperator> preds = plan.getPredecessors(op);
+        if (plan.getSoftLinkPredecessors(op) != null) {
+            return false;
+        }
+        if (op instanceof POLoad) {
+            POLoad load = (POLoad) op;
+            return preds == null && !load.isTmpLoad()
+                    && load.getLoadFunc() instanceof FileInputLoadFunc;
+        }
+        if (!(op instanceof POFilter || op instanceof POForEach || op instanceof POUnion
+                || op instanceof POFRJoin || op instanceof POLocalRearrange
+                || op instanceof POGlobalRearrange || op instanceof POPackage
+                || op instanceof PODistinct) || preds == null) {
+            return false;
+        }
+        for (PhysicalPlan innerPlan : getInnerPlans(op)) {
+            for (POUserFunc func : PlanHelper.getPhysicalOperators(innerPlan, POUserFunc.class)) {
+                if (func.getFunc().getClass().isAnnotationPresent(Nondeterministic.class)) {
+                    return false;
+                }
+            }
+        }
+        for (PhysicalOperator pred : preds) {
+            if (!isCacheable(pred) || plan.getSuccessors(pred).size() != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<PhysicalPlan> getInnerPlans(PhysicalOperator op) {
+        List<PhysicalPlan> innerPlans = new ArrayList<PhysicalPlan>();
+        if (op instanceof POFilter) {
+            innerPlans.add(((POFilter) op).getPlan());
+        } else if (op instanceof POForEach) {
+            innerPlans.addAll(((POForEach) op).getInputPlans());
+        } else if (op instanceof POLocalRearrange) {
+            innerPlans.addAll(((POLocalRearrange) op).getPlans());
+        } else if (op instanceof POFRJoin) {
+            for (List<PhysicalPlan> joinPlans : ((POFRJoin) op).getJoinPlans()) {
+                innerPlans.addAll(joinPlans);
+            }
+        }
+        return innerPlans;
+    }
+
+    /**
+     * Adds an operator and the operators it is computed from, depth first
+     */
+    private void addRegion(PhysicalOperator op, List<PhysicalOperator> region) {
+        region.add(op);
+        List<PhysicalOperator> preds = plan.getPredecessors(op);
+        if (preds != null) {
+            for (PhysicalOperator pred : preds) {
+                addRegion(pred, region);
+            }
+        }
+    }
+
+    /**
+     * Fingerprint of the operators computing a relation. Aliases and operator
+     * keys are left out as they depend on the script.
+     *
+     * @return the fingerprint, null if an input does not exist
+     */
+    private String computeFingerprint(CacheEntry entry) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (PhysicalOperator op : entry.region) {
+            appendOperator(sb, op);
+            if (op instanceof POLocalRearrange) {
+                sb.append(((POLocalRearrange) op).getIndex()).append('\n');
+            } else if (op instanceof POPackage) {
+                POPackage pkg = (POPackage) op;
+                sb.append(pkg.getPkgr().getPackageType()).append(pkg.getNumInps())
+                        .append(Arrays.toString(pkg.getPkgr().getInner())).append('\n');
+            } else if (op instanceof POLoad) {
+                POLoad load = (POLoad) op;
+                sb.append(load.getLFile().getFuncSpec()).append('\n');
+                appendJar(sb, load.getLoadFunc().getClass());
+                List<FileStatus> statuses = new ArrayList<FileStatus>();
+                for (String pathString : LoadFunc.getPathStrings(load.getLFile().getFileName())) {
+                    Path path = new Path(pathString);
+                    FileStatus[] matches = path.getFileSystem(conf).globStatus(path);
+                    if (matches == null || matches.length == 0) {
+                        return null;
+                    }
+                    statuses.addAll(Arrays.asList(matches));
+                }
+                for (FileStatus status : MapRedUtil.getAllFileRecursively(statuses, conf)) {
+                    sb.append(status.getPath()).append('\t').append(status.getLen()).append('\t')
+                            .append(status.getModificationTime()).append('\n');
+                    entry.inputBytes += status.getLen();
+                }
+            }
+            for (PhysicalPlan innerPlan : getInnerPlans(op)) {
+                appendPlan(sb, innerPlan);
+            }
+        }
+        return MD5Hash.digest(sb.toString().replaceAll("scope-\\d+", "scope")).toString();
+    }
+
+    private void appendPlan(StringBuilder sb, PhysicalPlan innerPlan) {
+        sb.append('{');
+        for (PhysicalOperator leaf : innerPlan.getLeaves()) {
+            appendInnerOperators(sb, innerPlan, leaf);
+        }
+        sb.append('}');
+    }
+
+    private void appendInnerOperators(StringBuilder sb, PhysicalPlan innerPlan, PhysicalOperator op) {
+        appendOperator(sb, op);
+        // the names of the functions do not have their constructor arguments
+        if (op instanceof POUserFunc) {
+            sb.append(((POUserFunc) op).getFuncSpec()).append('\n');
+            appendJar(sb, ((POUserFunc) op).getFunc().getClass());
+        } else if (op instanceof POCast && ((POCast) op).getFuncSpec() != null) {
+            sb.append(((POCast) op).getFuncSpec()).append('\n');
+        }
+        for (PhysicalPlan nestedPlan : getInnerPlans(op)) {
+            appendPlan(sb, nestedPlan);
+        }
+        List<PhysicalOperator> preds = innerPlan.getPredecessors(op);
+        if (preds != null) {
+            for (PhysicalOperator pred : preds) {
+                appendInnerOperators(sb, innerPlan, pred);
+            }
+        }
+    }
+
+    private static void appendOperator(StringBuilder sb, PhysicalOperator op) {
+        sb.append(describe(op)).append('\n');
+    }
+
+    private static String describe(PhysicalOperator op) {
+        String name = op.name();
+        String alias = op.getAlias();
+        return alias != null && name.startsWith(alias + ": ")
+                ? name.substring(alias.length() + 2) : name;
+    }
+
+    /**
+     * Identifies the version of a function by the jar it is loaded from
+     */
+    private void appendJar(StringBuilder sb, Class<?> clazz) {
+        String signature = jarSignatures.get(clazz);
+        if (signature == null) {
+            String jar = JarManager.findContainingJar(clazz);
+            if (jar == null) {
+                signature = "";
+            } else {
+                File file = new File(jar);
+                signature = jar + "\t" + file.length() + "\t" + file.lastModified();
+            }
+            jarSignatures.put(clazz, signature);
+        }
+        sb.append(clazz.getName()).append('\t').append(signature).append('\n');
+    }
+
+    /**
+     * Replaces the operators computing a relation by a load of its cached copy
+     */
+    private void load(CacheEntry entry) throws PlanException {
+        String scope = entry.op.getOperatorKey().scope;
+        POLoad load = new POLoad(newKey(scope), new FileSpec(entry.path.toString(),
+                new FuncSpec(InterStorage.class.getName())));
+        load.setPc(pigContext);
+        load.setResultType(DataType.BAG);
+        load.setSignature(load.getOperatorKey().toString());
+        load.copyAliasFrom(entry.op);
+        for (PhysicalOperator op : entry.region) {
+            if (op != entry.op) {
+                plan.remove(op);
+            }
+        }
+        plan.replace(entry.op, load);
+    }
+
+    /**
+     * Splits a relation to a store in the cache
+     */
+    private void split(CacheEntry entry) throws IOException, PlanException {
+        String scope = entry.op.getOperatorKey().scope;
+        POSplit split = new POSplit(newKey(scope));
+        split.setSplitStore(new FileSpec(FileLocalizer.getTemporaryPath(pigContext).toString(),
+                new FuncSpec(Utils.getTmpFileCompressorName(pigContext))));
+        POStore store = new POStore(newKey(scope));
+        store.setSFile(new FileSpec(entry.tmpPath.toString(),
+                new FuncSpec(InterStorage.class.getName())));
+        store.setSignature(store.getOperatorKey().toString());
+        store.setIsTmpStore(false);
+
+        // the split takes the place of the relation for its successors
+        List<PhysicalOperator> preds = new ArrayList<PhysicalOperator>(plan.getPredecessors(entry.op));
+        plan.replace(entry.op, split);
+        plan.add(entry.op);
+        for (PhysicalOperator pred : preds) {
+            plan.disconnect(pred, split);
+            plan.connect(pred, entry.op);
+        }
+        plan.connect(entry.op, split);
+        plan.add(store);
+        plan.connect(split, store);
+    }
+
+    private static OperatorKey newKey(String scope) {
+        return new OperatorKey(scope, NodeIdGenerator.getGenerator().getNextNodeId(scope));
+    }
+
+    /**
+     * A relation looked up in the cache
+     */
+    private static class CacheEntry {
+        final PhysicalOperator op;
+        // operators computing the relation, starting with it
+        final List<PhysicalOperator> region = new ArrayList<PhysicalOperator>();
+        String fingerprint;
+        long inputBytes = 0;
+        Path path;
+        Path tmpPath;
+
+        CacheEntry(PhysicalOperator op) {
+            this.op = op;
+        }
+    }
+}
@@ -34,9 +34,12 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.pig.PigConfiguration;
 import org.apache.pig.PigException;
 import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.backend.hadoop.executionengine.JobCreationException;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.InputSizeReducerEstimator;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.MRConfiguration;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PhyPlanSetter;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.UDFFinishVisitor;
@@ -45,6 +48,7 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOpe
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhyPlanVisitor;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POBroadcastSpark;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLoad;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POMergeJoin;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POPoissonSample;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSkewedJoin;
@@ -70,6 +74,7 @@ import org.apache.pig.tools.pigstats.spark.SparkPigStats;
 import org.apache.pig.tools.pigstats.spark.SparkStatsUtil;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.rdd.RDD;
+import org.apache.spark.storage.StorageLevel;
 
 import com.google.common.collect.Lists;
 
@@ -77,6 +82,7 @@ public class JobGraphBuilder extends SparkOpPlanVisitor {
 
     private static final Log LOG = LogFactory.getLog(JobGraphBuilder.class);
     public static final int NULLPART_JOB_ID = -1;
+    public static final long DEFAULT_CACHE_MEMORY_MAX_INPUT_BYTES = 1024 * 1024 * 1024;
 
     private Map<Class<? extends PhysicalOperator>, RDDConverter> convertMap = null;
     private SparkPigStats sparkStats = null;
@@ -89,6 +95,8 @@ public class JobGraphBuilder extends SparkOpPlanVisitor {
     private Map<OperatorKey, RDD<Tuple>> physicalOpRdds = new HashMap<OperatorKey, RDD<Tuple>>();
     private JobConf jobConf = null;
     private PigContext pc;
+    private List<RDD<Tuple>> cachedRdds = new ArrayList<RDD<Tuple>>();
+    private StorageLevel storageLevel = null;
 
     public JobGraphBuilder(SparkOperPlan plan, Map<Class<? extends PhysicalOperator>, RDDConverter> convertMap,
                            SparkPigStats sparkStats, JavaSparkContext sparkContext, JobStatisticCollector
@@ -109,11 +117,40 @@ public class JobGraphBuilder extends SparkOpPlanVisitor {
         new PhyPlanSetter(sparkOp.physicalPlan).visit();
         try {
             setReplicationForMergeJoin(sparkOp.physicalPlan);
+            if (!sparkOp.getCachedOperators().isEmpty()) {
+                storageLevel = getStorageLevel(sparkOp);
+            }
             sparkOperToRDD(sparkOp);
             finishUDFs(sparkOp.physicalPlan);
         } catch (Exception e) {
             throw new VisitorException("fail to get the rdds of this spark operator: ", e);
+        } finally {
+            // All the consumers of the cached RDDs are in this spark operator
+            // and its stores have run
+            for (RDD<Tuple> rdd : cachedRdds) {
+                rdd.unpersist(false);
+            }
+            cachedRdds.clear();
+        }
+    }
+
+    /**
+     * Cached RDDs are kept serialized in memory, spilling to disk, unless the
+     * input of the spark operator is larger than
+     * pig.spark.cache.memory.max.input.bytes, in which case they are only
+     * written to disk.
+     */
+    private StorageLevel getStorageLevel(SparkOperator sparkOp) {
+        long maxInputSize = jobConf.getLong(PigConfiguration.PIG_SPARK_CACHE_MEMORY_MAX_INPUT_BYTES,
+                DEFAULT_CACHE_MEMORY_MAX_INPUT_BYTES);
+        long inputSize = -1;
+        try {
+            List<POLoad> loads = PlanHelper.getPhysicalOperators(sparkOp.physicalPlan, POLoad.class);
+            inputSize = InputSizeReducerEstimator.getTotalInputFileSize(jobConf, loads, Job.getInstance(jobConf));
+        } catch (IOException e) {
+            LOG.warn("Unable to get the input size of " + sparkOp.getOperatorKey(), e);
         }
+        return inputSize > maxInputSize ? StorageLevel.DISK_ONLY() : StorageLevel.MEMORY_AND_DISK_SER();
     }
 
     private void setReplicationForMergeJoin(PhysicalPlan plan) throws IOException {
@@ -239,6 +276,11 @@ public class JobGraphBuilder extends SparkOpPlanVisitor {
                                PhysicalOperator physicalOperator,
                                Set<OperatorKey> predsFromPreviousSparkOper)
             throws IOException {
+        boolean cached = sparkOperator.getCachedOperators().contains(physicalOperator.getOperatorKey());
+        if (cached && physicalOpRdds.containsKey(physicalOperator.getOperatorKey())) {
+            // Converted already for another consumer
+            return;
+        }
         RDD<Tuple> nextRDD = null;
         List<PhysicalOperator> predecessorsOfCurrentPhysicalOp = getPredecessors(plan, physicalOperator);
         LinkedHashSet<OperatorKey> operatorKeysOfAllPreds = new LinkedHashSet<OperatorKey>();
@@ -297,6 +339,12 @@ public class JobGraphBuilder extends SparkOpPlanVisitor {
                                 + physicalOperator);
             }
 
+            if (cached) {
+                LOG.info("Caching the RDD of " + physicalOperator + " with storage level "
+                        + storageLevel.description());
+                nextRDD = nextRDD.persist(storageLevel);
+                cachedRdds.add(nextRDD);
+            }
             physicalOpRdds.put(physicalOperator.getOperatorKey(), nextRDD);
         }
     }
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.spark;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.pig.backend.hadoop.executionengine.spark.converter.IndexedKey;
+import org.apache.pig.backend.hadoop.executionengine.spark.converter.SkewedJoinConverter.PartitionIndexedKey;
+import org.apache.pig.data.BinSedesTuple;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.DataByteArray;
+import org.apache.pig.data.DataType;
+import org.apache.pig.data.DefaultTuple;
+import org.apache.pig.data.InterSedes;
+import org.apache.pig.data.InterSedesFactory;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.utils.SedesHelper;
+import org.apache.spark.serializer.KryoRegistrator;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Registers the Pig data types with Kryo when spark.serializer is the
+ * KryoSerializer. Tuples, bags and byte arrays are written in the
+ * {@link org.apache.pig.data.BinInterSedes} format, which is more compact than
+ * what the default Kryo field serializer produces for them, and does not
+ * depend on the internal fields of the tuple and bag implementations.
+ */
+public class PigKryoRegistrator implements KryoRegistrator {
+
+    @Override
+    public void registerClasses(Kryo kryo) {
+        TupleSerializer tupleSerializer = new TupleSerializer();
+        InterSedesSerializer<DataBag> bagSerializer = new InterSedesSerializer<DataBag>(DataType.BAG);
+
+        kryo.register(DefaultTuple.class, tupleSerializer);
+        kryo.register(BinSedesTuple.class, tupleSerializer);
+        kryo.register(DataByteArray.class,
+                new InterSedesSerializer<DataByteArray>(DataType.BYTEARRAY));
+        kryo.register(IndexedKey.class);
+        kryo.register(PartitionIndexedKey.class);
+        // Other implementations, like the generated SchemaTuples or the
+        // spillable bags, are written with the class name
+        kryo.addDefaultSerializer(Tuple.class, tupleSerializer);
+        kryo.addDefaultSerializer(DataBag.class, bagSerializer);
+    }
+
+    /**
+     * Writes a datum of the given type with BinInterSedes, and reads it back.
+     */
+    static class InterSedesSerializer<T> extends Serializer<T> {
+
+        private static final InterSedes SEDES = InterSedesFactory.getInterSedesInstance();
+
+        private final byte type;
+
+        InterSedesSerializer(byte type) {
+            this.type = type;
+        }
+
+        protected void writeDatum(DataOutputStream out, T object) throws IOException {
+            SEDES.writeDatum(out, object, type);
+        }
+
+        @Override
+        public void write(Kryo kryo, Output output, T object) {
+            try {
+                DataOutputStream out = new DataOutputStream(output);
+                writeDatum(out, object);
+                out.flush();
+            } catch (IOException e) {
+                throw new KryoException(e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T read(Kryo kryo, Input input, Class<T> clazz) {
+            try {
+                return (T) SEDES.readDatum(new DataInputStream(input));
+            } catch (IOException e) {
+                throw new KryoException(e);
+            }
+        }
+    }
+
+    /**
+     * Tuples are always written field by field so that SchemaTuples can be
+     * read back without their generated classes being registered. They are
+     * read back as the tuples of the default TupleFactory.
+     */
+    static class TupleSerializer extends InterSedesSerializer<Tuple> {
+
+        TupleSerializer() {
+            super(DataType.TUPLE);
+        }
+
+        @Override
+        protected void writeDatum(DataOutputStream out, Tuple tuple) throws IOException {
+            SedesHelper.writeGenericTuple(out, tuple);
+        }
+    }
+}
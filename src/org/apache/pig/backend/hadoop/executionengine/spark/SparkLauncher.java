@@ -27,6 +27,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -46,6 +47,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigConstants;
 import org.apache.pig.PigException;
 import org.apache.pig.PigWarning;
 import org.apache.pig.backend.BackendException;
@@ -77,6 +79,7 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOpe
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStore;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStream;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POUnion;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.OperatorProfile;
 import org.apache.pig.backend.hadoop.executionengine.shims.HadoopShims;
 import org.apache.pig.backend.hadoop.executionengine.spark.converter.BroadcastConverter;
 import org.apache.pig.backend.hadoop.executionengine.spark.converter.CollectedGroupConverter;
@@ -115,6 +118,7 @@ import org.apache.pig.backend.hadoop.executionengine.spark.optimizer.JoinGroupOp
 import org.apache.pig.backend.hadoop.executionengine.spark.optimizer.MultiQueryOptimizerSpark;
 import org.apache.pig.backend.hadoop.executionengine.spark.optimizer.NoopFilterRemover;
 import org.apache.pig.backend.hadoop.executionengine.spark.optimizer.ParallelismSetter;
+import org.apache.pig.backend.hadoop.executionengine.spark.optimizer.RDDCacheOptimizer;
 import org.apache.pig.backend.hadoop.executionengine.spark.optimizer.SecondaryKeyOptimizerSpark;
 import org.apache.pig.backend.hadoop.executionengine.spark.plan.DotSparkPrinter;
 import org.apache.pig.backend.hadoop.executionengine.spark.plan.SparkCompiler;
@@ -134,6 +138,7 @@ import org.apache.pig.impl.util.UDFContext;
 import org.apache.pig.impl.util.Utils;
 import org.apache.pig.tools.pigstats.OutputStats;
 import org.apache.pig.tools.pigstats.PigStats;
+import org.apache.pig.tools.pigstats.ScriptState;
 import org.apache.pig.tools.pigstats.spark.SparkCounterGroup;
 import org.apache.pig.tools.pigstats.spark.SparkCounters;
 import org.apache.pig.tools.pigstats.spark.SparkPigStats;
@@ -164,6 +169,7 @@ public class SparkLauncher extends Launcher {
     private String currentDirectoryPath = null;
     private SparkEngineConf sparkEngineConf = new SparkEngineConf();
     private static final String PIG_WARNING_FQCN = PigWarning.class.getCanonicalName();
+    private static final String KRYO_SERIALIZER = "org.apache.spark.serializer.KryoSerializer";
 
     // this set is unnecessary once PIG-5241 is fixed
     private static Set<String> allCachedFiles = null;
@@ -176,6 +182,9 @@ public class SparkLauncher extends Launcher {
         this.pigContext = pigContext;
         initialize(physicalPlan);
         SparkOperPlan sparkplan = compile(physicalPlan, pigContext);
+        if (ScriptState.get() != null) {
+            ScriptState.get().logCompileTimes();
+        }
         if (LOG.isDebugEnabled()) {
             LOG.debug(sparkplan);
         }
@@ -218,7 +227,7 @@ public class SparkLauncher extends Launcher {
         convertMap.put(POLimit.class, new LimitConverter());
         convertMap.put(PODistinct.class, new DistinctConverter());
         convertMap.put(POUnion.class, new UnionConverter(sparkContext.sc()));
-        convertMap.put(POSort.class, new SortConverter());
+        convertMap.put(POSort.class, new SortConverter(jobConf));
         convertMap.put(POSplit.class, new SplitConverter());
         convertMap.put(POSkewedJoin.class, new SkewedJoinConverter());
         convertMap.put(POMergeJoin.class, new MergeJoinConverter());
@@ -308,6 +317,11 @@ public class SparkLauncher extends Launcher {
         JoinGroupOptimizerSpark joinOptimizer = new JoinGroupOptimizerSpark(plan);
         joinOptimizer.visit();
 
+        // Must run after the optimizers that restructure the physical plans
+        if (conf.getBoolean(PigConfiguration.PIG_SPARK_CACHE_ENABLED, true)) {
+            new RDDCacheOptimizer(plan).visit();
+        }
+
         if (LOG.isDebugEnabled()) {
             LOG.debug("After multiquery optimization:");
             LOG.debug(plan);
@@ -533,6 +547,7 @@ public class SparkLauncher extends Launcher {
     public SparkOperPlan compile(PhysicalPlan physicalPlan,
                                   PigContext pigContext) throws PlanException, IOException,
             VisitorException {
+        long start = System.nanoTime();
         SparkCompiler sparkCompiler = new SparkCompiler(physicalPlan,
                 pigContext);
         sparkCompiler.compile();
@@ -545,6 +560,7 @@ public class SparkLauncher extends Launcher {
         pkgAnnotator.visit();
 
         optimize(sparkPlan, pigContext);
+        ScriptState.addCompileTime("Spark plan", start);
         return sparkPlan;
     }
 
@@ -638,6 +654,8 @@ public class SparkLauncher extends Launcher {
                 }
             }
 
+            configureKryo(pigCtxtProperties, sparkConf);
+
             //see PIG-5200 why need to set spark.executor.userClassPathFirst as true on cluster modes
             if (! "local".equals(master)) {
                 sparkConf.set("spark.executor.userClassPathFirst", "true");
@@ -652,6 +670,30 @@ public class SparkLauncher extends Launcher {
         jobConf.set(SPARK_VERSION, sparkContext.version());
     }
 
+    /**
+     * Serialize the shuffled and cached records with Kryo, and have Kryo
+     * write the Pig data types with {@link PigKryoRegistrator}, unless the
+     * user picked a serializer.
+     */
+    private static void configureKryo(Properties pigCtxtProperties, SparkConf sparkConf) {
+        if (!Boolean.parseBoolean(pigCtxtProperties.getProperty(
+                PigConfiguration.PIG_SPARK_KRYO_ENABLED, "true"))) {
+            return;
+        }
+        if (!sparkConf.contains("spark.serializer")) {
+            sparkConf.set("spark.serializer", KRYO_SERIALIZER);
+        }
+        if (!KRYO_SERIALIZER.equals(sparkConf.get("spark.serializer"))) {
+            return;
+        }
+        String registrators = sparkConf.get("spark.kryo.registrator", "").trim();
+        if (!Arrays.asList(registrators.split("\\s*,\\s*")).contains(PigKryoRegistrator.class.getName())) {
+            registrators = registrators.isEmpty() ? PigKryoRegistrator.class.getName()
+                    : registrators + "," + PigKryoRegistrator.class.getName();
+            sparkConf.set("spark.kryo.registrator", registrators);
+        }
+    }
+
     private static void checkAndConfigureDynamicAllocation(String master, SparkConf sparkConf) {
         if (sparkConf.getBoolean("spark.dynamicAllocation.enabled", false)) {
             if (!master.startsWith("yarn")) {
@@ -787,6 +829,13 @@ public class SparkLauncher extends Launcher {
             pigWarningGroup.createCounter(PigWarning.SPARK_CUSTOM_WARN.name(), new HashMap<String,Long>());
             counters.getSparkCounterGroups().put(PIG_WARNING_FQCN, pigWarningGroup);
         }
+        if (OperatorProfile.isEnabled(jobConf)) {
+            SparkCounterGroup<Map<String, Long>> profileGroup = new SparkCounterGroup.MapSparkCounterGroup(
+                    PigConstants.OPERATOR_PROFILE_COUNTER_GROUP, PigConstants.OPERATOR_PROFILE_COUNTER_GROUP,
+                    sparkContext);
+            profileGroup.createCounter(PigConstants.OPERATOR_PROFILE_COUNTER_GROUP, new HashMap<String,Long>());
+            counters.getSparkCounterGroups().put(PigConstants.OPERATOR_PROFILE_COUNTER_GROUP, profileGroup);
+        }
         statusReporter.setCounters(counters);
         jobConf.set("pig.spark.counters", ObjectSerializer.serialize(counters));
     }
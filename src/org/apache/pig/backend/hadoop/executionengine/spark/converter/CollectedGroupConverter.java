@@ -58,7 +58,7 @@ public class CollectedGroupConverter implements RDDConverter<Tuple, Tuple, POCol
 
         @Override
         public Iterator<Tuple> call(final Iterator<Tuple> input) {
-            return new OutputConsumerIterator(input) {
+            return new OutputConsumerIterator(input, poCollectedGroup) {
 
                 @Override
                 protected void attach(Tuple tuple) {
@@ -77,7 +77,7 @@ public class FRJoinConverter implements
 
         @Override
         public Iterator<Tuple> call(final Iterator<Tuple> input) {
-            return new OutputConsumerIterator(input) {
+            return new OutputConsumerIterator(input, poFRJoin) {
 
                 @Override
                 protected void attach(Tuple tuple) {
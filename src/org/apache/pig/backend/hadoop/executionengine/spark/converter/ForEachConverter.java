@@ -92,7 +92,7 @@ public class ForEachConverter implements RDDConverter<Tuple, Tuple, POForEach> {
                     }
                 }
             }
-            return new OutputConsumerIterator(input) {
+            return new OutputConsumerIterator(input, poForEach) {
 
                 @Override
                 protected void attach(Tuple tuple) {
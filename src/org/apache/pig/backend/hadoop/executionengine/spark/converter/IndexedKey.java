@@ -40,6 +40,11 @@ public class IndexedKey implements Serializable, Comparable {
     private boolean useSecondaryKey;
     private boolean[] secondarySortOrder;
 
+    // For Kryo, which falls back to the no-arg constructor when it is not
+    // configured to create instances without calling a constructor
+    protected IndexedKey() {
+    }
+
     public IndexedKey(byte index, Object key) {
         this.index = index;
         this.key = key;
@@ -53,7 +53,7 @@ public class LimitConverter implements RDDConverter<Tuple, Tuple, POLimit> {
 
         @Override
         public Iterator<Tuple> call(final Iterator<Tuple> tuples) {
-            return new OutputConsumerIterator(tuples) {
+            return new OutputConsumerIterator(tuples, poLimit) {
 
                 @Override
                 protected void attach(Tuple tuple) {
@@ -48,7 +48,7 @@ public class MergeCogroupConverter implements RDDConverter<Tuple, Tuple, POMerge
 
         @Override
         public Iterator<Tuple> call(final Iterator<Tuple> input) {
-            return new OutputConsumerIterator(input) {
+            return new OutputConsumerIterator(input, poMergeCogroup) {
 
                 @Override
                 protected void attach(Tuple tuple) {
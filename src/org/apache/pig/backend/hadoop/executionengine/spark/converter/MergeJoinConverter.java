@@ -58,7 +58,7 @@ public class MergeJoinConverter implements
 
         @Override
         public Iterator<Tuple> call(final Iterator<Tuple> input) {
-            return new OutputConsumerIterator(input) {
+            return new OutputConsumerIterator(input, poMergeJoin) {
 
                 @Override
                 protected void attach(Tuple tuple) {
@@ -17,20 +17,50 @@
  */
 package org.apache.pig.backend.hadoop.executionengine.spark.converter;
 
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigConstants;
 import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigHadoopLogger;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigMapReduce;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.OperatorProfile;
 import org.apache.pig.data.NonWritableTuple;
 import org.apache.pig.data.Tuple;
+import org.apache.pig.tools.pigstats.PigWarnCounter;
+import org.apache.pig.tools.pigstats.spark.SparkCounter;
+import org.apache.pig.tools.pigstats.spark.SparkCounters;
 
 abstract class OutputConsumerIterator implements java.util.Iterator<Tuple> {
     private final java.util.Iterator<Tuple> input;
     private Result result = null;
     private boolean returned = true;
     private boolean done = false;
+    // Operator profile and the accumulator it is reported to when the
+    // operator profile counter group was set up by SparkLauncher
+    private OperatorProfile profile = null;
+    private SparkCounter<Map<String, Long>> profileCounter = null;
 
     OutputConsumerIterator(java.util.Iterator<Tuple> input) {
+        this(input, null);
+    }
+
+    OutputConsumerIterator(java.util.Iterator<Tuple> input, PhysicalOperator op) {
         this.input = input;
+        if (op != null) {
+            profileCounter = getProfileCounter();
+            if (profileCounter != null) {
+                Configuration conf = PigMapReduce.sJobConfInternal.get();
+                profile = new OperatorProfile(op, conf == null ? OperatorProfile.DEFAULT_FREQUENCY
+                        : conf.getInt(PigConfiguration.PIG_OPERATOR_PROFILE_FREQUENCY,
+                                OperatorProfile.DEFAULT_FREQUENCY));
+                op.setProfile(profile);
+            }
+        }
     }
 
     abstract protected void attach(Tuple tuple);
@@ -70,7 +100,7 @@ abstract class OutputConsumerIterator implements java.util.Iterator<Tuple> {
                     endOfInput();
                 }
 
-                result = getNextResult();
+                result = profile == null ? getNextResult() : getProfiledResult();
                 returned = false;
                 switch (result.returnStatus) {
                     case POStatus.STATUS_OK:
@@ -95,9 +125,40 @@ abstract class OutputConsumerIterator implements java.util.Iterator<Tuple> {
         }
     }
 
+    private Result getProfiledResult() throws ExecException {
+        Result res = null;
+        profile.enter();
+        try {
+            res = getNextResult();
+        } finally {
+            profile.exit(res);
+        }
+        return res;
+    }
+
+    private void reportProfile() {
+        if (profile != null) {
+            profileCounter.increment(profile.getCounters());
+            profile = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SparkCounter<Map<String, Long>> getProfileCounter() {
+        PigWarnCounter reporter = PigHadoopLogger.getInstance().getReporter();
+        if (!(reporter instanceof SparkCounters)) {
+            return null;
+        }
+        return (SparkCounter<Map<String, Long>>) ((SparkCounters) reporter).getCounter(PigConstants.OPERATOR_PROFILE_COUNTER_GROUP,
+                PigConstants.OPERATOR_PROFILE_COUNTER_GROUP);
+    }
+
     @Override
     public boolean hasNext() {
         readNext();
+        if (done) {
+            reportProfile();
+        }
         return !done;
     }
 
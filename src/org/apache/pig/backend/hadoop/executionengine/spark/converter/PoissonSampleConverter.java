@@ -51,7 +51,7 @@ public class PoissonSampleConverter implements RDDConverter<Tuple, Tuple, POPois
 
         @Override
         public Iterator<Tuple> call(final Iterator<Tuple> tuples) {
-            return new OutputConsumerIterator(tuples) {
+            return new OutputConsumerIterator(tuples, po) {
 
                 @Override
                 protected void attach(Tuple tuple) {
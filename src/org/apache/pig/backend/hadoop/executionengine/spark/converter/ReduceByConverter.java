@@ -23,7 +23,6 @@ import java.util.List;
 
 import scala.Tuple2;
 import scala.runtime.AbstractFunction1;
-import scala.runtime.AbstractFunction2;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,15 +34,14 @@ import org.apache.pig.backend.hadoop.executionengine.spark.SparkPigContext;
 import org.apache.pig.backend.hadoop.executionengine.spark.SparkUtil;
 import org.apache.pig.backend.hadoop.executionengine.spark.operator.POReduceBySpark;
 import org.apache.pig.data.DataBag;
-import org.apache.pig.data.DefaultBagFactory;
-import org.apache.pig.data.DefaultTuple;
+import org.apache.pig.data.NonSpillableDataBag;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
 import org.apache.spark.HashPartitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.Function;
-import org.apache.spark.rdd.PairRDDFunctions;
+import org.apache.spark.api.java.function.Function2;
 import org.apache.spark.rdd.RDD;
 
 @SuppressWarnings({"serial"})
@@ -64,17 +62,20 @@ public class ReduceByConverter implements RDDConverter<Tuple, Tuple, POReduceByS
         if (op.isUseSecondaryKey()) {
             return SecondaryKeySortUtil.handleSecondarySort(rddPair, op.getPKGOp());
         } else {
-            PairRDDFunctions<IndexedKey, Tuple> pairRDDFunctions
-                    = new PairRDDFunctions<>(rddPair,
+            JavaPairRDD<IndexedKey, Tuple> pairRDD = new JavaPairRDD<IndexedKey, Tuple>(rddPair,
                     SparkUtil.getManifest(IndexedKey.class),
-                    SparkUtil.getManifest(Tuple.class), null);
+                    SparkUtil.getManifest(Tuple.class));
 
-            RDD<Tuple2<IndexedKey, Tuple>> tupleRDD = pairRDDFunctions.reduceByKey(
+            // Every value is merged into a single (key, intermediate results)
+            // tuple per key with the Intermediate functions, so only one
+            // tuple per key leaves a map partition. Spark keeps them in a
+            // hash map that spills, on the map side and on the reduce side.
+            JavaPairRDD<IndexedKey, Tuple> combined = pairRDD.reduceByKey(
                     SparkUtil.getPartitioner(op.getCustomPartitioner(), parallelism),
                     new MergeValuesFunction(op));
             LOG.debug("Custom Partitioner and parallelims used : " + op.getCustomPartitioner() + ", " + parallelism);
 
-            return tupleRDD.map(new ToTupleFunction(op), SparkUtil.getManifest(Tuple.class));
+            return combined.rdd().map(new ToTupleFunction(op), SparkUtil.getManifest(Tuple.class));
         }
     }
 
@@ -160,11 +161,36 @@ public class ReduceByConverter implements RDDConverter<Tuple, Tuple, POReduceByS
     }
 
     /**
-     * Given two input tuples, this function outputs the resultant tuple.
-     * Additionally, it packages the input tuples to ensure the Algebraic Functions can work on them.
+     * Packages a key and a bag of values, and runs the Intermediate functions
+     * of the algebraic UDFs on them.
+     *
+     * @return the value tuple with the intermediate results, in the same
+     *         format as the values output by LocalRearrangeFunction
      */
-    private static final class MergeValuesFunction extends AbstractFunction2<Tuple, Tuple, Tuple>
-            implements Serializable {
+    private static Tuple reduceValues(POReduceBySpark poReduce, Object key, DataBag values)
+            throws ExecException {
+        poReduce.getPKGOp().getPkgr().attachInput(key, new DataBag[]{values}, new boolean[]{true});
+        Tuple packagedTuple = (Tuple) poReduce.getPKGOp().getPkgr().getNext().result;
+        poReduce.attachInput(packagedTuple);
+        Result r = poReduce.getNext(poReduce.getResultType());
+        if (r.returnStatus != POStatus.STATUS_OK) {
+            throw new ExecException("Unexpected response code from operator " + poReduce + " : " + r);
+        }
+        // The result is (key, intermediate results...), the key is not
+        // part of the value
+        Tuple reduced = (Tuple) r.result;
+        Tuple valueTuple = tf.newTuple(reduced.size() - 1);
+        for (int i = 1; i < reduced.size(); i++) {
+            valueTuple.set(i - 1, reduced.get(i));
+        }
+        return valueTuple;
+    }
+
+    /**
+     * Merges two (key, value) tuples of the same key into one with the
+     * Intermediate functions.
+     */
+    private static final class MergeValuesFunction implements Function2<Tuple, Tuple, Tuple>, Serializable {
         private final POReduceBySpark poReduce;
 
         public MergeValuesFunction(POReduceBySpark poReduce) {
@@ -172,51 +198,14 @@ public class ReduceByConverter implements RDDConverter<Tuple, Tuple, POReduceByS
         }
 
         @Override
-        public Tuple apply(Tuple v1, Tuple v2) {
-            LOG.debug("MergeValuesFunction in : " + v1 + " , " + v2);
+        public Tuple call(Tuple v1, Tuple v2) throws Exception {
+            DataBag bag = new NonSpillableDataBag(2);
+            bag.add((Tuple) v1.get(1));
+            bag.add((Tuple) v2.get(1));
             Tuple result = tf.newTuple(2);
-            DataBag bag = DefaultBagFactory.getInstance().newDefaultBag();
-            Tuple t = new DefaultTuple();
-            try {
-                // Package the input tuples so they can be processed by Algebraic functions.
-                Object key = v1.get(0);
-                if (key == null) {
-                    key = "";
-                } else {
-                    result.set(0, key);
-                }
-                bag.add((Tuple) v1.get(1));
-                bag.add((Tuple) v2.get(1));
-                t.append(key);
-                t.append(bag);
-
-                poReduce.getPKGOp().getPkgr().attachInput(key, new DataBag[]{(DataBag) t.get(1)}, new boolean[]{true});
-                Tuple packagedTuple = (Tuple) poReduce.getPKGOp().getPkgr().getNext().result;
-
-                // Perform the operation
-                LOG.debug("MergeValuesFunction packagedTuple : " + t);
-                poReduce.attachInput(packagedTuple);
-                Result r = poReduce.getNext(poReduce.getResultType());
-
-                // Ensure output is consistent with the output of KeyValueFunction
-                // If we return r.result, the result will be something like this:
-                // (ABC,(2),(3)) - A tuple with key followed by values.
-                // But, we want the result to look like this:
-                // (ABC,((2),(3))) - A tuple with key and a value tuple (containing values).
-                // Hence, the construction of a new value tuple
-
-                Tuple valueTuple = tf.newTuple();
-                for (Object o : ((Tuple) r.result).getAll()) {
-                    if (!o.equals(key)) {
-                        valueTuple.append(o);
-                    }
-                }
-                result.set(1,valueTuple);
-                LOG.debug("MergeValuesFunction out : " + result);
-                return result;
-            } catch (ExecException e) {
-                throw new RuntimeException(e);
-            }
+            result.set(0, v1.get(0));
+            result.set(1, reduceValues(poReduce, v1.get(0), bag));
+            return result;
         }
     }
 
@@ -235,15 +224,14 @@ public class ReduceByConverter implements RDDConverter<Tuple, Tuple, POReduceByS
         @Override
         public Tuple apply(Tuple2<IndexedKey, Tuple> v1) {
             LOG.debug("ToTupleFunction in : " + v1);
-            DataBag bag = DefaultBagFactory.getInstance().newDefaultBag();
-            Tuple t = new DefaultTuple();
             Tuple packagedTuple = null;
             try {
+                // The Final functions of the algebraic UDFs are run on the
+                // merged value of the key
                 Object key = v1._2().get(0);
+                DataBag bag = new NonSpillableDataBag(1);
                 bag.add((Tuple) v1._2().get(1));
-                t.append(key);
-                t.append(bag);
-                poReduce.getPKGOp().getPkgr().attachInput(key, new DataBag[]{(DataBag) t.get(1)}, new boolean[]{true});
+                poReduce.getPKGOp().getPkgr().attachInput(key, new DataBag[]{bag}, new boolean[]{true});
                 packagedTuple = (Tuple) poReduce.getPKGOp().getPkgr().getNext().result;
             } catch (ExecException e) {
                 throw new RuntimeException(e);
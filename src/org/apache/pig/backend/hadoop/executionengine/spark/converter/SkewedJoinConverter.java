@@ -329,10 +329,14 @@ public class SkewedJoinConverter implements
         return reducerMap;
     }
 
-    private static class PartitionIndexedKey extends IndexedKey {
+    public static class PartitionIndexedKey extends IndexedKey {
         // for user defined partitioner
         int partitionId;
 
+        // For Kryo
+        private PartitionIndexedKey() {
+        }
+
         public PartitionIndexedKey(byte index, Object key) {
             super(index, key);
             partitionId = -1;
@@ -19,6 +19,7 @@ package org.apache.pig.backend.hadoop.executionengine.spark.converter;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -31,10 +32,16 @@ import scala.runtime.AbstractFunction1;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.pig.PigConfiguration;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSort;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POTopN;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
 import org.apache.pig.data.Tuple;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.rdd.RDD;
 
 @SuppressWarnings("serial")
@@ -43,11 +50,25 @@ public class SortConverter implements RDDConverter<Tuple, Tuple, POSort> {
 
     private static final FlatMapFunctionAdapter<Iterator<Tuple2<Tuple, Object>>, Tuple> TO_VALUE_FUNCTION = new ToValueFunction();
 
+    private final long topNMaxLimit;
+
+    public SortConverter(JobConf jobConf) {
+        topNMaxLimit = jobConf.getLong(PigConfiguration.PIG_EXEC_TOPN_MAX_LIMIT,
+                POTopN.DEFAULT_MAX_LIMIT);
+    }
+
     @Override
     public RDD<Tuple> convert(List<RDD<Tuple>> predecessors, POSort sortOperator)
             throws IOException {
         SparkUtil.assertPredecessorSize(predecessors, sortOperator, 1);
         RDD<Tuple> rdd = predecessors.get(0);
+        if (POTopN.canReplace(sortOperator, topNMaxLimit)) {
+            // Every partition keeps its first records in a bounded heap, and
+            // a single partition merges them
+            FlatMapFunction<Iterator<Tuple>, Tuple> topN = SparkShims.getInstance().flatMapFunction(
+                    new TopNFunction(sortOperator.getMComparator(), sortOperator.getLimit()));
+            return rdd.toJavaRDD().mapPartitions(topN).repartition(1).mapPartitions(topN).rdd();
+        }
         int parallelism = SparkPigContext.get().getParallelism(predecessors, sortOperator);
         RDD<Tuple2<Tuple, Object>> rddPair = rdd.map(new ToKeyValueFunction(),
                 SparkUtil.<Tuple, Object> getTuple2Manifest());
@@ -90,6 +111,27 @@ public class SortConverter implements RDDConverter<Tuple, Tuple, POSort> {
         }
     }
 
+    private static class TopNFunction implements
+            FlatMapFunctionAdapter<Iterator<Tuple>, Tuple>, Serializable {
+
+        private final Comparator<Tuple> comparator;
+        private final long limit;
+
+        TopNFunction(Comparator<Tuple> comparator, long limit) {
+            this.comparator = comparator;
+            this.limit = limit;
+        }
+
+        @Override
+        public Iterator<Tuple> call(Iterator<Tuple> input) {
+            DataBag heap = BagFactory.getInstance().newLimitedSortedBag(comparator, limit);
+            while (input.hasNext()) {
+                heap.add(input.next());
+            }
+            return heap.iterator();
+        }
+    }
+
     private static class ToKeyValueFunction extends
             AbstractFunction1<Tuple, Tuple2<Tuple, Object>> implements
             Serializable {
@@ -51,7 +51,7 @@ public class StreamConverter implements
 
         @Override
         public Iterator<Tuple> call(final Iterator<Tuple> input) {
-            return new OutputConsumerIterator(input) {
+            return new OutputConsumerIterator(input, poStream) {
 
                 @Override
                 protected void attach(Tuple tuple) {
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.spark.optimizer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.PORank;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSplit;
+import org.apache.pig.backend.hadoop.executionengine.spark.operator.NativeSparkOperator;
+import org.apache.pig.backend.hadoop.executionengine.spark.operator.POJoinGroupSpark;
+import org.apache.pig.backend.hadoop.executionengine.spark.plan.SparkOpPlanVisitor;
+import org.apache.pig.backend.hadoop.executionengine.spark.plan.SparkOperPlan;
+import org.apache.pig.backend.hadoop.executionengine.spark.plan.SparkOperator;
+import org.apache.pig.impl.plan.DependencyOrderWalker;
+import org.apache.pig.impl.plan.OperatorKey;
+import org.apache.pig.impl.plan.VisitorException;
+
+/**
+ * Marks the physical operators whose RDD is consumed more than once in a
+ * SparkOperator, so that JobGraphBuilder persists it instead of having every
+ * consumer recompute its lineage. This happens after multiquery optimization
+ * when a relation feeds several split branches, or when an operator reads its
+ * input twice like PORank.
+ * <p/>
+ * The inputs of each operator are resolved the same way as in
+ * JobGraphBuilder: its predecessors in the plan, the items of the multiquery
+ * connection map, and the inputs of the enclosing POSplit for the roots of
+ * the split plans.
+ */
+public class RDDCacheOptimizer extends SparkOpPlanVisitor {
+    private static final Log LOG = LogFactory.getLog(RDDCacheOptimizer.class);
+
+    public RDDCacheOptimizer(SparkOperPlan plan) {
+        super(plan, new DependencyOrderWalker<SparkOperator, SparkOperPlan>(plan));
+    }
+
+    @Override
+    public void visitSparkOp(SparkOperator sparkOp) throws VisitorException {
+        if (sparkOp instanceof NativeSparkOperator) {
+            return;
+        }
+        Map<OperatorKey, Integer> consumers = new HashMap<OperatorKey, Integer>();
+        countConsumers(sparkOp, sparkOp.physicalPlan, Collections.<OperatorKey>emptySet(), consumers);
+        for (Map.Entry<OperatorKey, Integer> entry : consumers.entrySet()) {
+            if (entry.getValue() > 1) {
+                LOG.info("RDD of " + entry.getKey() + " is consumed " + entry.getValue()
+                        + " times in " + sparkOp.getOperatorKey() + ", it will be cached");
+                sparkOp.addCachedOperator(entry.getKey());
+            }
+        }
+    }
+
+    private void countConsumers(SparkOperator sparkOp, PhysicalPlan plan,
+            Set<OperatorKey> splitInputs, Map<OperatorKey, Integer> consumers) {
+        for (PhysicalOperator op : plan) {
+            Set<OperatorKey> inputs = new LinkedHashSet<OperatorKey>();
+            List<OperatorKey> connected = sparkOp.getMultiQueryOptimizeConnectionItem()
+                    .get(op.getOperatorKey());
+            if (connected != null) {
+                inputs.addAll(connected);
+            }
+            List<PhysicalOperator> preds = getPredecessors(plan, op);
+            if (preds != null) {
+                for (PhysicalOperator pred : preds) {
+                    inputs.add(pred.getOperatorKey());
+                }
+            } else {
+                inputs.addAll(splitInputs);
+            }
+
+            if (op instanceof POSplit) {
+                // The split itself has no RDD, its plans consume its inputs
+                for (PhysicalPlan splitPlan : ((POSplit) op).getPlans()) {
+                    countConsumers(sparkOp, splitPlan, inputs, consumers);
+                }
+                continue;
+            }
+            // RankConverter runs a job to count the records of its input
+            // before numbering them
+            int uses = op instanceof PORank ? 2 : 1;
+            for (OperatorKey input : inputs) {
+                Integer count = consumers.get(input);
+                consumers.put(input, count == null ? uses : count + uses);
+            }
+        }
+    }
+
+    private static List<PhysicalOperator> getPredecessors(PhysicalPlan plan, PhysicalOperator op) {
+        if (op instanceof POJoinGroupSpark) {
+            return ((POJoinGroupSpark) op).getPredecessors();
+        }
+        return plan.getPredecessors(op);
+    }
+}
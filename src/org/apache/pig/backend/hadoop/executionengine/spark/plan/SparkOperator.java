@@ -84,6 +84,9 @@ public class SparkOperator extends Operator<SparkOpPlanVisitor> {
 
     private MultiMap<OperatorKey, OperatorKey> multiQueryOptimizeConnectionMap = new MultiMap<OperatorKey, OperatorKey>();
 
+    // Physical operators whose RDD is consumed several times and is persisted
+    private Set<OperatorKey> cachedOperators = new HashSet<OperatorKey>();
+
     // Indicates if a UDF comparator is used
     boolean isUDFComparatorUsed = false;
 
@@ -291,6 +294,14 @@ public class SparkOperator extends Operator<SparkOpPlanVisitor> {
         return multiQueryOptimizeConnectionMap;
     }
 
+    public void addCachedOperator(OperatorKey key) {
+        cachedOperators.add(key);
+    }
+
+    public Set<OperatorKey> getCachedOperators() {
+        return cachedOperators;
+    }
+
     public void setGlobalSort(boolean globalSort) {
         this.globalSort = globalSort;
     }
@@ -20,6 +20,7 @@ package org.apache.pig.backend.hadoop.executionengine.tez;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -80,6 +81,7 @@ import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigOutputFor
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigSecondaryKeyComparator;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigTextRawComparator;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigTupleSortComparator;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigTypedTupleRawComparator;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigWritableComparators;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.partitioners.SecondaryKeyPartitioner;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.plans.EndOfAllInputSetter;
@@ -487,6 +489,11 @@ public class TezDagBuilder extends TezOpPlanVisitor {
                 setIntermediateOutputKeyValue(keyType, conf, to, lr.isConnectedToPackage(), isMergedInput);
                 // In case of secondary key sort, main key type is the actual key type
                 conf.set("pig.reduce.key.type", Byte.toString(lr.getMainKeyType()));
+                byte[] keyFieldTypes = PigTypedTupleRawComparator.getKeyFieldTypes(
+                        Collections.singletonList(lr));
+                if (keyFieldTypes != null) {
+                    PigTypedTupleRawComparator.setKeyFieldTypes(conf, keyFieldTypes);
+                }
                 break;
             }
         }
@@ -820,14 +827,10 @@ public class TezDagBuilder extends TezOpPlanVisitor {
         String vmPluginName = null;
         Configuration vmPluginConf = null;
         boolean containScatterGather = false;
-        boolean containCustomPartitioner = false;
         for (TezEdgeDescriptor edge : tezOp.inEdges.values()) {
             if (edge.dataMovementType == DataMovementType.SCATTER_GATHER) {
                 containScatterGather = true;
             }
-            if (edge.partitionerClass != null) {
-                containCustomPartitioner = true;
-            }
         }
 
         if(containScatterGather) {
@@ -850,7 +853,7 @@ public class TezDagBuilder extends TezOpPlanVisitor {
                     log.info("Set VertexManagerPlugin to PartitionerDefinedParallelismVertexManager for vertex " + tezOp.getOperatorKey().toString());
                 }
             } else {
-                if (containScatterGather && !containCustomPartitioner) {
+                if (tezOp.isShuffleAutoParallelismAllowed()) {
 
                     // For Intermediate reduce, set the bytes per reducer to be block size.
                     long bytesPerReducer = intermediateTaskInputSize;
@@ -72,6 +72,7 @@ import org.apache.pig.impl.util.LogUtils;
 import org.apache.pig.impl.util.UDFContext;
 import org.apache.pig.tools.pigstats.OutputStats;
 import org.apache.pig.tools.pigstats.PigStats;
+import org.apache.pig.tools.pigstats.ScriptState;
 import org.apache.pig.tools.pigstats.tez.TezPigScriptStats;
 import org.apache.pig.tools.pigstats.tez.TezScriptState;
 import org.apache.pig.tools.pigstats.tez.TezVertexStats;
@@ -170,6 +171,7 @@ public class TezLauncher extends Launcher {
         conf.setIfUnset(TezConfiguration.TEZ_USE_CLUSTER_HADOOP_LIBS, "true");
         TezJobCompiler jc = new TezJobCompiler(pc, conf);
         TezPlanContainer tezPlanContainer = compile(php, pc);
+        tezScriptState.logCompileTimes();
 
         tezStats.initialize(tezPlanContainer);
         tezScriptState.emitInitialPlanNotification(tezPlanContainer);
@@ -420,6 +422,7 @@ public class TezLauncher extends Launcher {
 
     public TezPlanContainer compile(PhysicalPlan php, PigContext pc)
             throws PlanException, IOException, VisitorException {
+        long start = System.nanoTime();
         TezCompiler comp = new TezCompiler(php, pc);
         comp.compile();
         TezPlanContainer planContainer = comp.getPlanContainer();
@@ -430,6 +433,7 @@ public class TezLauncher extends Launcher {
             TezOperPlan tezPlan = planContainer.getOperator(opKey).getTezOperPlan();
             optimize(tezPlan, pc);
         }
+        ScriptState.addCompileTime("Tez plan", start);
         return planContainer;
     }
 
@@ -445,7 +449,9 @@ public class TezLauncher extends Launcher {
         if (!pc.inIllustrator && !nocombiner)  {
             boolean doMapAgg = Boolean.parseBoolean(pc.getProperties().getProperty(
                     PigConfiguration.PIG_EXEC_MAP_PARTAGG, "false"));
-            CombinerOptimizer co = new CombinerOptimizer(tezPlan, doMapAgg);
+            boolean doCubeAgg = Boolean.parseBoolean(pc.getProperties().getProperty(
+                    PigConfiguration.PIG_EXEC_MAP_PARTAGG_CUBE, "true"));
+            CombinerOptimizer co = new CombinerOptimizer(tezPlan, doMapAgg, doCubeAgg);
             co.visit();
             co.getMessageCollector().logMessages(MessageType.Warning, aggregateWarning, log);
         }
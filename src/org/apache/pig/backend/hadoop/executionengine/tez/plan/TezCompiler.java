@@ -86,6 +86,7 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOpe
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSplit;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStore;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStream;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POTopN;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POUnion;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.Packager.PackageType;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
@@ -2430,6 +2431,14 @@ public class TezCompiler extends PhyPlanVisitor {
                 throw new PlanException(msg, errCode, PigException.BUG);
             }
 
+            long topNMaxLimit = Long.parseLong(pigContext.getProperties().getProperty(
+                    PigConfiguration.PIG_EXEC_TOPN_MAX_LIMIT, String.valueOf(POTopN.DEFAULT_MAX_LIMIT)));
+            if (!pigContext.inIllustrator && POTopN.canReplace(op, topNMaxLimit)) {
+                compileTopN(op);
+                phyToTezOpMap.put(op, curTezOp);
+                return;
+            }
+
             Pair<POProject, Byte>[] fields = getSortCols(op.getSortPlans());
             byte keyType = DataType.UNKNOWN;
 
@@ -2562,6 +2571,34 @@ public class TezCompiler extends PhyPlanVisitor {
         }
     }
 
+    /**
+     * Compiles an order by followed by a small limit without sampling. Every
+     * task of the input vertex keeps its first N records in a POTopN, and a
+     * vertex with a single task merges them with another POTopN.
+     */
+    private void compileTopN(POSort op) throws IOException, PlanException, CloneNotSupportedException {
+        nonBlocking(new POTopN(OperatorKey.genOpKey(scope), op));
+        POValueOutputTez output = new POValueOutputTez(OperatorKey.genOpKey(scope));
+        output.copyAliasFrom(op);
+        curTezOp.plan.addAsLeaf(output);
+        TezOperator prevOp = curTezOp;
+
+        blocking();
+        curTezOp.setRequestedParallelism(1);
+        curTezOp.setDontEstimateParallelism(true);
+
+        // The merging POTopN orders the records, no need for a sorted shuffle
+        output.addOutputKey(curTezOp.getOperatorKey().toString());
+        TezEdgeDescriptor edge = curTezOp.inEdges.get(prevOp.getOperatorKey());
+        TezCompilerUtil.configureValueOnlyTupleOutput(edge, DataMovementType.SCATTER_GATHER);
+
+        POValueInputTez input = new POValueInputTez(OperatorKey.genOpKey(scope));
+        input.copyAliasFrom(op);
+        input.setInputKey(prevOp.getOperatorKey().toString());
+        curTezOp.plan.addAsLeaf(input);
+        curTezOp.plan.addAsLeaf(new POTopN(OperatorKey.genOpKey(scope), op));
+    }
+
     @Override
     public void visitSplit(POSplit op) throws VisitorException {
         try {
@@ -37,11 +37,13 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOpe
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStore;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
 import org.apache.pig.backend.hadoop.executionengine.tez.plan.optimizer.TezOperDependencyParallelismEstimator.TezParallelismFactorVisitor;
+import org.apache.pig.backend.hadoop.executionengine.tez.runtime.HashValuePartitioner;
 import org.apache.pig.backend.hadoop.executionengine.tez.runtime.PigProcessor;
 import org.apache.pig.impl.io.FileSpec;
 import org.apache.pig.impl.plan.Operator;
 import org.apache.pig.impl.plan.OperatorKey;
 import org.apache.pig.impl.plan.VisitorException;
+import org.apache.tez.dag.api.EdgeProperty.DataMovementType;
 import org.apache.tez.dag.api.OutputDescriptor;
 import org.apache.tez.dag.api.VertexGroup;
 import org.apache.tez.mapreduce.hadoop.InputSplitInfo;
@@ -717,6 +719,30 @@ public class TezOperator extends Operator<TezOpPlanVisitor> {
         return useGraceParallelism;
     }
 
+    /**
+     * Whether ShuffleVertexManager can merge the partitions of the scatter
+     * gather inputs of this vertex into fewer tasks once the actual output
+     * sizes of the source tasks are known. This is not the case for range
+     * or skewed partitioning which is handled by PartitionerDefinedVertexManager,
+     * or for user defined partitioners that may depend on the number of tasks.
+     */
+    public boolean isShuffleAutoParallelismAllowed() {
+        if (isGlobalSort() || isSkewedJoin()) {
+            return false;
+        }
+        boolean containScatterGather = false;
+        for (TezEdgeDescriptor edge : inEdges.values()) {
+            if (edge.dataMovementType == DataMovementType.SCATTER_GATHER) {
+                containScatterGather = true;
+            }
+            // Any set of hash partitions still holds all the records of a key
+            if (edge.partitionerClass != null && edge.partitionerClass != HashValuePartitioner.class) {
+                return false;
+            }
+        }
+        return containScatterGather;
+    }
+
     public double getParallelismFactor(TezOperator successor) throws VisitorException {
         if (parallelismFactorPerSuccessor == null) {
             parallelismFactorPerSuccessor = new HashMap<OperatorKey, Double>();
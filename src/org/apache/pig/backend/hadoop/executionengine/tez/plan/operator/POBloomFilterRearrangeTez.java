@@ -18,6 +18,7 @@
 package org.apache.pig.backend.hadoop.executionengine.tez.plan.operator;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -25,10 +26,17 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.util.bloom.Key;
+import org.apache.pig.LoadRuntimeFilterPushdown.RuntimeFilter;
+import org.apache.pig.PigConfiguration;
 import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.backend.hadoop.HDataType;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POProject;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFilter;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POForEach;
 import org.apache.pig.backend.hadoop.executionengine.tez.runtime.ObjectCache;
 import org.apache.pig.backend.hadoop.executionengine.tez.runtime.TezInput;
 import org.apache.pig.classification.InterfaceAudience;
@@ -53,6 +61,8 @@ public class POBloomFilterRearrangeTez extends POLocalRearrangeTez implements Te
     private transient String cacheKey;
     private int numBloomFilters;
     private transient BloomFilter[] bloomFilters;
+    private transient boolean loadPushdownEnabled;
+    private transient boolean filteredByLoad;
 
     public POBloomFilterRearrangeTez(POLocalRearrangeTez lr, int numBloomFilters) {
         super(lr);
@@ -87,6 +97,7 @@ public class POBloomFilterRearrangeTez extends POLocalRearrangeTez implements Te
     @Override
     public void attachInputs(Map<String, LogicalInput> inputs,
             Configuration conf) throws ExecException {
+        loadPushdownEnabled = conf.getBoolean(PigConfiguration.PIG_BLOOMJOIN_LOAD_PUSHDOWN, true);
         Object cacheValue = ObjectCache.getInstance().retrieve(cacheKey);
         if (cacheValue != null) {
             bloomFilters = (BloomFilter[]) cacheValue;
@@ -132,7 +143,7 @@ public class POBloomFilterRearrangeTez extends POLocalRearrangeTez implements Te
                         Byte index = (Byte) result.get(0);
 
                         // Skip the record if key is not in the bloom filter
-                        if (!isKeyInBloomFilter(result.get(1))) {
+                        if (!filteredByLoad && !isKeyInBloomFilter(result.get(1))) {
                             continue;
                         }
                         PigNullableWritable key = HDataType.getWritableComparableTypes(result.get(1), keyType);
@@ -159,6 +170,75 @@ public class POBloomFilterRearrangeTez extends POLocalRearrangeTez implements Te
         }
     }
 
+    /**
+     * Filters the records of the load feeding this operator with the bloom
+     * filters, so that records that are not joined are dropped before being
+     * processed by the vertex, or by the loader itself if it implements
+     * {@link org.apache.pig.LoadRuntimeFilterPushdown}. This is only done if
+     * the join key is a field of the loaded records, which is the case when
+     * the operators in between are filters or foreach projecting fields.
+     *
+     * @param plan plan of the vertex
+     */
+    public void pushFilterToLoad(PhysicalPlan plan) throws ExecException {
+        if (!loadPushdownEnabled || bloomFilters == null || illustrator != null || plans.size() != 1) {
+            return;
+        }
+        int field = getProjectedField(plans.get(0));
+        PhysicalOperator op = this;
+        while (field != -1) {
+            List<PhysicalOperator> preds = plan.getPredecessors(op);
+            if (preds == null || preds.size() != 1) {
+                return;
+            }
+            op = preds.get(0);
+            List<PhysicalOperator> succs = plan.getSuccessors(op);
+            if (succs == null || succs.size() != 1) {
+                // Other operators also need the records that are dropped
+                return;
+            }
+            if (op instanceof POSimpleTezLoad) {
+                LOG.info("Filtering field " + field + " of load " + op.getOperatorKey()
+                        + " with the bloom filter of " + inputKey);
+                ((POSimpleTezLoad) op).setRuntimeFilter(field, new RuntimeFilter() {
+                    @Override
+                    public boolean mightContain(Object value) throws IOException {
+                        return isKeyInBloomFilter(value);
+                    }
+                });
+                filteredByLoad = true;
+                return;
+            } else if (op instanceof POForEach) {
+                POForEach foreach = (POForEach) op;
+                if (foreach.getToBeFlattened().contains(true) || field >= foreach.getInputPlans().size()) {
+                    return;
+                }
+                field = getProjectedField(foreach.getInputPlans().get(field));
+            } else if (!(op instanceof POFilter)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the field projected by the plan or -1 if the plan is not a
+     * simple projection of a field
+     */
+    private static int getProjectedField(PhysicalPlan plan) throws ExecException {
+        if (plan.size() != 1) {
+            return -1;
+        }
+        PhysicalOperator op = plan.getRoots().get(0);
+        if (op.getClass() != POProject.class) {
+            return -1;
+        }
+        POProject project = (POProject) op;
+        if (project.isStar() || project.isProjectToEnd() || project.getColumns().size() != 1) {
+            return -1;
+        }
+        return project.getColumn();
+    }
+
     private boolean isKeyInBloomFilter(Object key) throws ExecException {
         if (key == null) {
             // Null values are dropped in a inner join and in the case of outer join,
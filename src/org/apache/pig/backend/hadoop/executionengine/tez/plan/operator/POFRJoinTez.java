@@ -18,6 +18,7 @@
 
 package org.apache.pig.backend.hadoop.executionengine.tez.plan.operator;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -32,6 +33,8 @@ import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFRJoin;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLocalRearrange;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POMergeJoin.TuplesToSchemaTupleList;
+import org.apache.pig.backend.hadoop.executionengine.tez.runtime.MappedReplicateMap;
+import org.apache.pig.backend.hadoop.executionengine.tez.runtime.NodeLocalCache;
 import org.apache.pig.backend.hadoop.executionengine.tez.runtime.ObjectCache;
 import org.apache.pig.backend.hadoop.executionengine.tez.runtime.TezInput;
 import org.apache.pig.data.SchemaTupleBackend;
@@ -84,12 +87,86 @@ public class POFRJoinTez extends POFRJoin implements TezInput {
     public void addInputsToSkip(Set<String> inputsToSkip) {
         cacheKey = "replicatemap-" + inputKeys.toString();
         Object cacheValue = ObjectCache.getInstance().retrieve(cacheKey);
+        if (cacheValue == null) {
+            cacheValue = retrieveFromNodeCache();
+        }
         if (cacheValue != null) {
             isInputCached = true;
             inputsToSkip.addAll(inputKeys);
         }
     }
 
+    private String getNodeCacheKey(int schemaIdx) {
+        return cacheKey + "-" + schemaIdx;
+    }
+
+    /**
+     * Attaches to the replication hash tables written by another container
+     * of the node, and caches them in the ObjectRegistry for the next tasks
+     * of this container.
+     */
+    private Object retrieveFromNodeCache() {
+        NodeLocalCache nodeCache = NodeLocalCache.getInstance();
+        if (!nodeCache.isEnabled()) {
+            return null;
+        }
+        List<Map<? extends Object, ? extends List<Tuple>>> mapped =
+                new ArrayList<Map<? extends Object, ? extends List<Tuple>>>();
+        try {
+            for (int schemaIdx = 0; schemaIdx < inputSchemas.length; schemaIdx++) {
+                if (schemaIdx == fragment) {
+                    mapped.add(null);
+                } else if (nodeCache.contains(getNodeCacheKey(schemaIdx))) {
+                    mapped.add(new MappedReplicateMap(nodeCache.map(getNodeCacheKey(schemaIdx))));
+                } else {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read replication hash tables from node cache", e);
+            return null;
+        }
+        ObjectCache.getInstance().cache(cacheKey, mapped);
+        log.info("Attached to " + (mapped.size() - 1) + " replication hash tables in node cache. cachekey=" + cacheKey);
+        return mapped;
+    }
+
+    /**
+     * Writes the replication hash tables built by this container to the node
+     * cache so that the other containers of the node do not have to
+     */
+    private void cacheInNodeCache() {
+        NodeLocalCache nodeCache = NodeLocalCache.getInstance();
+        if (!nodeCache.isEnabled()) {
+            return;
+        }
+        long time1 = System.currentTimeMillis();
+        for (int schemaIdx = 0; schemaIdx < replicates.size(); schemaIdx++) {
+            if (schemaIdx == fragment || replicates.get(schemaIdx) == null
+                    || nodeCache.contains(getNodeCacheKey(schemaIdx))) {
+                continue;
+            }
+            File tmpFile = null;
+            try {
+                tmpFile = nodeCache.createTempFile(getNodeCacheKey(schemaIdx));
+                if (!MappedReplicateMap.write(replicates.get(schemaIdx), tmpFile)) {
+                    log.info("Replication hash table " + schemaIdx + " is not supported by node cache");
+                    tmpFile.delete();
+                    return;
+                }
+                nodeCache.commit(tmpFile, getNodeCacheKey(schemaIdx));
+            } catch (IOException e) {
+                log.warn("Unable to write replication hash table to node cache", e);
+                if (tmpFile != null) {
+                    tmpFile.delete();
+                }
+                return;
+            }
+        }
+        log.info("Wrote replication hash tables to node cache. Time taken: "
+                + (System.currentTimeMillis() - time1));
+    }
+
     @Override
     public void attachInputs(Map<String, LogicalInput> inputs, Configuration conf)
             throws ExecException {
@@ -217,6 +294,7 @@ public class POFRJoinTez extends POFRJoin implements TezInput {
 
         ObjectCache.getInstance().cache(cacheKey, replicates);
         log.info("Cached replicate hash tables in Tez ObjectRegistry with vertex scope. cachekey=" + cacheKey);
+        cacheInNodeCache();
     }
 
     @Override
@@ -22,11 +22,16 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.pig.LoadFunc;
+import org.apache.pig.LoadRuntimeFilterPushdown;
+import org.apache.pig.LoadRuntimeFilterPushdown.RuntimeFilter;
 import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.JobControlCompiler;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigMapReduce;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigRecordReader;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigSplit;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.POStatus;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
@@ -51,6 +56,7 @@ import org.apache.tez.runtime.library.api.KeyValueReader;
 public class POSimpleTezLoad extends POLoad implements TezInput, TezTaskConfigurable {
 
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = LogFactory.getLog(POSimpleTezLoad.class);
 
     private String inputKey;
 
@@ -62,6 +68,8 @@ public class POSimpleTezLoad extends POLoad implements TezInput, TezTaskConfigur
     private transient TezCounter inputRecordCounter;
     private transient boolean initialized;
     private transient boolean noTupleCopy;
+    private transient int runtimeFilterField = -1;
+    private transient RuntimeFilter runtimeFilter;
 
     public POSimpleTezLoad(OperatorKey k, LoadFunc loader) {
         super(k, loader);
@@ -107,6 +115,7 @@ public class POSimpleTezLoad extends POLoad implements TezInput, TezTaskConfigur
                 int splitIndex = ((PigSplit)((MRReader)reader).getSplit()).getSplitIndex();
                 PigMapReduce.sJobContext.getConfiguration().setInt(PigImplConstants.PIG_SPLIT_INDEX, splitIndex);
             }
+            pushRuntimeFilterToLoader();
         } catch (IOException e) {
             throw new ExecException(e);
         }
@@ -139,7 +148,12 @@ public class POSimpleTezLoad extends POLoad implements TezInput, TezTaskConfigur
             if (finished) {
                 return RESULT_EOP;
             }
-            if (!reader.next()) {
+            boolean hasNext;
+            while ((hasNext = reader.next()) && runtimeFilter != null
+                    && !passesRuntimeFilter((Tuple) reader.getCurrentValue())) {
+                // Skip the records dropped by the runtime filter
+            }
+            if (!hasNext) {
                 // For certain operators (such as STREAM), we could still have some work
                 // to do even after seeing the last input. These operators set a flag that
                 // says all input has been sent and to run the pipeline one more time.
@@ -172,4 +186,53 @@ public class POSimpleTezLoad extends POLoad implements TezInput, TezTaskConfigur
     public void setInputKey(String inputKey) {
         this.inputKey = inputKey;
     }
+
+    /**
+     * Drops the records whose field does not pass the filter. The filter is
+     * also pushed to the loader if it implements
+     * {@link LoadRuntimeFilterPushdown}. Must be called before the first
+     * record is read.
+     *
+     * @param fieldIndex position of the field in the loaded tuples
+     * @param filter filter of the field
+     */
+    public void setRuntimeFilter(int fieldIndex, RuntimeFilter filter) throws ExecException {
+        this.runtimeFilterField = fieldIndex;
+        this.runtimeFilter = filter;
+        if (reader != null) {
+            pushRuntimeFilterToLoader();
+        }
+    }
+
+    public int getRuntimeFilterField() {
+        return runtimeFilterField;
+    }
+
+    public RuntimeFilter getRuntimeFilter() {
+        return runtimeFilter;
+    }
+
+    private void pushRuntimeFilterToLoader() throws ExecException {
+        if (runtimeFilter == null || !(reader instanceof MRReader)) {
+            return;
+        }
+        Object recordReader = ((MRReader) reader).getRecordReader();
+        if (recordReader instanceof PigRecordReader) {
+            LoadFunc loadFunc = ((PigRecordReader) recordReader).getLoadFunc();
+            if (loadFunc instanceof LoadRuntimeFilterPushdown) {
+                try {
+                    ((LoadRuntimeFilterPushdown) loadFunc).setRuntimeFilter(runtimeFilterField, runtimeFilter);
+                    LOG.info("Pushed runtime filter on field " + runtimeFilterField + " to " + loadFunc);
+                } catch (IOException e) {
+                    throw new ExecException(e);
+                }
+            }
+        }
+    }
+
+    private boolean passesRuntimeFilter(Tuple t) throws IOException {
+        // The loader may have already dropped the records or only some of them
+        Object value = runtimeFilterField < t.size() ? t.get(runtimeFilterField) : null;
+        return runtimeFilter.mightContain(value);
+    }
 }
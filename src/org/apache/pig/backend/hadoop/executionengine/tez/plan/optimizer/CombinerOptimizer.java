@@ -37,11 +37,17 @@ import org.apache.pig.impl.plan.VisitorException;
 public class CombinerOptimizer extends TezOpPlanVisitor {
     private CompilationMessageCollector messageCollector = null;
     private boolean doMapAgg;
+    private boolean doCubeAgg;
 
     public CombinerOptimizer(TezOperPlan plan, boolean doMapAgg) {
         this(plan, doMapAgg, new CompilationMessageCollector());
     }
 
+    public CombinerOptimizer(TezOperPlan plan, boolean doMapAgg, boolean doCubeAgg) {
+        this(plan, doMapAgg, new CompilationMessageCollector());
+        this.doCubeAgg = doCubeAgg;
+    }
+
     public CombinerOptimizer(TezOperPlan plan, boolean doMapAgg,
             CompilationMessageCollector messageCollector) {
         super(plan, new DepthFirstWalker<TezOperator, TezOperPlan>(plan));
@@ -95,7 +101,7 @@ public class CombinerOptimizer extends TezOpPlanVisitor {
 
             // Detected the POLocalRearrange -> POPackage pattern. Let's add
             // combiner if possible.
-            CombinerOptimizerUtil.addCombiner(rearrangePlan, to.plan, combinePlan, messageCollector, doMapAgg);
+            CombinerOptimizerUtil.addCombiner(rearrangePlan, to.plan, combinePlan, messageCollector, doMapAgg, doCubeAgg);
 
             if(!combinePlan.isEmpty()) {
                 // Override the requested parallelism for intermediate reducers
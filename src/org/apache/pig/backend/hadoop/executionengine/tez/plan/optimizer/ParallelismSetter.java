@@ -25,6 +25,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.pig.PigConfiguration;
 import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.backend.hadoop.datastorage.ConfigurationUtil;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigReducerEstimator;
 import org.apache.pig.backend.hadoop.executionengine.tez.plan.TezEdgeDescriptor;
 import org.apache.pig.backend.hadoop.executionengine.tez.plan.TezOpPlanVisitor;
 import org.apache.pig.backend.hadoop.executionengine.tez.plan.TezOperPlan;
@@ -45,6 +46,8 @@ public class ParallelismSetter extends TezOpPlanVisitor {
     private PigContext pc;
     private TezParallelismEstimator estimator;
     private boolean autoParallelismEnabled;
+    private float maxPartitionFactor;
+    private int maxTaskCount;
     private int estimatedTotalParallelism = 0;
 
     public ParallelismSetter(TezOperPlan plan, PigContext pigContext) {
@@ -52,6 +55,9 @@ public class ParallelismSetter extends TezOpPlanVisitor {
         this.pc = pigContext;
         this.conf = ConfigurationUtil.toConfiguration(pc.getProperties());
         this.autoParallelismEnabled = conf.getBoolean(PigConfiguration.PIG_TEZ_AUTO_PARALLELISM, true);
+        this.maxPartitionFactor = conf.getFloat(PigConfiguration.PIG_TEZ_AUTO_PARALLELISM_MAX_PARTITION_FACTOR, 1.0f);
+        this.maxTaskCount = conf.getInt(PigReducerEstimator.MAX_REDUCER_COUNT_PARAM,
+                PigReducerEstimator.DEFAULT_MAX_REDUCER_COUNT_PARAM);
         try {
             this.estimator = conf.get(PigConfiguration.PIG_EXEC_REDUCER_ESTIMATOR) == null ? new TezOperDependencyParallelismEstimator()
             : PigContext.instantiateObjectFromParams(conf,
@@ -144,6 +150,9 @@ public class ParallelismSetter extends TezOpPlanVisitor {
                         } else {
                             parallelism = tezOp.getEstimatedParallelism();
                         }
+                        if (!overrideRequestedParallelism) {
+                            parallelism = overPartition(tezOp, parallelism);
+                        }
                         if (tezOp.isGlobalSort() || tezOp.isSkewedJoin()) {
                             boolean additionalEdge = false;
                             if (tezOp.isGlobalSort() && getPlan().getPredecessors(tezOp).size() != 1 ||
@@ -199,6 +208,33 @@ public class ParallelismSetter extends TezOpPlanVisitor {
         }
     }
 
+    /**
+     * Partition the input of a vertex whose parallelism is decided by the
+     * auto parallelism of ShuffleVertexManager into more partitions than
+     * estimated. The estimate is made before any data is seen and can be far
+     * too low, for eg. when the output of a selective filter is much larger
+     * than expected. ShuffleVertexManager can only merge partitions once the
+     * actual output size of the source tasks is known, so this leaves it room
+     * to also go above the estimate. The estimated parallelism itself is left
+     * untouched so that successors are not inflated too. Nothing merges the
+     * partitions back when auto parallelism is disabled, so it is skipped then.
+     */
+    private int overPartition(TezOperator tezOp, int parallelism) {
+        if (!autoParallelismEnabled || maxPartitionFactor <= 1.0f || parallelism <= 0
+                || tezOp.isLimit() || tezOp.getCrossKeys() != null
+                || !tezOp.isShuffleAutoParallelismAllowed()) {
+            return parallelism;
+        }
+        int overPartitioned = (int) Math.min(Math.ceil(parallelism * maxPartitionFactor),
+                Math.max(parallelism, maxTaskCount));
+        if (overPartitioned > parallelism) {
+            LOG.info("Partitioning input of " + tezOp.getOperatorKey() + " into " + overPartitioned
+                    + " partitions instead of estimated " + parallelism
+                    + ", auto parallelism will merge them according to the actual data size");
+        }
+        return overPartitioned;
+    }
+
     private void incrementTotalParallelism(TezOperator tezOp, int tezOpParallelism) {
         if (tezOp.isVertexGroup()) {
             return;
@@ -26,6 +26,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.pig.EvalFunc;
 import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.backend.hadoop.executionengine.tez.runtime.NodeLocalCache;
 import org.apache.pig.backend.hadoop.executionengine.tez.runtime.ObjectCache;
 import org.apache.pig.backend.hadoop.executionengine.tez.runtime.TezInput;
 import org.apache.pig.data.Tuple;
@@ -58,7 +59,7 @@ public class ReadScalarsTez extends EvalFunc<Object> implements TezInput {
     public void addInputsToSkip(Set<String> inputsToSkip) {
         String cacheKey = "scalar-" + inputKey;
         Object cacheValue = ObjectCache.getInstance().retrieve(cacheKey);
-        if (cacheValue != null) {
+        if (cacheValue != null || NodeLocalCache.getInstance().contains(cacheKey)) {
             inputsToSkip.add(inputKey);
         }
     }
@@ -73,6 +74,17 @@ public class ReadScalarsTez extends EvalFunc<Object> implements TezInput {
             t = (Tuple)ObjectCache.getInstance().retrieve(cacheKey);
             return;
         }
+        NodeLocalCache nodeCache = NodeLocalCache.getInstance();
+        if (nodeCache.contains(cacheKey)) {
+            try {
+                t = (Tuple) nodeCache.retrieveDatum(cacheKey);
+            } catch (IOException e) {
+                throw new ExecException(e);
+            }
+            ObjectCache.getInstance().cache(cacheKeyPresent, Boolean.TRUE);
+            ObjectCache.getInstance().cache(cacheKey, t);
+            return;
+        }
         input = inputs.get(inputKey);
         if (input == null) {
             throw new ExecException("Input from vertex " + inputKey + " is missing");
@@ -99,6 +111,23 @@ public class ReadScalarsTez extends EvalFunc<Object> implements TezInput {
         ObjectCache.getInstance().cache(cacheKeyPresent, Boolean.TRUE);
         ObjectCache.getInstance().cache(cacheKey, t);
         log.info("Cached scalar in Tez ObjectRegistry with vertex scope. cachekey=" + cacheKey);
+        if (nodeCache.isEnabled()) {
+            try {
+                nodeCache.cacheDatum(cacheKey, t);
+            } catch (IOException e) {
+                LOG.warn("Unable to write scalar to node cache", e);
+            }
+        }
+    }
+
+    /**
+     * The scalar is attached to the instance in the task plan only. Copies of
+     * the plan made for morsel threads after the inputs are attached would
+     * silently return null.
+     */
+    @Override
+    public boolean allowParallelExecution() {
+        return false;
     }
 
     @Override
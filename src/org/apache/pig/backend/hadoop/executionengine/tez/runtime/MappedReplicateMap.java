@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.tez.runtime;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.InterSedes;
+import org.apache.pig.data.InterSedesFactory;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.utils.SedesHelper;
+
+/**
+ * Read only replicated table of a fragment replicate join, backed by a
+ * buffer, typically a file of the {@link NodeLocalCache} mapped by all the
+ * containers of the node. Only the pages that are looked up are loaded, and
+ * they are shared by the containers through the page cache.
+ * <p/>
+ * Keys are compared in their serialized form. The file starts with the
+ * number of entries and a table with the offset of each hash bucket, followed
+ * by the entries of each bucket: hash, key length, values length, number of
+ * values, key and values. Tuples are written field by field so that they can
+ * be read without the SchemaTuple classes of the writer.
+ */
+@InterfaceAudience.Private
+public class MappedReplicateMap extends AbstractMap<Object, List<Tuple>> {
+
+    private static final InterSedes SEDES = InterSedesFactory.getInterSedesInstance();
+    private static final int MAGIC = 0x50524d31;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_HEADER_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int numBuckets;
+    private final ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+    private final DataOutputStream keyOut = new DataOutputStream(keyBytes);
+
+    public MappedReplicateMap(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Invalid replicated table");
+        }
+        this.size = buffer.getInt(4);
+        this.numBuckets = buffer.getInt(8);
+    }
+
+    /**
+     * Writes a replicated table to a file that can be read back with
+     * MappedReplicateMap.
+     *
+     * @return false if the table cannot be written as it has complex keys
+     * or is larger than 2GB
+     */
+    public static boolean write(Map<? extends Object, ? extends List<Tuple>> replicate, File file)
+            throws IOException {
+        int numBuckets = Integer.highestOneBit(Math.max(replicate.size(), 1) * 2 - 1);
+        List<List<byte[]>> buckets = new ArrayList<List<byte[]>>(numBuckets);
+        for (int i = 0; i < numBuckets; i++) {
+            buckets.add(new ArrayList<byte[]>(1));
+        }
+        ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+        DataOutputStream keyOut = new DataOutputStream(keyBytes);
+        ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        DataOutputStream entryOut = new DataOutputStream(entryBytes);
+        ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+        DataOutputStream valueOut = new DataOutputStream(valueBytes);
+        long totalSize = HEADER_SIZE + 4L * (numBuckets + 1);
+        for (Map.Entry<? extends Object, ? extends List<Tuple>> entry : replicate.entrySet()) {
+            if (!serializeKey(entry.getKey(), keyBytes, keyOut)) {
+                return false;
+            }
+            valueBytes.reset();
+            for (Tuple t : entry.getValue()) {
+                SedesHelper.writeGenericTuple(valueOut, t);
+            }
+            valueOut.flush();
+            int hash = hash(keyBytes.toByteArray(), keyBytes.size());
+            entryBytes.reset();
+            entryOut.writeInt(hash);
+            entryOut.writeInt(keyBytes.size());
+            entryOut.writeInt(valueBytes.size());
+            entryOut.writeInt(entry.getValue().size());
+            keyBytes.writeTo(entryOut);
+            valueBytes.writeTo(entryOut);
+            entryOut.flush();
+            buckets.get(hash & (numBuckets - 1)).add(entryBytes.toByteArray());
+            totalSize += entryBytes.size();
+            if (totalSize > Integer.MAX_VALUE) {
+                return false;
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(replicate.size());
+            out.writeInt(numBuckets);
+            int offset = HEADER_SIZE + 4 * (numBuckets + 1);
+            for (List<byte[]> bucket : buckets) {
+                out.writeInt(offset);
+                for (byte[] entry : bucket) {
+                    offset += entry.length;
+                }
+            }
+            out.writeInt(offset);
+            for (List<byte[]> bucket : buckets) {
+                for (byte[] entry : bucket) {
+                    out.write(entry);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        return true;
+    }
+
+    /**
+     * Keys are written like Pig writes them in BinInterSedes, except tuples
+     * which are always written field by field so that a SchemaTuple key and a
+     * generic tuple key with the same fields have the same bytes.
+     */
+    private static boolean serializeKey(Object key, ByteArrayOutputStream bytes, DataOutputStream out)
+            throws IOException {
+        bytes.reset();
+        if (key instanceof Tuple) {
+            Tuple t = (Tuple) key;
+            for (int i = 0; i < t.size(); i++) {
+                if (isComplex(t.get(i))) {
+                    return false;
+                }
+            }
+            SedesHelper.writeGenericTuple(out, t);
+        } else if (isComplex(key)) {
+            return false;
+        } else {
+            SEDES.writeDatum(out, key);
+        }
+        out.flush();
+        return true;
+    }
+
+    private static boolean isComplex(Object o) {
+        return o instanceof Tuple || o instanceof DataBag || o instanceof Map;
+    }
+
+    private static int hash(byte[] bytes, int length) {
+        int h = 1;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        // spread the low bits used for the bucket
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public synchronized List<Tuple> get(Object key) {
+        try {
+            if (!serializeKey(key, keyBytes, keyOut)) {
+                return null;
+            }
+            byte[] probe = keyBytes.toByteArray();
+            int hash = hash(probe, probe.length);
+            int bucket = hash & (numBuckets - 1);
+            int pos = buffer.getInt(HEADER_SIZE + 4 * bucket);
+            int end = buffer.getInt(HEADER_SIZE + 4 * (bucket + 1));
+            while (pos < end) {
+                int keyLength = buffer.getInt(pos + 4);
+                int valuesLength = buffer.getInt(pos + 8);
+                int keyPos = pos + ENTRY_HEADER_SIZE;
+                if (buffer.getInt(pos) == hash && keyLength == probe.length
+                        && equalBytes(keyPos, probe)) {
+                    return readValues(keyPos + keyLength, buffer.getInt(pos + 12));
+                }
+                pos = keyPos + keyLength + valuesLength;
+            }
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException(new ExecException("Error reading replicated table", e));
+        }
+    }
+
+    private boolean equalBytes(int pos, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(pos + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Tuple> readValues(int pos, int count) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer, pos));
+        List<Tuple> values = new ArrayList<Tuple>(count);
+        for (int i = 0; i < count; i++) {
+            values.add((Tuple) SEDES.readDatum(in));
+        }
+        return values;
+    }
+
+    @Override
+    public Set<Map.Entry<Object, List<Tuple>>> entrySet() {
+        return new AbstractSet<Map.Entry<Object, List<Tuple>>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<Object, List<Tuple>>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<Object, List<Tuple>>> {
+        private int pos = buffer.getInt(HEADER_SIZE);
+        private final int end = buffer.getInt(HEADER_SIZE + 4 * numBuckets);
+
+        @Override
+        public boolean hasNext() {
+            return pos < end;
+        }
+
+        @Override
+        public Map.Entry<Object, List<Tuple>> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                int keyLength = buffer.getInt(pos + 4);
+                int valuesLength = buffer.getInt(pos + 8);
+                int keyPos = pos + ENTRY_HEADER_SIZE;
+                Object key = SEDES.readDatum(new DataInputStream(new ByteBufferInputStream(buffer, keyPos)));
+                List<Tuple> values = readValues(keyPos + keyLength, buffer.getInt(pos + 12));
+                pos = keyPos + keyLength + valuesLength;
+                return new SimpleImmutableEntry<Object, List<Tuple>>(key, values);
+            } catch (IOException e) {
+                throw new RuntimeException(new ExecException("Error reading replicated table", e));
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Reads a shared buffer from a position without changing its state
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private int pos;
+
+        ByteBufferInputStream(ByteBuffer buffer, int pos) {
+            this.buffer = buffer;
+            this.pos = pos;
+        }
+
+        @Override
+        public int read() {
+            if (pos >= buffer.limit()) {
+                return -1;
+            }
+            return buffer.get(pos++) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int n = Math.min(len, buffer.limit() - pos);
+            if (n <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < n; i++) {
+                b[off + i] = buffer.get(pos++);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.tez.runtime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.data.InterSedes;
+import org.apache.pig.data.InterSedesFactory;
+
+/**
+ * Cache shared by the containers running on the same node. Objects are
+ * written once to a file in a local directory per DAG, under a name derived
+ * from the vertex and the key, and the other containers on the node map the
+ * file instead of fetching and rebuilding the object. This is used for the
+ * replicated tables of POFRJoinTez and the scalars of ReadScalarsTez, which
+ * are the same for all the tasks of a vertex. Unlike {@link ObjectCache} it
+ * is not limited to container reuse.
+ * <p/>
+ * Files are first written under a temporary name and then renamed, so a
+ * cached file is always complete. By default the cache is in the local
+ * directory of the YARN application, which the NodeManager deletes when the
+ * application finishes. A Tez session runs one DAG at a time, so the files of
+ * the earlier DAGs of the application are deleted when a task of a new DAG
+ * starts on the node. Directories of other applications are deleted once
+ * they are older than a day. Objects are not cached if the cache would grow
+ * above pig.tez.node.cache.max.bytes.
+ */
+@InterfaceAudience.Private
+public class NodeLocalCache {
+
+    private static final Log LOG = LogFactory.getLog(NodeLocalCache.class);
+    private static final NodeLocalCache cache = new NodeLocalCache();
+    private static final InterSedes SEDES = InterSedesFactory.getInterSedesInstance();
+
+    private static final String FILE_PREFIX = "pig-";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final String DEFAULT_DIR_NAME = "pig-node-cache";
+    private static final long MAX_AGE = 24 * 60 * 60 * 1000L;
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024 * 1024;
+
+    private boolean enabled = false;
+    // Shared by all the applications that use the same cache directory
+    private File baseDir;
+    // Holds the files of the current DAG
+    private File dir;
+    private String vertexName;
+    private long maxBytes;
+
+    private NodeLocalCache() {
+    }
+
+    public static NodeLocalCache getInstance() {
+        return cache;
+    }
+
+    /**
+     * For internal use only. This method to be called only by PigProcessor
+     *
+     * @param conf configuration of the vertex
+     * @param workDirs local directories of the application, the first one
+     *        holds the cache unless pig.tez.node.cache.dir is set
+     * @param applicationId the application the DAG runs in
+     * @param dagIndex index of the DAG within the application
+     * @param vertexName the vertex the cached objects belong to
+     */
+    public void initialize(Configuration conf, String[] workDirs, String applicationId,
+            int dagIndex, String vertexName) {
+        this.enabled = conf.getBoolean(PigConfiguration.PIG_TEZ_NODE_CACHE_ENABLED, false);
+        if (!enabled) {
+            return;
+        }
+        this.vertexName = vertexName;
+        this.maxBytes = conf.getLong(PigConfiguration.PIG_TEZ_NODE_CACHE_MAX_BYTES, DEFAULT_MAX_BYTES);
+        String configuredDir = conf.get(PigConfiguration.PIG_TEZ_NODE_CACHE_DIR);
+        if (configuredDir != null) {
+            baseDir = new File(configuredDir);
+        } else if (workDirs != null && workDirs.length > 0) {
+            // java.io.tmpdir is private to the container in YARN, the
+            // application directory is shared by its containers on the node
+            baseDir = new File(workDirs[0], DEFAULT_DIR_NAME);
+        } else {
+            LOG.warn("No local directory for the node cache, node cache disabled");
+            enabled = false;
+            return;
+        }
+        if (!baseDir.isDirectory()) {
+            // Cached data is only readable by the user running the containers
+            if (!baseDir.mkdirs() && !baseDir.isDirectory()) {
+                LOG.warn("Unable to create node cache directory " + baseDir + ", node cache disabled");
+                enabled = false;
+                return;
+            }
+            baseDir.setReadable(false, false);
+            baseDir.setWritable(false, false);
+            baseDir.setExecutable(false, false);
+            baseDir.setReadable(true, true);
+            baseDir.setWritable(true, true);
+            baseDir.setExecutable(true, true);
+        }
+        String applicationPrefix = FILE_PREFIX + md5Hex(applicationId) + "-";
+        File dagDir = new File(baseDir, applicationPrefix + dagIndex);
+        if (!dagDir.equals(dir)) {
+            deleteFinishedDags(applicationPrefix, dagDir);
+        }
+        dir = dagDir;
+        if (!dir.mkdir() && !dir.isDirectory()) {
+            LOG.warn("Unable to create node cache directory " + dir + ", node cache disabled");
+            enabled = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns true if an object has been cached for the key on this node
+     */
+    public boolean contains(String key) {
+        return enabled && getFile(key).isFile();
+    }
+
+    /**
+     * Returns a new temporary file, to be written with the object for the key
+     * and then passed to {@link #commit(File, String)}
+     */
+    public File createTempFile(String key) throws IOException {
+        return File.createTempFile(getFile(key).getName(), TMP_SUFFIX, dir);
+    }
+
+    /**
+     * Makes the written temporary file visible to the other containers. If
+     * another container already cached the key, the temporary file is
+     * deleted.
+     */
+    public void commit(File tmpFile, String key) throws IOException {
+        File file = getFile(key);
+        long totalBytes = getTotalBytes();
+        if (totalBytes > maxBytes) {
+            LOG.info("Not caching " + key + " as the node cache already holds " + totalBytes
+                    + " bytes, above the limit of " + maxBytes);
+            tmpFile.delete();
+            return;
+        }
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            tmpFile.delete();
+        } catch (AtomicMoveNotSupportedException e) {
+            if (!tmpFile.renameTo(file)) {
+                tmpFile.delete();
+            }
+        }
+        LOG.info("Cached " + key + " in node cache file " + file);
+    }
+
+    /**
+     * Maps the file cached for the key read only
+     */
+    public MappedByteBuffer map(String key) throws IOException {
+        File file = getFile(key);
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            LOG.info("Found " + key + " in node cache file " + file);
+            return buffer;
+        } finally {
+            // The mapping stays valid after the file is closed
+            raf.close();
+        }
+    }
+
+    /**
+     * Convenience method to cache a single datum, which can be null
+     */
+    public void cacheDatum(String key, Object datum) throws IOException {
+        File tmpFile = createTempFile(key);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            SEDES.writeDatum(out, datum);
+        } finally {
+            out.close();
+        }
+        commit(tmpFile, key);
+    }
+
+    /**
+     * Convenience method to retrieve a datum cached with
+     * {@link #cacheDatum(String, Object)}. Check with {@link #contains(String)}
+     * before as the datum can be null.
+     */
+    public Object retrieveDatum(String key) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(getFile(key))));
+        try {
+            Object datum = SEDES.readDatum(in);
+            LOG.info("Found " + key + " in node cache");
+            return datum;
+        } finally {
+            in.close();
+        }
+    }
+
+    File getFile(String key) {
+        return new File(dir, FILE_PREFIX + md5Hex(vertexName + "/" + key));
+    }
+
+    /**
+     * Returns the size of the files of all the DAGs in the cache directory,
+     * including the temporary file about to be committed
+     */
+    private long getTotalBytes() {
+        long total = 0;
+        File[] dagDirs = baseDir.listFiles();
+        if (dagDirs == null) {
+            return 0;
+        }
+        for (File dagDir : dagDirs) {
+            File[] files = dagDir.getName().startsWith(FILE_PREFIX) ? dagDir.listFiles() : null;
+            if (files != null) {
+                for (File file : files) {
+                    total += file.length();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Deletes the directories of the earlier DAGs of the application, which
+     * have completed as a session runs one DAG at a time, and the
+     * directories of other applications that are older than a day.
+     */
+    private void deleteFinishedDags(String applicationPrefix, File dagDir) {
+        File[] dagDirs = baseDir.listFiles();
+        if (dagDirs == null) {
+            return;
+        }
+        long minTime = System.currentTimeMillis() - MAX_AGE;
+        for (File oldDir : dagDirs) {
+            String name = oldDir.getName();
+            if (!name.startsWith(FILE_PREFIX) || oldDir.equals(dagDir)) {
+                continue;
+            }
+            if (name.startsWith(applicationPrefix) || oldDir.lastModified() < minTime) {
+                // Containers that mapped the files can still read them
+                if (FileUtil.fullyDelete(oldDir)) {
+                    LOG.info("Deleted node cache directory " + oldDir);
+                }
+            }
+        }
+    }
+
+    private static String md5Hex(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(s.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                sb.append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
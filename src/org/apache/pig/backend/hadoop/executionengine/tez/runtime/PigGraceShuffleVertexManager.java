@@ -158,7 +158,10 @@ public class PigGraceShuffleVertexManager extends ShuffleVertexManager {
             try {
                 ParallelismSetter parallelismSetter = new ParallelismSetter(tezPlan, pc);
                 parallelismSetter.visit();
-                thisParallelism = op.getEstimatedParallelism();
+                // Vertex parallelism includes the over partitioning that
+                // lets auto parallelism go above the estimate
+                thisParallelism = op.getVertexParallelism() != -1
+                        ? op.getVertexParallelism() : op.getEstimatedParallelism();
             } catch (IOException e) {
                 throw new TezUncheckedException(e);
             }
@@ -53,8 +53,12 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOpera
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.Result;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POUserFunc;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.MorselExecutor;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.OperatorProfile;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
 import org.apache.pig.backend.hadoop.executionengine.shims.HadoopShims;
+import org.apache.pig.backend.hadoop.executionengine.tez.plan.operator.POBloomFilterRearrangeTez;
+import org.apache.pig.backend.hadoop.executionengine.tez.plan.operator.POSimpleTezLoad;
 import org.apache.pig.backend.hadoop.executionengine.tez.plan.udf.ReadScalarsTez;
 import org.apache.pig.data.SchemaTupleBackend;
 import org.apache.pig.data.Tuple;
@@ -109,6 +113,12 @@ public class PigProcessor extends AbstractLogicalIOProcessor {
 
     private PhysicalOperator leaf;
 
+    // Runs the stateless head of the plan on several threads
+    private MorselExecutor morselExecutor;
+
+    // The load that feeds morselExecutor
+    private PhysicalOperator morselSource;
+
     private Configuration conf;
     private PigHadoopLogger pigHadoopLogger;
     private Object progressHelper;
@@ -179,6 +189,9 @@ public class PigProcessor extends AbstractLogicalIOProcessor {
         String execPlanString = conf.get(PLAN);
         execPlan = (PhysicalPlan) ObjectSerializer.deserialize(execPlanString);
         SchemaTupleBackend.initialize(conf);
+        NodeLocalCache.getInstance().initialize(conf, getContext().getWorkDirs(),
+                getContext().getApplicationId().toString(), getContext().getDagIdentifier(),
+                getContext().getTaskVertexName());
         PigMapReduce.sJobContext = HadoopShims.createJobContext(conf, new org.apache.hadoop.mapreduce.JobID());
 
         // Set the job conf as a thread-local member of PigMapReduce
@@ -227,6 +240,8 @@ public class PigProcessor extends AbstractLogicalIOProcessor {
         execPlan = null;
         fileOutputs = null;
         leaf = null;
+        morselExecutor = null;
+        morselSource = null;
         conf = null;
         sampleMap = null;
         sampleVertex = null;
@@ -263,6 +278,9 @@ public class PigProcessor extends AbstractLogicalIOProcessor {
             // ignore
         }
 
+        // Counters are reported by the thread running the pipeline
+        PigStatusReporter.getInstance().startBuffering(conf);
+
         try {
             initializeInputs(inputs);
 
@@ -275,11 +293,18 @@ public class PigProcessor extends AbstractLogicalIOProcessor {
                 leaves = execPlan.getLeaves();
                 // TODO: Pull from all leaves when there are multiple leaves/outputs
                 leaf = leaves.get(0);
+                morselExecutor = createMorselExecutor();
+                // The head operators moved to the morsel threads are not profiled
+                OperatorProfile.enable(conf, execPlan);
             }
 
             LOG.info("Aliases being processed per job phase (AliasName[line,offset]): " + conf.get("pig.alias.location"));
 
-            runPipeline(leaf);
+            if (morselExecutor != null) {
+                runMorselPipeline();
+            } else {
+                runPipeline(leaf);
+            }
 
             if (Boolean.valueOf(conf.get(JobControlCompiler.END_OF_INP_IN_MAP, "false"))
                     && !execPlan.endOfAllInput) {
@@ -305,6 +330,9 @@ public class PigProcessor extends AbstractLogicalIOProcessor {
                 throw new VisitorException(msg, errCode, PigException.BUG, e);
             }
 
+            OperatorProfile.report(execPlan);
+            PigStatusReporter.getInstance().stopBuffering();
+
             if (!fileOutputs.isEmpty()) {
                 while (!getContext().canCommit() && !isAborted) {
                     Thread.sleep(100);
@@ -392,6 +420,13 @@ public class PigProcessor extends AbstractLogicalIOProcessor {
             tezInput.attachInputs(inputs, conf);
         }
 
+        // Bloom filters are only available once attached
+        for (TezInput tezInput : tezInputs){
+            if (tezInput instanceof POBloomFilterRearrangeTez) {
+                ((POBloomFilterRearrangeTez) tezInput).pushFilterToLoad(execPlan);
+            }
+        }
+
         for (ReadScalarsTez scalarInput: scalarInputs) {
             scalarInput.attachInputs(inputs, conf);
         }
@@ -415,9 +450,69 @@ public class PigProcessor extends AbstractLogicalIOProcessor {
         }
     }
 
+    /**
+     * Split off the stateless head of a plan that reads a single input, so
+     * that it can run on several threads.
+     */
+    private MorselExecutor createMorselExecutor() throws IOException {
+        List<PhysicalOperator> roots = execPlan.getRoots();
+        if (roots.size() != 1 || !(roots.get(0) instanceof POSimpleTezLoad)) {
+            return null;
+        }
+        PhysicalOperator load = roots.get(0);
+        List<PhysicalOperator> succs = execPlan.getSuccessors(load);
+        if (succs == null || succs.size() != 1) {
+            return null;
+        }
+        MorselExecutor executor = MorselExecutor.create(execPlan, succs.get(0), conf);
+        if (executor != null) {
+            // The load is read directly, so take it out of the plan rather
+            // than leave it behind as a disconnected leaf
+            morselSource = load;
+            execPlan.remove(morselSource);
+        }
+        return executor;
+    }
+
+    private void runMorselPipeline() throws IOException, InterruptedException {
+        MorselExecutor.ResultHandler handler = new MorselExecutor.ResultHandler() {
+            @Override
+            public void handle(Tuple t) throws IOException, InterruptedException {
+                morselExecutor.getTailRoot().attachInput(t);
+                runPipeline(leaf);
+            }
+        };
+        boolean succeeded = false;
+        try {
+            while (true) {
+                Result res = OperatorProfile.getNextTuple(morselSource);
+                if (res.returnStatus == POStatus.STATUS_OK) {
+                    morselExecutor.add((Tuple) res.result, handler);
+                } else if (res.returnStatus == POStatus.STATUS_EOP) {
+                    break;
+                } else if (res.returnStatus == POStatus.STATUS_ERR) {
+                    String errMsg = "Received Error while processing the map plan";
+                    if (res.result != null) {
+                        errMsg += ": " + res.result;
+                    }
+                    int errCode = 2273;
+                    throw new ExecException(errMsg, errCode, PigException.BUG);
+                }
+            }
+            morselExecutor.flush(handler);
+            succeeded = true;
+        } finally {
+            if (succeeded) {
+                morselExecutor.close();
+            } else {
+                morselExecutor.abort();
+            }
+        }
+    }
+
     protected void runPipeline(PhysicalOperator leaf) throws IOException, InterruptedException {
         while(true){
-            Result res = leaf.getNextTuple();
+            Result res = OperatorProfile.getNextTuple(leaf);
             if(res.returnStatus==POStatus.STATUS_OK){
                 continue;
             }
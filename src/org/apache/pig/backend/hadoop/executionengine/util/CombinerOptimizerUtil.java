@@ -20,6 +20,7 @@ package org.apache.pig.backend.hadoop.executionengine.util;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,8 +44,12 @@ import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOpe
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POPartialAgg;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POPreCombinerLocalRearrange;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSort;
+import org.apache.pig.builtin.COUNT_STAR;
+import org.apache.pig.builtin.CubeDimensions;
+import org.apache.pig.builtin.RollupDimensions;
 import org.apache.pig.classification.InterfaceAudience;
 import org.apache.pig.data.DataType;
+import org.apache.pig.impl.builtin.GroupingSets;
 import org.apache.pig.impl.plan.CompilationMessageCollector;
 import org.apache.pig.impl.plan.CompilationMessageCollector.MessageType;
 import org.apache.pig.impl.plan.DependencyOrderWalker;
@@ -89,6 +94,19 @@ public class CombinerOptimizerUtil {
     public static void addCombiner(PhysicalPlan mapPlan, PhysicalPlan reducePlan,
             PhysicalPlan combinePlan, CompilationMessageCollector messageCollector,
             boolean doMapAgg) throws VisitorException {
+        addCombiner(mapPlan, reducePlan, combinePlan, messageCollector, doMapAgg, false);
+    }
+
+    /**
+     * Same as {@link #addCombiner(PhysicalPlan, PhysicalPlan, PhysicalPlan, CompilationMessageCollector, boolean)}.
+     * If doCubeAgg is set and the map groups the output of CUBE/ROLLUP, rows
+     * are partially aggregated in the map by all dimensions first and the
+     * other grouping sets are derived from those partial results, instead of
+     * aggregating a copy of every row per grouping set.
+     */
+    public static void addCombiner(PhysicalPlan mapPlan, PhysicalPlan reducePlan,
+            PhysicalPlan combinePlan, CompilationMessageCollector messageCollector,
+            boolean doMapAgg, boolean doCubeAgg) throws VisitorException {
 
         // part one - check if this MR job represents a group-by + foreach. Find
         // the POLocalRearrange in the map. I'll need it later.
@@ -252,9 +270,19 @@ public class CombinerOptimizerUtil {
 
                 POLocalRearrange mlr = getNewRearrange(rearrange);
                 POPartialAgg mapAgg = null;
-                if (doMapAgg) {
+                FuncSpec groupingSets = doCubeAgg ? getGroupingSetsSpec(mapPlan, rearrange, mfe) : null;
+                if (doMapAgg || groupingSets != null) {
                     mapAgg = createPartialAgg(cfe, isGroupAll(rearrange));
                 }
+                POForEach expandFE = null;
+                POPartialAgg cubeAgg = null;
+                if (groupingSets != null) {
+                    LOG.info("Aggregating grouping sets of " + rearrange.getAlias()
+                            + " from partial results by all dimensions");
+                    replaceDimensionFuncs(mapPlan.getPredecessors(rearrange).get(0));
+                    expandFE = createGroupingSetsForEach(cfe, groupingSets, rearrange.getKeyType());
+                    cubeAgg = createPartialAgg(cfe, false);
+                }
 
                 // A specialized local rearrange operator will replace
                 // the normal local rearrange in the map plan. This behaves
@@ -269,7 +297,7 @@ public class CombinerOptimizerUtil {
                 // it is added to the end (This is required so that we can
                 // set up the inner plan of the new Local Rearrange leaf in the map
                 // and combine plan to contain just the project of the key).
-                patchUpMap(mapPlan, getPreCombinerLR(rearrange), mfe, mapAgg, mlr);
+                patchUpMap(mapPlan, getPreCombinerLR(rearrange), mfe, mapAgg, expandFE, cubeAgg, mlr);
                 POLocalRearrange clr = getNewRearrange(rearrange);
                 clr.setParentPlan(null);
                 combinePlan.add(clr);
@@ -550,11 +578,14 @@ public class CombinerOptimizerUtil {
      * @param preCombinerLR
      * @param mfe
      * @param mapAgg
+     * @param expandFE foreach expanding grouping sets after mapAgg, or null
+     * @param cubeAgg partial aggregation of the expanded grouping sets, or null
      * @param mlr
      * @throws PlanException
      */
     private static void patchUpMap(PhysicalPlan mapPlan, POPreCombinerLocalRearrange preCombinerLR,
-            POForEach mfe, POPartialAgg mapAgg, POLocalRearrange mlr) throws PlanException {
+            POForEach mfe, POPartialAgg mapAgg, POForEach expandFE, POPartialAgg cubeAgg,
+            POLocalRearrange mlr) throws PlanException {
         POLocalRearrange oldLR = (POLocalRearrange)mapPlan.getLeaves().get(0);
         mapPlan.replace(oldLR, preCombinerLR);
 
@@ -570,10 +601,234 @@ public class CombinerOptimizerUtil {
             opBeforeLR = mapAgg;
         }
 
+        if (expandFE != null) {
+            mapPlan.add(expandFE);
+            mapPlan.connect(opBeforeLR, expandFE);
+            mapPlan.add(cubeAgg);
+            mapPlan.connect(expandFE, cubeAgg);
+            opBeforeLR = cubeAgg;
+        }
+
         mapPlan.add(mlr);
         mapPlan.connect(opBeforeLR, mlr);
     }
 
+    private static String getGroupingOperation(PhysicalOperator op) {
+        if (op instanceof POUserFunc) {
+            String className = ((POUserFunc) op).getFuncSpec().getClassName();
+            if (className.equals(CubeDimensions.class.getName())) {
+                return GroupingSets.CUBE;
+            } else if (className.equals(RollupDimensions.class.getName())) {
+                return GroupingSets.ROLLUP;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check whether the rearrange groups the output of a foreach flattening
+     * CubeDimensions/RollupDimensions by exactly those dimensions, which is how
+     * CUBE and ROLLUP are compiled, and the algebraic functions in the map
+     * foreach only read measures. Functions reading the dimensions must see
+     * the "all" markers of each grouping set, so those are left alone.
+     *
+     * @return spec of the {@link GroupingSets} function expanding the group
+     *         key, or null if the map is not a CUBE/ROLLUP
+     */
+    private static FuncSpec getGroupingSetsSpec(PhysicalPlan mapPlan, POLocalRearrange rearrange,
+            POForEach mfe) {
+        List<PhysicalOperator> preds = mapPlan.getPredecessors(rearrange);
+        if (preds == null || preds.size() != 1 || !(preds.get(0) instanceof POForEach)
+                || mapPlan.getSuccessors(preds.get(0)).size() != 1) {
+            return null;
+        }
+        POForEach foreach = (POForEach) preds.get(0);
+
+        // output column of the foreach -> (operation, position among its dimensions)
+        Map<Integer, Pair<Integer, Integer>> dims = Maps.newHashMap();
+        List<String> operations = Lists.newArrayList();
+        List<int[]> keyPositions = Lists.newArrayList();
+        String allMarker = null;
+        int column = 0;
+        for (int i = 0; i < foreach.getInputPlans().size(); i++) {
+            PhysicalPlan plan = foreach.getInputPlans().get(i);
+            boolean flatten = foreach.getToBeFlattened().get(i);
+            if (plan.getLeaves().size() != 1) {
+                return null;
+            }
+            PhysicalOperator leaf = plan.getLeaves().get(0);
+            String operation = getGroupingOperation(leaf);
+            if (operation != null && flatten) {
+                POUserFunc func = (POUserFunc) leaf;
+                String[] ctorArgs = func.getFuncSpec().getCtorArgs();
+                String marker = (ctorArgs == null || ctorArgs.length == 0) ? null : ctorArgs[0];
+                if (!operations.isEmpty() && !(marker == null ? allMarker == null : marker.equals(allMarker))) {
+                    return null;
+                }
+                allMarker = marker;
+                for (PhysicalOperator input : func.getInputs()) {
+                    if (input instanceof POProject && (((POProject) input).isStar()
+                            || ((POProject) input).isProjectToEnd())) {
+                        return null;
+                    }
+                }
+                operations.add(operation);
+                keyPositions.add(new int[func.getInputs().size()]);
+                for (int j = 0; j < func.getInputs().size(); j++) {
+                    dims.put(column++, new Pair<Integer, Integer>(operations.size() - 1, j));
+                }
+            } else if (flatten) {
+                // width of the output is not known
+                return null;
+            } else {
+                column++;
+            }
+        }
+        if (operations.isEmpty()) {
+            return null;
+        }
+
+        if (!readsOnlyMeasures(mfe, dims.keySet())) {
+            return null;
+        }
+
+        // the group key has to project every dimension once
+        List<PhysicalPlan> keyPlans = rearrange.getPlans();
+        if (keyPlans.size() != dims.size()) {
+            return null;
+        }
+        for (int k = 0; k < keyPlans.size(); k++) {
+            PhysicalPlan keyPlan = keyPlans.get(k);
+            if (keyPlan.size() != 1 || !(keyPlan.getRoots().get(0) instanceof POProject)) {
+                return null;
+            }
+            POProject proj = (POProject) keyPlan.getRoots().get(0);
+            if (proj.isStar() || proj.isProjectToEnd() || proj.getColumns().size() != 1) {
+                return null;
+            }
+            Pair<Integer, Integer> dim = dims.remove(proj.getColumns().get(0));
+            if (dim == null) {
+                return null;
+            }
+            keyPositions.get(dim.first)[dim.second] = k;
+        }
+
+        StringBuilder spec = new StringBuilder();
+        for (int i = 0; i < operations.size(); i++) {
+            if (i > 0) {
+                spec.append(';');
+            }
+            spec.append(operations.get(i)).append(':');
+            int[] positions = keyPositions.get(i);
+            for (int j = 0; j < positions.length; j++) {
+                if (j > 0) {
+                    spec.append(',');
+                }
+                spec.append(positions[j]);
+            }
+        }
+        String isTupleKey = Boolean.toString(keyPlans.size() > 1);
+        String[] args = allMarker == null ? new String[] { spec.toString(), isTupleKey }
+                : new String[] { spec.toString(), isTupleKey, allMarker };
+        return new FuncSpec(GroupingSets.class.getName(), args);
+    }
+
+    /**
+     * Check that the inner plans of the map foreach only project columns other
+     * than the dimensions out of the grouped bag, or count its tuples.
+     */
+    private static boolean readsOnlyMeasures(POForEach mfe, Set<Integer> dimColumns) {
+        for (PhysicalPlan plan : mfe.getInputPlans()) {
+            for (PhysicalOperator op : plan) {
+                if (!(op instanceof POProject) || plan.getPredecessors(op) != null) {
+                    continue;
+                }
+                POProject proj = (POProject) op;
+                if (proj.isStar() || proj.isProjectToEnd()) {
+                    return false;
+                }
+                if (proj.getColumns().contains(0)) {
+                    // group key
+                    continue;
+                }
+                List<PhysicalOperator> succs = plan.getSuccessors(proj);
+                if (succs == null) {
+                    return false;
+                }
+                for (PhysicalOperator succ : succs) {
+                    if (succ instanceof POProject) {
+                        POProject bagProj = (POProject) succ;
+                        if (bagProj.isStar() || bagProj.isProjectToEnd()) {
+                            return false;
+                        }
+                        for (int column : bagProj.getColumns()) {
+                            if (dimColumns.contains(column)) {
+                                return false;
+                            }
+                        }
+                    } else if (!(succ instanceof POUserFunc && ((POUserFunc) succ).getFuncSpec()
+                            .getClassName().startsWith(COUNT_STAR.class.getName() + "$"))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replace the flattened CubeDimensions/RollupDimensions in the CUBE/ROLLUP
+     * foreach with a function returning just the dimensions of the row.
+     */
+    private static void replaceDimensionFuncs(PhysicalOperator op) {
+        POForEach foreach = (POForEach) op;
+        for (int i = 0; i < foreach.getInputPlans().size(); i++) {
+            PhysicalOperator leaf = foreach.getInputPlans().get(i).getLeaves().get(0);
+            if (getGroupingOperation(leaf) != null && foreach.getToBeFlattened().get(i)) {
+                ((POUserFunc) leaf).setFuncSpec(new FuncSpec(GroupingSets.Dimensions.class.getName()));
+                leaf.setResultType(DataType.TUPLE);
+            }
+        }
+        foreach.setInputPlans(foreach.getInputPlans());
+    }
+
+    /**
+     * Create the foreach that expands the key of each partial aggregate into
+     * the keys of all grouping sets, keeping the partial values.
+     */
+    private static POForEach createGroupingSetsForEach(POForEach combineFE, FuncSpec groupingSets,
+            byte keyType) throws PlanException {
+        String scope = combineFE.getOperatorKey().scope;
+        List<PhysicalPlan> plans = Lists.newArrayList();
+        List<Boolean> flattens = Lists.newArrayList();
+
+        PhysicalPlan keyPlan = new PhysicalPlan();
+        POProject keyProj = new POProject(createOperatorKey(scope), -1, 0);
+        keyProj.setResultType(keyType);
+        List<PhysicalOperator> inputs = Lists.newArrayList();
+        inputs.add(keyProj);
+        POUserFunc expand = new POUserFunc(createOperatorKey(scope), -1, inputs, groupingSets);
+        expand.setResultType(DataType.BAG);
+        keyPlan.add(keyProj);
+        keyPlan.add(expand);
+        keyPlan.connect(keyProj, expand);
+        plans.add(keyPlan);
+        flattens.add(true);
+
+        for (int i = 1; i < combineFE.getInputPlans().size(); i++) {
+            PhysicalPlan valuePlan = new PhysicalPlan();
+            POProject valueProj = new POProject(createOperatorKey(scope), -1, i);
+            valueProj.setResultType(DataType.TUPLE);
+            valuePlan.add(valueProj);
+            plans.add(valuePlan);
+            flattens.add(false);
+        }
+        POForEach expandFE = new POForEach(createOperatorKey(scope), -1, plans, flattens);
+        expandFE.addOriginalLocation(combineFE.getAlias(), combineFE.getOriginalLocations());
+        expandFE.setResultType(DataType.BAG);
+        return expandFE;
+    }
+
     /**
      * @param rearrange
      * @return
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.backend.hadoop.executionengine.util;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigCounters;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.impl.util.UDFContext;
+import org.apache.pig.tools.pigstats.PigStatusReporter;
+
+/**
+ * Reads tuples ahead of the consumer on a separate thread into a bounded
+ * buffer, so that HDFS reads, decompression and parsing done by the loader
+ * overlap with the execution of the downstream pipeline.
+ *
+ * The time the reader thread spends waiting on a full buffer and the time the
+ * task thread spends waiting on an empty buffer are reported through
+ * {@link PigCounters#INPUT_PREFETCH_READER_WAIT_MILLIS} and
+ * {@link PigCounters#INPUT_PREFETCH_CONSUMER_WAIT_MILLIS}. A large consumer
+ * wait means the task is I/O bound, a large reader wait means it is CPU bound.
+ *
+ * The loader must return a new tuple from every call to getNext(), as the
+ * consumer may still hold earlier tuples when later ones are read.
+ */
+public class TuplePrefetcher {
+
+    private static final Log LOG = LogFactory.getLog(TuplePrefetcher.class);
+
+    public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+    // How long close() waits for the prefetch thread to stop
+    static final long CLOSE_TIMEOUT_MILLIS = 10000;
+
+    // Marks the end of input in the buffer
+    private static final Object EOF = new Object();
+
+    /**
+     * The source of tuples read on the prefetch thread.
+     */
+    public interface TupleSource {
+        /**
+         * @return the next tuple, or null when there is no more input
+         * @throws IOException
+         */
+        Tuple next() throws IOException;
+    }
+
+    private static class Failure {
+        private final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    private final String name;
+
+    private final TupleSource source;
+
+    private final BlockingQueue<Object> buffer;
+
+    private Thread readerThread = null;
+
+    private volatile boolean closed = false;
+
+    private boolean done = false;
+
+    private volatile long readerWaitNanos = 0;
+
+    private long consumerWaitNanos = 0;
+
+    /**
+     * @param name name of the prefetch thread
+     * @param source the source of tuples, called only on the prefetch thread
+     * @param bufferSize maximum number of tuples read ahead
+     */
+    public TuplePrefetcher(String name, TupleSource source, int bufferSize) {
+        this.name = name;
+        this.source = source;
+        this.buffer = new ArrayBlockingQueue<Object>(Math.max(1, bufferSize));
+    }
+
+    /**
+     * @param conf
+     * @return true if input prefetching is turned on through
+     *         {@link PigConfiguration#PIG_INPUT_PREFETCH}
+     */
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(PigConfiguration.PIG_INPUT_PREFETCH, false);
+    }
+
+    /**
+     * @param conf
+     * @return the number of tuples to read ahead as configured through
+     *         {@link PigConfiguration#PIG_INPUT_PREFETCH_BUFFER_SIZE}
+     */
+    public static int getBufferSize(Configuration conf) {
+        return conf.getInt(PigConfiguration.PIG_INPUT_PREFETCH_BUFFER_SIZE, DEFAULT_BUFFER_SIZE);
+    }
+
+    private void start() {
+        // UDFContext is thread local, loaders running on the prefetch
+        // thread need to see the same one as the task thread
+        final UDFContext udfContext = UDFContext.getUDFContext();
+        readerThread = new Thread(name) {
+            @Override
+            public void run() {
+                UDFContext.setUdfContext(udfContext);
+                try {
+                    Tuple t;
+                    while (!closed && (t = source.next()) != null) {
+                        put(t);
+                    }
+                    put(EOF);
+                } catch (InterruptedException e) {
+                    // closed by the consumer
+                } catch (Throwable e) {
+                    try {
+                        put(new Failure(e));
+                    } catch (InterruptedException ie) {
+                        // closed by the consumer
+                    }
+                }
+            }
+        };
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    private void put(Object o) throws InterruptedException {
+        if (buffer.offer(o)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            // Poll for close in case the interrupt was swallowed by the loader
+            while (!closed && !buffer.offer(o, 100, TimeUnit.MILLISECONDS)) {
+            }
+        } finally {
+            readerWaitNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Get the next tuple, blocking until the prefetch thread has read it.
+     * The prefetch thread is started on the first call.
+     *
+     * @return the next tuple, or null when there is no more input
+     * @throws IOException if the source failed or the wait was interrupted
+     */
+    public Tuple next() throws IOException {
+        if (done) {
+            return null;
+        }
+        if (readerThread == null) {
+            start();
+        }
+        Object o = buffer.poll();
+        if (o == null) {
+            long start = System.nanoTime();
+            try {
+                o = buffer.take();
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted while waiting for input", e);
+            } finally {
+                consumerWaitNanos += System.nanoTime() - start;
+            }
+        }
+        if (o == EOF) {
+            done = true;
+            return null;
+        }
+        if (o instanceof Failure) {
+            done = true;
+            Throwable cause = ((Failure) o).cause;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return (Tuple) o;
+    }
+
+    /**
+     * Stop the prefetch thread and report the wait times to the counters.
+     * Calling close more than once has no effect.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        done = true;
+        if (readerThread != null) {
+            readerThread.interrupt();
+            try {
+                readerThread.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            buffer.clear();
+            if (readerThread.isAlive()) {
+                // The reader is blocked in I/O that does not respond to
+                // interrupts. It is a daemon thread, so leave it behind
+                // rather than hang the task.
+                LOG.warn("Abandoning " + name + " as it did not stop within "
+                        + CLOSE_TIMEOUT_MILLIS + " ms");
+            }
+        }
+        long readerWaitMillis = readerWaitNanos / 1000000;
+        long consumerWaitMillis = consumerWaitNanos / 1000000;
+        PigStatusReporter reporter = PigStatusReporter.getInstance();
+        reporter.incrCounter(PigCounters.INPUT_PREFETCH_READER_WAIT_MILLIS, readerWaitMillis);
+        reporter.incrCounter(PigCounters.INPUT_PREFETCH_CONSUMER_WAIT_MILLIS, consumerWaitMillis);
+        LOG.info(name + " waited " + readerWaitMillis + " ms on a full buffer, consumer waited "
+                + consumerWaitMillis + " ms on an empty buffer");
+    }
+
+    public long getReaderWaitNanos() {
+        return readerWaitNanos;
+    }
+
+    public long getConsumerWaitNanos() {
+        return consumerWaitNanos;
+    }
+}
@@ -67,6 +67,7 @@ public class HadoopExecutableManager extends ExecutableManager {
     String scriptOutputDir;
     String scriptLogDir;
     String taskId;
+    int processIndex;
     
     FSDataOutputStream errorStream;
     
@@ -100,14 +101,19 @@ public class HadoopExecutableManager extends ExecutableManager {
         // Save the taskid
         // TODO Get an equivalent property in Tez mode (currently this returns null)
         taskId = job.get(MRConfiguration.TASK_ID);
+
+        // Several processes of the command may run in the task
+        processIndex = stream.getProcessIndex();
     }
     
     protected void exec() throws IOException {
         // Create the HDFS file for the stderr of the task, if necessary
         if (writeErrorToHDFS(command.getLogFilesLimit(), taskId)) {
             try {
+                String errorFileName = 
+                    (processIndex == 0) ? taskId : taskId + "_" + processIndex;
                 Path errorFile = 
-                    new Path(new Path(scriptLogDir, command.getLogDir()), taskId);
+                    new Path(new Path(scriptLogDir, command.getLogDir()), errorFileName);
                 errorStream = 
                     errorFile.getFileSystem(job).create(errorFile);
             } catch (IOException ie) {
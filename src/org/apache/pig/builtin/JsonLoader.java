@@ -17,10 +17,10 @@
  */
 package org.apache.pig.builtin;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +36,7 @@ import org.apache.pig.Expression;
 import org.apache.pig.LoadCaster;
 import org.apache.pig.LoadFunc;
 import org.apache.pig.LoadMetadata;
+import org.apache.pig.LoadPushDown;
 import org.apache.pig.PigWarning;
 import org.apache.pig.ResourceSchema;
 import org.apache.pig.ResourceSchema.ResourceFieldSchema;
@@ -47,6 +48,8 @@ import org.apache.pig.data.DataByteArray;
 import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
+import org.apache.pig.impl.logicalLayer.FrontendException;
+import org.apache.pig.impl.util.ObjectSerializer;
 import org.apache.pig.impl.util.UDFContext;
 import org.apache.pig.impl.util.Utils;
 import org.codehaus.jackson.JsonFactory;
@@ -61,17 +64,25 @@ import org.joda.time.format.ISODateTimeFormat;
  * conceivably you could write a loader that determines the schema from the
  * JSON.
  */
-public class JsonLoader extends LoadFunc implements LoadMetadata {
+public class JsonLoader extends LoadFunc implements LoadMetadata, LoadPushDown {
 
     protected RecordReader reader = null;
     protected ResourceSchema schema = null;
 
+    // Fields asked for by pushProjection, null if all are required
+    private boolean[] requiredFields = null;
+    private int numRequiredFields;
+
     private String udfcSignature = null;
     private JsonFactory jsonFactory = null;
     private TupleFactory tupleFactory = TupleFactory.getInstance();
     private BagFactory bagFactory = BagFactory.getInstance();
 
     private static final String SCHEMA_SIGNATURE = "pig.jsonloader.schema";
+    private static final String REQUIRED_FIELDS_SIGNATURE = "pig.jsonloader.required.fields";
+
+    private static final DateTimeFormatter dateTimeParser =
+        ISODateTimeFormat.dateTimeParser().withOffsetParsed();
 
     public JsonLoader() {
     }
@@ -120,6 +131,15 @@ public class JsonLoader extends LoadFunc implements LoadMetadata {
         // Parse the schema from the string stored in the properties object.
         schema = new ResourceSchema(Utils.getSchemaFromString(strSchema));
 
+        String strRequired = p.getProperty(REQUIRED_FIELDS_SIGNATURE);
+        if (strRequired != null) {
+            requiredFields = (boolean[]) ObjectSerializer.deserialize(strRequired);
+            numRequiredFields = 0;
+            for (boolean required : requiredFields) {
+                if (required) numRequiredFields++;
+            }
+        }
+
         jsonFactory = new JsonFactory();
     }
 
@@ -137,17 +157,15 @@ public class JsonLoader extends LoadFunc implements LoadMetadata {
             throw new IOException(ie);
         }
 
-        // Create a parser specific for this input line.  This may not be the
-        // most efficient approach.
-        byte[] newBytes = new byte[val.getLength()];
-        System.arraycopy(val.getBytes(), 0, newBytes, 0, val.getLength());
-        ByteArrayInputStream bais = new ByteArrayInputStream(newBytes);
-        JsonParser p = jsonFactory.createJsonParser(bais);
+        // Create a parser specific for this input line directly on the bytes
+        // of the line, the parser recycles its buffers through the factory.
+        JsonParser p = jsonFactory.createJsonParser(val.getBytes(), 0, val.getLength());
 
         // Create the tuple we will be returning.  We create it with the right
         // number of fields, as the Tuple object is optimized for this case.
         ResourceFieldSchema[] fields = schema.getFields();
-        Tuple t = tupleFactory.newTuple(fields.length);
+        Tuple t = tupleFactory.newTuple(
+            requiredFields == null ? fields.length : numRequiredFields);
 
         // Read the start object marker.  Throughout this file if the parsing
         // isn't what we expect we return a tuple with null fields rather than
@@ -161,9 +179,23 @@ public class JsonLoader extends LoadFunc implements LoadMetadata {
                 return t;
             }
 
-            // Read each field in the record
-            for (int i = 0; i < fields.length; i++) {
-                t.set(i, readField(p, fields[i], i));
+            if (requiredFields == null) {
+                // Read each field in the record
+                for (int i = 0; i < fields.length; i++) {
+                    t.set(i, readField(p, fields[i], i));
+                }
+            } else {
+                // Read the required fields, skip over the others without
+                // materializing them and stop after the last required one
+                int idx = 0;
+                for (int i = 0; i < fields.length && idx < numRequiredFields; i++) {
+                    if (i < requiredFields.length && requiredFields[i]) {
+                        t.set(idx++, readField(p, fields[i], i));
+                    } else {
+                        skipField(p, i);
+                    }
+                }
+                return t;
             }
 
             if (p.nextToken() != JsonToken.END_OBJECT) {
@@ -206,8 +238,7 @@ public class JsonLoader extends LoadFunc implements LoadMetadata {
                 return p.getDoubleValue();
 
             case DataType.DATETIME:
-                DateTimeFormatter formatter = ISODateTimeFormat.dateTimeParser();
-                return formatter.withOffsetParsed().parseDateTime(p.getText());
+                return dateTimeParser.parseDateTime(p.getText());
 
             case DataType.BYTEARRAY:
                 byte[] b = p.getText().getBytes();
@@ -230,6 +261,24 @@ public class JsonLoader extends LoadFunc implements LoadMetadata {
         }
     }
 
+    private void skipField(JsonParser p, int fieldnum) throws IOException {
+        // Read the field name
+        JsonToken tok = p.nextToken();
+        if (tok == null) {
+            warn("Early termination of record, expected " + schema.getFields().length
+                + " fields bug found " + fieldnum, PigWarning.UDF_WARNING_1);
+            return;
+        }
+
+        if (tok == JsonToken.VALUE_NULL) return;
+
+        // Skip the value, including everything nested in it
+        tok = p.nextToken();
+        if (tok == JsonToken.START_OBJECT || tok == JsonToken.START_ARRAY) {
+            p.skipChildren();
+        }
+    }
+
     private Object readField(JsonParser p,
                              ResourceFieldSchema field,
                              int fieldnum) throws IOException {
@@ -383,6 +432,39 @@ public class JsonLoader extends LoadFunc implements LoadMetadata {
         // We don't have partitions
     }
 
+    @Override
+    public List<OperatorSet> getFeatures() {
+        return Arrays.asList(LoadPushDown.OperatorSet.PROJECTION);
+    }
+
+    @Override
+    public RequiredFieldResponse pushProjection(RequiredFieldList requiredFieldList)
+    throws FrontendException {
+        if (requiredFieldList == null || requiredFieldList.getFields() == null) {
+            return null;
+        }
+        int lastField = -1;
+        for (RequiredField rf : requiredFieldList.getFields()) {
+            lastField = Math.max(lastField, rf.getIndex());
+        }
+        boolean[] required = new boolean[lastField + 1];
+        for (RequiredField rf : requiredFieldList.getFields()) {
+            if (rf.getIndex() != -1) {
+                required[rf.getIndex()] = true;
+            }
+        }
+
+        UDFContext udfc = UDFContext.getUDFContext();
+        Properties p =
+            udfc.getUDFProperties(this.getClass(), new String[]{udfcSignature});
+        try {
+            p.setProperty(REQUIRED_FIELDS_SIGNATURE, ObjectSerializer.serialize(required));
+        } catch (IOException e) {
+            throw new FrontendException("Cannot serialize required fields", e);
+        }
+        return new RequiredFieldResponse(true);
+    }
+
     @Override
     public List<String> getShipFiles() {
         List<String> cacheFiles = new ArrayList<String>();
@@ -53,6 +53,8 @@ import org.apache.hadoop.hive.ql.io.sarg.SearchArgument.Builder;
 import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
 import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
@@ -76,6 +78,7 @@ import org.apache.pig.LoadFunc;
 import org.apache.pig.LoadMetadata;
 import org.apache.pig.LoadPredicatePushdown;
 import org.apache.pig.LoadPushDown;
+import org.apache.pig.LoadRuntimeFilterPushdown;
 import org.apache.pig.PigException;
 import org.apache.pig.PigWarning;
 import org.apache.pig.ResourceSchema;
@@ -119,7 +122,7 @@ import org.joda.time.DateTime;
  * <li><code>-v, --version</code> Sets the version of the file that will be written
  * </ul>
  **/
-public class OrcStorage extends LoadFunc implements StoreFuncInterface, LoadMetadata, LoadPushDown, LoadPredicatePushdown, StoreResources {
+public class OrcStorage extends LoadFunc implements StoreFuncInterface, LoadMetadata, LoadPushDown, LoadPredicatePushdown, LoadRuntimeFilterPushdown, StoreResources {
 
     //TODO Make OrcInputFormat.SARG_PUSHDOWN visible
     private static final String SARG_PUSHDOWN = "sarg.pushdown";
@@ -143,6 +146,9 @@ public class OrcStorage extends LoadFunc implements StoreFuncInterface, LoadMeta
     private final CommandLineParser parser = new GnuParser();
     protected final static Log log = LogFactory.getLog(OrcStorage.class);
     protected boolean[] mRequiredColumns = null;
+    private int runtimeFilterField = -1;
+    private RuntimeFilter runtimeFilter = null;
+    private StructField runtimeFilterColumn = null;
 
     private static final String SchemaSignatureSuffix = "_schema";
     private static final String RequiredColumnsSuffix = "_columns";
@@ -364,14 +370,16 @@ public class OrcStorage extends LoadFunc implements StoreFuncInterface, LoadMeta
     @Override
     public Tuple getNext() throws IOException {
         try {
-            boolean notDone = in.nextKeyValue();
-            if (!notDone) {
-                return null;
+            while (in.nextKeyValue()) {
+                Object value = in.getCurrentValue();
+                // Only convert the filtered column of the rows that are dropped
+                if (runtimeFilter != null && !passesRuntimeFilter(value)) {
+                    continue;
+                }
+                Tuple t = (Tuple)HiveUtils.convertHiveToPig(value, oi, mRequiredColumns);
+                return t;
             }
-            Object value = in.getCurrentValue();
-
-            Tuple t = (Tuple)HiveUtils.convertHiveToPig(value, oi, mRequiredColumns);
-            return t;
+            return null;
         } catch (InterruptedException e) {
             int errCode = 6018;
             String errMsg = "Error while reading input";
@@ -380,6 +388,45 @@ public class OrcStorage extends LoadFunc implements StoreFuncInterface, LoadMeta
         }
     }
 
+    @Override
+    public void setRuntimeFilter(int fieldIndex, RuntimeFilter filter) {
+        this.runtimeFilterField = fieldIndex;
+        this.runtimeFilter = filter;
+        this.runtimeFilterColumn = null;
+    }
+
+    /**
+     * @return false if the row can be dropped. Rows are kept when the filtered
+     *         column cannot be found, and Pig filters them after conversion.
+     */
+    private boolean passesRuntimeFilter(Object value) throws IOException {
+        if (value == null) {
+            return true;
+        }
+        StructObjectInspector soi = (StructObjectInspector)oi;
+        if (runtimeFilterColumn == null) {
+            // The field index is relative to the required columns
+            List<? extends StructField> columns = soi.getAllStructFieldRefs();
+            int field = -1;
+            for (int i = 0; i < columns.size(); i++) {
+                if (mRequiredColumns == null || (i < mRequiredColumns.length && mRequiredColumns[i])) {
+                    if (++field == runtimeFilterField) {
+                        runtimeFilterColumn = columns.get(i);
+                        break;
+                    }
+                }
+            }
+            if (runtimeFilterColumn == null) {
+                log.warn("Field " + runtimeFilterField + " of the runtime filter not found, ignoring the filter");
+                runtimeFilter = null;
+                return true;
+            }
+        }
+        return runtimeFilter.mightContain(HiveUtils.convertHiveToPig(
+                soi.getStructFieldData(value, runtimeFilterColumn),
+                runtimeFilterColumn.getFieldObjectInspector(), null));
+    }
+
     @Override
     public List<String> getShipFiles() {
         Class[] classList = HiveShims.getOrcDependentClasses(Hadoop23Shims.class);
@@ -21,11 +21,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.pig.EvalFunc;
 import org.apache.pig.FuncSpec;
 import org.apache.pig.PigWarning;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.CachedRegex;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.RegexCache;
 import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.impl.logicalLayer.FrontendException;
@@ -50,7 +51,7 @@ import org.apache.pig.impl.logicalLayer.schema.Schema;
 
 public class REGEX_EXTRACT extends EvalFunc<String> {
     String mExpression = null;
-    Pattern mPattern = null;
+    CachedRegex mRegex = null;
     boolean mUseMatches = false;
 
     public REGEX_EXTRACT() {}
@@ -82,7 +83,7 @@ public class REGEX_EXTRACT extends EvalFunc<String> {
                 try
                 {
                     mExpression = (String)input.get(1);
-                    mPattern = Pattern.compile(mExpression);
+                    mRegex = RegexCache.get(mExpression);
                 } catch (Exception e)
                 {
                     String msg = "RegexExtract : Mal-Formed Regular expression : "+input.get(1);
@@ -95,7 +96,13 @@ public class REGEX_EXTRACT extends EvalFunc<String> {
         }
         int mIndex = (Integer)input.get(2);
 
-        Matcher m = mPattern.matcher((String)input.get(0));
+        String source = (String)input.get(0);
+        // Reject records which cannot match with the DFA before
+        // running the backtracking matcher to extract the group
+        if (mUseMatches ? !mRegex.mayMatch(source) : !mRegex.mayFind(source)) {
+            return null;
+        }
+        Matcher m = mRegex.getPattern().matcher(source);
 
         if (!mUseMatches&&m.find()||mUseMatches&&m.matches())
         {
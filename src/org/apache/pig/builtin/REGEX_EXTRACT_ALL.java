@@ -21,10 +21,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.pig.EvalFunc;
 import org.apache.pig.FuncSpec;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.CachedRegex;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.RegexCache;
 import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
@@ -70,7 +71,7 @@ public class REGEX_EXTRACT_ALL extends EvalFunc<Tuple> {
             if (!input.get(1).equals(mExpression)) {
                 try {
                     mExpression = (String)input.get(1);
-                    mPattern = Pattern.compile(mExpression);
+                    mRegex = RegexCache.get(mExpression);
                 } catch (Exception e) {
                     String msg = "RegexExtractAll : Mal-Formed Regular expression : "+input.get(1);
                     throw new IOException(msg);
@@ -81,7 +82,13 @@ public class REGEX_EXTRACT_ALL extends EvalFunc<Tuple> {
             throw new IOException(msg);
         }
 
-        Matcher m = mPattern.matcher((String)input.get(0));
+        String source = (String)input.get(0);
+        // Reject records which cannot match with the DFA before
+        // running the backtracking matcher to extract the groups
+        if (mUseMatches ? !mRegex.mayMatch(source) : !mRegex.mayFind(source)) {
+            return null;
+        }
+        Matcher m = mRegex.getPattern().matcher(source);
         if (mUseMatches&&!m.matches()||!mUseMatches&&!m.find()) {
             return null;
         }
@@ -93,7 +100,7 @@ public class REGEX_EXTRACT_ALL extends EvalFunc<Tuple> {
     }
 
     String mExpression = null;
-    Pattern mPattern = null;
+    CachedRegex mRegex = null;
     @Override
     public Schema outputSchema(Schema input) {
         try {
@@ -19,9 +19,10 @@ package org.apache.pig.builtin;
 
 import java.io.IOException;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.pig.EvalFunc;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.CachedRegex;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.RegexCache;
 import org.apache.pig.data.*;
 import org.apache.pig.impl.logicalLayer.schema.Schema;
 import org.apache.pig.impl.util.*;
@@ -58,7 +59,7 @@ public class REGEX_SEARCH extends EvalFunc<DataBag> {
 			if (!input.get(1).equals(mExpression)) {
                 try {
                     mExpression = (String)input.get(1);
-                    mPattern = Pattern.compile(mExpression);
+                    mRegex = RegexCache.get(mExpression);
                 } catch (Exception e) {
                     String msg = "StringSearchAll : Mal-Formed Regular expression : "+input.get(1);
                     throw new IOException(msg);
@@ -68,7 +69,11 @@ public class REGEX_SEARCH extends EvalFunc<DataBag> {
             String msg = "StringSearchAll : Regular expression is null";
             throw new IOException(msg);
         }
-        Matcher m = mPattern.matcher((String)input.get(0));
+        String source = (String)input.get(0);
+        if (!mRegex.mayFind(source)) {
+            return null;
+        }
+        Matcher m = mRegex.getPattern().matcher(source);
         if (!m.find()) {
             return null;
         }
@@ -86,7 +91,7 @@ public class REGEX_SEARCH extends EvalFunc<DataBag> {
     }
 
     String mExpression = null;
-    Pattern mPattern = null;
+    CachedRegex mRegex = null;
     @Override
     public Schema outputSchema(Schema input) {
         try {
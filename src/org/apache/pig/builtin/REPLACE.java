@@ -21,11 +21,12 @@ package org.apache.pig.builtin;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import org.apache.pig.EvalFunc;
 import org.apache.pig.FuncSpec;
 import org.apache.pig.PigWarning;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.CachedRegex;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.RegexCache;
 import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.impl.logicalLayer.FrontendException;
@@ -43,7 +44,7 @@ import org.apache.pig.impl.logicalLayer.schema.Schema;
  */
 public class REPLACE extends EvalFunc<String>
 {
-    private Pattern mPattern = null;
+    private CachedRegex mRegex = null;
 
     /**
      * Method invoked on every tuple during foreach evaluation
@@ -67,9 +68,9 @@ public class REPLACE extends EvalFunc<String>
             return null;
         }
         
-        if (mPattern == null || ! target.equals(mPattern.pattern())) {
+        if (mRegex == null || ! target.equals(mRegex.getRegex())) {
             try {
-                mPattern = Pattern.compile(target);
+                mRegex = RegexCache.get(target);
             } catch (Exception e) {
                 warn("Replace : Mal-Formed Regular expression : " + target, PigWarning.UDF_WARNING_1);
                 return null;
@@ -79,7 +80,11 @@ public class REPLACE extends EvalFunc<String>
         String replacewith = (String)input.get(2);
         
         try {    
-           return mPattern.matcher(source).replaceAll(replacewith);
+           // Nothing to replace if no part of the source can match
+           if (!mRegex.mayFind(source)) {
+               return source;
+           }
+           return mRegex.getPattern().matcher(source).replaceAll(replacewith);
         }catch(Exception e){
             warn("Replace : Failed to process input; error - " + e.getMessage(), PigWarning.UDF_WARNING_1);
             return null;
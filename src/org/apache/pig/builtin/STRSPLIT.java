@@ -25,6 +25,7 @@ import java.util.regex.PatternSyntaxException;
 
 import org.apache.pig.EvalFunc;
 import org.apache.pig.PigWarning;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.RegexCache;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
 import org.apache.pig.impl.logicalLayer.schema.Schema;
@@ -66,7 +67,13 @@ public class STRSPLIT extends EvalFunc<Tuple> {
             if (source == null || delim == null) {
                 return null;
             }
-            String[] splits = source.split(delim, length);
+            String[] splits;
+            if (isFastSplitDelimiter(delim)) {
+                splits = source.split(delim, length);
+            } else {
+                // String.split compiles the pattern on every call
+                splits = RegexCache.get(delim).getPattern().split(source, length);
+            }
             return tupleFactory.newTuple(Arrays.asList(splits));
         } catch (ClassCastException e) {
             warn("class cast exception at "+e.getStackTrace()[0], PigWarning.UDF_WARNING_1);
@@ -77,6 +84,14 @@ public class STRSPLIT extends EvalFunc<Tuple> {
         return null;
     }
     
+    /**
+     * String.split does not go through a Pattern for single characters which
+     * are not regex metacharacters.
+     */
+    private static boolean isFastSplitDelimiter(String delim) {
+        return delim.length() == 1 && ".$|()[{^?*+\\".indexOf(delim.charAt(0)) == -1;
+    }
+
     /*
      * The outputSchema of STRSPLIT cannot be set as DataType.chararry otherwise in some cases,
      * it will cause error. For example, when stringsize() is called.
@@ -29,12 +29,14 @@ import java.util.Iterator;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.pig.PigCounters;
 import org.apache.pig.PigException;
 import org.apache.pig.PigWarning;
 import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigHadoopLogger;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PigLogger;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.OperatorProfile;
 import org.apache.pig.impl.util.BagFormat;
 import org.apache.pig.impl.util.SpillableMemoryManager;
 import org.apache.pig.tools.pigstats.PigStatusReporter;
@@ -441,6 +443,9 @@ public abstract class DefaultAbstractBag implements DataBag {
 
     @SuppressWarnings("rawtypes")
     protected void incSpillCount(Enum counter, long numRecsSpilled) {
+        if (counter != PigCounters.PROACTIVE_SPILL_COUNT_RECS) {
+            OperatorProfile.spilled();
+        }
         PigStatusReporter reporter = PigStatusReporter.getInstance();
         if (reporter != null && reporter.getCounter(counter)!=null) {
             reporter.getCounter(counter).increment(numRecsSpilled);
@@ -90,6 +90,12 @@ public class PigImplConstants {
      */
     public static final String PIG_DATETIME_ZONES_LIST = "pig.datetime.zones.list";
 
+    /**
+     * Used to carry the types of the fields of tuple shuffle keys from frontend
+     * to backend, to select typed raw comparators
+     */
+    public static final String PIG_KEY_FIELD_TYPES = "pig.key.field.types";
+
     // Kill the jobs before cleaning up tmp files
     public static int SHUTDOWN_HOOK_JOB_KILL_PRIORITY = 3;
     public static int SHUTDOWN_HOOK_TMP_FILES_CLEANUP_PRIORITY = 2;
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.impl.builtin;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.pig.EvalFunc;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+
+/**
+ * UDF used by incremental execution to compute the result of an Algebraic
+ * function from the intermediate state computed by {@link AlgebraicMergeState}.
+ */
+public class AlgebraicFinal extends EvalFunc<Object> {
+
+    private static final TupleFactory tf = TupleFactory.getInstance();
+    private static final BagFactory bf = BagFactory.getInstance();
+
+    private final String finalClass;
+    private final String[] ctorArgs;
+
+    private EvalFunc<?> finalFunc;
+
+    /**
+     * @param args Final function of the Algebraic function followed by its
+     *            constructor arguments
+     */
+    public AlgebraicFinal(String... args) {
+        this.finalClass = args[0];
+        this.ctorArgs = Arrays.copyOfRange(args, 1, args.length);
+    }
+
+    @Override
+    public Object exec(Tuple input) throws IOException {
+        if (finalFunc == null) {
+            finalFunc = AlgebraicMergeState.instantiate(finalClass, ctorArgs);
+        }
+        Tuple state = (Tuple) input.get(0);
+        return finalFunc.exec(tf.newTuple(bf.newDefaultBag(Arrays.asList(state))));
+    }
+}
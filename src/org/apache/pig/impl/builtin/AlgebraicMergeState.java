@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.impl.builtin;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pig.Algebraic;
+import org.apache.pig.EvalFunc;
+import org.apache.pig.FuncSpec;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.apache.pig.impl.PigContext;
+
+/**
+ * UDF used by incremental execution to compute the intermediate state of an
+ * Algebraic function for a group. The Initial function is called on each new
+ * record of the bag argument, like in the map of a combined job, and the
+ * results are merged by the Intermed function. It is also used to merge the
+ * states of the new records with the state saved by the previous run.
+ * <p/>
+ * The arguments are the arguments of the Algebraic function, if it has a bag
+ * of records to process, followed by a bag of state tuples if it has states
+ * to merge.
+ * <p/>
+ * It is Algebraic itself so that the states are computed in the combiner, as
+ * the Algebraic function would be without incremental execution.
+ */
+public class AlgebraicMergeState extends EvalFunc<Tuple> implements Algebraic {
+
+    private static final TupleFactory tf = TupleFactory.getInstance();
+    private static final BagFactory bf = BagFactory.getInstance();
+
+    // Number of intermediate values merged at a time
+    private static final int MERGE_SIZE = 1000;
+
+    private final String initialClass;
+    private final String intermedClass;
+    private final int bagIndex;
+    private final int stateIndex;
+    private final String[] ctorArgs;
+
+    private EvalFunc<?> initial;
+    private EvalFunc<?> intermed;
+
+    /**
+     * @param args Initial and Intermed functions of the Algebraic function,
+     *            index of its bag argument or -1 if there are no records,
+     *            field of the state tuples with its state or -1 if there are
+     *            no states, followed by
+     *            its constructor arguments
+     */
+    public AlgebraicMergeState(String... args) {
+        this.initialClass = args[0];
+        this.intermedClass = args[1];
+        this.bagIndex = Integer.parseInt(args[2]);
+        this.stateIndex = Integer.parseInt(args[3]);
+        this.ctorArgs = Arrays.copyOfRange(args, 4, args.length);
+    }
+
+    static EvalFunc<?> instantiate(String className, String[] ctorArgs) {
+        FuncSpec spec = new FuncSpec(className, ctorArgs.length == 0 ? null : ctorArgs);
+        return (EvalFunc<?>) PigContext.instantiateFuncFromSpec(spec);
+    }
+
+    @Override
+    public Tuple exec(Tuple input) throws IOException {
+        init();
+        int numArgs = stateIndex < 0 ? input.size() : input.size() - 1;
+        List<Tuple> values = new ArrayList<Tuple>();
+        DataBag bag = bagIndex < 0 ? null : (DataBag) input.get(bagIndex);
+        if (bag != null && bag.size() > 0) {
+            Tuple args = tf.newTuple(numArgs);
+            for (int i = 0; i < numArgs; i++) {
+                args.set(i, input.get(i));
+            }
+            for (Tuple t : bag) {
+                args.set(bagIndex, bf.newDefaultBag(Arrays.asList(t)));
+                values.add((Tuple) initial.exec(args));
+                values = mergeIfFull(values);
+            }
+        }
+        if (stateIndex >= 0) {
+            DataBag states = (DataBag) input.get(numArgs);
+            if (states != null) {
+                for (Tuple state : states) {
+                    values.add((Tuple) state.get(stateIndex));
+                    values = mergeIfFull(values);
+                }
+            }
+        }
+        return merge(values);
+    }
+
+    /**
+     * Merges a bag of states computed by {@link #exec(Tuple)}
+     */
+    Tuple mergeStates(DataBag states) throws IOException {
+        init();
+        List<Tuple> values = new ArrayList<Tuple>();
+        if (states != null) {
+            for (Tuple state : states) {
+                values.add(state);
+                values = mergeIfFull(values);
+            }
+        }
+        return merge(values);
+    }
+
+    private void init() {
+        if (initial == null) {
+            initial = instantiate(initialClass, ctorArgs);
+            intermed = instantiate(intermedClass, ctorArgs);
+        }
+    }
+
+    private List<Tuple> mergeIfFull(List<Tuple> values) throws IOException {
+        if (values.size() < MERGE_SIZE) {
+            return values;
+        }
+        progress();
+        List<Tuple> merged = new ArrayList<Tuple>();
+        merged.add(merge(values));
+        return merged;
+    }
+
+    private Tuple merge(List<Tuple> values) throws IOException {
+        return (Tuple) intermed.exec(tf.newTuple(bf.newDefaultBag(values)));
+    }
+
+    @Override
+    public Type getReturnType() {
+        return Tuple.class;
+    }
+
+    @Override
+    public String getInitial() {
+        return Initial.class.getName();
+    }
+
+    @Override
+    public String getIntermed() {
+        return Intermed.class.getName();
+    }
+
+    @Override
+    public String getFinal() {
+        return Intermed.class.getName();
+    }
+
+    /**
+     * Computes the state of the records and states of the map input
+     */
+    static public class Initial extends EvalFunc<Tuple> {
+
+        private final AlgebraicMergeState merger;
+
+        // used by EvalFunc to check the return type
+        public Initial() {
+            merger = null;
+        }
+
+        public Initial(String... args) {
+            merger = new AlgebraicMergeState(args);
+        }
+
+        @Override
+        public Tuple exec(Tuple input) throws IOException {
+            merger.setReporter(reporter);
+            return merger.exec(input);
+        }
+
+        @Override
+        public Type getReturnType() {
+            return Tuple.class;
+        }
+    }
+
+    /**
+     * Merges the states computed by {@link Initial} or by itself. The merged
+     * state has the same format, so it is also used as the Final function.
+     */
+    static public class Intermed extends EvalFunc<Tuple> {
+
+        private final AlgebraicMergeState merger;
+
+        // used by EvalFunc to check the return type
+        public Intermed() {
+            merger = null;
+        }
+
+        public Intermed(String... args) {
+            merger = new AlgebraicMergeState(args);
+        }
+
+        @Override
+        public Tuple exec(Tuple input) throws IOException {
+            merger.setReporter(reporter);
+            return merger.mergeStates((DataBag) input.get(0));
+        }
+
+        @Override
+        public Type getReturnType() {
+            return Tuple.class;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.pig.impl.builtin;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.Random;
 
 import org.apache.commons.logging.Log;
@@ -39,12 +40,14 @@ public class GFCross extends EvalFunc<DataBag> {
 
     private static final Log LOG = LogFactory.getLog(GFCross.class);
 
-    private int numInputs, myNumber, numGroupsPerInput, numGroupsGoingTo;
+    private int numInputs, myNumber, numGroupsGoingTo;
+    private int[] numGroupsPerInput;
     private BagFactory mBagFactory = BagFactory.getInstance();
     private TupleFactory mTupleFactory = TupleFactory.getInstance();
     private int parallelism = 0;
     private Random r;
     private String crossKey;
+    private long[] inputSizes;
 
     static private final int DEFAULT_PARALLELISM = 96;
 
@@ -52,6 +55,22 @@ public class GFCross extends EvalFunc<DataBag> {
         crossKey = key;
     }
 
+    /**
+     * @param key cross key used to look up the parallelism hint
+     * @param sizes comma separated estimated sizes of the cross inputs. The
+     * inputs are split into groups in proportion to their sizes so that every
+     * reducer receives a similar share of each input and larger inputs are
+     * replicated less.
+     */
+    public GFCross(String key, String sizes) {
+        this(key);
+        String[] parts = sizes.split(",");
+        inputSizes = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            inputSizes[i] = Math.max(1, Long.parseLong(parts[i].trim()));
+        }
+    }
+
     public String getCrossKey() {
         return crossKey;
     }
@@ -83,13 +102,18 @@ public class GFCross extends EvalFunc<DataBag> {
             numInputs = (Integer)input.get(0);
             myNumber = (Integer)input.get(1);
 
-            numGroupsPerInput = (int) Math.ceil(Math.pow(parallelism, 1.0/numInputs));
-            numGroupsGoingTo = (int) Math.pow(numGroupsPerInput,numInputs - 1);
+            numGroupsPerInput = computeNumGroups(parallelism, numInputs, inputSizes);
+            numGroupsGoingTo = 1;
+            for (int i = 0; i < numInputs; i++) {
+                if (i != myNumber) {
+                    numGroupsGoingTo *= numGroupsPerInput[i];
+                }
+            }
 
             LOG.info(MessageFormat.format("Parallelism = {0}, numInputs = {1}, myNumber = {2},"
                             + " numGroupsPerInput = {3}, numGroupsGoingTo = {4}",
                             parallelism, numInputs, myNumber,
-                            numGroupsPerInput, numGroupsGoingTo));
+                            Arrays.toString(numGroupsPerInput), numGroupsGoingTo));
 
         }
 
@@ -98,7 +122,7 @@ public class GFCross extends EvalFunc<DataBag> {
         try{
 
             int[] digits = new int[numInputs];
-            digits[myNumber] = r.nextInt(numGroupsPerInput);
+            digits[myNumber] = r.nextInt(numGroupsPerInput[myNumber]);
 
             for (int i=0; i<numGroupsGoingTo; i++){
                 output.add(toTuple(digits));
@@ -124,7 +148,7 @@ public class GFCross extends EvalFunc<DataBag> {
             if (i== myNumber)
                 continue;
             else{
-                if (digits[i] == numGroupsPerInput - 1){
+                if (digits[i] == numGroupsPerInput[i] - 1){
                     digits[i] = 0;
                 }else{
                     digits[i]++;
@@ -134,4 +158,51 @@ public class GFCross extends EvalFunc<DataBag> {
         }
     }
 
+    /**
+     * Splits each input into a number of groups such that the product of the
+     * group counts is about the parallelism. Without sizes every input gets
+     * the same count. With sizes, the counts are proportional to the sizes,
+     * which minimizes the total amount of replicated data; inputs too small
+     * to be split are kept in a single group.
+     */
+    private static int[] computeNumGroups(int parallelism, int numInputs, long[] sizes) {
+        int[] groups = new int[numInputs];
+        if (sizes == null || sizes.length != numInputs) {
+            Arrays.fill(groups, (int) Math.ceil(Math.pow(parallelism, 1.0/numInputs)));
+            return groups;
+        }
+        boolean[] fixed = new boolean[numInputs];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int free = 0;
+            double logSizes = 0;
+            for (int i = 0; i < numInputs; i++) {
+                if (!fixed[i]) {
+                    free++;
+                    logSizes += Math.log(sizes[i]);
+                }
+            }
+            if (free == 0) {
+                break;
+            }
+            // g_i = s_i * (P / prod(s_j))^(1/free) over the inputs still free
+            double logScale = (Math.log(Math.max(1, parallelism)) - logSizes) / free;
+            for (int i = 0; i < numInputs; i++) {
+                if (fixed[i]) {
+                    continue;
+                }
+                double g = Math.exp(Math.log(sizes[i]) + logScale);
+                if (g < 1) {
+                    fixed[i] = true;
+                    groups[i] = 1;
+                    changed = true;
+                } else {
+                    groups[i] = (int) Math.round(g);
+                }
+            }
+        }
+        return groups;
+    }
+
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.impl.builtin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pig.EvalFunc;
+import org.apache.pig.builtin.CubeDimensions;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+
+/**
+ * Expands the key of a partially aggregated CUBE/ROLLUP group into the keys of
+ * all its grouping sets. Used by the combiner optimizer so that rows are first
+ * aggregated by all dimensions and the higher level sets are derived from those
+ * partial results, instead of expanding every input row with
+ * {@link CubeDimensions} or {@link org.apache.pig.builtin.RollupDimensions}.
+ * <p>
+ * The spec lists the operations and the key positions of their dimensions, for
+ * example "CUBE:0,1;ROLLUP:2,3". Input is a tuple holding the group key, output
+ * is a bag of single field tuples holding the expanded keys.
+ */
+public class GroupingSets extends EvalFunc<DataBag> {
+
+    public static final String CUBE = "CUBE";
+    public static final String ROLLUP = "ROLLUP";
+
+    private static final BagFactory bf = BagFactory.getInstance();
+    private static final TupleFactory tf = TupleFactory.getInstance();
+
+    // positions of the key kept by each grouping set
+    private final boolean[][] sets;
+    private final boolean isTupleKey;
+    private final String allMarker;
+
+    public GroupingSets(String spec, String isTupleKey) {
+        this(spec, isTupleKey, null);
+    }
+
+    public GroupingSets(String spec, String isTupleKey, String allMarker) {
+        this.isTupleKey = Boolean.parseBoolean(isTupleKey);
+        this.allMarker = allMarker;
+        this.sets = parse(spec);
+    }
+
+    private static boolean[][] parse(String spec) {
+        List<String[]> ops = new ArrayList<String[]>();
+        int keySize = 0;
+        for (String op : spec.split(";")) {
+            String[] parts = op.split(":");
+            String[] positions = parts[1].split(",");
+            ops.add(parts);
+            for (String pos : positions) {
+                keySize = Math.max(keySize, Integer.parseInt(pos) + 1);
+            }
+        }
+        List<boolean[]> sets = new ArrayList<boolean[]>();
+        boolean[] all = new boolean[keySize];
+        for (int i = 0; i < keySize; i++) {
+            all[i] = true;
+        }
+        sets.add(all);
+        for (String[] op : ops) {
+            String[] parts = op[1].split(",");
+            int[] positions = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                positions[i] = Integer.parseInt(parts[i]);
+            }
+            List<boolean[]> expanded = new ArrayList<boolean[]>();
+            for (boolean[] set : sets) {
+                if (op[0].equals(CUBE)) {
+                    // every subset of the dimensions
+                    for (int mask = 0; mask < (1 << positions.length); mask++) {
+                        boolean[] s = set.clone();
+                        for (int i = 0; i < positions.length; i++) {
+                            if ((mask & (1 << i)) != 0) {
+                                s[positions[i]] = false;
+                            }
+                        }
+                        expanded.add(s);
+                    }
+                } else if (op[0].equals(ROLLUP)) {
+                    // every prefix of the dimensions
+                    for (int len = positions.length; len >= 0; len--) {
+                        boolean[] s = set.clone();
+                        for (int i = len; i < positions.length; i++) {
+                            s[positions[i]] = false;
+                        }
+                        expanded.add(s);
+                    }
+                } else {
+                    throw new IllegalArgumentException("Unknown grouping operation " + op[0]);
+                }
+            }
+            sets = expanded;
+        }
+        return sets.toArray(new boolean[sets.size()][]);
+    }
+
+    @Override
+    public DataBag exec(Tuple input) throws IOException {
+        Object key = input.get(0);
+        List<Tuple> result = new ArrayList<Tuple>(sets.length);
+        for (boolean[] set : sets) {
+            Object newKey;
+            if (isTupleKey) {
+                Tuple keyTuple = (Tuple) key;
+                Tuple t = tf.newTuple(keyTuple.size());
+                for (int i = 0; i < keyTuple.size(); i++) {
+                    t.set(i, set[i] ? keyTuple.get(i) : allMarker);
+                }
+                newKey = t;
+            } else {
+                newKey = set[0] ? key : allMarker;
+            }
+            result.add(tf.newTuple(newKey));
+        }
+        return bf.newDefaultBag(result);
+    }
+
+    /**
+     * Returns the dimensions of a single input row for the grouping set that
+     * keeps all of them, with nulls replaced the same way {@link CubeDimensions}
+     * does. Flattened in place of CubeDimensions/RollupDimensions.
+     */
+    public static class Dimensions extends EvalFunc<Tuple> {
+        @Override
+        public Tuple exec(Tuple input) throws IOException {
+            CubeDimensions.convertNullToUnknown(input);
+            return input;
+        }
+    }
+}
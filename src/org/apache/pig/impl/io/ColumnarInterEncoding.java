@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.impl.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.pig.data.DataByteArray;
+import org.apache.pig.data.InterSedes;
+import org.apache.pig.data.InterSedesFactory;
+import org.joda.time.DateTime;
+
+/**
+ * Encodings of the column chunks written by {@link ColumnarInterRecordWriter}.
+ *
+ * A chunk holds the values of one column for the rows of a row group that are
+ * wide enough to have the column. It starts with the nulls as runs of
+ * alternating non null and null values, followed by the encoding and the non
+ * null values:
+ * <ul>
+ * <li>RLE: runs of equal values, for columns of scalars with few distinct runs</li>
+ * <li>DELTA: variable length differences between consecutive ints or longs</li>
+ * <li>DICTIONARY: the distinct chararrays, followed by the index of each value</li>
+ * <li>PLAIN: every value written with {@link InterSedes}</li>
+ * </ul>
+ */
+final class ColumnarInterEncoding {
+
+    static final byte PLAIN = 0;
+    static final byte RLE = 1;
+    static final byte DELTA_INT = 2;
+    static final byte DELTA_LONG = 3;
+    static final byte DICTIONARY = 4;
+
+    private static final InterSedes sedes = InterSedesFactory.getInterSedesInstance();
+
+    private ColumnarInterEncoding() {
+    }
+
+    /**
+     * Write the values of a column.
+     *
+     * @param out output to write to
+     * @param values the values of the column, including nulls
+     * @param count number of values
+     * @throws IOException
+     */
+    static void write(DataOutput out, Object[] values, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        // Null runs, starting with a run of non null values
+        boolean isNull = false;
+        int run = 0;
+        int nonNulls = 0;
+        for (int i = 0; i < count; i++) {
+            if ((values[i] == null) != isNull) {
+                WritableUtils.writeVInt(out, run);
+                isNull = !isNull;
+                run = 0;
+            }
+            run++;
+            if (values[i] != null) {
+                nonNulls++;
+            }
+        }
+        WritableUtils.writeVInt(out, run);
+
+        if (nonNulls > 0) {
+            Object[] nonNullValues = new Object[nonNulls];
+            int j = 0;
+            for (int i = 0; i < count; i++) {
+                if (values[i] != null) {
+                    nonNullValues[j++] = values[i];
+                }
+            }
+            writeNonNulls(out, nonNullValues);
+        }
+    }
+
+    /**
+     * Only scalars can be run length encoded. Bags compare equal regardless of
+     * the order of their tuples, and a single tuple, bag or map read back for
+     * a whole run would be shared by all of its rows.
+     */
+    private static boolean isScalar(Object value) {
+        return value instanceof Number || value instanceof String
+                || value instanceof Boolean || value instanceof DateTime
+                || value instanceof DataByteArray;
+    }
+
+    private static void writeNonNulls(DataOutput out, Object[] values) throws IOException {
+        int runs = 0;
+        boolean allScalars = true;
+        boolean allInts = true;
+        boolean allLongs = true;
+        boolean allStrings = true;
+        for (int i = 0; i < values.length; i++) {
+            allScalars &= isScalar(values[i]);
+            if (allScalars && (i == 0 || !values[i].equals(values[i - 1]))) {
+                runs++;
+            }
+            allInts &= values[i] instanceof Integer;
+            allLongs &= values[i] instanceof Long;
+            allStrings &= values[i] instanceof String;
+        }
+
+        if (allScalars && runs * 4 <= values.length) {
+            out.writeByte(RLE);
+            for (int i = 0; i < values.length;) {
+                int end = i + 1;
+                while (end < values.length && values[end].equals(values[i])) {
+                    end++;
+                }
+                WritableUtils.writeVInt(out, end - i);
+                sedes.writeDatum(out, values[i]);
+                i = end;
+            }
+        } else if (allInts) {
+            out.writeByte(DELTA_INT);
+            int prev = 0;
+            for (Object value : values) {
+                int v = (Integer) value;
+                WritableUtils.writeVLong(out, (long) v - prev);
+                prev = v;
+            }
+        } else if (allLongs) {
+            out.writeByte(DELTA_LONG);
+            long prev = 0;
+            for (Object value : values) {
+                long v = (Long) value;
+                // Wraps around on overflow, and so does the reader
+                WritableUtils.writeVLong(out, v - prev);
+                prev = v;
+            }
+        } else if (!allStrings || !writeDictionary(out, values)) {
+            writePlain(out, values);
+        }
+    }
+
+    private static boolean writeDictionary(DataOutput out, Object[] values) throws IOException {
+        Map<Object, Integer> dictionary = new HashMap<Object, Integer>();
+        int[] ids = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Integer id = dictionary.get(values[i]);
+            if (id == null) {
+                if (dictionary.size() * 2 >= values.length) {
+                    return false;
+                }
+                id = dictionary.size();
+                dictionary.put(values[i], id);
+            }
+            ids[i] = id;
+        }
+        Object[] entries = new Object[dictionary.size()];
+        for (Map.Entry<Object, Integer> e : dictionary.entrySet()) {
+            entries[e.getValue()] = e.getKey();
+        }
+        out.writeByte(DICTIONARY);
+        WritableUtils.writeVInt(out, entries.length);
+        for (Object entry : entries) {
+            sedes.writeDatum(out, entry);
+        }
+        for (int id : ids) {
+            WritableUtils.writeVInt(out, id);
+        }
+        return true;
+    }
+
+    private static void writePlain(DataOutput out, Object[] values) throws IOException {
+        out.writeByte(PLAIN);
+        for (Object value : values) {
+            sedes.writeDatum(out, value);
+        }
+    }
+
+    /**
+     * Read the values of a column written by
+     * {@link #write(DataOutput, Object[], int)}.
+     *
+     * @param in input to read from
+     * @param values array to read the values into
+     * @param count number of values
+     * @throws IOException
+     */
+    static void read(DataInput in, Object[] values, int count) throws IOException {
+        boolean[] nulls = new boolean[count];
+        int nonNulls = 0;
+        boolean isNull = false;
+        for (int i = 0; i < count;) {
+            int run = WritableUtils.readVInt(in);
+            for (int end = i + run; i < end; i++) {
+                nulls[i] = isNull;
+                if (!isNull) {
+                    nonNulls++;
+                }
+            }
+            isNull = !isNull;
+        }
+
+        Object[] nonNullValues = new Object[nonNulls];
+        if (nonNulls > 0) {
+            readNonNulls(in, nonNullValues);
+        }
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            values[i] = nulls[i] ? null : nonNullValues[j++];
+        }
+    }
+
+    private static void readNonNulls(DataInput in, Object[] values) throws IOException {
+        byte encoding = in.readByte();
+        switch (encoding) {
+        case RLE:
+            for (int i = 0; i < values.length;) {
+                int run = WritableUtils.readVInt(in);
+                Object value = sedes.readDatum(in);
+                for (int end = i + run; i < end; i++) {
+                    if (value instanceof DataByteArray && i < end - 1) {
+                        // Byte arrays are mutable, give every row its own
+                        DataByteArray bytes = (DataByteArray) value;
+                        values[i] = new DataByteArray(bytes.get(), 0, bytes.size());
+                    } else {
+                        values[i] = value;
+                    }
+                }
+            }
+            break;
+        case DELTA_INT:
+            int prevInt = 0;
+            for (int i = 0; i < values.length; i++) {
+                prevInt += (int) WritableUtils.readVLong(in);
+                values[i] = prevInt;
+            }
+            break;
+        case DELTA_LONG:
+            long prevLong = 0;
+            for (int i = 0; i < values.length; i++) {
+                prevLong += WritableUtils.readVLong(in);
+                values[i] = prevLong;
+            }
+            break;
+        case DICTIONARY:
+            Object[] entries = new Object[WritableUtils.readVInt(in)];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = sedes.readDatum(in);
+            }
+            for (int i = 0; i < values.length; i++) {
+                values[i] = entries[WritableUtils.readVInt(in)];
+            }
+            break;
+        case PLAIN:
+            for (int i = 0; i < values.length; i++) {
+                values[i] = sedes.readDatum(in);
+            }
+            break;
+        default:
+            throw new IOException("Unknown column encoding " + encoding);
+        }
+    }
+}
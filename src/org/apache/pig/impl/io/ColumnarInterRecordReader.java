@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.impl.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+
+/**
+ * A record reader used to read data written using {@link ColumnarInterRecordWriter}.
+ *
+ * Only the columns set through {@link #setRequiredColumns(boolean[], boolean)}
+ * are decompressed and decoded, the chunks of the other columns are skipped.
+ * A split reads the row groups whose sync marker starts within the split.
+ */
+public class ColumnarInterRecordReader extends RecordReader<NullWritable, Tuple> {
+
+    private static final TupleFactory tupleFactory = TupleFactory.getInstance();
+
+    private FSDataInputStream in;
+
+    private long start;
+
+    private long length;
+
+    private long end;
+
+    private final byte[] sync = new byte[ColumnarInterRecordWriter.SYNC_LENGTH];
+
+    // True if the sync marker of the next row group was already read while
+    // looking for the start of the split
+    private boolean atSync = false;
+
+    private CompressionCodec codec;
+
+    private boolean[] requiredColumns = null;
+
+    private boolean compact = false;
+
+    private int numRequired;
+
+    private int numRows = 0;
+
+    private int row = 0;
+
+    private int[] widths;
+
+    private Object[][] columns;
+
+    private Tuple value = null;
+
+    private boolean done = false;
+
+    /**
+     * Set the columns to read.
+     *
+     * @param requiredColumns the columns to read, null to read all of them
+     * @param compact if true, tuples only hold the required columns in order.
+     *        Otherwise tuples keep their width and the columns that are not
+     *        read are null.
+     */
+    public void setRequiredColumns(boolean[] requiredColumns, boolean compact) {
+        this.requiredColumns = requiredColumns;
+        this.compact = compact && requiredColumns != null;
+        numRequired = 0;
+        if (requiredColumns != null) {
+            for (boolean required : requiredColumns) {
+                if (required) {
+                    numRequired++;
+                }
+            }
+        }
+    }
+
+    private boolean isRequired(int column) {
+        return requiredColumns == null
+                || (column < requiredColumns.length && requiredColumns[column]);
+    }
+
+    @Override
+    public void initialize(InputSplit genericSplit, TaskAttemptContext context)
+            throws IOException, InterruptedException {
+        FileSplit split = (FileSplit) genericSplit;
+        Configuration conf = context.getConfiguration();
+        Path file = split.getPath();
+        FileSystem fs = file.getFileSystem(conf);
+        in = fs.open(file);
+        start = split.getStart();
+        length = split.getLength();
+        end = start + length;
+
+        byte[] magic = new byte[ColumnarInterRecordWriter.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarInterRecordWriter.MAGIC)) {
+            throw new IOException(file + " is not a columnar intermediate file");
+        }
+        byte version = in.readByte();
+        if (version != ColumnarInterRecordWriter.VERSION) {
+            throw new IOException("Unsupported columnar intermediate file version " + version);
+        }
+        String codecClassName = in.readUTF();
+        if (!codecClassName.isEmpty()) {
+            try {
+                codec = (CompressionCodec) ReflectionUtils.newInstance(
+                        conf.getClassByName(codecClassName), conf);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Compression codec " + codecClassName + " not found", e);
+            }
+        }
+        in.readFully(sync);
+
+        // A split reads the row groups whose sync marker starts within it
+        if (start > in.getPos()) {
+            in.seek(start);
+            atSync = skipToSync();
+            done = !atSync;
+        }
+    }
+
+    /**
+     * Skip to the end of the first sync marker that starts at or after the
+     * current position.
+     *
+     * @return true if a sync marker starts before the end of the split, false
+     *         otherwise
+     * @throws IOException
+     */
+    private boolean skipToSync() throws IOException {
+        byte[] window = new byte[sync.length];
+        int seen = 0;
+        // A marker completed by the next byte would start at or after the end
+        while (in.getPos() + 1 - sync.length < end) {
+            int b = in.read();
+            if (b == -1) {
+                return false;
+            }
+            window[seen++ % sync.length] = (byte) b;
+            if (seen >= sync.length) {
+                boolean matches = true;
+                for (int i = 0; i < sync.length && matches; i++) {
+                    matches = window[(seen + i) % sync.length] == sync[i];
+                }
+                if (matches) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean readSync() throws IOException {
+        if (atSync) {
+            atSync = false;
+            return true;
+        }
+        long pos = in.getPos();
+        if (pos >= end) {
+            return false;
+        }
+        byte[] marker = new byte[sync.length];
+        in.readFully(marker);
+        if (!Arrays.equals(marker, sync)) {
+            throw new IOException("Corrupt data file, expected sync marker at position " + pos);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+        if (row == numRows && !readRowGroup()) {
+            value = null;
+            return false;
+        }
+        int width = widths[row];
+        if (compact) {
+            value = tupleFactory.newTuple(numRequired);
+            int j = 0;
+            for (int c = 0; c < requiredColumns.length; c++) {
+                if (requiredColumns[c]) {
+                    if (c < width) {
+                        value.set(j, columns[c][row]);
+                    }
+                    j++;
+                }
+            }
+        } else {
+            value = tupleFactory.newTuple(width);
+            for (int c = 0; c < width; c++) {
+                if (columns[c] != null) {
+                    value.set(c, columns[c][row]);
+                }
+            }
+        }
+        row++;
+        return true;
+    }
+
+    private boolean readRowGroup() throws IOException {
+        if (done || !readSync() || in.readByte() != ColumnarInterRecordWriter.ROW_GROUP) {
+            done = true;
+            return false;
+        }
+        numRows = WritableUtils.readVInt(in);
+        int numColumns = WritableUtils.readVInt(in);
+        row = 0;
+
+        Object[] widthValues = new Object[numRows];
+        readChunk(widthValues, numRows);
+        widths = new int[numRows];
+        for (int i = 0; i < numRows; i++) {
+            widths[i] = (Integer) widthValues[i];
+        }
+
+        // Keep at least as many columns as are required so that compact
+        // tuples can look up columns beyond the widest row
+        int numKept = Math.max(numColumns,
+                requiredColumns == null ? 0 : requiredColumns.length);
+        columns = new Object[numKept][];
+        Object[] values = new Object[numRows];
+        for (int c = 0; c < numColumns; c++) {
+            if (!isRequired(c)) {
+                int chunkLength = in.readInt();
+                in.seek(in.getPos() + chunkLength);
+                continue;
+            }
+            int count = 0;
+            for (int i = 0; i < numRows; i++) {
+                if (c < widths[i]) {
+                    count++;
+                }
+            }
+            readChunk(values, count);
+            Object[] column = new Object[numRows];
+            int j = 0;
+            for (int i = 0; i < numRows; i++) {
+                if (c < widths[i]) {
+                    column[i] = values[j++];
+                }
+            }
+            columns[c] = column;
+        }
+        return true;
+    }
+
+    private void readChunk(Object[] values, int count) throws IOException {
+        byte[] chunk = new byte[in.readInt()];
+        in.readFully(chunk);
+        InputStream is = new ByteArrayInputStream(chunk);
+        Decompressor decompressor = null;
+        if (codec != null) {
+            decompressor = CodecPool.getDecompressor(codec);
+            is = codec.createInputStream(is, decompressor);
+        }
+        try {
+            ColumnarInterEncoding.read(new DataInputStream(is), values, count);
+        } finally {
+            if (decompressor != null) {
+                CodecPool.returnDecompressor(decompressor);
+            }
+        }
+    }
+
+    @Override
+    public NullWritable getCurrentKey() {
+        return null;
+    }
+
+    @Override
+    public Tuple getCurrentValue() {
+        return value;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+        if (length == 0) {
+            return 0.0f;
+        }
+        return Math.min(1.0f, (in.getPos() - start) / (float) length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.impl.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.rmi.server.UID;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.Time;
+import org.apache.pig.data.Tuple;
+
+/**
+ * A record writer used to write data readable by
+ * {@link ColumnarInterRecordReader}.
+ *
+ * Tuples are buffered into row groups. A row group is written as the width of
+ * every row followed by one chunk per column, each encoded with
+ * {@link ColumnarInterEncoding} and compressed separately, so that a reader
+ * can skip the columns it does not need without decompressing them.
+ *
+ * Every row group starts with the sync marker from the file header, so that
+ * the file can be split and a reader can find the first row group of its
+ * split.
+ */
+public class ColumnarInterRecordWriter extends RecordWriter<NullWritable, Tuple> {
+
+    static final byte[] MAGIC = { 'P', 'C', 'O', 'L' };
+
+    static final byte VERSION = 2;
+
+    static final int SYNC_LENGTH = 16;
+
+    static final byte ROW_GROUP = 1;
+
+    static final byte END = 0;
+
+    private final FSDataOutputStream out;
+
+    private final CompressionCodec codec;
+
+    private final Object[][] rows;
+
+    private int numRows = 0;
+
+    private final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+
+    private final byte[] sync;
+
+    /**
+     * @param out the output stream to write to
+     * @param codec the codec to compress column chunks with, or null
+     * @param rowGroupSize number of rows per row group
+     * @throws IOException
+     */
+    public ColumnarInterRecordWriter(FSDataOutputStream out, CompressionCodec codec,
+            int rowGroupSize) throws IOException {
+        this.out = out;
+        this.codec = codec;
+        this.rows = new Object[Math.max(1, rowGroupSize)][];
+        try {
+            MessageDigest digester = MessageDigest.getInstance("MD5");
+            digester.update((new UID() + "@" + Time.now()).getBytes());
+            sync = digester.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(codec == null ? "" : codec.getClass().getName());
+        out.write(sync);
+    }
+
+    @Override
+    public void write(NullWritable key, Tuple t) throws IOException {
+        // Copy the fields, the tuple may be reused by the caller
+        Object[] fields = new Object[t.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = t.get(i);
+        }
+        rows[numRows++] = fields;
+        if (numRows == rows.length) {
+            writeRowGroup();
+        }
+    }
+
+    private void writeRowGroup() throws IOException {
+        int numColumns = 0;
+        Object[] widths = new Object[numRows];
+        for (int i = 0; i < numRows; i++) {
+            widths[i] = rows[i].length;
+            numColumns = Math.max(numColumns, rows[i].length);
+        }
+        out.write(sync);
+        out.writeByte(ROW_GROUP);
+        WritableUtils.writeVInt(out, numRows);
+        WritableUtils.writeVInt(out, numColumns);
+        writeChunk(widths, numRows);
+
+        Object[] values = new Object[numRows];
+        for (int c = 0; c < numColumns; c++) {
+            int count = 0;
+            for (int i = 0; i < numRows; i++) {
+                if (c < rows[i].length) {
+                    values[count++] = rows[i][c];
+                }
+            }
+            writeChunk(values, count);
+        }
+
+        for (int i = 0; i < numRows; i++) {
+            rows[i] = null;
+        }
+        numRows = 0;
+    }
+
+    private void writeChunk(Object[] values, int count) throws IOException {
+        chunk.reset();
+        Compressor compressor = null;
+        OutputStream os = chunk;
+        if (codec != null) {
+            compressor = CodecPool.getCompressor(codec);
+            os = codec.createOutputStream(chunk, compressor);
+        }
+        try {
+            DataOutputStream dos = new DataOutputStream(os);
+            ColumnarInterEncoding.write(dos, values, count);
+            dos.flush();
+            if (os instanceof CompressionOutputStream) {
+                ((CompressionOutputStream) os).finish();
+            }
+        } finally {
+            if (compressor != null) {
+                CodecPool.returnCompressor(compressor);
+            }
+        }
+        out.writeInt(chunk.size());
+        chunk.writeTo(out);
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException, InterruptedException {
+        if (numRows > 0) {
+            writeRowGroup();
+        }
+        out.write(sync);
+        out.writeByte(END);
+        out.close();
+    }
+}
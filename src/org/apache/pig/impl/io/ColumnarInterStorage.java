@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.impl.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.pig.Expression;
+import org.apache.pig.FileInputLoadFunc;
+import org.apache.pig.LoadFunc;
+import org.apache.pig.LoadMetadata;
+import org.apache.pig.LoadPushDown;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.ResourceSchema;
+import org.apache.pig.ResourceStatistics;
+import org.apache.pig.StoreFunc;
+import org.apache.pig.StoreFuncInterface;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigFileInputFormat;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigSplit;
+import org.apache.pig.classification.InterfaceAudience;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.impl.logicalLayer.FrontendException;
+import org.apache.pig.impl.util.ObjectSerializer;
+import org.apache.pig.impl.util.UDFContext;
+import org.apache.pig.impl.util.Utils;
+
+/**
+ * LOAD FUNCTION FOR PIG INTERNAL USE ONLY!
+ * This load function is used for storing intermediate data between MR jobs of
+ * a pig query in a columnar layout, see {@link ColumnarInterRecordWriter}.
+ * It is used instead of {@link InterStorage} when pig.tmpfilecompression is
+ * true and pig.tmpfilecompression.storage is columnar. Column chunks are
+ * compressed with the codec set in pig.tmpfilecompression.codec, if any.
+ *
+ * Only the required columns are read, either through {@link LoadPushDown}, or
+ * through the constructor argument used by the MR compiler for temporary
+ * loads, in which case the tuples keep their width and the columns that are
+ * not read are null.
+ * The serialization format of this load function can change in newer
+ * versions of pig, so this should NOT be used to store any persistent data.
+ */
+@InterfaceAudience.Private
+public class ColumnarInterStorage extends FileInputLoadFunc
+implements StoreFuncInterface, LoadMetadata, LoadPushDown {
+
+    private static final Log mLog = LogFactory.getLog(ColumnarInterStorage.class);
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 10000;
+
+    private ColumnarInterRecordReader recReader = null;
+    private ColumnarInterRecordWriter recWriter = null;
+
+    private boolean[] requiredColumns = null;
+
+    private String signature;
+
+    public ColumnarInterStorage() {
+    }
+
+    /**
+     * @param columns comma separated indexes of the columns to read. The other
+     *        columns are null in the tuples returned.
+     */
+    public ColumnarInterStorage(String columns) {
+        requiredColumns = parseColumns(columns);
+    }
+
+    /**
+     * @param columns indexes of the columns to read
+     * @return the constructor argument for {@link #ColumnarInterStorage(String)}
+     */
+    public static String toColumnsArgument(List<Integer> columns) {
+        StringBuilder sb = new StringBuilder();
+        for (int column : columns) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(column);
+        }
+        return sb.toString();
+    }
+
+    private static boolean[] parseColumns(String columns) {
+        String[] indexes = columns.isEmpty() ? new String[0] : columns.split(",");
+        int last = -1;
+        for (String index : indexes) {
+            last = Math.max(last, Integer.parseInt(index));
+        }
+        boolean[] required = new boolean[last + 1];
+        for (String index : indexes) {
+            required[Integer.parseInt(index)] = true;
+        }
+        return required;
+    }
+
+    @Override
+    public Tuple getNext() throws IOException {
+        try {
+            if (recReader.nextKeyValue()) {
+                return recReader.getCurrentValue();
+            } else {
+                return null;
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void putNext(Tuple t) throws IOException {
+        recWriter.write(null, t);
+    }
+
+    public static class ColumnarInterInputFormat extends PigFileInputFormat<NullWritable, Tuple> {
+
+        @Override
+        public RecordReader<NullWritable, Tuple> createRecordReader(InputSplit split,
+                TaskAttemptContext context) throws IOException, InterruptedException {
+            return new ColumnarInterRecordReader();
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public InputFormat getInputFormat() {
+        return new ColumnarInterInputFormat();
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void prepareToRead(RecordReader reader, PigSplit split) throws IOException {
+        recReader = (ColumnarInterRecordReader) reader;
+        if (requiredColumns != null) {
+            recReader.setRequiredColumns(requiredColumns, false);
+        } else if (signature != null) {
+            Properties p = UDFContext.getUDFContext().getUDFProperties(this.getClass());
+            String projection = p.getProperty(signature);
+            if (projection != null) {
+                recReader.setRequiredColumns((boolean[]) ObjectSerializer.deserialize(projection), true);
+            }
+        }
+    }
+
+    @Override
+    public void setLocation(String location, Job job) throws IOException {
+        FileInputFormat.setInputPaths(job, location);
+    }
+
+    public static class ColumnarInterOutputFormat extends FileOutputFormat<NullWritable, Tuple> {
+
+        @Override
+        public RecordWriter<NullWritable, Tuple> getRecordWriter(
+                TaskAttemptContext job) throws IOException, InterruptedException {
+            Configuration conf = job.getConfiguration();
+            Path file = getDefaultWorkFile(job, "");
+            FileSystem fs = file.getFileSystem(conf);
+            FSDataOutputStream fileOut = fs.create(file, false);
+            return new ColumnarInterRecordWriter(fileOut, getCodec(conf),
+                    conf.getInt(PigConfiguration.PIG_TEMP_FILE_COLUMNAR_ROW_GROUP_SIZE,
+                            DEFAULT_ROW_GROUP_SIZE));
+        }
+    }
+
+    /**
+     * @param conf
+     * @return the codec set through pig.tmpfilecompression.codec, or null if
+     *         there is none
+     * @throws IOException if the codec is not available
+     */
+    static CompressionCodec getCodec(Configuration conf) throws IOException {
+        String codecName = conf.get(PigConfiguration.PIG_TEMP_FILE_COMPRESSION_CODEC, "");
+        if (codecName.isEmpty()) {
+            return null;
+        }
+        if (codecName.equalsIgnoreCase("gz")) {
+            codecName = "gzip";
+        }
+        CompressionCodec codec = new CompressionCodecFactory(conf).getCodecByName(codecName);
+        if (codec == null) {
+            throw new IOException("Compression codec " + codecName + " is not available");
+        }
+        return codec;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public OutputFormat getOutputFormat() {
+        return new ColumnarInterOutputFormat();
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void prepareToWrite(RecordWriter writer) {
+        this.recWriter = (ColumnarInterRecordWriter) writer;
+    }
+
+    @Override
+    public void setStoreLocation(String location, Job job) throws IOException {
+        FileOutputFormat.setOutputPath(job, new Path(location));
+    }
+
+    @Override
+    public void checkSchema(ResourceSchema s) throws IOException {
+
+    }
+
+    @Override
+    public String relToAbsPathForStoreLocation(String location, Path curDir)
+            throws IOException {
+        return LoadFunc.getAbsolutePath(location, curDir);
+    }
+
+    @Override
+    public String[] getPartitionKeys(String location, Job job)
+            throws IOException {
+        return null;
+    }
+
+    @Override
+    public ResourceSchema getSchema(String location, Job job)
+            throws IOException {
+        return Utils.getSchema(this, location, true, job);
+    }
+
+    @Override
+    public ResourceStatistics getStatistics(String location, Job job)
+            throws IOException {
+        return null;
+    }
+
+    @Override
+    public void setPartitionFilter(Expression plan) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<OperatorSet> getFeatures() {
+        return Arrays.asList(LoadPushDown.OperatorSet.PROJECTION);
+    }
+
+    @Override
+    public RequiredFieldResponse pushProjection(RequiredFieldList requiredFieldList)
+            throws FrontendException {
+        if (requiredFieldList == null || requiredFieldList.getFields() == null) {
+            return null;
+        }
+        int lastColumn = -1;
+        for (RequiredField rf : requiredFieldList.getFields()) {
+            lastColumn = Math.max(lastColumn, rf.getIndex());
+        }
+        boolean[] required = new boolean[lastColumn + 1];
+        for (RequiredField rf : requiredFieldList.getFields()) {
+            if (rf.getIndex() != -1) {
+                required[rf.getIndex()] = true;
+            }
+        }
+        Properties p = UDFContext.getUDFContext().getUDFProperties(this.getClass());
+        try {
+            p.setProperty(signature, ObjectSerializer.serialize(required));
+        } catch (IOException e) {
+            throw new FrontendException("Cannot serialize required columns", e);
+        }
+        mLog.debug("Reading columns " + Arrays.toString(required));
+        return new RequiredFieldResponse(true);
+    }
+
+    @Override
+    public void setUDFContextSignature(String signature) {
+        this.signature = signature;
+    }
+
+    @Override
+    public void setStoreFuncUDFContextSignature(String signature) {
+    }
+
+    @Override
+    public void cleanupOnFailure(String location, Job job) throws IOException {
+        StoreFunc.cleanupOnFailureImpl(location, job);
+    }
+
+    @Override
+    public void cleanupOnSuccess(String location, Job job) throws IOException {
+        // DEFAULT: do nothing
+    }
+}
@@ -77,6 +77,8 @@ public class ExecutableManager {
     protected long inputBytes = 0;
     protected long outputRecords = 0;
     protected long outputBytes = 0;
+    protected long startTime = 0;
+    protected long endTime = 0;
 
     protected volatile Throwable outerrThreadsError;
     private POStream poStream;
@@ -207,6 +209,7 @@ public class ExecutableManager {
     protected void exec() throws IOException {
         ProcessBuilder processBuilder = StreamingUtil.createProcess(this.command);
         process = processBuilder.start();
+        startTime = System.currentTimeMillis();
         LOG.debug("Started the process for command: " + command);
 
         // Pick up the process' stderr stream and start the thread to
@@ -267,6 +270,31 @@ public class ExecutableManager {
         stdinThread.start();
     }
 
+    /**
+     * @return number of records sent to the managed process
+     */
+    public long getInputRecords() {
+        return inputRecords;
+    }
+
+    /**
+     * @return number of records read from the managed process
+     */
+    public long getOutputRecords() {
+        return outputRecords;
+    }
+
+    /**
+     * @return milliseconds between the start of the managed process and its
+     *         exit, or the time it has been running so far
+     */
+    public long getElapsedMillis() {
+        if (startTime == 0) {
+            return 0;
+        }
+        return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
     /**
      * The thread which consumes input from POStream's binaryInput queue
      * and feeds it to the the Process
@@ -452,6 +480,7 @@ public class ExecutableManager {
                 // and harvest exit code
                 try {
                     exitCode = process.waitFor();
+                    endTime = System.currentTimeMillis();
                 } catch (InterruptedException ie) {
                     killProcess(process);
                     // signal error
@@ -28,6 +28,9 @@ import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -35,10 +38,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 
 import org.antlr.runtime.CommonTokenStream;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -61,6 +67,9 @@ public class JarManager {
     private static Log log = LogFactory.getLog(JarManager.class);
     private static final String PIGTEST_JAR = "pigtest.jar";
 
+    // Checksums of local files, keyed by path, length and CRC32 of the content
+    private static final Map<String, String> checksums = new ConcurrentHashMap<String, String>();
+
     private static enum DefaultPigPackages {
 
         PIG(PigMapReduce.class),
@@ -151,6 +160,115 @@ public class JarManager {
         }
     }
 
+    /**
+     * Returns the SHA-1 checksum of the content of the given url. Checksums of
+     * local files are remembered by path, length and CRC32 of their content, in
+     * memory and, if checksumDir is not null, on local disk so that later jobs
+     * and later Pig runs compute the CRC32 of unchanged jars instead of their
+     * SHA-1. Local files are still read in full on every call. The
+     * modification time is not used as a jar rebuilt within the same second
+     * with the same length would get the checksum of the old one.
+     * checksumDir is created readable by the current user only, and is not
+     * used if it is owned by someone else or writable by group or others.
+     *
+     * @param url the url to checksum
+     * @param checksumDir local directory to keep checksums in across runs, or null
+     * @return the hex encoded SHA-1 checksum
+     * @throws IOException
+     */
+    public static String getChecksum(URL url, File checksumDir) throws IOException {
+        if (!"file".equals(url.getProtocol())) {
+            return shaHex(url);
+        }
+        File file;
+        try {
+            file = new File(url.toURI());
+        } catch (Exception e) {
+            return shaHex(url);
+        }
+        String key = file.getAbsolutePath() + "\n" + file.length() + "\n"
+                + Long.toHexString(FileUtils.checksumCRC32(file));
+        String checksum = checksums.get(key);
+        if (checksum != null) {
+            return checksum;
+        }
+        if (checksumDir != null && !isPrivateDir(checksumDir)) {
+            checksumDir = null;
+        }
+        File indexFile = checksumDir == null ? null : new File(checksumDir, DigestUtils.md5Hex(key));
+        if (indexFile != null && indexFile.isFile()) {
+            try {
+                checksum = FileUtils.readFileToString(indexFile, "UTF-8").trim();
+            } catch (IOException e) {
+                log.debug("Unable to read checksum from " + indexFile, e);
+            }
+        }
+        if (checksum == null || !checksum.matches("[0-9a-f]{40}")) {
+            checksum = shaHex(url);
+            if (indexFile != null) {
+                try {
+                    File tmp = File.createTempFile(indexFile.getName(), ".tmp", checksumDir);
+                    FileUtils.writeStringToFile(tmp, checksum, "UTF-8");
+                    if (!tmp.renameTo(indexFile)) {
+                        tmp.delete();
+                    }
+                } catch (IOException e) {
+                    log.debug("Unable to store checksum in " + indexFile, e);
+                }
+            }
+        }
+        checksums.put(key, checksum);
+        return checksum;
+    }
+
+    /**
+     * Creates dir readable by the current user only if it does not exist, and
+     * checks that nobody else can have put checksums in it.
+     */
+    private static boolean isPrivateDir(File dir) {
+        java.nio.file.Path path = dir.toPath();
+        try {
+            if (!dir.isDirectory()) {
+                try {
+                    Files.createDirectories(path, PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rwx------")));
+                } catch (UnsupportedOperationException e) {
+                    Files.createDirectories(path);
+                }
+            }
+            String owner = Files.getOwner(path).getName();
+            if (!owner.equals(System.getProperty("user.name"))) {
+                log.warn("Not using checksum directory " + dir + " owned by " + owner);
+                return false;
+            }
+            Set<PosixFilePermission> perms;
+            try {
+                perms = Files.getPosixFilePermissions(path);
+            } catch (UnsupportedOperationException e) {
+                return true;
+            }
+            if (perms.contains(PosixFilePermission.GROUP_WRITE)
+                    || perms.contains(PosixFilePermission.OTHERS_WRITE)) {
+                log.warn("Not using checksum directory " + dir + " writable by others: "
+                        + PosixFilePermissions.toString(perms));
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            log.debug("Unable to use checksum directory " + dir, e);
+            return false;
+        }
+    }
+
+    private static String shaHex(URL url) throws IOException {
+        InputStream is = url.openStream();
+        try {
+            return DigestUtils.shaHex(is);
+        } finally {
+            is.close();
+        }
+    }
+
     /**
      * Creates a Classloader based on the passed jarFile and any extra jar files.
      *
@@ -63,6 +63,7 @@ import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.impl.PigContext;
 import org.apache.pig.impl.PigImplConstants;
+import org.apache.pig.impl.io.ColumnarInterStorage;
 import org.apache.pig.impl.io.InterStorage;
 import org.apache.pig.impl.io.ReadToEndLoader;
 import org.apache.pig.impl.io.SequenceFileInterStorage;
@@ -306,6 +307,12 @@ public class Utils {
                         TEMPFILE_CODEC.GZIP,
                         TEMPFILE_CODEC.LZO)),
         SEQFILE(SequenceFileInterStorage.class,
+                Arrays.asList(TEMPFILE_CODEC.GZ,
+                        TEMPFILE_CODEC.GZIP,
+                        TEMPFILE_CODEC.LZO,
+                        TEMPFILE_CODEC.SNAPPY,
+                        TEMPFILE_CODEC.BZIP2)),
+        COLUMNAR(ColumnarInterStorage.class,
                 Arrays.asList(TEMPFILE_CODEC.GZ,
                         TEMPFILE_CODEC.GZIP,
                         TEMPFILE_CODEC.LZO,
@@ -393,6 +400,8 @@ public class Utils {
             return TEMPFILE_STORAGE.SEQFILE;
         } else if (TEMPFILE_STORAGE.TFILE.lowerName().equals(tmpFileCompressionStorage)) {
             return TEMPFILE_STORAGE.TFILE;
+        } else if (TEMPFILE_STORAGE.COLUMNAR.lowerName().equals(tmpFileCompressionStorage)) {
+            return TEMPFILE_STORAGE.COLUMNAR;
         } else {
             throw new IllegalArgumentException("Unsupported storage format " + tmpFileCompressionStorage +
                     ". Should be one of " + Arrays.toString(TEMPFILE_STORAGE.values()));
@@ -440,6 +449,18 @@ public class Utils {
                         " are " + storage.supportedCodecsToString() + ".");
             }
             break;
+        case COLUMNAR:
+            conf.set(PigConfiguration.PIG_TEMP_FILE_COMPRESSION_STORAGE, "columnar");
+            if ("".equals(codec)) {
+                // column chunks are encoded but not compressed
+            } else if (storage.ensureCodecSupported(codec)) {
+                conf.set(PigConfiguration.PIG_TEMP_FILE_COMPRESSION_CODEC, codec.toLowerCase());
+            } else {
+                throw new IOException("Invalid temporary file compression codec [" + codec + "]. " +
+                        "Expected compression codecs for " + storage.getStorageClass().getName() +
+                        " are " + storage.supportedCodecsToString() + ".");
+            }
+            break;
         case TFILE:
             if(storage.ensureCodecSupported(codec)) {
                 conf.set(PigConfiguration.PIG_TEMP_FILE_COMPRESSION_CODEC, codec.toLowerCase());
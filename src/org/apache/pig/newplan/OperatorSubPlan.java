@@ -18,7 +18,9 @@
 
 package org.apache.pig.newplan;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -60,6 +62,38 @@ public class OperatorSubPlan implements OperatorPlan {
         roots.clear();
     }
 
+    /**
+     * Adds an operator and all the operators of the base plan that depend on
+     * it, directly or through soft links. When the output of an operator
+     * changes, these are the operators whose schemas have to be recomputed.
+     *
+     * @param op operator of the base plan
+     */
+    public void addWithSuccessors(Operator op) {
+        Deque<Operator> toAdd = new ArrayDeque<Operator>();
+        toAdd.push(op);
+        while (!toAdd.isEmpty()) {
+            Operator next = toAdd.pop();
+            if (!operators.add(next)) {
+                continue;
+            }
+            List<Operator> succs = basePlan.getSuccessors(next);
+            if (succs != null) {
+                for (Operator succ : succs) {
+                    toAdd.push(succ);
+                }
+            }
+            List<Operator> softSuccs = basePlan.getSoftLinkSuccessors(next);
+            if (softSuccs != null) {
+                for (Operator succ : softSuccs) {
+                    toAdd.push(succ);
+                }
+            }
+        }
+        leaves.clear();
+        roots.clear();
+    }
+
     @Override
     public void connect(Operator from, int fromPos, Operator to, int toPos) {
         throw new UnsupportedOperationException("connect() can not be called on OperatorSubPlan");
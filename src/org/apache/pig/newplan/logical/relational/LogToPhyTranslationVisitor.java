@@ -30,11 +30,18 @@ import java.util.Random;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.Job;
 import org.apache.pig.FuncSpec;
+import org.apache.pig.PigConfiguration;
 import org.apache.pig.PigException;
 import org.apache.pig.ResourceSchema;
 import org.apache.pig.StoreResources;
 import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.backend.hadoop.datastorage.ConfigurationUtil;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.InputSizeReducerEstimator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.LogicalToPhysicalTranslatorException;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.ConstantExpression;
@@ -72,6 +79,7 @@ import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
 import org.apache.pig.impl.PigContext;
 import org.apache.pig.impl.builtin.GFCross;
+import org.apache.pig.impl.builtin.IdentityColumn;
 import org.apache.pig.impl.io.FileLocalizer;
 import org.apache.pig.impl.io.FileSpec;
 import org.apache.pig.impl.logicalLayer.FrontendException;
@@ -95,11 +103,19 @@ import org.apache.pig.newplan.logical.Util;
 import org.apache.pig.newplan.logical.expression.ExpToPhyTranslationVisitor;
 import org.apache.pig.newplan.logical.expression.LogicalExpressionPlan;
 import org.apache.pig.newplan.logical.expression.ProjectExpression;
+import org.apache.pig.newplan.logical.expression.UserFuncExpression;
 import org.apache.pig.parser.SourceLocation;
 
 public class LogToPhyTranslationVisitor extends LogicalRelationalNodesVisitor {
     private static final Log LOG = LogFactory.getLog(LogToPhyTranslationVisitor.class);
 
+    private static final String DEFAULT_CROSS_BROADCAST_MAX_BYTES = "10000000";
+
+    // Tuples take several times the size of their serialized form in memory
+    private static final int IN_MEMORY_SIZE_FACTOR = 4;
+    // Compressed inputs grow by about as much again when decompressed
+    private static final int COMPRESSION_FACTOR = 4;
+
     public LogToPhyTranslationVisitor(OperatorPlan plan) throws FrontendException {
         super(plan, new DependencyOrderWalker(plan));
         currentPlan = new PhysicalPlan();
@@ -563,6 +579,12 @@ public class LogToPhyTranslationVisitor extends LogicalRelationalNodesVisitor {
     public void visit(LOCross cross) throws FrontendException {
         String scope = DEFAULT_SCOPE;
         List<Operator> inputs = cross.getPlan().getPredecessors(cross);
+        long[] inputSizes = null;
+        int fragment = -1;
+        if (!cross.isNested()) {
+            inputSizes = estimateCrossInputSizes(inputs);
+            fragment = getBroadcastCrossFragment(inputSizes);
+        }
                 if (cross.isNested()) {
             POCross physOp = new POCross(new OperatorKey(scope,nodeGen.getNextNodeId(scope)), cross.getRequestedParallelism());
             physOp.addOriginalLocation(physOp.getAlias(), physOp.getOriginalLocations());
@@ -579,6 +601,8 @@ public class LogToPhyTranslationVisitor extends LogicalRelationalNodesVisitor {
                     throw new LogicalToPhysicalTranslatorException(msg, errCode, PigException.BUG, e);
                 }
             }
+        } else if (fragment >= 0) {
+            translateBroadcastCross(cross, inputs, fragment);
         } else {
             POGlobalRearrange poGlobal = new POGlobalRearrange(new OperatorKey(
                     scope, nodeGen.getNextNodeId(scope)), cross
@@ -615,8 +639,7 @@ public class LogToPhyTranslationVisitor extends LogicalRelationalNodesVisitor {
                     ce1.setResultType(DataType.TUPLE);*/
 
                     POUserFunc gfc = new POUserFunc(new OperatorKey(scope, nodeGen.getNextNodeId(scope)),cross.getRequestedParallelism(),
-                            Arrays.asList((PhysicalOperator)ce1,(PhysicalOperator)ce2), new FuncSpec(GFCross.class.getName()
-                            + "('" + poGlobal.getOperatorKey().toString() + "')"));
+                            Arrays.asList((PhysicalOperator)ce1,(PhysicalOperator)ce2), getGFCrossSpec(poGlobal, inputSizes));
                     gfc.addOriginalLocation(cross.getAlias(), cross.getLocation());
                     gfc.setResultType(DataType.BAG);
                     fep1.addAsLeaf(gfc);
@@ -711,6 +734,198 @@ public class LogToPhyTranslationVisitor extends LogicalRelationalNodesVisitor {
         }
     }
 
+    /**
+     * Translates a cross whose smaller inputs are all small enough to be
+     * replicated into a fragment replicate join on a constant key. The largest
+     * input is streamed and never shuffled.
+     */
+    private void translateBroadcastCross(LOCross cross, List<Operator> inputs,
+            int fragment) throws FrontendException {
+        String scope = DEFAULT_SCOPE;
+        List<List<PhysicalPlan>> ppLists = new ArrayList<List<PhysicalPlan>>();
+        List<PhysicalOperator> inp = new ArrayList<PhysicalOperator>();
+        List<List<Byte>> keyTypes = new ArrayList<List<Byte>>();
+        for (Operator op : inputs) {
+            inp.add(logToPhyMap.get(op));
+            ConstantExpression ce = new ConstantExpression(new OperatorKey(scope, nodeGen.getNextNodeId(scope)));
+            ce.setValue(0);
+            ce.setResultType(DataType.INTEGER);
+            PhysicalPlan keyPlan = new PhysicalPlan();
+            keyPlan.add(ce);
+            ppLists.add(Arrays.asList(keyPlan));
+            keyTypes.add(Arrays.asList(DataType.INTEGER));
+        }
+
+        POFRJoin pfrj;
+        try {
+            pfrj = new POFRJoin(new OperatorKey(scope, nodeGen.getNextNodeId(scope)),
+                    cross.getRequestedParallelism(), inp, ppLists, keyTypes, null,
+                    fragment, false, null, new Schema[inputs.size()], new Schema[inputs.size()]);
+        } catch (ExecException e) {
+            int errCode = 2058;
+            String msg = "Unable to set index on newly create POLocalRearrange.";
+            throw new VisitorException(msg, errCode, PigException.BUG, e);
+        }
+        pfrj.addOriginalLocation(cross.getAlias(), cross.getLocation());
+        pfrj.setResultType(DataType.TUPLE);
+        currentPlan.add(pfrj);
+        for (Operator op : inputs) {
+            try {
+                currentPlan.connect(logToPhyMap.get(op), pfrj);
+            } catch (PlanException e) {
+                int errCode = 2015;
+                String msg = "Invalid physical operators in the physical plan" ;
+                throw new LogicalToPhysicalTranslatorException(msg, errCode, PigException.BUG, e);
+            }
+        }
+        logToPhyMap.put(cross, pfrj);
+    }
+
+    private FuncSpec getGFCrossSpec(POGlobalRearrange poGlobal, long[] inputSizes) {
+        String crossKey = poGlobal.getOperatorKey().toString();
+        for (long size : inputSizes) {
+            if (size < 0) {
+                return new FuncSpec(GFCross.class.getName(), crossKey);
+            }
+        }
+        StringBuilder sizes = new StringBuilder();
+        for (long size : inputSizes) {
+            if (sizes.length() > 0) {
+                sizes.append(',');
+            }
+            sizes.append(size);
+        }
+        return new FuncSpec(GFCross.class.getName(), new String[] { crossKey, sizes.toString() });
+    }
+
+    /**
+     * Picks the input to stream when the cross can be run as a broadcast: the
+     * only input of unknown size or else the largest one. The remaining inputs
+     * must fit within {@link PigConfiguration#PIG_CROSS_BROADCAST_MAX_BYTES}.
+     * @return index of the input to stream, or -1 if the cross cannot be
+     * broadcast
+     */
+    private int getBroadcastCrossFragment(long[] inputSizes) {
+        if (pc == null || pc.inIllustrator) {
+            return -1;
+        }
+        long maxBytes = Long.parseLong(pc.getProperties().getProperty(
+                PigConfiguration.PIG_CROSS_BROADCAST_MAX_BYTES, DEFAULT_CROSS_BROADCAST_MAX_BYTES));
+        if (maxBytes <= 0) {
+            return -1;
+        }
+        int fragment = -1;
+        for (int i = 0; i < inputSizes.length; i++) {
+            if (inputSizes[i] < 0) {
+                if (fragment >= 0 && inputSizes[fragment] < 0) {
+                    return -1;
+                }
+                fragment = i;
+            } else if (fragment < 0 || (inputSizes[fragment] >= 0 && inputSizes[i] > inputSizes[fragment])) {
+                fragment = i;
+            }
+        }
+        long replicated = 0;
+        for (int i = 0; i < inputSizes.length; i++) {
+            if (i != fragment) {
+                replicated += inputSizes[i];
+            }
+        }
+        return replicated <= maxBytes ? fragment : -1;
+    }
+
+    private long[] estimateCrossInputSizes(List<Operator> inputs) throws FrontendException {
+        long[] sizes = new long[inputs.size()];
+        for (int i = 0; i < inputs.size(); i++) {
+            sizes[i] = (pc == null || pc.inIllustrator) ? -1 : estimateInputSize(inputs.get(i));
+        }
+        return sizes;
+    }
+
+    /**
+     * Estimates the size in memory of the output of a relation from the sizes
+     * of the loads it reads, looking only through operators that do not grow
+     * their input.
+     * @return estimated size in bytes, or -1 if unknown
+     */
+    private long estimateInputSize(Operator op) throws FrontendException {
+        if (op instanceof LOLoad) {
+            LOLoad load = (LOLoad) op;
+            if (load.getFileSpec() == null) {
+                return -1;
+            }
+            String location = load.getFileSpec().getFileName();
+            try {
+                Configuration conf = load.getConfiguration() != null ? load.getConfiguration()
+                        : ConfigurationUtil.toConfiguration(pc.getProperties());
+                long size = InputSizeReducerEstimator.getInputSize(load.getLoadFunc(),
+                        location, Job.getInstance(conf));
+                if (size < 0) {
+                    return -1;
+                }
+                size *= IN_MEMORY_SIZE_FACTOR;
+                CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+                for (String path : location.split(",")) {
+                    if (codecs.getCodec(new Path(path)) != null) {
+                        size *= COMPRESSION_FACTOR;
+                        break;
+                    }
+                }
+                return size;
+            } catch (Exception e) {
+                LOG.debug("Unable to estimate size of " + location, e);
+                return -1;
+            }
+        }
+        if (op instanceof LOForEach && !isOneToOne((LOForEach) op)) {
+            return -1;
+        }
+        if (op instanceof LOFilter || op instanceof LOForEach || op instanceof LOLimit
+                || op instanceof LODistinct || op instanceof LOSort
+                || op instanceof LOSplit || op instanceof LOSplitOutput) {
+            List<Operator> preds = op.getPlan().getPredecessors(op);
+            if (preds == null || preds.size() != 1) {
+                return -1;
+            }
+            return estimateInputSize(preds.get(0));
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the foreach only projects and converts the fields of its
+     * input, so that it outputs one record of about the same size per record.
+     * FLATTEN and UDFs, which may return bags or large values, are not, apart
+     * from the IdentityColumn used to rename fields.
+     */
+    private static boolean isOneToOne(LOForEach foreach) {
+        Iterator<Operator> ops = foreach.getInnerPlan().getOperators();
+        while (ops.hasNext()) {
+            Operator op = ops.next();
+            if (op instanceof LOGenerate) {
+                LOGenerate gen = (LOGenerate) op;
+                for (boolean flatten : gen.getFlattenFlags()) {
+                    if (flatten) {
+                        return false;
+                    }
+                }
+                for (LogicalExpressionPlan exp : gen.getOutputPlans()) {
+                    Iterator<Operator> expOps = exp.getOperators();
+                    while (expOps.hasNext()) {
+                        Operator expOp = expOps.next();
+                        if (expOp instanceof UserFuncExpression && !((UserFuncExpression) expOp)
+                                .getFuncSpec().getClassName().equals(IdentityColumn.class.getName())) {
+                            return false;
+                        }
+                    }
+                }
+            } else if (!(op instanceof LOInnerLoad)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void visit(LOStream stream) throws FrontendException {
         String scope = DEFAULT_SCOPE;
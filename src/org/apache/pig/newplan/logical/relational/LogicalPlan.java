@@ -59,6 +59,7 @@ import org.apache.pig.newplan.logical.visitor.StoreAliasSetter;
 import org.apache.pig.newplan.logical.visitor.TypeCheckingRelVisitor;
 import org.apache.pig.newplan.logical.visitor.UnionOnSchemaSetter;
 import org.apache.pig.pen.POOptimizeDisabler;
+import org.apache.pig.tools.pigstats.ScriptState;
 import org.apache.pig.validator.BlackAndWhitelistValidator;
 
 import com.google.common.base.Splitter;
@@ -172,6 +173,7 @@ public class LogicalPlan extends BaseOperatorPlan {
     public void validate(PigContext pigContext, String scope, boolean skipInputOutputValidation)
             throws FrontendException {
 
+        long start = System.nanoTime();
         new DanglingNestedNodeRemover(this).visit();
         new ColumnAliasConversionVisitor(this).visit();
         new SchemaAliasVisitor(this).visit();
@@ -225,6 +227,7 @@ public class LogicalPlan extends BaseOperatorPlan {
         SchemaResetter schemaResetter = new SchemaResetter(this,
                 true /* skip duplicate uid check*/);
         schemaResetter.visit();
+        ScriptState.addCompileTime("validation", start);
     }
     
     public void optimize(PigContext pigContext) throws FrontendException {
@@ -276,8 +279,10 @@ public class LogicalPlan extends BaseOperatorPlan {
             throw new FrontendException(e);
         }
         // run optimizer
+        long start = System.nanoTime();
         LogicalPlanOptimizer optimizer = new LogicalPlanOptimizer(this, 100,
                 disabledOptimizerRules, pigContext);
         optimizer.optimize();
+        ScriptState.addCompileTime("logical optimization", start);
     }
 }
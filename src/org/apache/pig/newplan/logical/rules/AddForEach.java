@@ -26,6 +26,7 @@ import java.util.Set;
 import org.apache.pig.impl.logicalLayer.FrontendException;
 import org.apache.pig.newplan.Operator;
 import org.apache.pig.newplan.OperatorPlan;
+import org.apache.pig.newplan.OperatorSubPlan;
 import org.apache.pig.newplan.logical.Util;
 import org.apache.pig.newplan.logical.relational.LOFilter;
 import org.apache.pig.newplan.logical.relational.LOForEach;
@@ -50,6 +51,7 @@ public class AddForEach extends WholePlanRule {
     
     public class AddForEachTransformer extends Transformer {
         LogicalRelationalOperator opForAdd;
+        OperatorSubPlan changes;
 
         @Override
         public boolean check(OperatorPlan matched) throws FrontendException {
@@ -68,23 +70,16 @@ public class AddForEach extends WholePlanRule {
 
         @Override
         public OperatorPlan reportChanges() {        	
-            return currentPlan;
+            return changes;
         }
 
-        private void addSuccessors(Operator op) throws FrontendException {
-            List<Operator> ll = op.getPlan().getSuccessors(op);
-            if (ll != null) {
-                for(Operator suc: ll) {
-                    addSuccessors(suc);
-                }
-            }
-        }
-        
         @Override
         public void transform(OperatorPlan matched) throws FrontendException {            
             addForeach(opForAdd);
             
-            addSuccessors(opForAdd);
+            // only the schemas of the operators after the new foreach change
+            changes = new OperatorSubPlan(currentPlan);
+            changes.addWithSuccessors(opForAdd);
         }
         
         @SuppressWarnings("unchecked")
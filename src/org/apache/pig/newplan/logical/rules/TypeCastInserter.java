@@ -27,6 +27,7 @@ import org.apache.pig.impl.streaming.StreamingCommand;
 import org.apache.pig.impl.streaming.StreamingCommand.HandleSpec;
 import org.apache.pig.newplan.Operator;
 import org.apache.pig.newplan.OperatorPlan;
+import org.apache.pig.newplan.OperatorSubPlan;
 import org.apache.pig.newplan.logical.expression.CastExpression;
 import org.apache.pig.newplan.logical.expression.LogicalExpressionPlan;
 import org.apache.pig.newplan.logical.expression.ProjectExpression;
@@ -55,6 +56,8 @@ public abstract class TypeCastInserter extends Rule {
     }
 
     public class TypeCastInserterTransformer extends Transformer {
+        private OperatorSubPlan changes;
+
         @Override
         public boolean check(OperatorPlan matched) throws FrontendException {
             LogicalRelationalOperator op = (LogicalRelationalOperator)matched.getSources().get(0);
@@ -105,6 +108,7 @@ public abstract class TypeCastInserter extends Rule {
             LogicalRelationalOperator op = (LogicalRelationalOperator)matched.getSources().get(0);
             LogicalSchema s = op.getSchema();
             LogicalSchema determinedSchema = determineSchema(op);
+            changes = new OperatorSubPlan(currentPlan);
 
             if (currentPlan.getSuccessors(op) == null) {
                 // the output of this LOAD's not going anywhere, so we don't need
@@ -162,11 +166,13 @@ public abstract class TypeCastInserter extends Rule {
                 exps.add(exp);
             }
             markCastInserted(op);
+            // only the schemas of the operators computed from op change
+            changes.addWithSuccessors(op);
         }
 
         @Override
         public OperatorPlan reportChanges() {
-            return currentPlan;
+            return changes;
         }
     }
 
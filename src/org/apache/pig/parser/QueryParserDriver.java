@@ -27,9 +27,15 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.antlr.runtime.BaseRecognizer;
 import org.antlr.runtime.CharStream;
@@ -38,6 +44,7 @@ import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.tree.CommonTree;
 import org.antlr.runtime.tree.CommonTreeNodeStream;
 import org.antlr.runtime.tree.Tree;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pig.PigException;
@@ -76,6 +83,19 @@ public class QueryParserDriver {
 
     private static Map<String, FetchFileRet> fnameMap = new HashMap<String, FetchFileRet>();
 
+    private static final int MAX_CACHED_MACRO_FILES = 100;
+
+    // ASTs of the imported macro files by file name and hash of their content,
+    // shared by the scripts run by this process
+    private static final Map<String, Tree> macroFileCache = new LinkedHashMap<String, Tree>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Tree> eldest) {
+            return size() > MAX_CACHED_MACRO_FILES;
+        }
+    };
+
     public QueryParserDriver(PigContext pigContext, String scope, Map<String, String> fileNameMap) {
         this.pigContext = pigContext;
         this.pigServer = null; // lazily instantiated for register statements
@@ -177,12 +197,17 @@ public class QueryParserDriver {
         LogicalPlan plan = null;
 
         ScriptState ss = ScriptState.get();
+        long start = System.nanoTime();
         CommonTokenStream tokenStream = tokenize(query, ss.getFileName());
 
         Tree ast = parse( tokenStream );
+        ScriptState.addCompileTime("parsing", start);
+        start = System.nanoTime();
         ast = expandMacro( ast );
+        ScriptState.addCompileTime("macro expansion", start);
 
         try{
+            start = System.nanoTime();
             ast = validateAst( ast );
             applyRegisters(ast);
 
@@ -195,6 +220,7 @@ public class QueryParserDriver {
             plan = planGenerator.getLogicalPlan();
             operators = planGenerator.getOperators();
             lastRel = planGenerator.getLastRel();
+            ScriptState.addCompileTime("logical plan", start);
         } catch(RecognitionException ex) {
             throw new ParserException( ex );
         } catch(Exception ex) {
@@ -363,13 +389,68 @@ public class QueryParserDriver {
         } catch (FrontendException e) {
             throw new ParserException(e.getMessage());
         }
+        // The new files are read in order, then parsed in parallel
+        List<CommonTree> imports = new ArrayList<CommonTree>();
+        Map<String, String> macroTexts = new LinkedHashMap<String, String>();
         for (CommonTree t : nodes) {
-            macroImport(t);
+            String fname = QueryParserUtils.removeQuotes(t.getChild(0).getText());
+            if (!importSeen.add(fname)) {
+                // we've already imported this file, so just skip this import statement
+                LOG.debug("Ignoring duplicated import " + fname);
+                t.getParent().deleteChild(t.getChildIndex());
+                continue;
+            }
+            imports.add(t);
+            if (!pigContext.macros.containsKey(fname)) {
+                macroTexts.put(fname, readMacroFile(t, fname));
+            }
         }
+        parseMacroFiles(macroTexts);
 
+        for (CommonTree t : imports) {
+            String fname = QueryParserUtils.removeQuotes(t.getChild(0).getText());
+            QueryParserUtils.replaceNodeWithNodeList(t, (CommonTree) pigContext.macros.get(fname), fname);
+        }
         return true;
     }
 
+    private void parseMacroFiles(Map<String, String> macroTexts) throws ParserException {
+        if (macroTexts.size() <= 1) {
+            for (Map.Entry<String, String> entry : macroTexts.entrySet()) {
+                pigContext.macros.put(entry.getKey(), parseMacroFile(entry.getKey(), entry.getValue()));
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(macroTexts.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            Map<String, Future<Tree>> asts = new LinkedHashMap<String, Future<Tree>>();
+            for (final Map.Entry<String, String> entry : macroTexts.entrySet()) {
+                asts.put(entry.getKey(), executor.submit(new Callable<Tree>() {
+                    @Override
+                    public Tree call() throws ParserException {
+                        return parseMacroFile(entry.getKey(), entry.getValue());
+                    }
+                }));
+            }
+            for (Map.Entry<String, Future<Tree>> entry : asts.entrySet()) {
+                try {
+                    pigContext.macros.put(entry.getKey(), entry.getValue().get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ParserException("Interrupted while parsing " + entry.getKey(), e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof ParserException) {
+                        throw (ParserException) e.getCause();
+                    }
+                    throw new ParserException(e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     static void traverseImport(Tree t, List<CommonTree> nodes) {
         if (t.getText().equalsIgnoreCase(IMPORT_DEF)) {
             nodes.add((CommonTree)t);
@@ -514,69 +595,68 @@ public class QueryParserDriver {
         return pm;
     }
 
-    private void macroImport(CommonTree t) throws ParserException {
-        // remove quote
-        String fname = t.getChild(0).getText();
-        fname = QueryParserUtils.removeQuotes(fname);
-        if (!importSeen.add(fname)) {
-            // we've already imported this file, so just skip this import statement
-            LOG.debug("Ignoring duplicated import " + fname);
-            t.getParent().deleteChild(t.getChildIndex());
-            return;
-        }
-
-        Tree macroAST = null;
-        if (pigContext.macros.containsKey(fname)) {
-            macroAST = pigContext.macros.get(fname);
-        } else {
-            FetchFileRet localFileRet = getMacroFile(fname);
+    private String readMacroFile(CommonTree t, String fname) throws ParserException {
+        FetchFileRet localFileRet = getMacroFile(fname);
 
-            BufferedReader in = null;
-            try {
-                in = new BufferedReader(new FileReader(localFileRet.file));
-            } catch (FileNotFoundException e) {
-                String msg = getErrorMessage(fname, t,
-                        "Failed to import file '" + fname + "'", e.getMessage());
-                throw new ParserException(msg);
-            }
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(localFileRet.file));
+        } catch (FileNotFoundException e) {
+            String msg = getErrorMessage(fname, t,
+                    "Failed to import file '" + fname + "'", e.getMessage());
+            throw new ParserException(msg);
+        }
 
-            StringBuilder sb = new StringBuilder();
-            String line = null;
-            try {
+        StringBuilder sb = new StringBuilder();
+        String line = null;
+        try {
+            line = in.readLine();
+            while (line != null) {
+                sb.append(line).append("\n");
                 line = in.readLine();
-                while (line != null) {
-                    sb.append(line).append("\n");
-                    line = in.readLine();
-                }
-            } catch (IOException e) {
-                String msg = getErrorMessage(fname, t,
-                        "Failed to read file '" + fname + "'", e.getMessage());
-                throw new ParserException(msg);
-            }
-
-            String macroText = null;
-            try {
-                in.close();
-                in = new BufferedReader(new StringReader(sb.toString()));
-                macroText = pigContext.doParamSubstitution(in);
-            } catch (IOException e) {
-                String msg = getErrorMessage(fname, t,
-                    "Parameter sustitution failed for macro.", e.getMessage());
-                throw new ParserException(msg);
             }
+        } catch (IOException e) {
+            String msg = getErrorMessage(fname, t,
+                    "Failed to read file '" + fname + "'", e.getMessage());
+            throw new ParserException(msg);
+        }
 
-            // parse
-            CommonTokenStream tokenStream = tokenize(macroText, fname);
+        try {
+            in.close();
+            in = new BufferedReader(new StringReader(sb.toString()));
+            return pigContext.doParamSubstitution(in);
+        } catch (IOException e) {
+            String msg = getErrorMessage(fname, t,
+                "Parameter sustitution failed for macro.", e.getMessage());
+            throw new ParserException(msg);
+        }
+    }
 
-            try {
-                macroAST = parse( tokenStream );
-                pigContext.macros.put(fname, macroAST);
-            } catch(RuntimeException ex) {
-                throw new ParserException( ex.getMessage() );
+    /**
+     * Parses a macro file, unless the same file was already parsed by
+     * another script
+     */
+    private static Tree parseMacroFile(String fname, String macroText) throws ParserException {
+        String key = fname + "\n" + DigestUtils.md5Hex(macroText);
+        PigParserNodeAdaptor adaptor = new PigParserNodeAdaptor(fname, 0);
+        synchronized (macroFileCache) {
+            Tree macroAST = macroFileCache.get(key);
+            if (macroAST != null) {
+                // the AST is changed when it is inlined
+                return (Tree) adaptor.dupTree(macroAST);
             }
         }
-
-        QueryParserUtils.replaceNodeWithNodeList(t, (CommonTree)macroAST, fname);
+        CommonTokenStream tokenStream = tokenize(macroText, fname);
+        Tree macroAST;
+        try {
+            macroAST = parse( tokenStream );
+        } catch(RuntimeException ex) {
+            throw new ParserException( ex.getMessage() );
+        }
+        synchronized (macroFileCache) {
+            macroFileCache.put(key, (Tree) adaptor.dupTree(macroAST));
+        }
+        return macroAST;
     }
 
     private String getErrorMessage(String importFile,
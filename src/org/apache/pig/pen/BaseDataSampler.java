@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.pen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.newplan.Operator;
+import org.apache.pig.newplan.logical.expression.LogicalExpressionPlan;
+import org.apache.pig.newplan.logical.expression.ProjectExpression;
+import org.apache.pig.newplan.logical.relational.LOCogroup;
+import org.apache.pig.newplan.logical.relational.LODistinct;
+import org.apache.pig.newplan.logical.relational.LOFilter;
+import org.apache.pig.newplan.logical.relational.LOJoin;
+import org.apache.pig.newplan.logical.relational.LOLimit;
+import org.apache.pig.newplan.logical.relational.LOLoad;
+import org.apache.pig.newplan.logical.relational.LOSort;
+import org.apache.pig.newplan.logical.relational.LogicalPlan;
+
+/**
+ * Reduces the base data read for ILLUSTRATE to a sample before lineage
+ * trimming, which is the expensive part of example generation.
+ *
+ * When the records of a load reach a COGROUP or JOIN with their columns
+ * unchanged, the sample is stratified on the grouping keys: keys which also
+ * appear in another input of the same COGROUP or JOIN are taken first, so that
+ * the joins of the sample produce matches, and every key contributes one
+ * record before any key contributes a second one. Other loads are sampled
+ * systematically across the records read.
+ */
+public class BaseDataSampler {
+
+    private final LogicalPlan plan;
+    private final int sampleSize;
+
+    public BaseDataSampler(LogicalPlan plan, int sampleSize) {
+        this.plan = plan;
+        this.sampleSize = sampleSize;
+    }
+
+    public Map<LOLoad, DataBag> sample(Map<LOLoad, DataBag> baseData) throws ExecException {
+        // Key of every record of the loads reaching a COGROUP or JOIN,
+        // and the inputs of each COGROUP or JOIN
+        Map<LOLoad, List<List<Object>>> loadKeys = new HashMap<LOLoad, List<List<Object>>>();
+        Map<Operator, List<LOLoad>> groupInputs = new HashMap<Operator, List<LOLoad>>();
+        Map<LOLoad, Operator> loadGroup = new HashMap<LOLoad, Operator>();
+        for (Map.Entry<LOLoad, DataBag> entry : baseData.entrySet()) {
+            if (entry.getValue().size() <= sampleSize) {
+                continue;
+            }
+            Operator input = getGroupingInput(entry.getKey());
+            if (input == null) {
+                continue;
+            }
+            Operator group = plan.getSuccessors(input).get(0);
+            int[] keyColumns = getKeyColumns(input, group);
+            List<List<Object>> keys = keyColumns == null ? null : getKeys(entry.getValue(), keyColumns);
+            if (keys != null) {
+                loadKeys.put(entry.getKey(), keys);
+                loadGroup.put(entry.getKey(), group);
+                List<LOLoad> inputs = groupInputs.get(group);
+                if (inputs == null) {
+                    inputs = new ArrayList<LOLoad>();
+                    groupInputs.put(group, inputs);
+                }
+                inputs.add(entry.getKey());
+            }
+        }
+
+        Map<LOLoad, DataBag> sampled = new HashMap<LOLoad, DataBag>();
+        for (Map.Entry<LOLoad, DataBag> entry : baseData.entrySet()) {
+            DataBag bag = entry.getValue();
+            if (bag.size() <= sampleSize) {
+                sampled.put(entry.getKey(), bag);
+            } else if (loadKeys.containsKey(entry.getKey())) {
+                List<List<Object>> otherKeys = new ArrayList<List<Object>>();
+                for (LOLoad other : groupInputs.get(loadGroup.get(entry.getKey()))) {
+                    if (other != entry.getKey()) {
+                        otherKeys.addAll(loadKeys.get(other));
+                    }
+                }
+                sampled.put(entry.getKey(),
+                        sampleByKey(bag, loadKeys.get(entry.getKey()), otherKeys));
+            } else {
+                sampled.put(entry.getKey(), sampleSystematically(bag));
+            }
+        }
+        return sampled;
+    }
+
+    /**
+     * Follow the load through the operators which keep the columns of its
+     * records in place, up to a COGROUP or JOIN
+     *
+     * @return the operator whose output is grouped, or null if the load does
+     *         not reach a COGROUP or JOIN this way
+     */
+    private Operator getGroupingInput(LOLoad load) {
+        Operator op = load;
+        while (true) {
+            List<Operator> succs = plan.getSuccessors(op);
+            if (succs == null || succs.size() != 1) {
+                return null;
+            }
+            Operator succ = succs.get(0);
+            if (succ instanceof LOCogroup || succ instanceof LOJoin) {
+                return op;
+            }
+            if (!(succ instanceof LOFilter || succ instanceof LOLimit
+                    || succ instanceof LOSort || succ instanceof LODistinct)) {
+                return null;
+            }
+            op = succ;
+        }
+    }
+
+    private int[] getKeyColumns(Operator input, Operator group) {
+        int inputIndex = plan.getPredecessors(group).indexOf(input);
+        Collection<LogicalExpressionPlan> keyPlans = group instanceof LOCogroup
+                ? ((LOCogroup)group).getExpressionPlans().get(inputIndex)
+                : ((LOJoin)group).getJoinPlan(inputIndex);
+        if (keyPlans == null || keyPlans.isEmpty()) {
+            return null;
+        }
+        int[] columns = new int[keyPlans.size()];
+        int i = 0;
+        for (LogicalExpressionPlan keyPlan : keyPlans) {
+            if (keyPlan.size() != 1 || !(keyPlan.getSources().get(0) instanceof ProjectExpression)) {
+                return null;
+            }
+            ProjectExpression project = (ProjectExpression)keyPlan.getSources().get(0);
+            if (project.isRangeOrStarProject()) {
+                return null;
+            }
+            columns[i++] = project.getColNum();
+        }
+        return columns;
+    }
+
+    /**
+     * @return key of every record, or null if the records do not have the
+     *         columns of the load schema, as happens when columns are pruned
+     */
+    private List<List<Object>> getKeys(DataBag bag, int[] keyColumns) throws ExecException {
+        List<List<Object>> keys = new ArrayList<List<Object>>((int)bag.size());
+        for (Tuple t : bag) {
+            Object[] key = new Object[keyColumns.length];
+            for (int i = 0; i < keyColumns.length; i++) {
+                if (keyColumns[i] >= t.size()) {
+                    return null;
+                }
+                key[i] = t.get(keyColumns[i]);
+            }
+            keys.add(Arrays.asList(key));
+        }
+        return keys;
+    }
+
+    private DataBag sampleByKey(DataBag bag, List<List<Object>> keys,
+            Collection<List<Object>> otherKeys) {
+        // positions of the records of each key, matching keys first
+        Map<List<Object>, List<Integer>> matching = new LinkedHashMap<List<Object>, List<Integer>>();
+        Map<List<Object>, List<Integer>> others = new LinkedHashMap<List<Object>, List<Integer>>();
+        Set<List<Object>> otherKeySet = new HashSet<List<Object>>(otherKeys);
+        for (int i = 0; i < keys.size(); i++) {
+            List<Object> key = keys.get(i);
+            Map<List<Object>, List<Integer>> strata = otherKeySet.contains(key) ? matching : others;
+            List<Integer> positions = strata.get(key);
+            if (positions == null) {
+                positions = new ArrayList<Integer>();
+                strata.put(key, positions);
+            }
+            positions.add(i);
+        }
+
+        boolean[] selected = new boolean[keys.size()];
+        int count = takeRoundRobin(matching.values(), selected, 0);
+        takeRoundRobin(others.values(), selected, count);
+        return select(bag, selected);
+    }
+
+    private int takeRoundRobin(Collection<List<Integer>> strata, boolean[] selected, int count) {
+        for (int round = 0; count < sampleSize; round++) {
+            boolean taken = false;
+            for (Iterator<List<Integer>> it = strata.iterator(); it.hasNext() && count < sampleSize; ) {
+                List<Integer> positions = it.next();
+                if (round < positions.size()) {
+                    selected[positions.get(round)] = true;
+                    count++;
+                    taken = true;
+                }
+            }
+            if (!taken) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private DataBag sampleSystematically(DataBag bag) {
+        boolean[] selected = new boolean[(int)bag.size()];
+        double step = (double)selected.length / sampleSize;
+        for (int i = 0; i < sampleSize; i++) {
+            selected[(int)(i * step)] = true;
+        }
+        return select(bag, selected);
+    }
+
+    private DataBag select(DataBag bag, boolean[] selected) {
+        // keep the records in the order they were read
+        DataBag result = BagFactory.getInstance().newDefaultBag();
+        int i = 0;
+        for (Tuple t : bag) {
+            if (selected[i++]) {
+                result.add(t);
+            }
+        }
+        return result;
+    }
+}
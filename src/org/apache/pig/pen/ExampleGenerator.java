@@ -19,23 +19,35 @@
 package org.apache.pig.pen;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.pig.PigConfiguration;
 import org.apache.pig.PigException;
 import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.backend.hadoop.datastorage.ConfigurationUtil;
 import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.MRExecutionEngine;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLoad;
+import org.apache.pig.data.BagFactory;
 import org.apache.pig.data.DataBag;
 import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
 import org.apache.pig.impl.PigContext;
 import org.apache.pig.impl.io.FileLocalizer;
 import org.apache.pig.impl.logicalLayer.FrontendException;
@@ -49,6 +61,7 @@ import org.apache.pig.newplan.logical.relational.LogicalPlan;
 import org.apache.pig.newplan.logical.relational.LogicalRelationalOperator;
 import org.apache.pig.newplan.logical.relational.LogicalSchema;
 import org.apache.pig.pen.util.DisplayExamples;
+import org.apache.pig.pen.util.ExampleTuple;
 import org.apache.pig.pen.util.LineageTracer;
 
 /**
@@ -72,6 +85,13 @@ public class ExampleGenerator {
 
     private int MAX_RECORDS = 10000;
 
+    // Number of loads whose base data is kept for each session
+    private static final int MAX_CACHED_LOADS = 8;
+
+    // Base data read by earlier ILLUSTRATE commands of each session, by load
+    private static final Map<PigContext, Map<String, CachedBaseData>> baseDataCache =
+            new WeakHashMap<PigContext, Map<String, CachedBaseData>>();
+
     private Map<Operator, PhysicalOperator> logToPhyMap;
     private Map<PhysicalOperator, Operator> poLoadToLogMap;
     private Map<PhysicalOperator, Operator> poToLogMap;
@@ -218,13 +238,178 @@ public class ExampleGenerator {
             thisPhyPlan.add(logToPhyMap.get(op));
         }
         baseData = null;
-        Map<Operator, DataBag> result = getData(thisPhyPlan);
-        baseData = new HashMap<LOLoad, DataBag>();
-        for (Operator lo : result.keySet()) {
-            if (lo instanceof LOLoad) {
-                baseData.put((LOLoad) lo, result.get(lo));
+        boolean useCache = pigContext.getProperties().getProperty(
+                PigConfiguration.PIG_ILLUSTRATE_CACHE_BASE_DATA, "true").equals("true");
+        Map<LOLoad, DataBag> cached = useCache ? getCachedBaseData(loads) : null;
+        if (cached != null) {
+            log.info("Using the base data of an earlier ILLUSTRATE");
+            baseData = cached;
+        } else {
+            Map<Operator, DataBag> result = getData(thisPhyPlan);
+            baseData = new HashMap<LOLoad, DataBag>();
+            for (Operator lo : result.keySet()) {
+                if (lo instanceof LOLoad) {
+                    baseData.put((LOLoad) lo, result.get(lo));
+                }
+            }
+            if (useCache) {
+                cacheBaseData();
+            }
+        }
+
+        int sampleSize = Integer.parseInt(pigContext.getProperties().getProperty(
+                PigConfiguration.PIG_ILLUSTRATE_SAMPLE_SIZE, "1000"));
+        if (sampleSize > 0) {
+            baseData = new BaseDataSampler(newPlan, sampleSize).sample(baseData);
+        }
+    }
+
+    /**
+     * Base data of a load, valid as long as the input it was read from has the
+     * same signature
+     */
+    private static class CachedBaseData {
+        String inputSignature;
+        DataBag data;
+    }
+
+    private String getCacheKey(LOLoad load) throws FrontendException {
+        return load.getFileSpec() + " " + load.getSchema().toString(false) + " " + MAX_RECORDS;
+    }
+
+    /**
+     * @return length, number of files and modification time of the input of
+     *         the load, or null if the input is not a path of a FileSystem
+     */
+    private String getInputSignature(LOLoad load) {
+        try {
+            Configuration conf = ConfigurationUtil.toConfiguration(pigContext.getProperties());
+            Path path = new Path(load.getFileSpec().getFileName());
+            FileSystem fs = path.getFileSystem(conf);
+            FileStatus[] statuses = fs.globStatus(path);
+            if (statuses == null || statuses.length == 0) {
+                return null;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (FileStatus status : statuses) {
+                ContentSummary summary = fs.getContentSummary(status.getPath());
+                sb.append(status.getPath()).append(':')
+                  .append(summary.getLength()).append(':')
+                  .append(summary.getFileCount()).append(':')
+                  .append(status.getModificationTime()).append(';');
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            log.debug("Not caching the base data of " + load.getFileSpec(), e);
+            return null;
+        }
+    }
+
+    private Map<LOLoad, DataBag> getCachedBaseData(List<Operator> loads) throws FrontendException {
+        Map<LOLoad, DataBag> result = new HashMap<LOLoad, DataBag>();
+        synchronized (baseDataCache) {
+            Map<String, CachedBaseData> cache = baseDataCache.get(pigContext);
+            if (cache == null) {
+                return null;
+            }
+            for (Operator op : loads) {
+                LOLoad load = (LOLoad) op;
+                CachedBaseData cached = cache.get(getCacheKey(load));
+                if (cached == null) {
+                    return null;
+                }
+                result.put(load, copyBaseData(cached.data));
+            }
+        }
+        // check that the inputs did not change outside of the lock
+        for (Operator op : loads) {
+            LOLoad load = (LOLoad) op;
+            String signature = getInputSignature(load);
+            synchronized (baseDataCache) {
+                CachedBaseData cached = baseDataCache.get(pigContext).get(getCacheKey(load));
+                if (signature == null || cached == null
+                        || !signature.equals(cached.inputSignature)) {
+                    return null;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void cacheBaseData() throws FrontendException {
+        List<CachedBaseData> entries = new ArrayList<CachedBaseData>();
+        List<String> keys = new ArrayList<String>();
+        for (Map.Entry<LOLoad, DataBag> entry : baseData.entrySet()) {
+            String signature = getInputSignature(entry.getKey());
+            if (signature != null) {
+                CachedBaseData cached = new CachedBaseData();
+                cached.inputSignature = signature;
+                cached.data = copyBaseData(entry.getValue());
+                entries.add(cached);
+                keys.add(getCacheKey(entry.getKey()));
+            }
+        }
+        synchronized (baseDataCache) {
+            Map<String, CachedBaseData> cache = baseDataCache.get(pigContext);
+            if (cache == null) {
+                cache = new LinkedHashMap<String, CachedBaseData>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, CachedBaseData> eldest) {
+                        return size() > MAX_CACHED_LOADS;
+                    }
+                };
+                baseDataCache.put(pigContext, cache);
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                cache.put(keys.get(i), entries.get(i));
+            }
+        }
+    }
+
+    /**
+     * Example generation tracks tuples by identity, so every run gets its own
+     * copy of the cached tuples, including the tuples of nested bags
+     */
+    private static DataBag copyBaseData(DataBag data) {
+        DataBag copy = BagFactory.getInstance().newDefaultBag();
+        for (Tuple t : data) {
+            ExampleTuple et = (ExampleTuple) t;
+            ExampleTuple tCopy = new ExampleTuple(copyTuple(et.toTuple()));
+            tCopy.synthetic = et.synthetic;
+            tCopy.omittable = et.omittable;
+            copy.add(tCopy);
+        }
+        return copy;
+    }
+
+    private static Tuple copyTuple(Tuple t) {
+        List<Object> fields = new ArrayList<Object>(t.size());
+        for (Object field : t.getAll()) {
+            fields.add(copyField(field));
+        }
+        return TupleFactory.getInstance().newTupleNoCopy(fields);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyField(Object field) {
+        if (field instanceof Tuple) {
+            return copyTuple((Tuple) field);
+        } else if (field instanceof DataBag) {
+            DataBag copy = BagFactory.getInstance().newDefaultBag();
+            for (Tuple t : (DataBag) field) {
+                copy.add(copyTuple(t));
+            }
+            return copy;
+        } else if (field instanceof Map) {
+            Map<String, Object> copy = new HashMap<String, Object>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) field).entrySet()) {
+                copy.put(entry.getKey(), copyField(entry.getValue()));
             }
+            return copy;
         }
+        return field;
     }
 
     PhysicalPlan compilePlan(LogicalPlan plan) throws ExecException, FrontendException {
@@ -17,19 +17,26 @@
  */
 package org.apache.pig.tools.pigstats;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 import org.apache.commons.collections.IteratorUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.JobClient;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigConstants;
 import org.apache.pig.PigException;
 import org.apache.pig.PigRunner.ReturnCode;
 import org.apache.pig.classification.InterfaceAudience;
@@ -43,6 +50,7 @@ import org.apache.pig.newplan.Operator;
 import org.apache.pig.newplan.OperatorPlan;
 import org.apache.pig.newplan.PlanVisitor;
 import org.apache.pig.tools.pigstats.JobStats.JobState;
+import org.codehaus.jackson.map.ObjectMapper;
 
 import com.google.common.collect.Maps;
 
@@ -59,6 +67,35 @@ public abstract class PigStats {
     private static ThreadLocal<PigStats> tps = new ThreadLocal<PigStats>();
 
     protected static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    private static final String[] OPERATOR_PROFILE_METRICS = {
+        PigConstants.OPERATOR_PROFILE_RECORDS_IN,
+        PigConstants.OPERATOR_PROFILE_RECORDS_OUT,
+        PigConstants.OPERATOR_PROFILE_NANOS,
+        PigConstants.OPERATOR_PROFILE_ALLOCATED_BYTES,
+        PigConstants.OPERATOR_PROFILE_SPILLS };
+
+    // Orders operators by the id of their key, that is in plan order
+    private static final Comparator<String> OPERATOR_KEY_COMPARATOR = new Comparator<String>() {
+        @Override
+        public int compare(String o1, String o2) {
+            long id1 = getOperatorId(o1);
+            long id2 = getOperatorId(o2);
+            if (id1 != id2) {
+                return id1 < id2 ? -1 : 1;
+            }
+            return o1.compareTo(o2);
+        }
+
+        private long getOperatorId(String op) {
+            try {
+                return Long.parseLong(op.substring(op.lastIndexOf('-') + 1));
+            } catch (NumberFormatException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+    };
+
     protected long startTime = -1;
     protected long endTime = -1;
 
@@ -72,6 +109,10 @@ public abstract class PigStats {
     protected Throwable errorThrowable = null;
     protected int returnCode = ReturnCode.UNKNOWN;
 
+    protected int resultCacheHits = 0;
+    protected int resultCacheMisses = 0;
+    protected long resultCacheBytesSaved = 0;
+
     public static PigStats get() {
         return tps.get();
     }
@@ -262,6 +303,141 @@ public abstract class PigStats {
         return ret;
     }
 
+    /**
+     * Returns the number of relations of this script that were loaded from
+     * the result cache, see {@link PigConfiguration#PIG_RESULT_CACHE_ENABLED}
+     */
+    public int getResultCacheHits() {
+        return resultCacheHits;
+    }
+
+    /**
+     * Returns the number of relations of this script that were not in the
+     * result cache and were written to it
+     */
+    public int getResultCacheMisses() {
+        return resultCacheMisses;
+    }
+
+    /**
+     * Returns the size of the input files that were not read as the
+     * relations computed from them were loaded from the result cache
+     */
+    public long getResultCacheBytesSaved() {
+        return resultCacheBytesSaved;
+    }
+
+    public void setResultCacheStats(int hits, int misses, long bytesSaved) {
+        this.resultCacheHits = hits;
+        this.resultCacheMisses = misses;
+        this.resultCacheBytesSaved = bytesSaved;
+    }
+
+    /**
+     * Returns the runtime profile of the physical operators of this script,
+     * collected when {@link PigConfiguration#PIG_OPERATOR_PROFILE} is set.
+     * The profile is keyed by operator (class and key, e.g.
+     * <code>POForEach.scope-12</code>, see <code>explain</code>), then by
+     * metric. It is empty if profiling was off.
+     */
+    @SuppressWarnings("deprecation")
+    public Map<String, Map<String, Long>> getOperatorProfile() {
+        Map<String, Long> counters = new HashMap<String, Long>();
+        if (jobPlan == null) {
+            return toOperatorProfile(counters);
+        }
+        for (JobStats js : jobPlan) {
+            Counters jobCounters;
+            try {
+                jobCounters = js.getHadoopCounters();
+            } catch (UnsupportedOperationException e) {
+                continue;
+            }
+            if (jobCounters == null) {
+                continue;
+            }
+            for (Counters.Counter counter : jobCounters.getGroup(PigConstants.OPERATOR_PROFILE_COUNTER_GROUP)) {
+                addCounter(counters, counter.getName(), counter.getValue());
+            }
+        }
+        return toOperatorProfile(counters);
+    }
+
+    /**
+     * Returns {@link #getOperatorProfile()} as a JSON object.
+     */
+    public String getOperatorProfileJson() {
+        try {
+            return new ObjectMapper().writeValueAsString(getOperatorProfile());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to serialize operator profile", e);
+        }
+    }
+
+    /**
+     * Returns {@link #getOperatorProfile()} as a table, or an empty string if
+     * profiling was off.
+     */
+    public String getOperatorProfileDisplayString() {
+        Map<String, Map<String, Long>> profile = getOperatorProfile();
+        if (profile.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Operator Profile (approx_nanos excludes the operator inputs):\n");
+        sb.append(String.format("%1$-40s", "Operator"));
+        for (String metric : OPERATOR_PROFILE_METRICS) {
+            sb.append(String.format("%1$24s", metric));
+        }
+        sb.append("\n");
+        for (Map.Entry<String, Map<String, Long>> op : profile.entrySet()) {
+            sb.append(String.format("%1$-40s", op.getKey()));
+            for (Long value : op.getValue().values()) {
+                sb.append(String.format("%1$24d", value));
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    protected void displayOperatorProfile() {
+        String profile = getOperatorProfileDisplayString();
+        if (!profile.isEmpty()) {
+            LOG.info(profile);
+        }
+    }
+
+    protected static void addCounter(Map<String, Long> counters, String name, long value) {
+        Long old = counters.get(name);
+        counters.put(name, old == null ? value : old + value);
+    }
+
+    /**
+     * Turns the operator profile counters, named
+     * <code>&lt;operator&gt;.&lt;metric&gt;</code>, into the per-operator
+     * profile, ordered by operator key.
+     */
+    protected static Map<String, Map<String, Long>> toOperatorProfile(Map<String, Long> counters) {
+        Map<String, Map<String, Long>> profile = new TreeMap<String, Map<String, Long>>(OPERATOR_KEY_COMPARATOR);
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            int sep = counter.getKey().lastIndexOf('.');
+            if (sep <= 0) {
+                continue;
+            }
+            String op = counter.getKey().substring(0, sep);
+            Map<String, Long> metrics = profile.get(op);
+            if (metrics == null) {
+                metrics = new LinkedHashMap<String, Long>();
+                for (String metric : OPERATOR_PROFILE_METRICS) {
+                    metrics.put(metric, 0L);
+                }
+                profile.put(op, metrics);
+            }
+            metrics.put(counter.getKey().substring(sep + 1), counter.getValue());
+        }
+        return profile;
+    }
+
     public String getHadoopVersion() {
         return ScriptState.get().getHadoopVersion();
     }
@@ -18,6 +18,13 @@
 
 package org.apache.pig.tools.pigstats;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.StatusReporter;
 import org.apache.hadoop.util.Progressable;
@@ -33,8 +40,27 @@ public class PigStatusReporter extends StatusReporter implements Progressable, P
 
     private TaskContext<?> context = null;
 
+    // While buffering, incrCounter() adds to these lock-free striped counters.
+    // Only the task thread that started buffering reports to the task context:
+    // it flushes them when it increments a counter after the report timer
+    // fired or another thread incremented one, and in stopBuffering(). Other
+    // threads of the task, like morsel workers, the input prefetcher or the
+    // combiner on the spill thread, only add to them.
+    private volatile boolean buffering = false;
+    private volatile boolean flushDue = false;
+    private volatile Thread owner = null;
+    private boolean reportEveryCall = false;
+    private ScheduledFuture<?> flushTask = null;
+    private final ConcurrentMap<Enum<?>, LongAdder> enumCounters =
+            new ConcurrentHashMap<Enum<?>, LongAdder>();
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> groupCounters =
+            new ConcurrentHashMap<String, ConcurrentMap<String, LongAdder>>();
+
     //@StaticDataCleanup
     public static void staticDataCleanup() {
+        if (reporter != null) {
+            reporter.cancelFlushTask();
+        }
         reporter = null;
     }
 
@@ -52,9 +78,120 @@ public class PigStatusReporter extends StatusReporter implements Progressable, P
     }
 
     public void setContext(TaskContext<?> context) {
+        if (isOwner()) {
+            flush();
+        }
         this.context = context;
     }
 
+    /**
+     * Makes the calling thread the only one that reports counters to the task
+     * context until {@link #stopBuffering()}. The counters it increments
+     * through incrCounter() are buffered and flushed every
+     * {@link org.apache.pig.PigConfiguration#PIG_TASK_REPORT_INTERVAL}
+     * milliseconds, or on every call if the interval is 0. Must be called by
+     * the thread that owns the task (map, reduce or Tez processor), not by
+     * the combiner.
+     */
+    public synchronized void startBuffering(Configuration conf) {
+        if (buffering) {
+            return;
+        }
+        long interval = TaskReportTimer.getInterval(conf);
+        reportEveryCall = interval <= 0;
+        if (!reportEveryCall) {
+            flushTask = TaskReportTimer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flushDue = true;
+                }
+            }, interval);
+        }
+        owner = Thread.currentThread();
+        buffering = true;
+    }
+
+    /**
+     * Flushes the buffered counters and increments the counters of the task
+     * context directly from now on. Must be called at the end of the task by
+     * the thread that started buffering.
+     */
+    public synchronized void stopBuffering() {
+        if (!buffering) {
+            return;
+        }
+        buffering = false;
+        cancelFlushTask();
+        flush();
+        owner = null;
+    }
+
+    private boolean isOwner() {
+        return buffering && Thread.currentThread() == owner;
+    }
+
+    // Adds the buffered counters to the task context, on the owner thread
+    private synchronized void flush() {
+        flushDue = false;
+        if (context == null) {
+            return;
+        }
+        for (Map.Entry<Enum<?>, LongAdder> counter : enumCounters.entrySet()) {
+            context.incrCounter(counter.getKey(), drain(counter.getValue()));
+        }
+        for (Map.Entry<String, ConcurrentMap<String, LongAdder>> group : groupCounters.entrySet()) {
+            for (Map.Entry<String, LongAdder> counter : group.getValue().entrySet()) {
+                context.incrCounter(group.getKey(), counter.getKey(), drain(counter.getValue()));
+            }
+        }
+    }
+
+    // sumThenReset() would lose the increments made while it runs
+    private static long drain(LongAdder adder) {
+        long value = adder.sum();
+        adder.add(-value);
+        return value;
+    }
+
+    private synchronized void cancelFlushTask() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+    }
+
+    private LongAdder getAdder(Enum<?> name) {
+        LongAdder adder = enumCounters.get(name);
+        if (adder == null) {
+            LongAdder newAdder = new LongAdder();
+            adder = enumCounters.putIfAbsent(name, newAdder);
+            if (adder == null) {
+                adder = newAdder;
+            }
+        }
+        return adder;
+    }
+
+    private LongAdder getAdder(String group, String name) {
+        ConcurrentMap<String, LongAdder> counters = groupCounters.get(group);
+        if (counters == null) {
+            ConcurrentMap<String, LongAdder> newCounters = new ConcurrentHashMap<String, LongAdder>();
+            counters = groupCounters.putIfAbsent(group, newCounters);
+            if (counters == null) {
+                counters = newCounters;
+            }
+        }
+        LongAdder adder = counters.get(name);
+        if (adder == null) {
+            LongAdder newAdder = new LongAdder();
+            adder = counters.putIfAbsent(name, newAdder);
+            if (adder == null) {
+                adder = newAdder;
+            }
+        }
+        return adder;
+    }
+
     /**
      * @deprecated use {@link org.apache.pig.tools.pigstats.PigStatusReporter#incrCounter} instead.
      * This method returns MR counter which is not compatible with Tez mode. Use
@@ -63,6 +200,9 @@ public class PigStatusReporter extends StatusReporter implements Progressable, P
     @Override
     @Deprecated
     public Counter getCounter(Enum<?> name) {
+        if (isOwner()) {
+            flush();
+        }
         return (context == null) ? null : context.getCounter(name);
     }
 
@@ -74,15 +214,58 @@ public class PigStatusReporter extends StatusReporter implements Progressable, P
     @Override
     @Deprecated
     public Counter getCounter(String group, String name) {
+        if (isOwner()) {
+            flush();
+        }
         return context == null ? null : context.getCounter(group, name);
     }
 
     public boolean incrCounter(Enum<?> name, long incr) {
-        return context == null ? false : context.incrCounter(name, incr);
+        if (context == null) {
+            return false;
+        }
+        if (!buffering) {
+            return context.incrCounter(name, incr);
+        }
+        if (Thread.currentThread() != owner) {
+            getAdder(name).add(incr);
+            if (reportEveryCall) {
+                flushDue = true;
+            }
+            return true;
+        }
+        if (flushDue) {
+            flush();
+        }
+        if (reportEveryCall) {
+            return context.incrCounter(name, incr);
+        }
+        getAdder(name).add(incr);
+        return true;
     }
 
     public boolean incrCounter(String group, String name, long incr) {
-        return context == null ? false : context.incrCounter(group, name, incr);
+        if (context == null) {
+            return false;
+        }
+        if (!buffering) {
+            return context.incrCounter(group, name, incr);
+        }
+        if (Thread.currentThread() != owner) {
+            getAdder(group, name).add(incr);
+            if (reportEveryCall) {
+                flushDue = true;
+            }
+            return true;
+        }
+        if (flushDue) {
+            flush();
+        }
+        if (reportEveryCall) {
+            return context.incrCounter(group, name, incr);
+        }
+        getAdder(group, name).add(incr);
+        return true;
     }
 
     @Override
@@ -24,6 +24,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.BitSet;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
@@ -185,6 +186,9 @@ public abstract class ScriptState {
 
     private Stack<ScriptInfo> scripts = new Stack<>();
 
+    // nanoseconds spent in each compilation phase since the last report
+    private final Map<String, Long> compileTimes = new LinkedHashMap<String, Long>();
+
     protected ScriptState(String id) {
         this.id = id;
         this.serializedScript = "";
@@ -442,6 +446,60 @@ public abstract class ScriptState {
         return featureLongToString(scriptFeatures);
     }
 
+    /**
+     * Records the time spent in a compilation phase of the script, if a
+     * script is running
+     *
+     * @param phase name of the phase
+     * @param startNanos value of {@link System#nanoTime()} when the phase started
+     */
+    public static void addCompileTime(String phase, long startNanos) {
+        ScriptState ss = get();
+        if (ss != null) {
+            long nanos = System.nanoTime() - startNanos;
+            synchronized (ss.compileTimes) {
+                Long total = ss.compileTimes.get(phase);
+                ss.compileTimes.put(phase, total == null ? nanos : total + nanos);
+            }
+        }
+    }
+
+    /**
+     * @return the milliseconds spent in each compilation phase since the last
+     *         call to {@link #logCompileTimes()}
+     */
+    public Map<String, Long> getCompileTimes() {
+        Map<String, Long> times = new LinkedHashMap<String, Long>();
+        synchronized (compileTimes) {
+            for (Map.Entry<String, Long> entry : compileTimes.entrySet()) {
+                times.put(entry.getKey(), entry.getValue() / 1000000);
+            }
+        }
+        return times;
+    }
+
+    /**
+     * Logs the time spent in each compilation phase, typically before the
+     * jobs are submitted, and starts over for the next plan
+     */
+    public void logCompileTimes() {
+        Map<String, Long> times = getCompileTimes();
+        if (times.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Compilation times:");
+        long total = 0;
+        for (Map.Entry<String, Long> entry : times.entrySet()) {
+            sb.append(" ").append(entry.getKey()).append("=").append(entry.getValue()).append("ms");
+            total += entry.getValue();
+        }
+        sb.append(", total=").append(total).append("ms");
+        LOG.info(sb.toString());
+        synchronized (compileTimes) {
+            compileTimes.clear();
+        }
+    }
+
     /**
      * Stores information about the current script and pushes it onto a stack.
      *
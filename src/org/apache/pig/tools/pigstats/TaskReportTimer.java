@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.tools.pigstats;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.pig.PigConfiguration;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Daemon timer that drives the periodic progress and counter reporting of
+ * tasks, so that operators only need to set a flag per record instead of
+ * calling into the task context.
+ */
+public class TaskReportTimer {
+
+    public static final long DEFAULT_INTERVAL = 1000;
+
+    private static ScheduledThreadPoolExecutor executor = null;
+
+    private TaskReportTimer() {
+    }
+
+    /**
+     * @return the reporting interval in milliseconds; 0 or less if progress
+     * and counters are reported to the task context on every call
+     */
+    public static long getInterval(Configuration conf) {
+        if (conf == null) {
+            return 0;
+        }
+        return conf.getLong(PigConfiguration.PIG_TASK_REPORT_INTERVAL, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Runs the task every interval milliseconds until it is cancelled.
+     */
+    public static synchronized ScheduledFuture<?> schedule(Runnable task, long interval) {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Pig Task Reporter").build());
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor.scheduleWithFixedDelay(task, interval, interval, TimeUnit.MILLISECONDS);
+    }
+}
@@ -208,6 +208,7 @@ public final class SimplePigStats extends PigStats {
 
     void display() {
         LOG.info(getDisplayString());
+        displayOperatorProfile();
     }
 
     @Override
@@ -57,6 +57,7 @@ public class Spark1JobStats extends SparkJobStats {
         long remoteBytesRead = 0;
         long shuffleBytesWritten = 0;
         long shuffleWriteTime = 0;
+        long shuffleRecordsWritten = 0;
         boolean inputMetricExist = false;
         boolean outputMetricExist = false;
         boolean shuffleReadMetricExist = false;
@@ -97,6 +98,7 @@ public class Spark1JobStats extends SparkJobStats {
                             shuffleWriteMetricExist = true;
                             shuffleBytesWritten += shuffleWriteMetricsOption.get().shuffleBytesWritten();
                             shuffleWriteTime += shuffleWriteMetricsOption.get().shuffleWriteTime();
+                            shuffleRecordsWritten += shuffleWriteMetricsOption.get().shuffleRecordsWritten();
                         }
 
                     }
@@ -134,6 +136,7 @@ public class Spark1JobStats extends SparkJobStats {
         if (shuffleWriteMetricExist) {
             results.put("ShuffleBytesWritten", shuffleBytesWritten);
             results.put("ShuffleWriteTime", shuffleWriteTime);
+            results.put("ShuffleRecordsWritten", shuffleRecordsWritten);
         }
 
         return results;
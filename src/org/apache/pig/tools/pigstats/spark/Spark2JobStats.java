@@ -56,6 +56,7 @@ public class Spark2JobStats extends SparkJobStats {
         long remoteBytesRead = 0;
         long shuffleBytesWritten = 0;
         long shuffleWriteTime = 0;
+        long shuffleRecordsWritten = 0;
 
         for (List<TaskMetrics> stageMetric : jobMetric.values()) {
             if (stageMetric != null) {
@@ -81,6 +82,7 @@ public class Spark2JobStats extends SparkJobStats {
                         ShuffleWriteMetrics shuffleWriteMetricsOption = taskMetrics.shuffleWriteMetrics();
                         shuffleBytesWritten += shuffleWriteMetricsOption.shuffleBytesWritten();
                         shuffleWriteTime += shuffleWriteMetricsOption.shuffleWriteTime();
+                        shuffleRecordsWritten += shuffleWriteMetricsOption.shuffleRecordsWritten();
                     }
                 }
             }
@@ -110,6 +112,7 @@ public class Spark2JobStats extends SparkJobStats {
 
         results.put("ShuffleBytesWritten", shuffleBytesWritten);
         results.put("ShuffleWriteTime", shuffleWriteTime);
+        results.put("ShuffleRecordsWritten", shuffleRecordsWritten);
 
         return results;
     }
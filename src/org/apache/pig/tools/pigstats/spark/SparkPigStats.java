@@ -28,6 +28,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapred.JobClient;
+import org.apache.pig.PigConstants;
 import org.apache.pig.PigWarning;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLoad;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POStore;
@@ -115,6 +116,7 @@ public class SparkPigStats extends PigStats {
 
     private void display() {
         LOG.info(getDisplayString());
+        displayOperatorProfile();
         handleAggregateWarnings();
     }
 
@@ -209,6 +211,24 @@ public class SparkPigStats extends PigStats {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Long>> getOperatorProfile() {
+        Map<String, Long> counters = new HashMap<String, Long>();
+        SparkCounters sparkCounters = SparkPigStatusReporter.getInstance().getCounters();
+        if (sparkCounters != null) {
+            SparkCounterGroup<Map<String, Long>> group = sparkCounters.getSparkCounterGroups().get(
+                    PigConstants.OPERATOR_PROFILE_COUNTER_GROUP);
+            if (group != null) {
+                SparkCounter<Map<String, Long>> counter = group.getCounter(PigConstants.OPERATOR_PROFILE_COUNTER_GROUP);
+                if (counter != null && counter.getValue() != null) {
+                    counters.putAll(counter.getValue());
+                }
+            }
+        }
+        return toOperatorProfile(counters);
+    }
+
     @Override
     public int getNumberJobs() {
         return jobPlan.size();
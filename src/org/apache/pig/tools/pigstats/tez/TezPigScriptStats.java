@@ -119,6 +119,7 @@ public class TezPigScriptStats extends PigStats {
 
     private void display() {
         LOG.info(getDisplayString());
+        displayOperatorProfile();
     }
 
     @Override
@@ -162,6 +162,11 @@ public class TezVertexStats extends JobStats {
             this.vertexState = status.getState();
             this.parallelism = parallelism; //compile time parallelism
             this.numTasks = status.getProgress().getTotalTaskCount(); //run time parallelism
+            if (parallelism > 0 && numTasks != parallelism) {
+                // Decided by the vertex manager from the actual input size
+                LOG.info("Parallelism of vertex " + name + " was changed at runtime from "
+                        + parallelism + " to " + numTasks);
+            }
             TezCounters tezCounters = status.getVertexCounters();
             counters = Maps.newHashMap();
             Iterator<CounterGroup> grpIt = tezCounters.iterator();
@@ -218,6 +223,10 @@ public class TezVertexStats extends JobStats {
         return parallelism;
     }
 
+    public int getNumTasks() {
+        return numTasks;
+    }
+
     public void addInputStatistics() {
 
         long inputRecords = -1;
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.spark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.pig.backend.hadoop.executionengine.spark.PigKryoRegistrator;
+import org.apache.pig.backend.hadoop.executionengine.spark.converter.IndexedKey;
+import org.apache.pig.backend.hadoop.executionengine.spark.converter.SkewedJoinConverter.PartitionIndexedKey;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.DataByteArray;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+@RunWith(JUnit4.class)
+public class TestPigKryoRegistrator {
+
+    private Kryo kryo;
+
+    @Before
+    public void setUp() {
+        // Only uses Kryo APIs that are the same in kryo 2.x and kryo-shaded 3.x
+        kryo = new Kryo();
+        new PigKryoRegistrator().registerClasses(kryo);
+    }
+
+    private Object roundTrip(Object o) {
+        Output output = new Output(64, -1);
+        kryo.writeClassAndObject(output, o);
+        output.close();
+        Input input = new Input(output.toBytes());
+        Object read = kryo.readClassAndObject(input);
+        // everything written was read back
+        assertEquals(output.total(), input.total());
+        return read;
+    }
+
+    private Tuple createTuple() throws Exception {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("k", 1L);
+        DataBag bag = BagFactory.getInstance().newDefaultBag();
+        bag.add(TupleFactory.getInstance().newTuple("x"));
+        bag.add(TupleFactory.getInstance().newTuple((Object) null));
+        Tuple t = TupleFactory.getInstance().newTuple();
+        t.append(1);
+        t.append(null);
+        t.append("été");
+        t.append(2.5d);
+        t.append(new DataByteArray(new byte[] { 0, 1, 2 }));
+        t.append(new DateTime(1000L));
+        t.append(map);
+        t.append(bag);
+        return t;
+    }
+
+    @Test
+    public void testTuple() throws Exception {
+        Tuple t = createTuple();
+        Object read = roundTrip(t);
+        assertTrue(read instanceof Tuple);
+        assertEquals(t, read);
+        assertEquals(TupleFactory.getInstance().newTuple(), roundTrip(TupleFactory.getInstance().newTuple()));
+    }
+
+    @Test
+    public void testBagAndByteArray() throws Exception {
+        DataBag bag = BagFactory.getInstance().newDefaultBag();
+        bag.add(createTuple());
+        bag.add(createTuple());
+        assertEquals(bag, roundTrip(bag));
+        DataBag sorted = BagFactory.getInstance().newSortedBag(null);
+        sorted.add(TupleFactory.getInstance().newTuple((Object) 2));
+        sorted.add(TupleFactory.getInstance().newTuple((Object) 1));
+        assertEquals(sorted, roundTrip(sorted));
+        DataByteArray dba = new DataByteArray("abc");
+        assertEquals(dba, roundTrip(dba));
+    }
+
+    @Test
+    public void testIndexedKey() throws Exception {
+        IndexedKey key = new IndexedKey((byte) 1, createTuple());
+        IndexedKey read = (IndexedKey) roundTrip(key);
+        assertEquals(key.getIndex(), read.getIndex());
+        assertEquals(key.getKey(), read.getKey());
+        assertNull(roundTrip(null));
+
+        PartitionIndexedKey partitionKey = new PartitionIndexedKey((byte) 0, createTuple(), 3);
+        PartitionIndexedKey readPartitionKey = (PartitionIndexedKey) roundTrip(partitionKey);
+        assertEquals(partitionKey.getKey(), readPartitionKey.getKey());
+        assertEquals(3, readPartitionKey.getPartitionId());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.spark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigServer;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.PhysicalOperator;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.PORank;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POSplit;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
+import org.apache.pig.backend.hadoop.executionengine.spark.SparkLauncher;
+import org.apache.pig.backend.hadoop.executionengine.spark.SparkLocalExecType;
+import org.apache.pig.backend.hadoop.executionengine.spark.plan.SparkOperPlan;
+import org.apache.pig.backend.hadoop.executionengine.spark.plan.SparkOperator;
+import org.apache.pig.impl.PigContext;
+import org.apache.pig.impl.plan.OperatorKey;
+import org.apache.pig.test.Util;
+import org.junit.Test;
+
+public class TestRDDCacheOptimizer {
+
+    private SparkOperPlan compile(String query, Properties props) throws Exception {
+        PigContext pc = new PigContext(new SparkLocalExecType(), props);
+        PigServer pigServer = new PigServer(pc);
+        PhysicalPlan pp = Util.buildPp(pigServer, query);
+        pc.inExplain = true;
+        return new SparkLauncher().compile(pp, pc);
+    }
+
+    private Set<OperatorKey> getCachedOperators(SparkOperPlan plan) {
+        Set<OperatorKey> cached = new HashSet<OperatorKey>();
+        for (SparkOperator sparkOp : plan) {
+            cached.addAll(sparkOp.getCachedOperators());
+        }
+        return cached;
+    }
+
+    @Test
+    public void testSplitBranches() throws Exception {
+        String query =
+                "a = load 'file:///tmp/input' as (x:int, y:int);" +
+                "b = filter a by x > 0;" +
+                "store b into 'file:///tmp/output1';" +
+                "c = filter a by y > 0;" +
+                "store c into 'file:///tmp/output2';";
+        SparkOperPlan plan = compile(query, new Properties());
+        assertEquals(1, plan.size());
+        SparkOperator sparkOp = plan.getRoots().get(0);
+        List<POSplit> splits = PlanHelper.getPhysicalOperators(sparkOp.physicalPlan, POSplit.class);
+        assertEquals(1, splits.size());
+        // the input of the split is computed once for both branches
+        PhysicalOperator splitInput = sparkOp.physicalPlan.getPredecessors(splits.get(0)).get(0);
+        assertEquals(1, sparkOp.getCachedOperators().size());
+        assertTrue(sparkOp.getCachedOperators().contains(splitInput.getOperatorKey()));
+    }
+
+    @Test
+    public void testRank() throws Exception {
+        String query =
+                "a = load 'file:///tmp/input' as (x:int, y:int);" +
+                "b = rank a;" +
+                "store b into 'file:///tmp/output';";
+        SparkOperPlan plan = compile(query, new Properties());
+        Set<OperatorKey> cached = getCachedOperators(plan);
+        assertEquals(1, cached.size());
+        // the input of the rank is read twice, to count the records and to
+        // number them
+        boolean rankInputCached = false;
+        for (SparkOperator sparkOp : plan) {
+            for (PhysicalOperator op : sparkOp.physicalPlan) {
+                if (op instanceof PORank) {
+                    PhysicalOperator rankInput = sparkOp.physicalPlan.getPredecessors(op).get(0);
+                    rankInputCached |= cached.contains(rankInput.getOperatorKey());
+                }
+            }
+        }
+        assertTrue(rankInputCached);
+    }
+
+    @Test
+    public void testSingleConsumer() throws Exception {
+        String query =
+                "a = load 'file:///tmp/input' as (x:int, y:int);" +
+                "b = group a by x;" +
+                "c = foreach b generate group, COUNT(a);" +
+                "store c into 'file:///tmp/output';";
+        assertTrue(getCachedOperators(compile(query, new Properties())).isEmpty());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        String query =
+                "a = load 'file:///tmp/input' as (x:int, y:int);" +
+                "store a into 'file:///tmp/output1';" +
+                "b = filter a by y > 0;" +
+                "store b into 'file:///tmp/output2';";
+        Properties props = new Properties();
+        props.setProperty(PigConfiguration.PIG_SPARK_CACHE_ENABLED, "false");
+        assertTrue(getCachedOperators(compile(query, props)).isEmpty());
+    }
+}
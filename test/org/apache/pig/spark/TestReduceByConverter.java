@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.spark;
+
+import static org.apache.pig.builtin.mock.Storage.resetData;
+import static org.apache.pig.builtin.mock.Storage.tuple;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.pig.PigServer;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
+import org.apache.pig.backend.hadoop.executionengine.spark.SparkLauncher;
+import org.apache.pig.backend.hadoop.executionengine.spark.SparkLocalExecType;
+import org.apache.pig.backend.hadoop.executionengine.spark.operator.POReduceBySpark;
+import org.apache.pig.backend.hadoop.executionengine.spark.plan.SparkOperPlan;
+import org.apache.pig.backend.hadoop.executionengine.spark.plan.SparkOperator;
+import org.apache.pig.builtin.mock.Storage.Data;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.impl.PigContext;
+import org.apache.pig.test.Util;
+import org.apache.pig.tools.pigstats.JobStats;
+import org.apache.pig.tools.pigstats.PigStats;
+import org.apache.pig.tools.pigstats.spark.SparkJobStats;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs algebraic group by aggregations through
+ * {@link org.apache.pig.backend.hadoop.executionengine.spark.converter.ReduceByConverter}.
+ */
+public class TestReduceByConverter {
+
+    private static PigServer pigServer;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        pigServer = new PigServer(new PigContext(new SparkLocalExecType(), new Properties()));
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        pigServer.shutdown();
+    }
+
+    private static final String QUERY =
+            "A = LOAD 'input' USING mock.Storage() AS (k:int, v:long);\n"
+            + "B = GROUP A BY k PARALLEL 2;\n"
+            + "C = FOREACH B GENERATE group, COUNT(A.v), COUNT_STAR(A), SUM(A.v), MIN(A.v), MAX(A.v), AVG(A.v);\n";
+
+    @Test
+    public void testReduceByIsUsed() throws Exception {
+        resetData(pigServer);
+        PhysicalPlan pp = Util.buildPp(pigServer, QUERY + "STORE C INTO 'output' USING mock.Storage();");
+        pigServer.getPigContext().inExplain = true;
+        try {
+            SparkOperPlan plan = new SparkLauncher().compile(pp, pigServer.getPigContext());
+            boolean found = false;
+            for (SparkOperator sparkOp : plan) {
+                found |= !PlanHelper.getPhysicalOperators(sparkOp.physicalPlan,
+                        POReduceBySpark.class).isEmpty();
+            }
+            assertTrue(found);
+        } finally {
+            pigServer.getPigContext().inExplain = false;
+        }
+    }
+
+    @Test
+    public void testAlgebraicFunctions() throws Exception {
+        Data data = resetData(pigServer);
+        List<Tuple> input = new ArrayList<Tuple>();
+        // Values equal to their key, null values and a null key
+        for (int i = 0; i < 250; i++) {
+            input.add(tuple(1, (long) i));
+            input.add(tuple(2, i % 5 == 0 ? null : 2L));
+            input.add(tuple(i % 50 == 0 ? null : 3, i % 2 == 0 ? null : (long) i));
+        }
+        input.add(tuple(4, null));
+        data.set("input", input);
+
+        pigServer.setBatchOn();
+        pigServer.registerQuery(QUERY + "STORE C INTO 'output' USING mock.Storage();");
+        pigServer.executeBatch();
+
+        List<Tuple> output = new ArrayList<Tuple>(data.get("output"));
+        Collections.sort(output);
+        List<Tuple> expected = new ArrayList<Tuple>();
+        expected.add(tuple(null, 0L, 5L, null, null, null, null));
+        expected.add(tuple(1, 250L, 250L, 31125L, 0L, 249L, 124.5d));
+        expected.add(tuple(2, 200L, 250L, 400L, 2L, 2L, 2.0d));
+        expected.add(tuple(3, 125L, 245L, 15625L, 1L, 249L, 125.0d));
+        expected.add(tuple(4, 0L, 1L, null, null, null, null));
+        Collections.sort(expected);
+        assertEquals(expected, output);
+    }
+
+    /**
+     * Runs the query on the given number of values for each of 3 keys.
+     *
+     * @return the shuffle records and bytes written
+     */
+    private static long[] runAndGetShuffleStats(int valuesPerKey) throws Exception {
+        Data data = resetData(pigServer);
+        List<Tuple> input = new ArrayList<Tuple>();
+        for (int i = 0; i < 3 * valuesPerKey; i++) {
+            input.add(tuple(i % 3, (long) (i % 7)));
+        }
+        data.set("input", input);
+
+        pigServer.setBatchOn();
+        pigServer.registerQuery(QUERY + "STORE C INTO 'output' USING mock.Storage();");
+        pigServer.executeBatch();
+        assertEquals(3, data.get("output").size());
+
+        long[] shuffled = new long[2];
+        for (JobStats js : PigStats.get().getJobGraph()) {
+            Map<String, Long> stats = ((SparkJobStats) js).getStats();
+            if (stats.containsKey("ShuffleRecordsWritten")) {
+                shuffled[0] += stats.get("ShuffleRecordsWritten");
+                shuffled[1] += stats.get("ShuffleBytesWritten");
+            }
+        }
+        return shuffled;
+    }
+
+    @Test
+    public void testOneValuePerKeyShuffled() throws Exception {
+        // The input is a single partition, which writes one merged value
+        // per key to the shuffle, whatever the number of values of the key
+        long[] few = runAndGetShuffleStats(10);
+        long[] many = runAndGetShuffleStats(50);
+        assertEquals(3, few[0]);
+        assertEquals(3, many[0]);
+        // Only the sums of the merged values get larger
+        assertTrue(many[1] < few[1] + few[1] / 5);
+    }
+}
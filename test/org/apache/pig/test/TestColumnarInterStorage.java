@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.apache.pig.builtin.mock.Storage.resetData;
+import static org.apache.pig.builtin.mock.Storage.tuple;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.pig.ExecType;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigServer;
+import org.apache.pig.backend.hadoop.executionengine.shims.HadoopShims;
+import org.apache.pig.builtin.mock.Storage.Data;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.DataByteArray;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.apache.pig.impl.io.ColumnarInterRecordReader;
+import org.apache.pig.impl.io.ColumnarInterRecordWriter;
+import org.apache.pig.impl.io.ColumnarInterStorage;
+import org.apache.pig.impl.util.Utils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestColumnarInterStorage {
+
+    private File file;
+
+    private Configuration conf;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("columnar", "");
+        file.delete();
+        conf = new Configuration();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    private List<Tuple> createTuples() throws Exception {
+        List<Tuple> tuples = new ArrayList<Tuple>();
+        for (int i = 0; i < 100; i++) {
+            Tuple t = TupleFactory.getInstance().newTuple();
+            // sorted ints, repeated strings, a mix of types and nulls
+            t.append(i);
+            t.append("key" + (i % 3));
+            t.append(i % 7 == 0 ? null : (i % 2 == 0 ? (Object) (i * 1000000000L) : "v" + i));
+            if (i % 5 != 0) {
+                t.append(i % 4 == 0 ? null : 1.5d);
+            }
+            tuples.add(t);
+        }
+        return tuples;
+    }
+
+    private void write(List<Tuple> tuples, CompressionCodec codec) throws Exception {
+        Path path = new Path(file.getAbsolutePath());
+        ColumnarInterRecordWriter writer = new ColumnarInterRecordWriter(
+                FileSystem.getLocal(conf).create(path), codec, 16);
+        for (Tuple t : tuples) {
+            writer.write(null, t);
+        }
+        writer.close(null);
+    }
+
+    private List<Tuple> read(boolean[] requiredColumns, boolean compact) throws Exception {
+        return read(requiredColumns, compact, 0, file.length());
+    }
+
+    private List<Tuple> read(boolean[] requiredColumns, boolean compact, long start,
+            long length) throws Exception {
+        Path path = new Path(file.getAbsolutePath());
+        ColumnarInterRecordReader reader = new ColumnarInterRecordReader();
+        reader.setRequiredColumns(requiredColumns, compact);
+        reader.initialize(new FileSplit(path, start, length, null),
+                HadoopShims.createTaskAttemptContext(conf,
+                        HadoopShims.createTaskAttemptID("jt", 1, true, 1, 1)));
+        List<Tuple> tuples = new ArrayList<Tuple>();
+        while (reader.nextKeyValue()) {
+            tuples.add(reader.getCurrentValue());
+        }
+        assertFalse(reader.nextKeyValue());
+        reader.close();
+        return tuples;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<Tuple> tuples = createTuples();
+        write(tuples, null);
+        assertEquals(tuples, read(null, false));
+    }
+
+    @Test
+    public void testRoundTripCompressed() throws Exception {
+        List<Tuple> tuples = createTuples();
+        write(tuples, ReflectionUtils.newInstance(GzipCodec.class, conf));
+        assertEquals(tuples, read(null, false));
+    }
+
+    @Test
+    public void testSplits() throws Exception {
+        List<Tuple> tuples = createTuples();
+        write(tuples, null);
+        long fileLength = file.length();
+        for (long splitLength : new long[] { 1, 7, 100, 333, fileLength / 2 + 1 }) {
+            List<Tuple> all = new ArrayList<Tuple>();
+            for (long start = 0; start < fileLength; start += splitLength) {
+                all.addAll(read(null, false, start, Math.min(splitLength, fileLength - start)));
+            }
+            assertEquals("split length " + splitLength, tuples, all);
+        }
+    }
+
+    @Test
+    public void testRunsOfBags() throws Exception {
+        // Bags with the same tuples in a different order are equal, but must
+        // not be folded into one run
+        List<Tuple> tuples = new ArrayList<Tuple>();
+        for (int i = 0; i < 20; i++) {
+            DataBag bag = BagFactory.getInstance().newDefaultBag();
+            bag.add(tuple(i < 10 ? 1 : 2));
+            bag.add(tuple(i < 10 ? 2 : 1));
+            tuples.add(tuple(bag, new DataByteArray("bytes")));
+        }
+        write(tuples, null);
+        List<Tuple> read = read(null, false);
+        assertEquals(tuples.size(), read.size());
+        for (int i = 0; i < tuples.size(); i++) {
+            assertEquals(tuples.get(i).get(0).toString(), read.get(i).get(0).toString());
+            assertEquals(tuples.get(i).get(1), read.get(i).get(1));
+        }
+        // Rows of a run do not share mutable values
+        assertNotSame(read.get(0).get(0), read.get(1).get(0));
+        assertNotSame(read.get(0).get(1), read.get(1).get(1));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        write(Collections.<Tuple>emptyList(), null);
+        assertTrue(read(null, false).isEmpty());
+    }
+
+    @Test
+    public void testRequiredColumns() throws Exception {
+        List<Tuple> tuples = createTuples();
+        write(tuples, null);
+        boolean[] required = new boolean[] { false, true, false, true };
+
+        List<Tuple> full = read(required, false);
+        assertEquals(tuples.size(), full.size());
+        for (int i = 0; i < tuples.size(); i++) {
+            Tuple expected = tuples.get(i);
+            Tuple actual = full.get(i);
+            assertEquals(expected.size(), actual.size());
+            for (int c = 0; c < expected.size(); c++) {
+                if (required[c]) {
+                    assertEquals(expected.get(c), actual.get(c));
+                } else {
+                    assertNull(actual.get(c));
+                }
+            }
+        }
+
+        List<Tuple> compact = read(required, true);
+        assertEquals(tuples.size(), compact.size());
+        for (int i = 0; i < tuples.size(); i++) {
+            Tuple expected = tuples.get(i);
+            Tuple actual = compact.get(i);
+            assertEquals(2, actual.size());
+            assertEquals(expected.get(1), actual.get(0));
+            assertEquals(expected.size() > 3 ? expected.get(3) : null, actual.get(1));
+        }
+    }
+
+    @Test
+    public void testTmpFileStorage() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(PigConfiguration.PIG_ENABLE_TEMP_FILE_COMPRESSION, "true");
+        props.setProperty(PigConfiguration.PIG_TEMP_FILE_COMPRESSION_STORAGE, "columnar");
+        props.setProperty(PigConfiguration.PIG_TEMP_FILE_COMPRESSION_CODEC, "gz");
+        assertEquals(ColumnarInterStorage.class, Utils.getTmpFileStorageClass(props));
+
+        PigServer pigServer = new PigServer(ExecType.LOCAL, props);
+        Data data = resetData(pigServer);
+        data.set("foo", tuple("a", 1, "x"), tuple("b", 2, "y"), tuple("a", 3, "z"),
+                tuple("c", 6, "x"), tuple("b", 5, "y"));
+
+        // the group, the sampling and the order by jobs go through
+        // temporary files
+        String query = "A = LOAD 'foo' USING mock.Storage() AS (k:chararray, v:int, s:chararray);\n"
+                + "B = GROUP A BY k;\n"
+                + "C = FOREACH B GENERATE group, SUM(A.v) AS total, COUNT(A) AS cnt;\n"
+                + "D = ORDER C BY total;\n"
+                + "E = FOREACH D GENERATE group, total;\n"
+                + "STORE E INTO 'bar' USING mock.Storage();\n";
+        pigServer.registerScript(new ByteArrayInputStream(query.getBytes()));
+        List<Tuple> out = data.get("bar");
+        assertEquals(3, out.size());
+        assertEquals(tuple("a", 4L), out.get(0));
+        assertEquals(tuple("c", 6L), out.get(1));
+        assertEquals(tuple("b", 7L), out.get(2));
+    }
+}
@@ -19,6 +19,8 @@
 package org.apache.pig.test;
 import static org.apache.pig.builtin.mock.Storage.resetData;
 import static org.apache.pig.builtin.mock.Storage.tuple;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
@@ -26,10 +28,12 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import org.junit.Assert;
 
+import org.apache.pig.PigConfiguration;
 import org.apache.pig.PigServer;
 import org.apache.pig.builtin.mock.Storage.Data;
 import org.apache.pig.data.DataBag;
@@ -601,6 +605,53 @@ public class TestCubeOperator {
         assertTrue(baos.toString().contains("RollupDimensions"));
     }
 
+    @Test
+    public void testCubeMapPartialAgg() throws IOException {
+        // grouping sets are derived from partial aggregates by all dimensions
+        String query = "a = load 'input1' USING mock.Storage() as (l:chararray);"
+                + "b = foreach a generate flatten(STRSPLIT(l, ',')) as (v:chararray,w:chararray,x:chararray,y:chararray);"
+                + "c = foreach b generate w, x, y, SIZE(v) as z;"
+                + "d = cube c by cube(w), rollup(x,y);"
+                + "e = foreach d generate flatten(group), COUNT_STAR(cube) as count, SUM(cube.z) as total, MAX(cube.z) as mx;";
+
+        Util.registerMultiLineQuery(pigServer, query);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        pigServer.explain("e", new PrintStream(baos));
+        assertTrue(baos.toString().contains("GroupingSets"));
+        pigServer.registerQuery("store e into 'output' using mock.Storage();");
+        List<Tuple> out = data.get("output");
+
+        Properties props = pigServer.getPigContext().getProperties();
+        props.setProperty(PigConfiguration.PIG_EXEC_MAP_PARTAGG_CUBE, "false");
+        try {
+            Util.registerMultiLineQuery(pigServer, query);
+            baos = new ByteArrayOutputStream();
+            pigServer.explain("e", new PrintStream(baos));
+            assertFalse(baos.toString().contains("GroupingSets"));
+            pigServer.registerQuery("store e into 'output2' using mock.Storage();");
+        } finally {
+            props.remove(PigConfiguration.PIG_EXEC_MAP_PARTAGG_CUBE);
+        }
+        List<Tuple> expected = data.get("output2");
+
+        assertEquals(21, out.size());
+        assertEquals(expected.size(), out.size());
+        assertEquals(ImmutableSet.copyOf(expected), ImmutableSet.copyOf(out));
+    }
+
+    @Test
+    public void testCubeMapPartialAggReadingDimensions() throws IOException {
+        // COUNT reads the first dimension, which is null for some grouping sets
+        String query = "a = load 'input' USING mock.Storage() as (x:chararray,y:chararray,z:long);"
+                + "b = cube a by cube(x,y);"
+                + "c = foreach b generate flatten(group), COUNT(cube) as count;";
+
+        Util.registerMultiLineQuery(pigServer, query);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        pigServer.explain("c", new PrintStream(baos));
+        assertFalse(baos.toString().contains("GroupingSets"));
+    }
+
     @Test
     public void testDescribe() throws IOException {
         // test for describe
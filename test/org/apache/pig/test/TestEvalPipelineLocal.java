@@ -45,8 +45,13 @@ import org.apache.log4j.WriterAppender;
 import org.apache.pig.ComparisonFunc;
 import org.apache.pig.EvalFunc;
 import org.apache.pig.FuncSpec;
+import org.apache.pig.PigConfiguration;
 import org.apache.pig.PigServer;
 import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFRJoin;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POGlobalRearrange;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
 import org.apache.pig.builtin.BinStorage;
 import org.apache.pig.builtin.PigStorage;
 import org.apache.pig.builtin.TextLoader;
@@ -1197,6 +1202,61 @@ public class TestEvalPipelineLocal {
         
         Assert.assertFalse(iter.hasNext());
     }
+    @Test
+    public void testBroadcastCross() throws Exception{
+        File f1 = createFile(new String[]{"1", "2", "3"});
+        File f2 = createFile(new String[]{"a", "b"});
+        String query = "a = load '" + Util.encodeEscape(Util.generateURI(f1.toString(), pigServer.getPigContext()))
+                + "' as (x:int);"
+                + "b = load '" + Util.encodeEscape(Util.generateURI(f2.toString(), pigServer.getPigContext()))
+                + "' as (y:chararray);"
+                + "c = cross a, b;";
+        Object[][] expected = new Object[][] {{1, "a"}, {1, "b"}, {2, "a"}, {2, "b"}, {3, "a"}, {3, "b"}};
+
+        // Both inputs are small, so b is replicated into the tasks reading a
+        PhysicalPlan pp = Util.buildPp(new PigServer(Util.getLocalTestMode()), query + "store c into 'output';");
+        Assert.assertEquals(1, PlanHelper.getPhysicalOperators(pp, POFRJoin.class).size());
+        Assert.assertEquals(0, PlanHelper.getPhysicalOperators(pp, POGlobalRearrange.class).size());
+        pigServer.registerQuery(query);
+        Util.checkQueryOutputsAfterSort(pigServer.openIterator("c"), expected);
+
+        pigServer = new PigServer(Util.getLocalTestMode());
+        pigServer.getPigContext().getProperties().setProperty(PigConfiguration.PIG_CROSS_BROADCAST_MAX_BYTES, "0");
+        pp = Util.buildPp(new PigServer(pigServer.getPigContext()), query + "store c into 'output';");
+        Assert.assertEquals(0, PlanHelper.getPhysicalOperators(pp, POFRJoin.class).size());
+        pigServer.registerQuery(query);
+        Util.checkQueryOutputsAfterSort(pigServer.openIterator("c"), expected);
+    }
+
+    @Test
+    public void testBroadcastCrossAfterForEach() throws Exception{
+        File f1 = createFile(new String[]{"1", "2", "3"});
+        File f2 = createFile(new String[]{"a b"});
+        String load = "a = load '" + Util.encodeEscape(Util.generateURI(f1.toString(), pigServer.getPigContext()))
+                + "' as (x:int);"
+                + "b = load '" + Util.encodeEscape(Util.generateURI(f2.toString(), pigServer.getPigContext()))
+                + "' as (y:chararray);";
+
+        // A projection does not grow its input, so the smaller b is replicated
+        PhysicalPlan pp = Util.buildPp(new PigServer(Util.getLocalTestMode()), load
+                + "b2 = foreach b generate y, y as z;"
+                + "c = cross b2, a; store c into 'output';");
+        List<POFRJoin> joins = PlanHelper.getPhysicalOperators(pp, POFRJoin.class);
+        Assert.assertEquals(1, joins.size());
+        Assert.assertEquals(1, joins.get(0).getFragment());
+
+        // FLATTEN and UDFs may, so the size of b2 is unknown and it is streamed
+        String query = load + "b2 = foreach b generate flatten(TOKENIZE(y));"
+                + "c = cross b2, a;";
+        pp = Util.buildPp(new PigServer(Util.getLocalTestMode()), query + "store c into 'output';");
+        joins = PlanHelper.getPhysicalOperators(pp, POFRJoin.class);
+        Assert.assertEquals(1, joins.size());
+        Assert.assertEquals(0, joins.get(0).getFragment());
+        pigServer.registerQuery(query);
+        Util.checkQueryOutputsAfterSort(pigServer.openIterator("c"), new Object[][] {
+                {"a", 1}, {"a", 2}, {"a", 3}, {"b", 1}, {"b", 2}, {"b", 3}});
+    }
+
     static public class GenBag extends EvalFunc<DataBag> {
         @Override
         public DataBag exec(Tuple input) throws IOException {
@@ -18,21 +18,34 @@
 
 package org.apache.pig.test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
+import java.util.Set;
 
 import org.apache.pig.ExecType;
 import org.apache.pig.PigServer;
 import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.data.BagFactory;
 import org.apache.pig.data.DataBag;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
 import org.apache.pig.impl.PigContext;
 import org.apache.pig.newplan.Operator;
+import org.apache.pig.newplan.logical.relational.LOLoad;
+import org.apache.pig.newplan.logical.relational.LogicalPlan;
+import org.apache.pig.pen.BaseDataSampler;
+import org.apache.pig.pen.util.ExampleTuple;
 import org.apache.pig.test.utils.UDFContextTestLoaderWithSignature;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -415,4 +428,97 @@ public class TestExampleGenerator {
         assertNotNull(derivedData);
     }
 
+    @Test
+    public void testBaseDataSamplerStratifiesJoinKeys() throws Exception {
+        PigServer pigServer = new PigServer(pigContext);
+        LogicalPlan lp = Util.buildLp(pigServer, "A = load " + A + " as (k:int, v:int);"
+                + "B = load " + B + " as (k:int, v:int);"
+                + "C = filter A by v >= 0;"
+                + "D = join C by k, B by k;"
+                + "store D into 'output';");
+
+        // only keys 1500 to 1504 are found in both inputs
+        Map<LOLoad, DataBag> baseData = new HashMap<LOLoad, DataBag>();
+        for (Operator op : lp.getSources()) {
+            LOLoad load = (LOLoad) op;
+            int offset = load.getFileSpec().getFileName().contains(fileA.getName()) ? 0 : 5000;
+            DataBag bag = BagFactory.getInstance().newDefaultBag();
+            for (int i = 0; i < 2000; i++) {
+                int key = (i >= 1500 && i < 1505) ? i : i + offset;
+                bag.add(new ExampleTuple(TupleFactory.getInstance().newTuple(
+                        Arrays.<Object>asList(key, i))));
+            }
+            baseData.put(load, bag);
+        }
+
+        Map<LOLoad, DataBag> sampled = new BaseDataSampler(lp, 100).sample(baseData);
+        assertEquals(2, sampled.size());
+        for (DataBag bag : sampled.values()) {
+            assertEquals(100, bag.size());
+            Set<Integer> keys = new HashSet<Integer>();
+            for (Tuple t : bag) {
+                keys.add((Integer) t.get(0));
+            }
+            for (int key = 1500; key < 1505; key++) {
+                assertTrue(keys.contains(key));
+            }
+        }
+    }
+
+    @Test
+    public void testBaseDataCacheSeesChangedInput() throws Exception {
+        File file = File.createTempFile("dataC", ".dat");
+        file.deleteOnExit();
+        String path = Util.encodeEscape("'" + file.getPath() + "'");
+        for (int value : new int[] { 1, 22 }) {
+            FileOutputStream dat = new FileOutputStream(file);
+            for (int i = 0; i < 10; i++) {
+                dat.write((value + "\t" + value + "\n").getBytes());
+            }
+            dat.close();
+
+            PigServer pigServer = new PigServer(pigContext);
+            pigServer.registerQuery("A = load " + path + " using PigStorage() as (x : int, y : int);");
+            Map<Operator, DataBag> derivedData = pigServer.getExamples("A");
+            boolean found = false;
+            for (Map.Entry<Operator, DataBag> entry : derivedData.entrySet()) {
+                if (entry.getKey() instanceof LOLoad) {
+                    for (Tuple t : entry.getValue()) {
+                        assertEquals(String.valueOf(value), t.get(0).toString());
+                        found = true;
+                    }
+                }
+            }
+            assertTrue(found);
+        }
+    }
+
+    @Test
+    public void testBaseDataCacheCopiesNestedBags() throws Exception {
+        File file = File.createTempFile("dataD", ".dat");
+        file.deleteOnExit();
+        FileOutputStream dat = new FileOutputStream(file);
+        dat.write("{\"b\":[{\"x\":1},{\"x\":2}],\"y\":3}\n".getBytes());
+        dat.close();
+        String path = Util.encodeEscape("'" + file.getPath() + "'");
+
+        // the second run reads the cached base data and gets its own bags
+        DataBag[] bags = new DataBag[2];
+        for (int i = 0; i < 2; i++) {
+            PigServer pigServer = new PigServer(pigContext);
+            pigServer.registerQuery("A = load " + path + " using JsonLoader('b:{t:(x:int)}, y:int');");
+            Map<Operator, DataBag> derivedData = pigServer.getExamples("A");
+            for (Map.Entry<Operator, DataBag> entry : derivedData.entrySet()) {
+                if (entry.getKey() instanceof LOLoad) {
+                    for (Tuple t : entry.getValue()) {
+                        bags[i] = (DataBag) t.get(0);
+                    }
+                }
+            }
+            assertNotNull(bags[i]);
+            assertEquals(2, bags[i].size());
+        }
+        assertTrue(bags[0] != bags[1]);
+        assertTrue(bags[0].iterator().next() != bags[1].iterator().next());
+    }
 }
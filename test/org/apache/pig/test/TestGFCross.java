@@ -79,4 +79,26 @@ public class TestGFCross {
         DataBag bag = cross.exec(t);
         assertEquals(4, bag.size());
     }
+
+    // Test GFCross splits the inputs in proportion to their sizes.
+    @Test
+    public void testInputSizes() throws Exception {
+        Configuration cfg = new Configuration();
+        cfg.set(PigImplConstants.PIG_CROSS_PARALLELISM + ".1", "100");
+        cfg.set(MRConfiguration.TASK_ID, "task_14738102975522_0001_r_000000");
+        UDFContext.getUDFContext().addJobConf(cfg);
+        Tuple t = TupleFactory.getInstance().newTuple(2);
+
+        // The large input is split into 100 groups and each tuple is sent
+        // to the single group of the small input
+        t.set(0, 2);
+        t.set(1, 0);
+        GFCross cross = new GFCross("1", "100000,100");
+        assertEquals(1, cross.exec(t).size());
+
+        // The small input is replicated to every group of the large input
+        t.set(1, 1);
+        cross = new GFCross("1", "100000,100");
+        assertEquals(100, cross.exec(t).size());
+    }
 }
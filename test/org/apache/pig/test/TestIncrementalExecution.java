@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.pig.Algebraic;
+import org.apache.pig.EvalFunc;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigServer;
+import org.apache.pig.backend.executionengine.ExecJob.JOB_STATUS;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestIncrementalExecution {
+
+    /**
+     * Sum of the values multiplied by a factor given to the constructor
+     */
+    public static class ScaledSum extends EvalFunc<Long> implements Algebraic {
+
+        private final long factor;
+
+        public ScaledSum(String factor) {
+            this.factor = Long.parseLong(factor);
+        }
+
+        @Override
+        public Long exec(Tuple input) throws IOException {
+            return Final.sum(input) * factor;
+        }
+
+        @Override
+        public String getInitial() {
+            return Initial.class.getName();
+        }
+
+        @Override
+        public String getIntermed() {
+            return Intermed.class.getName();
+        }
+
+        @Override
+        public String getFinal() {
+            return Final.class.getName();
+        }
+
+        public static class Initial extends EvalFunc<Tuple> {
+
+            private final long factor;
+
+            public Initial() {
+                this("1");
+            }
+
+            public Initial(String factor) {
+                this.factor = Long.parseLong(factor);
+            }
+
+            @Override
+            public Tuple exec(Tuple input) throws IOException {
+                return TupleFactory.getInstance().newTuple(Final.sum(input) * factor);
+            }
+        }
+
+        public static class Intermed extends EvalFunc<Tuple> {
+
+            public Intermed() {
+            }
+
+            public Intermed(String factor) {
+            }
+
+            @Override
+            public Tuple exec(Tuple input) throws IOException {
+                return TupleFactory.getInstance().newTuple(Final.sum(input));
+            }
+        }
+
+        public static class Final extends EvalFunc<Long> {
+
+            public Final() {
+            }
+
+            public Final(String factor) {
+            }
+
+            @Override
+            public Long exec(Tuple input) throws IOException {
+                return sum(input);
+            }
+
+            static long sum(Tuple input) throws IOException {
+                long sum = 0;
+                for (Tuple t : (DataBag) input.get(0)) {
+                    sum += (Long) t.get(0);
+                }
+                return sum;
+            }
+        }
+    }
+
+    private File dir;
+    private File input;
+    private File output;
+    private File stateDir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File(Util.getTestDirectory(TestIncrementalExecution.class));
+        Util.deleteDirectory(dir);
+        input = new File(dir, "input");
+        input.mkdirs();
+        output = new File(dir, "output");
+        stateDir = new File(dir, ".output.pig_incremental");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Util.deleteDirectory(dir);
+    }
+
+    private static void writeFile(File file, String... lines) throws IOException {
+        PrintWriter out = new PrintWriter(file);
+        for (String line : lines) {
+            out.println(line);
+        }
+        out.close();
+    }
+
+    private String[] run(String script, boolean incremental) throws Exception {
+        Util.deleteDirectory(output);
+        Properties props = new Properties();
+        props.setProperty(PigConfiguration.PIG_INCREMENTAL_ENABLED, Boolean.toString(incremental));
+        PigServer pigServer = new PigServer(Util.getLocalTestMode(), props);
+        pigServer.setBatchOn();
+        pigServer.registerQuery("a = load '" + Util.encodeEscape(input.getAbsolutePath())
+                + "' as (k:chararray, k2:int, v:long);");
+        pigServer.registerScript(new ByteArrayInputStream(script.getBytes("UTF-8")));
+        pigServer.registerQuery("store result into '" + Util.encodeEscape(output.getAbsolutePath()) + "';");
+        assertEquals(JOB_STATUS.COMPLETED, pigServer.executeBatch().get(0).getStatus());
+        pigServer.shutdown();
+
+        List<String> lines = new ArrayList<String>();
+        for (File part : output.listFiles()) {
+            if (part.getName().startsWith("part")) {
+                BufferedReader in = new BufferedReader(new FileReader(part));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(line);
+                }
+                in.close();
+            }
+        }
+        Collections.sort(lines);
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Runs the script incrementally and checks its output is the same as when
+     * it is fully recomputed
+     */
+    private String[] runAndCheck(String script) throws Exception {
+        String[] expected = run(script, false);
+        String[] actual = run(script, true);
+        assertArrayEquals(expected, actual);
+        return actual;
+    }
+
+    @Test
+    public void testNewFiles() throws Exception {
+        String script =
+                "b = group a by k;" +
+                "result = foreach b generate group, COUNT(a), SUM(a.v), AVG(a.v), MAX(a.k2);";
+        writeFile(new File(input, "part-1"), "x\t1\t10", "y\t2\t20", "x\t3\t30");
+        String[] expected = run(script, false);
+        assertArrayEquals(expected, run(script, true));
+        assertArrayEquals(new String[] { "x\t2\t40\t20.0\t3", "y\t1\t20\t20.0\t2" }, expected);
+        assertTrue(new File(stateDir, "manifest").isFile());
+        assertTrue(new File(stateDir, "state-1").isDirectory());
+
+        writeFile(new File(input, "part-2"), "y\t4\t40", "z\t5\t50");
+        runAndCheck(script);
+        assertTrue(new File(stateDir, "state-2").isDirectory());
+        assertFalse(new File(stateDir, "state-1").exists());
+
+        // Only the new files are read: a processed file changed in place is
+        // not seen
+        File part1 = new File(input, "part-1");
+        long modificationTime = part1.lastModified();
+        writeFile(part1, "x\t1\t10", "y\t2\t20", "x\t3\t90");
+        part1.setLastModified(modificationTime);
+        writeFile(new File(input, "part-3"), "x\t6\t60");
+        assertArrayEquals(new String[] { "x\t3\t100\t33.333333333333336\t6",
+                "y\t2\t60\t30.0\t4", "z\t1\t50\t50.0\t5" }, run(script, true));
+    }
+
+    @Test
+    public void testNoNewFile() throws Exception {
+        String script =
+                "b = group a by k;" +
+                "result = foreach b generate group, COUNT(a);";
+        writeFile(new File(input, "part-1"), "x\t1\t10", "y\t2\t20", "x\t3\t30");
+        runAndCheck(script);
+        // computed from the state only
+        assertArrayEquals(new String[] { "x\t2", "y\t1" }, run(script, true));
+        assertTrue(new File(stateDir, "state-1").isDirectory());
+    }
+
+    @Test
+    public void testChangedFile() throws Exception {
+        String script =
+                "b = group a by k;" +
+                "result = foreach b generate group, SUM(a.v);";
+        writeFile(new File(input, "part-1"), "x\t1\t10", "y\t2\t20");
+        runAndCheck(script);
+        writeFile(new File(input, "part-1"), "x\t1\t10");
+        writeFile(new File(input, "part-2"), "y\t2\t5");
+        assertArrayEquals(new String[] { "x\t10", "y\t5" }, runAndCheck(script));
+    }
+
+    @Test
+    public void testNullKeys() throws Exception {
+        String script =
+                "b = filter a by v > 0;" +
+                "c = group b by k;" +
+                "result = foreach c generate group, COUNT(b), SUM(b.v);";
+        writeFile(new File(input, "part-1"), "x\t1\t10", "\t2\t20", "\t3\t0");
+        runAndCheck(script);
+        writeFile(new File(input, "part-2"), "\t4\t40", "x\t5\t50");
+        assertArrayEquals(new String[] { "\t0\t60", "x\t2\t60" }, runAndCheck(script));
+    }
+
+    @Test
+    public void testMultipleKeysAndNestedFilter() throws Exception {
+        String script =
+                "b = group a by (k, k2 % 2);" +
+                "result = foreach b {" +
+                "  c = filter a by v > 10;" +
+                "  generate flatten(group), COUNT(c), MIN(a.v) * 2;" +
+                "};" +
+                "result = order result by $0, $1;";
+        writeFile(new File(input, "part-1"), "x\t1\t10", "y\t2\t20", "x\t3\t30");
+        runAndCheck(script);
+        writeFile(new File(input, "part-2"), "x\t4\t40", "y\t6\t5", "\t1\t10");
+        runAndCheck(script);
+        assertTrue(new File(stateDir, "state-2").isDirectory());
+    }
+
+    @Test
+    public void testNotIncremental() throws Exception {
+        String script =
+                "b = group a by k;" +
+                "result = foreach b generate group, a.v;";
+        writeFile(new File(input, "part-1"), "x\t1\t10", "y\t2\t20");
+        runAndCheck(script);
+        assertFalse(stateDir.exists());
+    }
+
+    @Test
+    public void testChangedFunctionArguments() throws Exception {
+        String script =
+                "define S " + ScaledSum.class.getName().replace("$", "\\$") + "('%s');" +
+                "b = group a by k;" +
+                "result = foreach b generate group, S(a.v);";
+        writeFile(new File(input, "part-1"), "x\t1\t10", "y\t2\t20", "x\t3\t30");
+        assertArrayEquals(new String[] { "x\t80", "y\t40" },
+                runAndCheck(String.format(script, "2")));
+        assertTrue(new File(stateDir, "state-1").isDirectory());
+        writeFile(new File(input, "part-2"), "y\t4\t40");
+        // the state computed with the previous arguments is not reused
+        assertArrayEquals(new String[] { "x\t120", "y\t180" },
+                runAndCheck(String.format(script, "3")));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.pig.impl.util.JarManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestJarManager {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testChecksum() throws Exception {
+        File checksumDir = new File(folder.getRoot(), "checksums");
+        File jar = folder.newFile("udf.jar");
+        FileUtils.writeStringToFile(jar, "first", "UTF-8");
+        URL url = jar.toURI().toURL();
+
+        String checksum = JarManager.getChecksum(url, checksumDir);
+        assertEquals(DigestUtils.shaHex("first"), checksum);
+        assertEquals(1, checksumDir.list().length);
+        assertEquals("rwx------", PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(checksumDir.toPath())));
+        assertEquals(checksum, JarManager.getChecksum(url, checksumDir));
+
+        // A changed jar is read again
+        FileUtils.writeStringToFile(jar, "second!", "UTF-8");
+        jar.setLastModified(jar.lastModified() + 2000);
+        String newChecksum = JarManager.getChecksum(url, checksumDir);
+        assertFalse(checksum.equals(newChecksum));
+        assertEquals(DigestUtils.shaHex("second!"), newChecksum);
+        assertEquals(2, checksumDir.list().length);
+
+        // A jar rebuilt with the same length and modification time is read again
+        long lastModified = jar.lastModified();
+        FileUtils.writeStringToFile(jar, "third!!", "UTF-8");
+        jar.setLastModified(lastModified);
+        assertEquals(DigestUtils.shaHex("third!!"), JarManager.getChecksum(url, checksumDir));
+        assertEquals(3, checksumDir.list().length);
+    }
+
+    @Test
+    public void testChecksumFromDisk() throws Exception {
+        File checksumDir = folder.newFolder("checksums");
+        Files.setPosixFilePermissions(checksumDir.toPath(), PosixFilePermissions.fromString("rwx------"));
+        File jar = folder.newFile("other.jar");
+        FileUtils.writeStringToFile(jar, "content", "UTF-8");
+        String key = jar.getAbsolutePath() + "\n" + jar.length() + "\n"
+                + Long.toHexString(FileUtils.checksumCRC32(jar));
+        String stored = DigestUtils.shaHex("stored");
+        FileUtils.writeStringToFile(new File(checksumDir, DigestUtils.md5Hex(key)), stored, "UTF-8");
+
+        // Checksums kept by an earlier run are used without computing the SHA-1
+        assertEquals(stored, JarManager.getChecksum(jar.toURI().toURL(), checksumDir));
+        assertTrue(jar.delete());
+    }
+
+    @Test
+    public void testChecksumDirWritableByOthers() throws Exception {
+        File checksumDir = folder.newFolder("checksums");
+        Files.setPosixFilePermissions(checksumDir.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        File jar = folder.newFile("shared.jar");
+        FileUtils.writeStringToFile(jar, "content", "UTF-8");
+        String key = jar.getAbsolutePath() + "\n" + jar.length() + "\n"
+                + Long.toHexString(FileUtils.checksumCRC32(jar));
+        FileUtils.writeStringToFile(new File(checksumDir, DigestUtils.md5Hex(key)),
+                DigestUtils.shaHex("planted"), "UTF-8");
+
+        // Checksums anyone could have written are neither used nor added to
+        assertEquals(DigestUtils.shaHex("content"), JarManager.getChecksum(jar.toURI().toURL(), checksumDir));
+        assertEquals(1, checksumDir.list().length);
+    }
+}
@@ -276,6 +276,29 @@ public class TestJsonLoaderStorage {
     assertTrue(!tuples.hasNext());
   }
 
+  @Test
+  public void testJsonLoaderProjection() throws IOException {
+    String path = createInput(json + "\n" + nullJson);
+    pigServer.registerQuery("data = load '" + path
+        + "' using JsonLoader('" + schema + "');");
+    pigServer.registerQuery("proj = foreach data generate h, b, m;");
+    Iterator<Tuple> tuples = pigServer.openIterator("proj");
+
+    // k and l are skipped, fields after m are never read
+    Tuple t = tuples.next();
+    assertEquals(3, t.size());
+    assertEquals("def", t.get(0));
+    assertEquals(123, t.get(1));
+    assertEquals(3, ((DataBag)t.get(2)).size());
+
+    t = tuples.next();
+    assertEquals(3, t.size());
+    assertEquals(null, t.get(0));
+    assertEquals(null, t.get(1));
+    assertEquals(null, t.get(2));
+    assertTrue(!tuples.hasNext());
+  }
+
   @SuppressWarnings("rawtypes")
   @Test
   public void testJsonLoaderArrays() throws IOException{
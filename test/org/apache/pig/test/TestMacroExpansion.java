@@ -819,7 +819,31 @@ public class TestMacroExpansion {
             
         verify(script, expected);
     }
-    
+
+    @Test
+    public void importTwoFilesNegativeTest() throws Throwable {
+        String macro1 = "define group_and_count (A, reducers) returns B {\n" +
+            "    $B = distinct $A partition by org.apache.pig.test.utils.SimpleCustomPartitioner parallel $reducers;\n" +
+            "};\n";
+        String macro2 = "define distinct_with_reducer(A, reducers) {\n" +
+            "    $B = distinct $A partition by org.apache.pig.test.utils.SimpleCustomPartitioner parallel $reducers;\n" +
+            "};\n";
+
+        createFile("mytest6.pig", macro1);
+        createFile("mytest7.pig", macro2);
+
+        String script =
+            "import 'mytest6.pig';\n" +
+            "import 'mytest7.pig';\n" +
+            "alpha = load 'users' as (user, age, zip);\n" +
+            "gamma = group_and_count (alpha, 23);\n" +
+            "store gamma into 'byuser';\n";
+
+        String expectedErr = "<file mytest7.pig, line 1, column 42>  mismatched input '{' expecting RETURNS";
+
+        validateFailure(script, expectedErr, "<file");
+    }
+
     @Test
     public void noParamTest() throws Exception {
         String macro = "define group_and_count() returns B {\n" +
@@ -2037,6 +2061,32 @@ public class TestMacroExpansion {
         verify(query, expected);
     }
     
+    @Test
+    public void testImportChangedFile() throws Exception {
+        // Imported files are cached by content, a changed file is parsed again
+        createFile("mymacro.pig", "define macro1(A) returns B { $B = distinct $A; };");
+
+        String query = "import 'mymacro.pig';" +
+            "A = load '1.txt' as (a0:int, a1:chararray);" +
+            "B = macro1(A);" +
+            "store B into 'output';";
+
+        verify(query,
+            "A = load '1.txt' as (a0:int, a1:chararray);\n" +
+            "B = distinct A;\n" +
+            "store B INTO 'output';\n");
+        verify(query,
+            "A = load '1.txt' as (a0:int, a1:chararray);\n" +
+            "B = distinct A;\n" +
+            "store B INTO 'output';\n");
+
+        createFile("mymacro.pig", "define macro1(A) returns B { $B = limit $A 10; };");
+        verify(query,
+            "A = load '1.txt' as (a0:int, a1:chararray);\n" +
+            "B = limit A 10;\n" +
+            "store B INTO 'output';\n");
+    }
+
     // PIG-1987
     @Test
     public void test37() throws Exception {
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pig.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.POProject;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POFilter;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POForEach;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLimit;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.MorselExecutor;
+import org.apache.pig.data.DataType;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.apache.pig.test.utils.GenPhyOp;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMorselExecutor {
+
+    private PhysicalPlan plan;
+    private POFilter filter;
+    private POForEach foreach;
+    private POLimit limit;
+
+    @Before
+    public void setUp() throws Exception {
+        // filter $0 > 50 -> foreach generate $0 -> limit
+        filter = GenPhyOp.topFilterOpWithProj(0, 50);
+        POProject proj = GenPhyOp.exprProject(0);
+        proj.setResultType(DataType.INTEGER);
+        PhysicalPlan projPlan = new PhysicalPlan();
+        projPlan.add(proj);
+        foreach = new POForEach(GenPhyOp.getOK(), -1, Collections.singletonList(projPlan),
+                Collections.singletonList(false));
+        limit = GenPhyOp.topLimitOp();
+        limit.setLimit(Long.MAX_VALUE);
+        plan = new PhysicalPlan();
+        plan.add(filter);
+        plan.add(foreach);
+        plan.add(limit);
+        plan.connect(filter, foreach);
+        plan.connect(foreach, limit);
+    }
+
+    private Configuration getConf(int parallelism) {
+        Configuration conf = new Configuration(false);
+        conf.setInt(PigConfiguration.PIG_EXEC_MORSEL_PARALLELISM, parallelism);
+        conf.setInt(PigConfiguration.PIG_EXEC_MORSEL_SIZE, 7);
+        return conf;
+    }
+
+    @Test
+    public void testResultsInInputOrder() throws Exception {
+        MorselExecutor executor = MorselExecutor.create(plan, filter, getConf(4));
+        assertNotNull(executor);
+        assertSame(limit, executor.getTailRoot());
+        assertEquals(1, plan.size());
+
+        final List<Object> results = new ArrayList<Object>();
+        MorselExecutor.ResultHandler handler = new MorselExecutor.ResultHandler() {
+            @Override
+            public void handle(Tuple t) {
+                try {
+                    results.add(t.get(0));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        for (int i = 0; i < 1000; i++) {
+            executor.add(TupleFactory.getInstance().newTuple((Object) i), handler);
+        }
+        executor.flush(handler);
+        executor.close();
+
+        assertEquals(949, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i + 51, results.get(i));
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        assertNull(MorselExecutor.create(plan, filter, getConf(1)));
+        assertEquals(3, plan.size());
+    }
+
+    @Test
+    public void testNoParallelHead() throws Exception {
+        // limit is not stateless, so nothing can run in parallel
+        assertNull(MorselExecutor.create(plan, limit, getConf(4)));
+        assertEquals(3, plan.size());
+    }
+}
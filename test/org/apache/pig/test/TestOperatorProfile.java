@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.apache.pig.builtin.mock.Storage.resetData;
+import static org.apache.pig.builtin.mock.Storage.tuple;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigConstants;
+import org.apache.pig.PigServer;
+import org.apache.pig.backend.executionengine.ExecJob;
+import org.apache.pig.builtin.mock.Storage.Data;
+import org.apache.pig.tools.pigstats.PigStats;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+
+public class TestOperatorProfile {
+
+    private PigStats run(boolean profile) throws Exception {
+        Properties props = new Properties();
+        props.setProperty(PigConfiguration.PIG_OPERATOR_PROFILE, Boolean.toString(profile));
+        props.setProperty(PigConfiguration.PIG_OPERATOR_PROFILE_FREQUENCY, "1");
+        PigServer pigServer = new PigServer(Util.getLocalTestMode(), props);
+        Data data = resetData(pigServer);
+        data.set("input", tuple(1, "a"), tuple(2, "b"), tuple(3, "a"), tuple(4, "c"), tuple(5, "b"));
+        pigServer.registerQuery("a = load 'input' using mock.Storage() as (x:int, y:chararray);");
+        pigServer.registerQuery("b = filter a by x > 1;");
+        pigServer.registerQuery("c = group b by y;");
+        pigServer.registerQuery("d = foreach c generate group, COUNT(b);");
+        ExecJob job = pigServer.store("d", "output", "mock.Storage");
+        assertEquals(3, data.get("output").size());
+        return job.getStatistics();
+    }
+
+    private Map<String, Long> getMetrics(Map<String, Map<String, Long>> profile, String opClass) {
+        Map<String, Long> metrics = null;
+        for (Map.Entry<String, Map<String, Long>> op : profile.entrySet()) {
+            if (op.getKey().startsWith(opClass + ".scope-")) {
+                assertTrue("Single " + opClass + " expected", metrics == null);
+                metrics = op.getValue();
+            }
+        }
+        assertNotNull(opClass + " not profiled in " + profile, metrics);
+        return metrics;
+    }
+
+    @Test
+    public void testProfile() throws Exception {
+        PigStats stats = run(true);
+        Map<String, Map<String, Long>> profile = stats.getOperatorProfile();
+
+        Map<String, Long> filter = getMetrics(profile, "POFilter");
+        assertEquals(5L, filter.get(PigConstants.OPERATOR_PROFILE_RECORDS_IN).longValue());
+        assertEquals(4L, filter.get(PigConstants.OPERATOR_PROFILE_RECORDS_OUT).longValue());
+        assertTrue(filter.get(PigConstants.OPERATOR_PROFILE_NANOS) > 0);
+
+        Map<String, Long> pack = getMetrics(profile, "POPackage");
+        assertEquals(3L, pack.get(PigConstants.OPERATOR_PROFILE_RECORDS_IN).longValue());
+        assertEquals(3L, pack.get(PigConstants.OPERATOR_PROFILE_RECORDS_OUT).longValue());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> json = new ObjectMapper().readValue(
+                stats.getOperatorProfileJson(), Map.class);
+        assertEquals(profile.keySet(), json.keySet());
+        assertTrue(stats.getOperatorProfileDisplayString().contains(PigConstants.OPERATOR_PROFILE_RECORDS_IN));
+    }
+
+    @Test
+    public void testProfileOff() throws Exception {
+        PigStats stats = run(false);
+        assertTrue(stats.getOperatorProfile().isEmpty());
+        assertEquals("{}", stats.getOperatorProfileJson());
+        assertEquals("", stats.getOperatorProfileDisplayString());
+    }
+}
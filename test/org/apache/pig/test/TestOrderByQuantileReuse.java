@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.apache.pig.builtin.mock.Storage.resetData;
+import static org.apache.pig.builtin.mock.Storage.tuple;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.pig.ExecType;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigServer;
+import org.apache.pig.builtin.mock.Storage.Data;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.tools.pigstats.PigStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestOrderByQuantileReuse {
+
+    private File quantilesDir;
+
+    @Before
+    public void setUp() throws Exception {
+        quantilesDir = File.createTempFile("quantiles", "");
+        quantilesDir.delete();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Util.deleteDirectory(quantilesDir);
+    }
+
+    private List<Tuple> runOrderBy(String parallel) throws Exception {
+        Properties props = new Properties();
+        props.setProperty(PigConfiguration.PIG_ORDER_QUANTILES_REUSE_DIR,
+                quantilesDir.getAbsolutePath());
+        PigServer pigServer = new PigServer(ExecType.LOCAL, props);
+        Data data = resetData(pigServer);
+        data.set("foo", tuple(3), tuple(1), tuple(4), tuple(1), tuple(5), tuple(9), tuple(2));
+
+        String query = "A = LOAD 'foo' USING mock.Storage() AS (i:int);\n"
+                + "B = ORDER A BY i" + parallel + ";\n"
+                + "STORE B INTO 'bar' USING mock.Storage();\n";
+        pigServer.registerScript(new ByteArrayInputStream(query.getBytes()));
+        return data.get("bar");
+    }
+
+    private void assertSorted(List<Tuple> out) throws Exception {
+        assertEquals(7, out.size());
+        for (int i = 1; i < out.size(); i++) {
+            assertEquals(true, (Integer) out.get(i - 1).get(0) <= (Integer) out.get(i).get(0));
+        }
+    }
+
+    @Test
+    public void testReuseQuantiles() throws Exception {
+        assertSorted(runOrderBy(" PARALLEL 2"));
+        // load, sampling and sort jobs
+        assertEquals(3, PigStats.get().getJobGraph().size());
+
+        assertSorted(runOrderBy(" PARALLEL 2"));
+        // the sampling job is skipped
+        assertEquals(2, PigStats.get().getJobGraph().size());
+    }
+
+    @Test
+    public void testDifferentParallelismNotReused() throws Exception {
+        assertSorted(runOrderBy(" PARALLEL 2"));
+        assertEquals(3, PigStats.get().getJobGraph().size());
+
+        assertSorted(runOrderBy(" PARALLEL 3"));
+        assertEquals(3, PigStats.get().getJobGraph().size());
+    }
+
+    @Test
+    public void testSingleReducerSkipsSampling() throws Exception {
+        assertSorted(runOrderBy(" PARALLEL 1"));
+        assertEquals(2, PigStats.get().getJobGraph().size());
+    }
+
+    @Test
+    public void testSingleReducerUnderSplit() throws Exception {
+        PigServer pigServer = new PigServer(ExecType.LOCAL);
+        Data data = resetData(pigServer);
+        data.set("foo", tuple(3), tuple(1), tuple(4), tuple(1), tuple(5), tuple(9), tuple(2));
+
+        // The sort job follows the split of A directly and must not be
+        // merged into it
+        String query = "A = LOAD 'foo' USING mock.Storage() AS (i:int);\n"
+                + "B = ORDER A BY i DESC PARALLEL 1;\n"
+                + "STORE B INTO 'bar' USING mock.Storage();\n"
+                + "C = FILTER A BY i > 2;\n"
+                + "STORE C INTO 'baz' USING mock.Storage();\n";
+        pigServer.registerScript(new ByteArrayInputStream(query.getBytes()));
+        List<Tuple> out = data.get("bar");
+        assertEquals(7, out.size());
+        for (int i = 1; i < out.size(); i++) {
+            assertEquals(true, (Integer) out.get(i - 1).get(0) >= (Integer) out.get(i).get(0));
+        }
+        assertEquals(4, data.get("baz").size());
+    }
+}
@@ -26,9 +26,11 @@ import java.util.Random;
 import java.util.regex.Pattern;
 
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.PORegexp;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.CachedRegex;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.CompiledAutomaton;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.CompiledRegex;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.NonConstantRegex;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.RegexCache;
 import org.apache.pig.backend.hadoop.executionengine.physicalLayer.expressionOperators.regex.RegexInit;
 import org.apache.pig.impl.plan.OperatorKey;
 import org.junit.Test;
@@ -226,4 +228,31 @@ public class TestPORegexp {
 
         assertEquals(1, m.invoke(regex, "xyz#abc") );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCachedRegexAgreesWithJavaRegex() {
+        String[] patterns = { "abc", "[a-z]{3}", ".*abc.*", "a(b|c)+d", "\\tx",
+                "say \"hi\"", "x#y", "[^a]b", "ab*", "(ab)(cd)?e", "a.b" };
+        String[] inputs = { "abc", "xabcx", "abd", "abbcd", "\tx", "tx", "say \"hi\"",
+                "x#y", "\nb", "a", "abbb", "abe", "abcde", "", "ab\ncabc",
+                "a\uD83D\uDE00b", "\uD83D\uDE00b" };
+        for (String pattern : patterns) {
+            CachedRegex cached = RegexCache.get(pattern);
+            assertTrue(cached == RegexCache.get(pattern));
+            Pattern javaPattern = Pattern.compile(pattern);
+            for (String input : inputs) {
+                boolean matches = javaPattern.matcher(input).matches();
+                boolean find = javaPattern.matcher(input).find();
+                assertEquals(pattern + " on " + input, matches, cached.matches(input));
+                if (matches) {
+                    assertTrue(pattern + " on " + input, cached.mayMatch(input));
+                }
+                if (find) {
+                    assertTrue(pattern + " on " + input, cached.mayFind(input));
+                }
+            }
+        }
+        assertFalse(RegexCache.get("abc").mayFind("xyz"));
+        assertFalse(RegexCache.get("a(b|c)+d").mayMatch("abx"));
+    }
+}
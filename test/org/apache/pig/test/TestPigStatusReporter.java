@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigWarning;
+import org.apache.pig.backend.hadoop.executionengine.TaskContext;
+import org.apache.pig.tools.pigstats.PigStatusReporter;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestPigStatusReporter {
+
+    // Records the increments that reach the task context
+    private static class CountingTaskContext extends TaskContext<Object> {
+        Map<String, Long> counters = new HashMap<String, Long>();
+        int calls = 0;
+
+        @Override
+        public Object get() {
+            return null;
+        }
+
+        @Override
+        public Counter getCounter(Enum<?> name) {
+            return null;
+        }
+
+        @Override
+        public Counter getCounter(String group, String name) {
+            return null;
+        }
+
+        @Override
+        public boolean incrCounter(Enum<?> name, long delta) {
+            return incrCounter(name.getDeclaringClass().getName(), name.name(), delta);
+        }
+
+        @Override
+        public boolean incrCounter(String group, String name, long delta) {
+            calls++;
+            Long old = counters.get(group + "." + name);
+            counters.put(group + "." + name, old == null ? delta : old + delta);
+            return true;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        PigStatusReporter.getInstance().stopBuffering();
+        PigStatusReporter.staticDataCleanup();
+    }
+
+    private Configuration getConf(long interval) {
+        Configuration conf = new Configuration(false);
+        conf.setLong(PigConfiguration.PIG_TASK_REPORT_INTERVAL, interval);
+        return conf;
+    }
+
+    @Test
+    public void testBuffered() throws Exception {
+        CountingTaskContext context = new CountingTaskContext();
+        PigStatusReporter reporter = PigStatusReporter.getInstance();
+        reporter.setContext(context);
+        reporter.startBuffering(getConf(Long.MAX_VALUE / 2));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(reporter.incrCounter("group", "name", 2));
+            assertTrue(reporter.incrWarnCounter(PigWarning.UDF_WARNING_1, 1L));
+        }
+        assertEquals(0, context.calls);
+
+        reporter.stopBuffering();
+        assertEquals(2000L, context.counters.get("group.name").longValue());
+        assertEquals(1000L, context.counters.get(PigWarning.class.getName() + ".UDF_WARNING_1").longValue());
+
+        // Counters go to the task context directly once the task is done
+        reporter.incrCounter("group", "name", 1);
+        assertEquals(2001L, context.counters.get("group.name").longValue());
+    }
+
+    @Test
+    public void testPeriodicFlush() throws Exception {
+        CountingTaskContext context = new CountingTaskContext();
+        PigStatusReporter reporter = PigStatusReporter.getInstance();
+        reporter.setContext(context);
+        reporter.startBuffering(getConf(10));
+        long start = System.currentTimeMillis();
+        while (context.counters.get("group.name") == null && System.currentTimeMillis() - start < 10000) {
+            reporter.incrCounter("group", "name", 1);
+            Thread.sleep(1);
+        }
+        assertTrue(context.counters.get("group.name") > 0);
+    }
+
+    @Test
+    public void testUnbuffered() throws Exception {
+        CountingTaskContext context = new CountingTaskContext();
+        PigStatusReporter reporter = PigStatusReporter.getInstance();
+        reporter.setContext(context);
+        reporter.startBuffering(getConf(0));
+        reporter.incrCounter("group", "name", 3);
+        assertEquals(1, context.calls);
+        assertEquals(3L, context.counters.get("group.name").longValue());
+    }
+
+    @Test
+    public void testOtherThreads() throws Exception {
+        CountingTaskContext context = new CountingTaskContext();
+        final PigStatusReporter reporter = PigStatusReporter.getInstance();
+        reporter.setContext(context);
+        reporter.startBuffering(getConf(0));
+
+        // Only the task thread reports to the task context
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 1000; i++) {
+                    reporter.incrCounter("group", "other", 1);
+                }
+                reporter.getCounter("group", "other");
+            }
+        };
+        other.start();
+        other.join();
+        assertEquals(0, context.calls);
+
+        reporter.incrCounter("group", "name", 1);
+        assertEquals(1000L, context.counters.get("group.other").longValue());
+        assertEquals(1L, context.counters.get("group.name").longValue());
+    }
+
+    @Test
+    public void testFlushWhileIncrementing() throws Exception {
+        CountingTaskContext context = new CountingTaskContext();
+        final PigStatusReporter reporter = PigStatusReporter.getInstance();
+        reporter.setContext(context);
+        reporter.startBuffering(getConf(0));
+
+        // Increments made while the task thread flushes are not lost
+        Thread[] others = new Thread[4];
+        for (int i = 0; i < others.length; i++) {
+            others[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100000; j++) {
+                        reporter.incrCounter("group", "other", 1);
+                    }
+                }
+            };
+            others[i].start();
+        }
+        for (Thread other : others) {
+            while (other.isAlive()) {
+                reporter.incrCounter("group", "name", 1);
+            }
+        }
+        reporter.stopBuffering();
+        assertEquals(400000L, context.counters.get("group.other").longValue());
+    }
+
+    @Test
+    public void testNoContext() throws Exception {
+        PigStatusReporter reporter = PigStatusReporter.getInstance();
+        reporter.startBuffering(getConf(1000));
+        assertEquals(false, reporter.incrCounter("group", "name", 1));
+        assertNull(reporter.getCounter("group", "name"));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.apache.pig.builtin.mock.Storage.resetData;
+import static org.apache.pig.builtin.mock.Storage.tuple;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.pig.ExecType;
+import org.apache.pig.PigServer;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigTypedTupleRawComparator;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.PigWritableComparators;
+import org.apache.pig.builtin.mock.Storage.Data;
+import org.apache.pig.data.BinInterSedes;
+import org.apache.pig.data.DataByteArray;
+import org.apache.pig.data.DataType;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.apache.pig.impl.io.NullableTuple;
+import org.apache.pig.impl.util.ObjectSerializer;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+public class TestPigTypedTupleRawComparator {
+
+    private static final byte[] TYPES = new byte[] { DataType.INTEGER, DataType.LONG,
+            DataType.CHARARRAY, DataType.DOUBLE, DataType.BYTEARRAY, DataType.BOOLEAN,
+            DataType.DATETIME, DataType.FLOAT };
+
+    private static final String[] STRINGS = new String[] { "", "a", "ab", "b", "é",
+            "été", "￠", "😀", "😁x", "zé" };
+
+    private final Random random = new Random(123456789);
+
+    private Object randomValue(byte type) {
+        if (random.nextInt(10) == 0) {
+            return null;
+        }
+        switch (type) {
+        case DataType.INTEGER:
+            switch (random.nextInt(4)) {
+            case 0: return random.nextInt(3);
+            case 1: return random.nextInt(200) - 100;
+            case 2: return random.nextInt(60000) - 30000;
+            default: return random.nextInt();
+            }
+        case DataType.LONG:
+            return random.nextBoolean() ? (long) random.nextInt(3) : random.nextLong() >> random.nextInt(64);
+        case DataType.CHARARRAY:
+            return STRINGS[random.nextInt(STRINGS.length)];
+        case DataType.DOUBLE:
+            return (double) random.nextInt(5) - 2;
+        case DataType.BYTEARRAY:
+            return new DataByteArray(new byte[] { (byte) random.nextInt(3), (byte) (random.nextInt(3) - 1) });
+        case DataType.BOOLEAN:
+            return random.nextBoolean();
+        case DataType.DATETIME:
+            return new DateTime((long) random.nextInt(3));
+        default:
+            return random.nextFloat() < 0.5 ? -0.0f : (float) random.nextInt(3);
+        }
+    }
+
+    private Tuple randomTuple(boolean wrongTypes) {
+        Tuple t = TupleFactory.getInstance().newTuple(TYPES.length);
+        for (int i = 0; i < TYPES.length; i++) {
+            try {
+                t.set(i, randomValue(TYPES[i]));
+                if (wrongTypes && random.nextInt(20) == 0) {
+                    t.set(i, randomValue(TYPES[random.nextInt(TYPES.length)]));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return t;
+    }
+
+    private NullableTuple randomNullableTuple() {
+        NullableTuple nt = new NullableTuple(randomTuple(false));
+        nt.setNull(random.nextInt(10) == 0);
+        return nt;
+    }
+
+    private static byte[] serialize(Object o) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        if (o instanceof Tuple) {
+            ((Tuple) o).write(out);
+        } else {
+            ((NullableTuple) o).write(out);
+        }
+        out.flush();
+        return baos.toByteArray();
+    }
+
+    private Configuration getConf(boolean[] asc) throws IOException {
+        Configuration conf = new Configuration(false);
+        PigTypedTupleRawComparator.setKeyFieldTypes(conf, TYPES);
+        if (asc != null) {
+            conf.set("pig.sortOrder", ObjectSerializer.serialize(asc));
+        }
+        return conf;
+    }
+
+    private void checkSameAsGeneric(boolean[] asc, boolean wrongTypes) throws IOException {
+        Configuration conf = getConf(asc);
+        PigTypedTupleRawComparator typed = new PigTypedTupleRawComparator();
+        typed.setConf(conf);
+        BinInterSedes.BinInterSedesTupleRawComparator generic =
+                new BinInterSedes.BinInterSedesTupleRawComparator();
+        generic.setConf(conf);
+        for (int i = 0; i < 20000; i++) {
+            byte[] b1 = serialize(randomTuple(wrongTypes));
+            byte[] b2 = serialize(randomTuple(wrongTypes));
+            int expected = generic.compare(b1, 0, b1.length, b2, 0, b2.length);
+            int actual = typed.compare(b1, 0, b1.length, b2, 0, b2.length);
+            assertEquals(Integer.signum(expected), Integer.signum(actual));
+            if (expected == 0) {
+                assertEquals(generic.hasComparedTupleNull(), typed.hasComparedTupleNull());
+            }
+            // compare to itself
+            assertEquals(0, typed.compare(b1, 0, b1.length, b1, 0, b1.length));
+        }
+    }
+
+    @Test
+    public void testCompare() throws IOException {
+        checkSameAsGeneric(null, false);
+    }
+
+    @Test
+    public void testCompareSortOrder() throws IOException {
+        checkSameAsGeneric(new boolean[] { false }, false);
+        checkSameAsGeneric(new boolean[] { true, false, true, false, true, false, true, false }, false);
+    }
+
+    @Test
+    public void testCompareUnexpectedTypes() throws IOException {
+        checkSameAsGeneric(null, true);
+    }
+
+    @Test
+    public void testGroupingComparator() throws IOException {
+        PigWritableComparators.PigTupleTypedGroupingComparator comparator =
+                new PigWritableComparators.PigTupleTypedGroupingComparator();
+        comparator.setConf(getConf(null));
+        for (int i = 0; i < 20000; i++) {
+            NullableTuple nt1 = randomNullableTuple();
+            // equal keys with different indexes
+            NullableTuple nt2 = random.nextBoolean() ? randomNullableTuple()
+                    : new NullableTuple((Tuple) nt1.getValueAsPigType());
+            nt2.setNull(nt1.isNull());
+            nt1.setIndex((byte) random.nextInt(2));
+            nt2.setIndex((byte) random.nextInt(2));
+            byte[] b1 = serialize(nt1);
+            byte[] b2 = serialize(nt2);
+            assertEquals(Integer.signum(nt1.compareTo(nt2)) == 0,
+                    comparator.compare(b1, 0, b1.length, b2, 0, b2.length) == 0);
+        }
+    }
+
+    @Test
+    public void testGroupAndOrderByMultipleFields() throws Exception {
+        PigServer pigServer = new PigServer(ExecType.LOCAL);
+        Data data = resetData(pigServer);
+        data.set("foo", tuple("b", 2, 1L), tuple("a", 1, 2L), tuple("b", 2, 3L),
+                tuple("é", 1, 4L), tuple("a", 1, 5L), tuple("a", 3, 6L), tuple(null, 1, 7L),
+                tuple(null, 1, 8L));
+
+        String query = "A = LOAD 'foo' USING mock.Storage() AS (s:chararray, i:int, l:long);\n"
+                + "B = GROUP A BY (s, i);\n"
+                + "C = FOREACH B GENERATE FLATTEN(group) AS (s, i), SUM(A.l) AS total;\n"
+                + "D = ORDER C BY i DESC, s;\n"
+                + "STORE D INTO 'bar' USING mock.Storage();\n";
+        pigServer.registerScript(new ByteArrayInputStream(query.getBytes()));
+        List<Tuple> out = data.get("bar");
+        assertEquals(5, out.size());
+        assertEquals(tuple("a", 3, 6L), out.get(0));
+        assertEquals(tuple("b", 2, 4L), out.get(1));
+        assertEquals(tuple(null, 1, 15L), out.get(2));
+        assertEquals(tuple("a", 1, 7L), out.get(3));
+        assertEquals(tuple("é", 1, 4L), out.get(4));
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.pig.EvalFunc;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigServer;
+import org.apache.pig.backend.executionengine.ExecJob;
+import org.apache.pig.backend.executionengine.ExecJob.JOB_STATUS;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.plans.PhysicalPlan;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.relationalOperators.POLoad;
+import org.apache.pig.backend.hadoop.executionengine.physicalLayer.util.PlanHelper;
+import org.apache.pig.backend.hadoop.executionengine.resultcache.ResultCacheOptimizer;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.tools.pigstats.PigStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestResultCache {
+
+    private static final String CLEANED =
+            "b = filter a by v > 0;" +
+            "c = group b by k;" +
+            "d = foreach c generate group as k, SUM(b.v) as total;";
+
+    /**
+     * Multiplies its argument by a factor given to the constructor
+     */
+    public static class Multiply extends EvalFunc<Long> {
+
+        private final long factor;
+
+        public Multiply(String factor) {
+            this.factor = Long.parseLong(factor);
+        }
+
+        @Override
+        public Long exec(Tuple input) throws IOException {
+            return (Long) input.get(0) * factor;
+        }
+    }
+
+    private File dir;
+    private PigStats stats;
+    private File input;
+    private File output;
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File(Util.getTestDirectory(TestResultCache.class));
+        Util.deleteDirectory(dir);
+        input = new File(dir, "input");
+        input.mkdirs();
+        output = new File(dir, "output");
+        cacheDir = new File(dir, "cache");
+        writeFile(new File(input, "part-1"), "x\t1\t10", "y\t2\t20", "x\t3\t30", "z\t4\t0");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Util.deleteDirectory(dir);
+    }
+
+    private static void writeFile(File file, String... lines) throws IOException {
+        PrintWriter out = new PrintWriter(file);
+        for (String line : lines) {
+            out.println(line);
+        }
+        out.close();
+    }
+
+    private PigServer newPigServer(boolean cache, long maxSize) throws Exception {
+        Properties props = new Properties();
+        props.setProperty(PigConfiguration.PIG_RESULT_CACHE_ENABLED, Boolean.toString(cache));
+        props.setProperty(PigConfiguration.PIG_RESULT_CACHE_DIR, cacheDir.getAbsolutePath());
+        props.setProperty(PigConfiguration.PIG_RESULT_CACHE_MAX_SIZE, Long.toString(maxSize));
+        return new PigServer(Util.getLocalTestMode(), props);
+    }
+
+    private String query(String script) {
+        return "a = load '" + Util.encodeEscape(input.getAbsolutePath())
+                + "' as (k:chararray, k2:int, v:long);" + script
+                + "store result into '" + Util.encodeEscape(output.getAbsolutePath()) + "';";
+    }
+
+    private String[] run(String script, boolean cache) throws Exception {
+        return run(script, cache, Long.MAX_VALUE);
+    }
+
+    private String[] run(String script, boolean cache, long maxSize) throws Exception {
+        Util.deleteDirectory(output);
+        PigServer pigServer = newPigServer(cache, maxSize);
+        pigServer.setBatchOn();
+        pigServer.registerScript(new ByteArrayInputStream(query(script).getBytes("UTF-8")));
+        ExecJob job = pigServer.executeBatch().get(0);
+        assertEquals(JOB_STATUS.COMPLETED, job.getStatus());
+        stats = job.getStatistics();
+        pigServer.shutdown();
+
+        List<String> lines = new ArrayList<String>();
+        for (File part : output.listFiles()) {
+            if (part.getName().startsWith("part")) {
+                BufferedReader in = new BufferedReader(new FileReader(part));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(line);
+                }
+                in.close();
+            }
+        }
+        Collections.sort(lines);
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    private ResultCacheOptimizer optimize(String script) throws Exception {
+        Util.deleteDirectory(output);
+        PigServer pigServer = newPigServer(true, Long.MAX_VALUE);
+        PhysicalPlan pp = Util.buildPp(pigServer, query(script));
+        ResultCacheOptimizer optimizer = new ResultCacheOptimizer(pigServer.getPigContext(), pp);
+        optimizer.optimize();
+        return optimizer;
+    }
+
+    private List<File> cachedRelations() {
+        List<File> cached = new ArrayList<File>();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory() && !file.getName().startsWith("_")) {
+                    cached.add(file);
+                }
+            }
+        }
+        return cached;
+    }
+
+    @Test
+    public void testSharedRelation() throws Exception {
+        String script1 = CLEANED + "result = d;";
+        String[] expected = run(script1, false);
+        assertArrayEquals(new String[] { "x\t40", "y\t20" }, expected);
+        assertArrayEquals(expected, run(script1, true));
+        assertEquals(1, cachedRelations().size());
+
+        // Another script with other aliases computing the same relation
+        String script2 =
+                "f = filter a by v > 0;" +
+                "g = group f by k;" +
+                "h = foreach g generate group as k, SUM(f.v) as total;" +
+                "result = filter h by total > 30;";
+        ResultCacheOptimizer optimizer = optimize(script2);
+        assertEquals(1, optimizer.getHits());
+        assertEquals(0, optimizer.getMisses());
+        assertEquals(new File(input, "part-1").length(), optimizer.getBytesSaved());
+        assertArrayEquals(new String[] { "x\t40" }, run(script2, true));
+        assertEquals(1, stats.getResultCacheHits());
+        assertEquals(0, stats.getResultCacheMisses());
+        assertEquals(new File(input, "part-1").length(), stats.getResultCacheBytesSaved());
+
+        // The cached copy is used as long as the input files are unchanged
+        File part1 = new File(input, "part-1");
+        long modificationTime = part1.lastModified();
+        writeFile(part1, "x\t1\t10", "y\t2\t20", "x\t3\t90", "z\t4\t0");
+        part1.setLastModified(modificationTime);
+        assertArrayEquals(new String[] { "x\t40" }, run(script2, true));
+    }
+
+    @Test
+    public void testChangedInput() throws Exception {
+        String script = CLEANED + "result = d;";
+        run(script, true);
+        writeFile(new File(input, "part-2"), "z\t5\t50");
+        ResultCacheOptimizer optimizer = optimize(script);
+        assertEquals(0, optimizer.getHits());
+        assertEquals(1, optimizer.getMisses());
+        assertArrayEquals(new String[] { "x\t40", "y\t20", "z\t50" }, run(script, true));
+        assertEquals(2, cachedRelations().size());
+    }
+
+    @Test
+    public void testChangedScript() throws Exception {
+        run(CLEANED + "result = d;", true);
+        String script = CLEANED.replace("SUM", "MAX") + "result = d;";
+        ResultCacheOptimizer optimizer = optimize(script);
+        assertEquals(0, optimizer.getHits());
+        assertEquals(1, optimizer.getMisses());
+        assertArrayEquals(new String[] { "x\t30", "y\t20" }, run(script, true));
+    }
+
+    @Test
+    public void testChangedFunctionArguments() throws Exception {
+        String script =
+                "define M " + Multiply.class.getName().replace("$", "\\$") + "('%s');" +
+                "b = group a by k;" +
+                "result = foreach b generate group, SUM(a.v), M(SUM(a.v));";
+        assertArrayEquals(new String[] { "x\t40\t80", "y\t20\t40", "z\t0\t0" },
+                run(String.format(script, "2"), true));
+        assertEquals(0, stats.getResultCacheHits());
+        assertEquals(1, stats.getResultCacheMisses());
+        assertArrayEquals(new String[] { "x\t40\t120", "y\t20\t60", "z\t0\t0" },
+                run(String.format(script, "3"), true));
+        assertEquals(0, stats.getResultCacheHits());
+        assertEquals(2, cachedRelations().size());
+    }
+
+    @Test
+    public void testCachedRelationReplacesItsInputs() throws Exception {
+        String script = CLEANED +
+                "l = load '" + Util.encodeEscape(input.getAbsolutePath()) + "' as (k:chararray, k2:int, v:long);" +
+                "e = join d by k, l by k;" +
+                "result = foreach e generate d::k, total, v;";
+        String[] expected = run(script, false);
+        // d and the result of the join are both cached
+        assertArrayEquals(expected, run(script, true));
+        assertEquals(2, cachedRelations().size());
+
+        Util.deleteDirectory(output);
+        PigServer pigServer = newPigServer(true, Long.MAX_VALUE);
+        PhysicalPlan pp = Util.buildPp(pigServer, query(script));
+        ResultCacheOptimizer optimizer = new ResultCacheOptimizer(pigServer.getPigContext(), pp);
+        optimizer.optimize();
+        // the join is loaded from the cache, d is not looked up
+        assertEquals(1, optimizer.getHits());
+        assertEquals(0, optimizer.getMisses());
+        List<POLoad> loads = PlanHelper.getPhysicalOperators(pp, POLoad.class);
+        assertEquals(1, loads.size());
+        assertTrue(loads.get(0).getLFile().getFileName().startsWith(cacheDir.getAbsolutePath()));
+        assertArrayEquals(expected, run(script, true));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        run(CLEANED + "result = d;", true);
+        List<File> cached = cachedRelations();
+        assertEquals(1, cached.size());
+        cached.get(0).setLastModified(System.currentTimeMillis() - 60 * 1000);
+        long size = 0;
+        for (File file : cached.get(0).listFiles()) {
+            size += file.length();
+        }
+
+        // The least recently used relation is evicted
+        String script = CLEANED.replace("SUM", "MAX") + "result = d;";
+        run(script, true, size);
+        cached = cachedRelations();
+        assertEquals(1, cached.size());
+        ResultCacheOptimizer optimizer = optimize(script);
+        assertEquals(1, optimizer.getHits());
+    }
+
+    @Test
+    public void testNondeterministic() throws Exception {
+        String script = "b = group a by k;" +
+                "result = foreach b generate group, RANDOM();";
+        run(script, true);
+        assertEquals(0, cachedRelations().size());
+    }
+}
@@ -20,9 +20,12 @@ package org.apache.pig.test;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import org.apache.pig.ExecType;
+import org.apache.pig.PigConfiguration;
 import org.apache.pig.PigServer;
 import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.builtin.PigStorage;
@@ -410,4 +413,41 @@ public class TestStreamingLocal {
         }
     }
 
+    @Test
+    public void testStreamingWithProcessPool() throws Exception {
+        String[] inputStrings = new String[1000];
+        for (int i = 0; i < inputStrings.length; i++) {
+            inputStrings[i] = Integer.toString(i);
+        }
+        File input = Util.createInputFile("tmp", "", inputStrings);
+
+        // Prefix every record with the pid of the process which handled it
+        String[] script =
+            new String[] {
+                          "#!/usr/bin/perl",
+                          "while (<STDIN>) { print \"$$\\t$_\"; }",
+                         };
+        File command = Util.createInputFile("script", "pl", script);
+
+        pigServer.getPigContext().getProperties().setProperty(
+                PigConfiguration.PIG_STREAMING_PARALLEL_PROCESSES, "3");
+        pigServer.registerQuery("define CMD `perl " + command.getName() + "` ship ('"
+                + Util.encodeEscape(command.toString()) + "');");
+        pigServer.registerQuery("A = load '"
+                + Util.generateURI(input.toString(), pigServer.getPigContext())
+                + "' as (i:int);");
+        pigServer.registerQuery("B = stream A through CMD as (pid:int, i:int);");
+
+        Set<Integer> pids = new HashSet<Integer>();
+        Set<Integer> values = new HashSet<Integer>();
+        Iterator<Tuple> iter = pigServer.openIterator("B");
+        while (iter.hasNext()) {
+            Tuple t = iter.next();
+            pids.add((Integer)t.get(0));
+            Assert.assertTrue(values.add((Integer)t.get(1)));
+        }
+        Assert.assertEquals(inputStrings.length, values.size());
+        Assert.assertEquals(3, pids.size());
+    }
+
 }
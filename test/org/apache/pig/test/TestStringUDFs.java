@@ -134,6 +134,10 @@ public class TestStringUDFs {
 
         testTuple = Util.buildTuple("foobar", "oo", "aa");
         assertEquals("foobar".replace("oo", "aa"), replace.exec(testTuple));
+
+        // . matches a surrogate pair as one character
+        testTuple = Util.buildTuple("a\uD83D\uDE00b", "a.b", "x");
+        assertEquals("x", replace.exec(testTuple));
     }
     
     @Test
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.jobcontrol.JobControl;
+import org.apache.pig.ExecType;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigServer;
+import org.apache.pig.backend.hadoop.datastorage.ConfigurationUtil;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.JobControlCompiler;
+import org.apache.pig.backend.hadoop.executionengine.mapReduceLayer.plans.MROperPlan;
+import org.apache.pig.impl.PigContext;
+import org.junit.Test;
+
+public class TestTmpFileReplication {
+
+    private JobConf compileFirstJob(String query) throws Exception {
+        PigServer pigServer = new PigServer(ExecType.LOCAL);
+        PigContext pc = pigServer.getPigContext();
+        pc.getProperties().setProperty(PigConfiguration.PIG_TEMP_FILE_REPLICATION, "1");
+        MROperPlan mrPlan = Util.buildMRPlan(query, pc);
+        Configuration conf = ConfigurationUtil.toConfiguration(pc.getProperties());
+        JobControl jobControl = new JobControlCompiler(pc, conf).compile(mrPlan, "Test");
+        assertEquals(1, jobControl.getWaitingJobs().size());
+        return jobControl.getWaitingJobs().get(0).getJobConf();
+    }
+
+    @Test
+    public void testIntermediateJob() throws Exception {
+        String query = "a = load 'input' as (x:int, y:chararray);"
+                + "b = group a by y;"
+                + "c = foreach b generate group, COUNT(a) as n;"
+                + "d = group c by n;"
+                + "store d into 'output';";
+        JobConf jobConf = compileFirstJob(query);
+        assertEquals("1", jobConf.get("dfs.replication"));
+    }
+
+    @Test
+    public void testFinalJob() throws Exception {
+        String query = "a = load 'input' as (x:int, y:chararray);"
+                + "b = group a by y;"
+                + "store b into 'output';";
+        JobConf jobConf = compileFirstJob(query);
+        assertFalse("1".equals(jobConf.get("dfs.replication")));
+    }
+}
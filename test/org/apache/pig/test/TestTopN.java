@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.test;
+
+import static org.apache.pig.builtin.mock.Storage.resetData;
+import static org.apache.pig.builtin.mock.Storage.tuple;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.pig.ExecType;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.PigServer;
+import org.apache.pig.builtin.mock.Storage.Data;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.tools.pigstats.PigStats;
+import org.junit.Test;
+
+public class TestTopN {
+
+    private Data data;
+
+    private List<Tuple> run(String maxLimit, String query) throws Exception {
+        Properties props = new Properties();
+        if (maxLimit != null) {
+            props.setProperty(PigConfiguration.PIG_EXEC_TOPN_MAX_LIMIT, maxLimit);
+        }
+        PigServer pigServer = new PigServer(ExecType.LOCAL, props);
+        data = resetData(pigServer);
+        data.set("foo", tuple(3, "c"), tuple(1, "a"), tuple(4, "d"), tuple(1, "b"),
+                tuple(5, "e"), tuple(9, "i"), tuple(2, "b"), tuple(6, "f"));
+        pigServer.registerScript(new ByteArrayInputStream(query.getBytes()));
+        return data.get("bar");
+    }
+
+    private static final String ORDER_LIMIT = "A = LOAD 'foo' USING mock.Storage() AS (i:int, s:chararray);\n"
+            + "B = ORDER A BY i DESC, s PARALLEL 3;\n"
+            + "C = LIMIT B 3;\n"
+            + "STORE C INTO 'bar' USING mock.Storage();\n";
+
+    @Test
+    public void testOrderLimitIsSingleJob() throws Exception {
+        List<Tuple> out = run(null, ORDER_LIMIT);
+        assertEquals("[(9,i), (6,f), (5,e)]", out.toString());
+        // No sampling, no separate limit job
+        assertEquals(1, PigStats.get().getJobGraph().size());
+    }
+
+    @Test
+    public void testLimitAboveMaxLimit() throws Exception {
+        List<Tuple> out = run("2", ORDER_LIMIT);
+        assertEquals("[(9,i), (6,f), (5,e)]", out.toString());
+        assertEquals(4, PigStats.get().getJobGraph().size());
+    }
+
+    @Test
+    public void testTopNAfterGroup() throws Exception {
+        String query = "A = LOAD 'foo' USING mock.Storage() AS (i:int, s:chararray);\n"
+                + "B = GROUP A BY s;\n"
+                + "C = FOREACH B GENERATE group, SUM(A.i) AS total;\n"
+                + "D = ORDER C BY total, group;\n"
+                + "E = LIMIT D 2;\n"
+                + "STORE E INTO 'bar' USING mock.Storage();\n"
+                + "STORE A INTO 'baz' USING mock.Storage();\n";
+        List<Tuple> out = run(null, query);
+        assertEquals("[(a,1), (b,3)]", out.toString());
+        assertEquals(8, data.get("baz").size());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pig.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.pig.backend.hadoop.executionengine.util.TuplePrefetcher;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.junit.Test;
+
+public class TestTuplePrefetcher {
+
+    private static class CountingSource implements TuplePrefetcher.TupleSource {
+        private final int count;
+        private final boolean fail;
+        private int i = 0;
+
+        CountingSource(int count, boolean fail) {
+            this.count = count;
+            this.fail = fail;
+        }
+
+        @Override
+        public Tuple next() throws IOException {
+            if (i == count) {
+                if (fail) {
+                    throw new IOException("bad input");
+                }
+                return null;
+            }
+            return TupleFactory.getInstance().newTuple((Object) i++);
+        }
+    }
+
+    @Test
+    public void testReadsInOrder() throws Exception {
+        TuplePrefetcher prefetcher = new TuplePrefetcher("test",
+                new CountingSource(1000, false), 7);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, prefetcher.next().get(0));
+        }
+        assertNull(prefetcher.next());
+        assertNull(prefetcher.next());
+        prefetcher.close();
+    }
+
+    @Test
+    public void testSourceFailure() throws Exception {
+        TuplePrefetcher prefetcher = new TuplePrefetcher("test",
+                new CountingSource(10, true), 3);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, prefetcher.next().get(0));
+        }
+        try {
+            prefetcher.next();
+            fail("Expected the source failure to be rethrown");
+        } catch (IOException e) {
+            assertEquals("bad input", e.getMessage());
+        }
+        prefetcher.close();
+    }
+
+    @Test
+    public void testCloseBeforeEnd() throws Exception {
+        TuplePrefetcher prefetcher = new TuplePrefetcher("test",
+                new CountingSource(Integer.MAX_VALUE, false), 2);
+        assertEquals(0, prefetcher.next().get(0));
+        // The reader is blocked on the full buffer and must be stopped
+        prefetcher.close();
+        assertNull(prefetcher.next());
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.tez;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.bloom.Key;
+import org.apache.hadoop.util.hash.Hash;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.backend.hadoop.executionengine.tez.TezLauncher;
+import org.apache.pig.backend.hadoop.executionengine.tez.TezLocalExecType;
+import org.apache.pig.backend.hadoop.executionengine.tez.plan.TezOperPlan;
+import org.apache.pig.backend.hadoop.executionengine.tez.plan.TezOperator;
+import org.apache.pig.backend.hadoop.executionengine.tez.plan.operator.POBloomFilterRearrangeTez;
+import org.apache.pig.backend.hadoop.executionengine.tez.plan.operator.POSimpleTezLoad;
+import org.apache.pig.backend.hadoop.executionengine.tez.runtime.ObjectCache;
+import org.apache.pig.data.DataByteArray;
+import org.apache.pig.data.DataType;
+import org.apache.pig.impl.PigContext;
+import org.apache.pig.impl.bloom.BloomFilter;
+import org.apache.pig.test.Util;
+import org.apache.pig.tools.pigstats.ScriptState;
+import org.apache.tez.runtime.api.ObjectRegistry;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestBloomFilterLoadPushdown {
+
+    private static String input1;
+    private static String input2;
+
+    private PigContext pc;
+
+    @BeforeClass
+    public static void oneTimeSetUp() throws Exception {
+        // Splits are computed when the plan is compiled
+        File file1 = Util.createInputFile("bloom", "input1", new String[] { "1\ta\tb" });
+        File file2 = Util.createInputFile("bloom", "input2", new String[] { "1\tc" });
+        input1 = Util.encodeEscape(file1.toURI().toString());
+        input2 = Util.encodeEscape(file2.toURI().toString());
+
+        // Bloom filters are read from the ObjectCache, which is set up by
+        // PigProcessor in a task
+        final Map<String, Object> objects = new HashMap<String, Object>();
+        ObjectRegistry registry = new ObjectRegistry() {
+            @Override
+            public Object cacheForVertex(String key, Object value) {
+                return objects.put(key, value);
+            }
+
+            @Override
+            public Object cacheForDAG(String key, Object value) {
+                return objects.put(key, value);
+            }
+
+            @Override
+            public Object cacheForSession(String key, Object value) {
+                return objects.put(key, value);
+            }
+
+            @Override
+            public Object get(String key) {
+                return objects.get(key);
+            }
+
+            @Override
+            public boolean delete(String key) {
+                return objects.remove(key) != null;
+            }
+        };
+        Method setRegistry = ObjectCache.class.getDeclaredMethod("setObjectRegistry", ObjectRegistry.class);
+        setRegistry.setAccessible(true);
+        setRegistry.invoke(ObjectCache.getInstance(), registry);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        pc = new PigContext(new TezLocalExecType(), new Properties());
+        pc.connect();
+        ScriptState.start(pc.getExecutionEngine().instantiateScriptState());
+    }
+
+    /**
+     * Compiles the query and attaches bloom filters containing the given
+     * keys to the POBloomFilterRearrangeTez of the left input
+     */
+    private TezOperator compileAndAttach(String query, Configuration conf, Object... keys) throws Exception {
+        TezOperPlan tezPlan = TezUtil.buildTezPlanContainer(query, pc).getRoots().get(0).getTezOperPlan();
+        TezLauncher.processLoadAndParallelism(tezPlan, pc);
+        for (TezOperator tezOp : tezPlan) {
+            if (tezOp.plan.getLeaves().get(0) instanceof POBloomFilterRearrangeTez) {
+                POBloomFilterRearrangeTez bfr = (POBloomFilterRearrangeTez) tezOp.plan.getLeaves().get(0);
+                BloomFilter bloomFilter = new BloomFilter(1024 * 8, 3, Hash.MURMUR_HASH);
+                for (Object key : keys) {
+                    bloomFilter.add(new Key(DataType.toBytes(key, DataType.findType(key))));
+                }
+                ObjectCache.getInstance().cache("bloom-" + bfr.getTezInputs()[0],
+                        new BloomFilter[] { bloomFilter });
+                bfr.addInputsToSkip(new HashSet<String>());
+                bfr.attachInputs(new HashMap<String, org.apache.tez.runtime.api.LogicalInput>(), conf);
+                bfr.pushFilterToLoad(tezOp.plan);
+                return tezOp;
+            }
+        }
+        throw new AssertionError("No bloom filter rearrange in the plan");
+    }
+
+    private static POSimpleTezLoad getLoad(TezOperator tezOp) {
+        return (POSimpleTezLoad) tezOp.plan.getRoots().get(0);
+    }
+
+    @Test
+    public void testFilterPushedToLoad() throws Exception {
+        String query =
+                "a = load '" + input1 + "';" +
+                "b = filter a by $1 is not null;" +
+                "c = foreach b generate $2, $0;" +
+                "d = load '" + input2 + "';" +
+                "e = join c by $1, d by $0 using 'bloom';" +
+                "store e into 'file:///tmp/output';";
+        POSimpleTezLoad load = getLoad(compileAndAttach(query, new Configuration(false),
+                new DataByteArray("1"), new DataByteArray("3")));
+        // The join key is the first field of the loaded records
+        assertEquals(0, load.getRuntimeFilterField());
+        assertTrue(load.getRuntimeFilter().mightContain(new DataByteArray("1")));
+        assertTrue(load.getRuntimeFilter().mightContain(new DataByteArray("3")));
+        assertFalse(load.getRuntimeFilter().mightContain(new DataByteArray("2")));
+        assertFalse(load.getRuntimeFilter().mightContain(null));
+    }
+
+    @Test
+    public void testCastKeyNotPushed() throws Exception {
+        // The loaded field is cast before being joined
+        String query =
+                "a = load '" + input1 + "' as (x:int, y:int);" +
+                "d = load '" + input2 + "' as (x:int, y:int);" +
+                "e = join a by x, d by x using 'bloom';" +
+                "store e into 'file:///tmp/output';";
+        POSimpleTezLoad load = getLoad(compileAndAttach(query, new Configuration(false), 1));
+        assertEquals(-1, load.getRuntimeFilterField());
+        assertNull(load.getRuntimeFilter());
+    }
+
+    @Test
+    public void testFlattenNotPushed() throws Exception {
+        String query =
+                "a = load '" + input1 + "';" +
+                "b = foreach a generate flatten(TOKENIZE($1)), $0;" +
+                "d = load '" + input2 + "';" +
+                "e = join b by $1, d by $0 using 'bloom';" +
+                "store e into 'file:///tmp/output';";
+        POSimpleTezLoad load = getLoad(compileAndAttach(query, new Configuration(false), new DataByteArray("1")));
+        assertNull(load.getRuntimeFilter());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        String query =
+                "a = load '" + input1 + "';" +
+                "d = load '" + input2 + "';" +
+                "e = join a by $0, d by $0 using 'bloom';" +
+                "store e into 'file:///tmp/output';";
+        Configuration conf = new Configuration(false);
+        conf.setBoolean(PigConfiguration.PIG_BLOOMJOIN_LOAD_PUSHDOWN, false);
+        POSimpleTezLoad load = getLoad(compileAndAttach(query, conf, new DataByteArray("1")));
+        assertNull(load.getRuntimeFilter());
+    }
+}
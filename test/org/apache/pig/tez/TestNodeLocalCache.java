@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pig.tez;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.pig.PigConfiguration;
+import org.apache.pig.backend.hadoop.executionengine.tez.runtime.MappedReplicateMap;
+import org.apache.pig.backend.hadoop.executionengine.tez.runtime.NodeLocalCache;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.BinSedesTupleFactory;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.apache.pig.test.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestNodeLocalCache {
+
+    private static final TupleFactory tf = TupleFactory.getInstance();
+
+    private File dir;
+    private NodeLocalCache nodeCache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File(Util.getTestDirectory(TestNodeLocalCache.class));
+        Util.deleteDirectory(dir);
+        nodeCache = NodeLocalCache.getInstance();
+        nodeCache.initialize(createConf(), null, "application_1_0001", 1, "scope-1");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        nodeCache.initialize(new Configuration(false), null, null, 0, null);
+        Util.deleteDirectory(dir);
+    }
+
+    private Configuration createConf() {
+        Configuration conf = new Configuration(false);
+        conf.setBoolean(PigConfiguration.PIG_TEZ_NODE_CACHE_ENABLED, true);
+        conf.set(PigConfiguration.PIG_TEZ_NODE_CACHE_DIR, dir.getAbsolutePath());
+        return conf;
+    }
+
+    private MappedReplicateMap writeAndMap(String key, Map<Object, List<Tuple>> replicate) throws Exception {
+        File tmpFile = nodeCache.createTempFile(key);
+        assertTrue(MappedReplicateMap.write(replicate, tmpFile));
+        assertFalse(nodeCache.contains(key));
+        nodeCache.commit(tmpFile, key);
+        assertTrue(nodeCache.contains(key));
+        return new MappedReplicateMap(nodeCache.map(key));
+    }
+
+    private static List<Tuple> values(Object... fields) {
+        List<Tuple> values = new ArrayList<Tuple>();
+        for (Object field : fields) {
+            values.add(tf.newTuple(field));
+        }
+        return values;
+    }
+
+    @Test
+    public void testReplicateMap() throws Exception {
+        Map<Object, List<Tuple>> replicate = new HashMap<Object, List<Tuple>>();
+        for (int i = 0; i < 1000; i++) {
+            replicate.put("key" + i, values(i, "value" + i));
+        }
+        replicate.put("", values((Object) null));
+        MappedReplicateMap mapped = writeAndMap("replicatemap-[scope-2]-1", replicate);
+
+        assertEquals(replicate.size(), mapped.size());
+        for (Map.Entry<Object, List<Tuple>> entry : replicate.entrySet()) {
+            assertEquals(entry.getValue(), mapped.get(entry.getKey()));
+        }
+        assertNull(mapped.get("key1000"));
+        assertNull(mapped.get(1));
+        assertNull(mapped.get(null));
+        assertEquals(replicate, new HashMap<Object, List<Tuple>>(mapped));
+    }
+
+    @Test
+    public void testReplicateMapTupleKeys() throws Exception {
+        Map<Object, List<Tuple>> replicate = new HashMap<Object, List<Tuple>>();
+        replicate.put(tf.newTuple(2), values(1L, 2L));
+        Tuple key = tf.newTuple(2);
+        key.set(0, "a");
+        key.set(1, 1);
+        replicate.put(key, values(3L));
+        MappedReplicateMap mapped = writeAndMap("replicatemap-[scope-2]-1", replicate);
+
+        // Keys are compared by value whatever the tuple implementation
+        Tuple probe = BinSedesTupleFactory.getInstance().newTuple(2);
+        probe.set(0, "a");
+        probe.set(1, 1);
+        assertEquals(values(3L), mapped.get(probe));
+        assertEquals(values(1L, 2L), mapped.get(tf.newTuple(2)));
+        probe.set(1, 1L);
+        assertNull(mapped.get(probe));
+    }
+
+    @Test
+    public void testComplexKeysNotSupported() throws Exception {
+        Map<Object, List<Tuple>> replicate = new HashMap<Object, List<Tuple>>();
+        replicate.put(tf.newTuple(BagFactory.getInstance().newDefaultBag()), values(1));
+        File tmpFile = nodeCache.createTempFile("replicatemap-[scope-2]-1");
+        assertFalse(MappedReplicateMap.write(replicate, tmpFile));
+        tmpFile.delete();
+    }
+
+    @Test
+    public void testDatum() throws Exception {
+        Tuple scalar = tf.newTuple(2);
+        scalar.set(0, 10L);
+        nodeCache.cacheDatum("scalar-scope-3", scalar);
+        nodeCache.cacheDatum("scalar-scope-4", null);
+        assertTrue(nodeCache.contains("scalar-scope-3"));
+        assertEquals(scalar, nodeCache.retrieveDatum("scalar-scope-3"));
+        assertTrue(nodeCache.contains("scalar-scope-4"));
+        assertNull(nodeCache.retrieveDatum("scalar-scope-4"));
+
+        // Other vertices do not see the cached objects
+        nodeCache.initialize(createConf(), null, "application_1_0001", 1, "scope-5");
+        assertFalse(nodeCache.contains("scalar-scope-3"));
+    }
+
+    @Test
+    public void testDeleteFinishedDags() throws Exception {
+        nodeCache.cacheDatum("scalar-scope-3", 1L);
+        nodeCache.initialize(createConf(), null, "application_1_0002", 1, "scope-1");
+        nodeCache.cacheDatum("scalar-scope-3", 2L);
+        assertEquals(2, dir.listFiles().length);
+
+        // The next DAG of the first application deletes the files of its
+        // first DAG, but not those of the other application
+        nodeCache.initialize(createConf(), null, "application_1_0001", 2, "scope-1");
+        assertEquals(2, dir.listFiles().length);
+        assertFalse(nodeCache.contains("scalar-scope-3"));
+        nodeCache.initialize(createConf(), null, "application_1_0002", 1, "scope-1");
+        assertEquals(2L, nodeCache.retrieveDatum("scalar-scope-3"));
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        Configuration conf = createConf();
+        conf.setLong(PigConfiguration.PIG_TEZ_NODE_CACHE_MAX_BYTES, 1000);
+        nodeCache.initialize(conf, null, "application_1_0001", 1, "scope-1");
+        Map<Object, List<Tuple>> replicate = new HashMap<Object, List<Tuple>>();
+        for (int i = 0; i < 100; i++) {
+            replicate.put("key" + i, values(i, "value" + i));
+        }
+        File tmpFile = nodeCache.createTempFile("replicatemap-[scope-2]-1");
+        assertTrue(MappedReplicateMap.write(replicate, tmpFile));
+        nodeCache.commit(tmpFile, "replicatemap-[scope-2]-1");
+        assertFalse(nodeCache.contains("replicatemap-[scope-2]-1"));
+        assertFalse(tmpFile.exists());
+        nodeCache.cacheDatum("scalar-scope-3", 1L);
+        assertTrue(nodeCache.contains("scalar-scope-3"));
+    }
+}
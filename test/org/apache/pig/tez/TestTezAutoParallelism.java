@@ -18,6 +18,7 @@
 package org.apache.pig.tez;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
@@ -190,6 +191,60 @@ public class TestTezAutoParallelism {
         }
     }
 
+    @Test
+    public void testMaxPartitionFactor() throws IOException{
+        // Input of the group by is partitioned into 3 partitions instead of
+        // the estimated 1, and merged back into 1 task as it is small
+        setProperty(PigConfiguration.PIG_TEZ_AUTO_PARALLELISM_MAX_PARTITION_FACTOR, "3");
+        setProperty(InputSizeReducerEstimator.BYTES_PER_REDUCER_PARAM,
+                Long.toString(InputSizeReducerEstimator.DEFAULT_BYTES_PER_REDUCER));
+
+        StringWriter writer = new StringWriter();
+        Util.createLogAppender("testMaxPartitionFactor", writer, ParallelismSetter.class);
+        try {
+            pigServer.registerQuery("A = load '" + INPUT_FILE1 + "' as (name:chararray, age:int);");
+            pigServer.registerQuery("B = group A by name;");
+            pigServer.registerQuery("C = foreach B generate group, COUNT(A);");
+            pigServer.store("C", "output1");
+            FileSystem fs = cluster.getFileSystem();
+            FileStatus[] files = fs.listStatus(new Path("output1"), PART_FILE_FILTER);
+            assertEquals(1, files.length);
+            assertTrue(writer.toString().contains("into 3 partitions instead of estimated 1"));
+        } finally {
+            Util.removeLogAppender("testMaxPartitionFactor", ParallelismSetter.class);
+            removeProperty(PigConfiguration.PIG_TEZ_AUTO_PARALLELISM_MAX_PARTITION_FACTOR);
+            Util.deleteFile(cluster, "output1");
+        }
+    }
+
+    @Test
+    public void testMaxPartitionFactorWithoutAutoParallelism() throws IOException{
+        // Nothing would merge the partitions back, so the input of the
+        // group by is not over partitioned
+        setProperty(PigConfiguration.PIG_TEZ_AUTO_PARALLELISM, "false");
+        setProperty(PigConfiguration.PIG_TEZ_AUTO_PARALLELISM_MAX_PARTITION_FACTOR, "3");
+        setProperty(InputSizeReducerEstimator.BYTES_PER_REDUCER_PARAM,
+                Long.toString(InputSizeReducerEstimator.DEFAULT_BYTES_PER_REDUCER));
+
+        StringWriter writer = new StringWriter();
+        Util.createLogAppender("testMaxPartitionFactorWithoutAutoParallelism", writer, ParallelismSetter.class);
+        try {
+            pigServer.registerQuery("A = load '" + INPUT_FILE1 + "' as (name:chararray, age:int);");
+            pigServer.registerQuery("B = group A by name;");
+            pigServer.registerQuery("C = foreach B generate group, COUNT(A);");
+            pigServer.store("C", "output1");
+            FileSystem fs = cluster.getFileSystem();
+            FileStatus[] files = fs.listStatus(new Path("output1"), PART_FILE_FILTER);
+            assertEquals(1, files.length);
+            assertFalse(writer.toString().contains("partitions instead of estimated"));
+        } finally {
+            Util.removeLogAppender("testMaxPartitionFactorWithoutAutoParallelism", ParallelismSetter.class);
+            removeProperty(PigConfiguration.PIG_TEZ_AUTO_PARALLELISM);
+            removeProperty(PigConfiguration.PIG_TEZ_AUTO_PARALLELISM_MAX_PARTITION_FACTOR);
+            Util.deleteFile(cluster, "output1");
+        }
+    }
+
     @Test
     public void testOrderbyDecreaseParallelism() throws IOException{
         // order by parallelism is 3 originally, reduce to 1
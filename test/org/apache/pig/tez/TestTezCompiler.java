@@ -95,6 +95,7 @@ public class TestTezCompiler {
         pc.getProperties().remove(PigConfiguration.PIG_TEZ_OPT_UNION);
         pc.getProperties().remove(PigConfiguration.PIG_EXEC_NO_SECONDARY_KEY);
         pc.getProperties().remove(PigConfiguration.PIG_BLOOMJOIN_STRATEGY);
+        pc.getProperties().remove(PigConfiguration.PIG_EXEC_TOPN_MAX_LIMIT);
         pigServer = new PigServer(pc);
     }
 
@@ -572,7 +573,11 @@ public class TestTezCompiler {
                 "c = limit b 10;" +
                 "store c into 'file:///tmp/pigoutput';";
 
+        setProperty(PigConfiguration.PIG_EXEC_TOPN_MAX_LIMIT, "0");
         run(query, "test/org/apache/pig/test/data/GoldenFiles/tez/TEZC-Limit-2.gld");
+        resetScope();
+        setProperty(PigConfiguration.PIG_EXEC_TOPN_MAX_LIMIT, null);
+        run(query, "test/org/apache/pig/test/data/GoldenFiles/tez/TEZC-Limit-2-TopN.gld");
     }
 
     @Test
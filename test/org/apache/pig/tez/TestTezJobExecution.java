@@ -23,6 +23,7 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
@@ -30,6 +31,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.pig.PigConfiguration;
 import org.apache.pig.PigRunner;
 import org.apache.pig.PigServer;
+import org.apache.pig.data.Tuple;
 import org.apache.pig.impl.plan.OperatorPlan;
 import org.apache.pig.test.Util;
 import org.apache.pig.tools.pigstats.JobStats;
@@ -122,6 +124,26 @@ public class TestTezJobExecution {
         assertEquals(2, listener.getJobsStarted().size());
     }
 
+    @Test
+    public void testScalarWithMorselParallelism() throws IOException {
+        pigServer.getPigContext().getProperties().setProperty(
+                PigConfiguration.PIG_EXEC_MORSEL_PARALLELISM, "4");
+        pigServer.getPigContext().getProperties().setProperty(
+                PigConfiguration.PIG_EXEC_MORSEL_SIZE, "2");
+        String query = "A = LOAD '" + INPUT_FILE + "' AS (x:int);"
+                + "B = GROUP A ALL;"
+                + "C = FOREACH B GENERATE COUNT(A) AS cnt;"
+                + "D = LOAD '" + INPUT_FILE + "' AS (x:int);"
+                + "E = FOREACH D GENERATE x, C.cnt;";
+        pigServer.registerQuery(query);
+        Iterator<Tuple> it = pigServer.openIterator("E");
+        int rows = 0;
+        while (it.hasNext()) {
+            assertEquals(6L, it.next().get(1));
+            rows++;
+        }
+        assertEquals(6, rows);
+    }
 
     private static class TestNotificationListener implements PigProgressNotificationListener {
 